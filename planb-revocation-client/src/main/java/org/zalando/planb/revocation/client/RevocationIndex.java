@@ -0,0 +1,220 @@
+package org.zalando.planb.revocation.client;
+
+import org.slf4j.Logger;
+import org.zalando.planb.revocation.domain.RevocationInfo;
+import org.zalando.planb.revocation.domain.RevocationType;
+import org.zalando.planb.revocation.domain.RevokedClaimsInfo;
+import org.zalando.planb.revocation.domain.RevokedGlobal;
+import org.zalando.planb.revocation.domain.RevokedTokenInfo;
+import org.zalando.planb.revocation.util.MessageHasher;
+
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Local index of the revocations returned by the revocations endpoint, checking tokens without a linear scan.
+ * <p>
+ * <p>Token revocations are indexed by token hash, and claim revocations by the names of the revoked claims and then by
+ * value hash, so that checking a token takes one hash of the token and one hash per distinct set of claim names. Tokens
+ * and claims are hashed with a {@link MessageHasher}, which must be configured with the same algorithms, salt and
+ * separator as the service.</p>
+ * <p>
+ * <p>A token is revoked when</p>
+ * <ul>
+ * <li>its hash matches a token revocation;</li>
+ * <li>its values of the revoked claims match a claim revocation, and it was issued before the revocation's
+ * {@code issued_before};</li>
+ * <li>it was issued before the latest {@code issued_before} of all global revocations.</li>
+ * </ul>
+ * <p>
+ * <p>Claim and global revocations do not apply to tokens of unknown issue time.</p>
+ * <p>
+ * <p>Thread safe. Checks never block while revocations are applied.</p>
+ *
+ * @author <a href="mailto:team-greendale@zalando.de">Team Greendale</a>
+ */
+public class RevocationIndex {
+
+    private static final Logger LOG = getLogger(RevocationIndex.class);
+
+    private final MessageHasher messageHasher;
+
+    private final ConcurrentMap<String, Revoked> tokens = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<List<String>, ConcurrentMap<String, Revoked>> claims = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Integer, Revoked> globals = new ConcurrentHashMap<>();
+
+    private volatile int globalIssuedBefore = Integer.MIN_VALUE;
+
+    /**
+     * Constructs a new empty index.
+     *
+     * @param messageHasher hashes tokens and claims the same way as the service
+     */
+    public RevocationIndex(final MessageHasher messageHasher) {
+        this.messageHasher = messageHasher;
+    }
+
+    /**
+     * Adds the specified revocation to the index.
+     *
+     * @param revocation the revocation, as returned by the revocations endpoint
+     */
+    public void apply(final RevocationInfo revocation) {
+        switch (revocation.type()) {
+            case TOKEN:
+                final RevokedTokenInfo token = (RevokedTokenInfo) revocation.data();
+                checkAlgorithm(RevocationType.TOKEN, token.hashAlgorithm());
+                tokens.merge(token.tokenHash(), new Revoked(revocation.revokedAt(), token.issuedBefore()),
+                        Revoked::newest);
+                break;
+
+            case CLAIM:
+                final RevokedClaimsInfo claim = (RevokedClaimsInfo) revocation.data();
+                checkAlgorithm(RevocationType.CLAIM, claim.hashAlgorithm());
+                if (!Objects.equals(claim.separator(), messageHasher.separator())) {
+                    LOG.warn("Claims are revoked with separator '{}', but hashed with '{}'", claim.separator(),
+                            messageHasher.separator());
+                }
+                claims.computeIfAbsent(Collections.unmodifiableList(new ArrayList<>(claim.names())),
+                        names -> new ConcurrentHashMap<>())
+                        .merge(claim.valueHash(), new Revoked(revocation.revokedAt(), claim.issuedBefore()),
+                                Revoked::newest);
+                break;
+
+            case GLOBAL:
+                final RevokedGlobal global = (RevokedGlobal) revocation.data();
+                globals.merge(revocation.revokedAt(), new Revoked(revocation.revokedAt(), global.issuedBefore()),
+                        Revoked::newest);
+                updateGlobalIssuedBefore();
+                break;
+        }
+    }
+
+    /**
+     * Removes the revocations revoked at or after the specified instant, to be fetched again after a refresh
+     * notification.
+     *
+     * @param revokedAt instant in UTC UNIX timestamp
+     */
+    public void removeRevokedSince(final int revokedAt) {
+        removeIf(revoked -> revoked.revokedAt >= revokedAt);
+    }
+
+    /**
+     * Removes the revocations revoked before the specified instant, which the service does not return anymore.
+     *
+     * @param revokedAt instant in UTC UNIX timestamp
+     */
+    public void removeRevokedBefore(final int revokedAt) {
+        removeIf(revoked -> revoked.revokedAt < revokedAt);
+    }
+
+    private void removeIf(final Predicate<Revoked> predicate) {
+        tokens.values().removeIf(predicate);
+        for (Map<String, Revoked> values : claims.values()) {
+            values.values().removeIf(predicate);
+        }
+        claims.values().removeIf(Map::isEmpty);
+        globals.values().removeIf(predicate);
+        updateGlobalIssuedBefore();
+    }
+
+    /**
+     * Returns whether a token is revoked.
+     *
+     * @param token    the token
+     * @param claims   the claims of the token, empty if unknown
+     * @param issuedAt the instant the token was issued at, in UTC UNIX timestamp, or {@code null} if unknown
+     * @return {@code true} if any indexed revocation applies to the token
+     * @throws NoSuchAlgorithmException if the hashing algorithm of the {@link MessageHasher} is not supported
+     */
+    public boolean isRevoked(final String token, final Map<String, String> claims, final Integer issuedAt)
+            throws NoSuchAlgorithmException {
+        if (issuedAt != null && issuedAt < globalIssuedBefore) {
+            return true;
+        }
+
+        if (!tokens.isEmpty() && tokens.containsKey(messageHasher.hashAndEncode(RevocationType.TOKEN, token))) {
+            return true;
+        }
+
+        if (issuedAt == null) {
+            return false;
+        }
+        for (Map.Entry<List<String>, ConcurrentMap<String, Revoked>> revoked : this.claims.entrySet()) {
+            final List<String> values = values(claims, revoked.getKey());
+            if (values != null) {
+                final Revoked match = revoked.getValue().get(messageHasher.hashAndEncode(RevocationType.CLAIM, values));
+                if (match != null && issuedAt < match.issuedBefore) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the number of indexed revocations.
+     *
+     * @return the number of token, claim and global revocations
+     */
+    public int size() {
+        return tokens.size() + claims.values().stream().mapToInt(Map::size).sum() + globals.size();
+    }
+
+    private static List<String> values(final Map<String, String> claims, final List<String> names) {
+        final List<String> values = new ArrayList<>(names.size());
+        for (String name : names) {
+            final String value = claims.get(name);
+            if (value == null) {
+                return null;
+            }
+            values.add(value);
+        }
+        return values;
+    }
+
+    private void updateGlobalIssuedBefore() {
+        globalIssuedBefore = globals.values().stream()
+                .mapToInt(revoked -> revoked.issuedBefore)
+                .max()
+                .orElse(Integer.MIN_VALUE);
+    }
+
+    private void checkAlgorithm(final RevocationType type, final String algorithm) {
+        if (!algorithm.equals(messageHasher.hashingAlgorithms().get(type))) {
+            LOG.warn("{} revocations are hashed with {}, but checked with {}", type, algorithm,
+                    messageHasher.hashingAlgorithms().get(type));
+        }
+    }
+
+    /**
+     * The newest revocation of a token, claim values or global revocation.
+     */
+    private static final class Revoked {
+
+        private final int revokedAt;
+
+        private final int issuedBefore;
+
+        private Revoked(final int revokedAt, final int issuedBefore) {
+            this.revokedAt = revokedAt;
+            this.issuedBefore = issuedBefore;
+        }
+
+        private static Revoked newest(final Revoked a, final Revoked b) {
+            return b.revokedAt >= a.revokedAt ? b : a;
+        }
+    }
+}
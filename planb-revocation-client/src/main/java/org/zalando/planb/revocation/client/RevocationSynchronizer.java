@@ -0,0 +1,184 @@
+package org.zalando.planb.revocation.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.guava.GuavaModule;
+import org.slf4j.Logger;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.client.RestOperations;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+import org.zalando.planb.revocation.domain.NotificationType;
+import org.zalando.planb.revocation.domain.RevocationInfo;
+import org.zalando.planb.revocation.domain.RevocationList;
+import org.zalando.planb.revocation.util.UnixTimestamp;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.Map;
+
+import static com.fasterxml.jackson.databind.PropertyNamingStrategy.CAMEL_CASE_TO_LOWER_CASE_WITH_UNDERSCORES;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Keeps a {@link RevocationIndex} in sync with the revocations endpoint.
+ * <p>
+ * <p>The first call gets the revocations of the last {@code initialLookback} seconds, and the following ones only the
+ * revocations after the cursor returned by the previous call. Refresh notifications drop the revocations since
+ * {@code REFRESH_FROM} from the index and get them again, and revocations beyond {@code MAX_TIME_DELTA} are dropped
+ * as the service does not return them anymore.</p>
+ * <p>
+ * <p>Run it periodically, e.g. with a {@link java.util.concurrent.ScheduledExecutorService}.</p>
+ *
+ * @author <a href="mailto:team-greendale@zalando.de">Team Greendale</a>
+ */
+public class RevocationSynchronizer implements Runnable {
+
+    private static final Logger LOG = getLogger(RevocationSynchronizer.class);
+
+    private final URI revocationsUri;
+
+    private final RestOperations restOperations;
+
+    private final RevocationIndex index;
+
+    private final int initialLookback;
+
+    private String cursor;
+
+    private Integer from;
+
+    private Integer refreshTimestamp;
+
+    private volatile long lastSync;
+
+    /**
+     * Constructs a new instance, not synchronized yet.
+     *
+     * @param revocationsUri  the URI of the revocations endpoint, e.g.
+     *                        {@code https://revocation.example.com/revocations}
+     * @param restOperations  the client calling the endpoint, able to read a {@link RevocationList}
+     * @param index           the index to keep in sync
+     * @param initialLookback seconds to get revocations for on the first call, at most the {@code MAX_TIME_DELTA} of
+     *                        the service
+     */
+    public RevocationSynchronizer(final URI revocationsUri, final RestOperations restOperations,
+                                  final RevocationIndex index, final int initialLookback) {
+        this.revocationsUri = revocationsUri;
+        this.restOperations = restOperations;
+        this.index = index;
+        this.initialLookback = initialLookback;
+    }
+
+    /**
+     * Returns a client reading revocation lists as sent by the service.
+     *
+     * @return a new client
+     */
+    public static RestTemplate restTemplate() {
+        final ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.setPropertyNamingStrategy(CAMEL_CASE_TO_LOWER_CASE_WITH_UNDERSCORES);
+        objectMapper.registerModule(new GuavaModule());
+
+        final RestTemplate restTemplate = new RestTemplate();
+        restTemplate.setMessageConverters(Collections.singletonList(
+                new MappingJackson2HttpMessageConverter(objectMapper)));
+        return restTemplate;
+    }
+
+    /**
+     * Synchronizes the index, logging failures instead of throwing them, so that periodic runs go on.
+     */
+    @Override
+    public void run() {
+        try {
+            sync();
+        } catch (RuntimeException e) {
+            LOG.warn("Could not synchronize revocations from {}", revocationsUri, e);
+        }
+    }
+
+    /**
+     * Gets the revocations stored since the previous call and applies them to the index.
+     */
+    public synchronized void sync() {
+        RevocationList revocations = get();
+        while (applyRefresh(revocations.meta())) {
+            revocations = get();
+        }
+
+        for (RevocationInfo revocation : revocations.revocations()) {
+            index.apply(revocation);
+        }
+
+        final Map<NotificationType, Object> meta = revocations.meta();
+        if (meta.containsKey(NotificationType.MAX_TIME_DELTA)) {
+            index.removeRevokedBefore(UnixTimestamp.now() - intValue(meta.get(NotificationType.MAX_TIME_DELTA)));
+        }
+        if (meta.containsKey(NotificationType.CURSOR)) {
+            cursor = (String) meta.get(NotificationType.CURSOR);
+        } else {
+            from = revocations.revocations().stream()
+                    .mapToInt(RevocationInfo::revokedAt)
+                    .max()
+                    .orElse(from());
+        }
+        lastSync = System.currentTimeMillis();
+        LOG.debug("Synchronized {} revocations, {} in the index", revocations.revocations().size(), index.size());
+    }
+
+    /**
+     * Returns when the index was last synchronized.
+     *
+     * @return the time of the last synchronization in milliseconds since the epoch, or {@code 0} if never
+     */
+    public long getLastSync() {
+        return lastSync;
+    }
+
+    private RevocationList get() {
+        final UriComponentsBuilder uri = UriComponentsBuilder.fromUri(revocationsUri);
+        if (cursor != null) {
+            uri.queryParam("cursor", cursor);
+        } else {
+            uri.queryParam("from", from());
+        }
+        return restOperations.getForObject(uri.build().encode().toUri(), RevocationList.class);
+    }
+
+    private int from() {
+        return from != null ? from : UnixTimestamp.now() - initialLookback;
+    }
+
+    /*
+     * The first refresh notification seen is only recorded, the revocations it refers to were just fetched.
+     */
+    private boolean applyRefresh(final Map<NotificationType, Object> meta) {
+        if (!meta.containsKey(NotificationType.REFRESH_FROM) || !meta.containsKey(NotificationType.REFRESH_TIMESTAMP)) {
+            return false;
+        }
+
+        final int timestamp = intValue(meta.get(NotificationType.REFRESH_TIMESTAMP));
+        final boolean initial = cursor == null && from == null;
+        if (initial || refreshTimestamp != null && timestamp <= refreshTimestamp) {
+            refreshTimestamp = refreshTimestamp == null ? timestamp : Math.max(refreshTimestamp, timestamp);
+            return false;
+        }
+
+        final int refreshFrom = intValue(meta.get(NotificationType.REFRESH_FROM));
+        LOG.info("Refreshing revocations since {}", refreshFrom);
+        refreshTimestamp = timestamp;
+        index.removeRevokedSince(refreshFrom);
+        cursor = null;
+        from = refreshFrom;
+        if (meta.containsKey(NotificationType.MAX_TIME_DELTA)) {
+
+            // the service rejects older timestamps, one second within so that its clock may tick in between
+            from = Math.max(from, UnixTimestamp.now() - intValue(meta.get(NotificationType.MAX_TIME_DELTA)) + 1);
+        }
+        return true;
+    }
+
+    private static int intValue(final Object value) {
+        return value instanceof Number ? ((Number) value).intValue() : Integer.parseInt(value.toString());
+    }
+}
@@ -0,0 +1,86 @@
+package org.zalando.planb.revocation.client;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.AuthenticationEntryPoint;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Rejects requests with a revoked bearer token, checked against a local {@link RevocationIndex}.
+ * <p>
+ * <p>Meant to be added to the Spring Security filter chain before the token is authenticated, e.g. with
+ * {@code http.addFilterBefore(new RevokedTokenFilter(index), AbstractPreAuthenticatedProcessingFilter.class)}, so that
+ * revoked tokens are rejected without calling the token info endpoint. Requests without a bearer token pass.</p>
+ * <p>
+ * <p>Rejected requests get {@code 401 Unauthorized} with an {@code invalid_token} error, unless another
+ * {@link AuthenticationEntryPoint} is set.</p>
+ *
+ * @author <a href="mailto:team-greendale@zalando.de">Team Greendale</a>
+ */
+public class RevokedTokenFilter extends OncePerRequestFilter {
+
+    private static final String BEARER = "Bearer ";
+
+    private final RevocationIndex index;
+
+    private AuthenticationEntryPoint authenticationEntryPoint = (request, response, e) -> {
+        response.setHeader(HttpHeaders.WWW_AUTHENTICATE,
+                "Bearer error=\"invalid_token\", error_description=\"" + e.getMessage() + "\"");
+        response.sendError(HttpServletResponse.SC_UNAUTHORIZED, e.getMessage());
+    };
+
+    /**
+     * Constructs a new filter checking tokens against the specified index.
+     *
+     * @param index the index of revocations, kept in sync by a {@link RevocationSynchronizer}
+     */
+    public RevokedTokenFilter(final RevocationIndex index) {
+        this.index = index;
+    }
+
+    public void setAuthenticationEntryPoint(final AuthenticationEntryPoint authenticationEntryPoint) {
+        this.authenticationEntryPoint = authenticationEntryPoint;
+    }
+
+    @Override
+    protected void doFilterInternal(final HttpServletRequest request, final HttpServletResponse response,
+                                    final FilterChain filterChain) throws ServletException, IOException {
+        final String authorization = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (authorization != null && authorization.regionMatches(true, 0, BEARER, 0, BEARER.length())) {
+            final String token = authorization.substring(BEARER.length()).trim();
+            final TokenClaims claims = TokenClaims.of(token);
+            final boolean revoked;
+            try {
+                revoked = index.isRevoked(token, claims.getClaims(), claims.getIssuedAt());
+            } catch (NoSuchAlgorithmException e) {
+                throw new ServletException("Could not hash token", e);
+            }
+
+            if (revoked) {
+                SecurityContextHolder.clearContext();
+                authenticationEntryPoint.commence(request, response, new RevokedTokenException());
+                return;
+            }
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    /**
+     * Thrown when a request comes with a revoked token.
+     */
+    public static class RevokedTokenException extends AuthenticationException {
+
+        public RevokedTokenException() {
+            super("The access token was revoked");
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package org.zalando.planb.revocation.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * The claims of a JWT token, read without verifying its signature.
+ * <p>
+ * <p>Revocation checks only narrow down which tokens are accepted, so the signature is left to the authentication
+ * done afterwards. Tokens which are not JWTs have no claims and an unknown issue time.</p>
+ *
+ * @author <a href="mailto:team-greendale@zalando.de">Team Greendale</a>
+ */
+final class TokenClaims {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final TokenClaims NONE = new TokenClaims(Collections.emptyMap(), null);
+
+    private final Map<String, String> claims;
+
+    private final Integer issuedAt;
+
+    private TokenClaims(final Map<String, String> claims, final Integer issuedAt) {
+        this.claims = claims;
+        this.issuedAt = issuedAt;
+    }
+
+    /**
+     * Reads the claims of the specified token.
+     *
+     * @param token the token
+     * @return the claims of the token, without claims if it is not a JWT
+     */
+    static TokenClaims of(final String token) {
+        final String[] parts = token.split("\\.", -1);
+        if (parts.length != 3) {
+            return NONE;
+        }
+
+        final JsonNode payload;
+        try {
+            payload = OBJECT_MAPPER.readTree(Base64.getUrlDecoder().decode(parts[1]));
+        } catch (IOException | IllegalArgumentException e) {
+            return NONE;
+        }
+        if (payload == null || !payload.isObject()) {
+            return NONE;
+        }
+
+        final Map<String, String> claims = new HashMap<>();
+        for (Iterator<Map.Entry<String, JsonNode>> fields = payload.fields(); fields.hasNext(); ) {
+            final Map.Entry<String, JsonNode> field = fields.next();
+            if (field.getValue().isValueNode()) {
+                claims.put(field.getKey(), field.getValue().asText());
+            }
+        }
+        final JsonNode iat = payload.get("iat");
+        return new TokenClaims(claims, iat != null && iat.canConvertToInt() ? iat.asInt() : null);
+    }
+
+    Map<String, String> getClaims() {
+        return claims;
+    }
+
+    Integer getIssuedAt() {
+        return issuedAt;
+    }
+}
@@ -0,0 +1,149 @@
+package org.zalando.planb.revocation.client;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+import org.zalando.planb.revocation.domain.ImmutableRevocationInfo;
+import org.zalando.planb.revocation.domain.ImmutableRevokedClaimsInfo;
+import org.zalando.planb.revocation.domain.ImmutableRevokedGlobal;
+import org.zalando.planb.revocation.domain.ImmutableRevokedTokenInfo;
+import org.zalando.planb.revocation.domain.RevocationInfo;
+import org.zalando.planb.revocation.domain.RevocationType;
+import org.zalando.planb.revocation.util.ImmutableMessageHasher;
+import org.zalando.planb.revocation.util.MessageHasher;
+import org.zalando.planb.revocation.util.UnixTimestamp;
+
+import java.util.Collections;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for {@link RevocationIndex}.
+ *
+ * @author <a href="mailto:team-greendale@zalando.de">Team Greendale</a>
+ */
+public class RevocationIndexTest {
+
+    static final MessageHasher MESSAGE_HASHER = ImmutableMessageHasher.builder()
+            .putHashingAlgorithms(RevocationType.TOKEN, "SHA-256")
+            .putHashingAlgorithms(RevocationType.CLAIM, "SHA-256")
+            .salt("seasaltisthebest")
+            .separator('|')
+            .build();
+
+    private static final int NOW = UnixTimestamp.now();
+
+    private static final Map<String, String> CLAIMS = ImmutableMap.of("uid", "jdoe", "realm", "/employees");
+
+    private final RevocationIndex index = new RevocationIndex(MESSAGE_HASHER);
+
+    /**
+     * Tests that tokens are revoked by their hash, whatever their issue time.
+     */
+    @Test
+    public void testTokenRevocation() throws Exception {
+        index.apply(tokenRevocation("revoked.token", NOW));
+
+        assertThat(index.isRevoked("revoked.token", Collections.emptyMap(), null)).isTrue();
+        assertThat(index.isRevoked("revoked.token", CLAIMS, NOW + 10)).isTrue();
+        assertThat(index.isRevoked("valid.token", CLAIMS, NOW - 10)).isFalse();
+    }
+
+    /**
+     * Tests that claim revocations apply to tokens with the same claim values issued before them.
+     */
+    @Test
+    public void testClaimRevocation() throws Exception {
+        index.apply(claimRevocation(NOW, "uid", "jdoe"));
+
+        assertThat(index.isRevoked("token", CLAIMS, NOW - 10)).isTrue();
+        assertThat(index.isRevoked("token", CLAIMS, NOW)).isFalse();
+        assertThat(index.isRevoked("token", CLAIMS, null)).isFalse();
+        assertThat(index.isRevoked("token", ImmutableMap.of("uid", "other"), NOW - 10)).isFalse();
+        assertThat(index.isRevoked("token", ImmutableMap.of("realm", "/employees"), NOW - 10)).isFalse();
+    }
+
+    /**
+     * Tests that claim values are hashed in the order of the revoked claim names, joined by the separator.
+     */
+    @Test
+    public void testClaimRevocationOfSeveralClaims() throws Exception {
+        index.apply(claimRevocation(NOW, "realm", "/employees", "uid", "jdoe"));
+
+        assertThat(index.isRevoked("token", CLAIMS, NOW - 10)).isTrue();
+        assertThat(index.isRevoked("token", ImmutableMap.of("uid", "jdoe", "realm", "/services"), NOW - 10))
+                .isFalse();
+    }
+
+    /**
+     * Tests that global revocations apply to all tokens issued before the latest one.
+     */
+    @Test
+    public void testGlobalRevocation() throws Exception {
+        index.apply(globalRevocation(NOW - 100, NOW - 100));
+        index.apply(globalRevocation(NOW - 50, NOW - 60));
+
+        assertThat(index.isRevoked("token", CLAIMS, NOW - 70)).isTrue();
+        assertThat(index.isRevoked("token", CLAIMS, NOW - 60)).isFalse();
+        assertThat(index.isRevoked("token", CLAIMS, null)).isFalse();
+
+        index.removeRevokedSince(NOW - 50);
+        assertThat(index.isRevoked("token", CLAIMS, NOW - 70)).isFalse();
+        assertThat(index.isRevoked("token", CLAIMS, NOW - 110)).isTrue();
+    }
+
+    /**
+     * Tests that revocations are removed by the instant they were revoked at.
+     */
+    @Test
+    public void testRemoveRevocations() throws Exception {
+        index.apply(tokenRevocation("old.token", NOW - 100));
+        index.apply(tokenRevocation("new.token", NOW));
+        index.apply(claimRevocation(NOW - 100, "uid", "jdoe"));
+        assertThat(index.size()).isEqualTo(3);
+
+        index.removeRevokedBefore(NOW - 10);
+
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.isRevoked("old.token", CLAIMS, NOW - 200)).isFalse();
+        assertThat(index.isRevoked("new.token", CLAIMS, NOW - 200)).isTrue();
+    }
+
+    static RevocationInfo tokenRevocation(final String token, final int revokedAt) throws Exception {
+        return ImmutableRevocationInfo.builder()
+                .type(RevocationType.TOKEN)
+                .revokedAt(revokedAt)
+                .data(ImmutableRevokedTokenInfo.builder()
+                        .tokenHash(MESSAGE_HASHER.hashAndEncode(RevocationType.TOKEN, token))
+                        .hashAlgorithm("SHA-256")
+                        .issuedBefore(revokedAt)
+                        .build())
+                .build();
+    }
+
+    private static RevocationInfo claimRevocation(final int revokedAt, final String... namesAndValues)
+            throws Exception {
+        final ImmutableRevokedClaimsInfo.Builder claims = ImmutableRevokedClaimsInfo.builder()
+                .hashAlgorithm("SHA-256")
+                .separator('|')
+                .issuedBefore(revokedAt);
+        final String[] values = new String[namesAndValues.length / 2];
+        for (int i = 0; i < values.length; i++) {
+            claims.addNames(namesAndValues[2 * i]);
+            values[i] = namesAndValues[2 * i + 1];
+        }
+        return ImmutableRevocationInfo.builder()
+                .type(RevocationType.CLAIM)
+                .revokedAt(revokedAt)
+                .data(claims.valueHash(MESSAGE_HASHER.hashAndEncode(RevocationType.CLAIM, values)).build())
+                .build();
+    }
+
+    private static RevocationInfo globalRevocation(final int revokedAt, final int issuedBefore) {
+        return ImmutableRevocationInfo.builder()
+                .type(RevocationType.GLOBAL)
+                .revokedAt(revokedAt)
+                .data(ImmutableRevokedGlobal.builder().issuedBefore(issuedBefore).build())
+                .build();
+    }
+}
@@ -0,0 +1,163 @@
+package org.zalando.planb.revocation.client;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.web.client.RestOperations;
+import org.zalando.planb.revocation.domain.ImmutableRevocationList;
+import org.zalando.planb.revocation.domain.NotificationType;
+import org.zalando.planb.revocation.domain.RevocationList;
+import org.zalando.planb.revocation.util.UnixTimestamp;
+
+import java.net.URI;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.zalando.planb.revocation.client.RevocationIndexTest.tokenRevocation;
+
+/**
+ * Unit tests for {@link RevocationSynchronizer}.
+ *
+ * @author <a href="mailto:team-greendale@zalando.de">Team Greendale</a>
+ */
+public class RevocationSynchronizerTest {
+
+    private static final URI REVOCATIONS = URI.create("http://localhost/revocations");
+
+    private static final int NOW = UnixTimestamp.now();
+
+    private final RestOperations restOperations = mock(RestOperations.class);
+
+    private final RevocationIndex index = new RevocationIndex(RevocationIndexTest.MESSAGE_HASHER);
+
+    private final RevocationSynchronizer synchronizer = new RevocationSynchronizer(REVOCATIONS, restOperations, index,
+            3600);
+
+    /**
+     * Tests that the first call gets the revocations since the initial lookback, and the next one those after the
+     * returned cursor.
+     */
+    @Test
+    public void testIncrementalSync() throws Exception {
+        RevocationList first = ImmutableRevocationList.builder()
+                .addRevocations(tokenRevocation("first.token", NOW - 10))
+                .putMeta(NotificationType.CURSOR, "first")
+                .build();
+        RevocationList second = ImmutableRevocationList.builder()
+                .addRevocations(tokenRevocation("second.token", NOW))
+                .putMeta(NotificationType.CURSOR, "second")
+                .build();
+        when(restOperations.getForObject(any(URI.class), eq(RevocationList.class))).thenReturn(first, second);
+
+        synchronizer.sync();
+        synchronizer.sync();
+
+        ArgumentCaptor<URI> uris = ArgumentCaptor.forClass(URI.class);
+        verify(restOperations, times(2)).getForObject(uris.capture(), eq(RevocationList.class));
+        assertThat(uris.getAllValues().get(0).getQuery()).startsWith("from=");
+        assertThat(Integer.parseInt(uris.getAllValues().get(0).getQuery().substring(5)))
+                .isBetween(NOW - 3600, NOW - 3600 + 5);
+        assertThat(uris.getAllValues().get(1).getQuery()).isEqualTo("cursor=first");
+        assertThat(index.isRevoked("first.token", Collections.emptyMap(), null)).isTrue();
+        assertThat(index.isRevoked("second.token", Collections.emptyMap(), null)).isTrue();
+        assertThat(synchronizer.getLastSync()).isGreaterThan(0);
+    }
+
+    /**
+     * Tests that a new refresh notification drops the revocations since {@code REFRESH_FROM} and gets them again.
+     */
+    @Test
+    public void testRefresh() throws Exception {
+        RevocationList initial = ImmutableRevocationList.builder()
+                .addRevocations(tokenRevocation("dropped.token", NOW - 10))
+                .addRevocations(tokenRevocation("kept.token", NOW - 100))
+                .putMeta(NotificationType.CURSOR, "initial")
+                .build();
+        RevocationList refresh = ImmutableRevocationList.builder()
+                .putMeta(NotificationType.CURSOR, "initial")
+                .putMeta(NotificationType.REFRESH_FROM, NOW - 50)
+                .putMeta(NotificationType.REFRESH_TIMESTAMP, NOW)
+                .build();
+        RevocationList refreshed = ImmutableRevocationList.builder()
+                .addRevocations(tokenRevocation("refreshed.token", NOW - 10))
+                .putMeta(NotificationType.CURSOR, "refreshed")
+                .putMeta(NotificationType.REFRESH_FROM, NOW - 50)
+                .putMeta(NotificationType.REFRESH_TIMESTAMP, NOW)
+                .build();
+        when(restOperations.getForObject(any(URI.class), eq(RevocationList.class)))
+                .thenReturn(initial, refresh, refreshed, refreshed);
+
+        synchronizer.sync();
+        synchronizer.sync();
+
+        ArgumentCaptor<URI> uris = ArgumentCaptor.forClass(URI.class);
+        verify(restOperations, times(3)).getForObject(uris.capture(), eq(RevocationList.class));
+        assertThat(uris.getAllValues().get(2).getQuery()).isEqualTo("from=" + (NOW - 50));
+        assertThat(index.isRevoked("dropped.token", Collections.emptyMap(), null)).isFalse();
+        assertThat(index.isRevoked("kept.token", Collections.emptyMap(), null)).isTrue();
+        assertThat(index.isRevoked("refreshed.token", Collections.emptyMap(), null)).isTrue();
+
+        synchronizer.sync();
+        verify(restOperations, times(4)).getForObject(uris.capture(), eq(RevocationList.class));
+        assertThat(uris.getValue().getQuery()).isEqualTo("cursor=refreshed");
+    }
+
+    /**
+     * Tests that a refresh from beyond {@code MAX_TIME_DELTA} gets the revocations from the oldest timestamp accepted
+     * by the service.
+     */
+    @Test
+    public void testRefreshBeyondMaxTimeDelta() throws Exception {
+        RevocationList initial = ImmutableRevocationList.builder()
+                .putMeta(NotificationType.CURSOR, "initial")
+                .putMeta(NotificationType.MAX_TIME_DELTA, 100)
+                .build();
+        RevocationList refresh = ImmutableRevocationList.builder()
+                .putMeta(NotificationType.CURSOR, "initial")
+                .putMeta(NotificationType.MAX_TIME_DELTA, 100)
+                .putMeta(NotificationType.REFRESH_FROM, NOW - 500)
+                .putMeta(NotificationType.REFRESH_TIMESTAMP, NOW)
+                .build();
+        RevocationList refreshed = ImmutableRevocationList.builder()
+                .putMeta(NotificationType.CURSOR, "refreshed")
+                .putMeta(NotificationType.MAX_TIME_DELTA, 100)
+                .putMeta(NotificationType.REFRESH_FROM, NOW - 500)
+                .putMeta(NotificationType.REFRESH_TIMESTAMP, NOW)
+                .build();
+        when(restOperations.getForObject(any(URI.class), eq(RevocationList.class)))
+                .thenReturn(initial, refresh, refreshed);
+
+        synchronizer.sync();
+        synchronizer.sync();
+
+        ArgumentCaptor<URI> uris = ArgumentCaptor.forClass(URI.class);
+        verify(restOperations, times(3)).getForObject(uris.capture(), eq(RevocationList.class));
+        assertThat(uris.getAllValues().get(2).getQuery()).startsWith("from=");
+        assertThat(Integer.parseInt(uris.getAllValues().get(2).getQuery().substring(5)))
+                .isBetween(NOW - 100 + 1, UnixTimestamp.now() - 100 + 1);
+    }
+
+    /**
+     * Tests that revocations the service does not return anymore are dropped.
+     */
+    @Test
+    public void testRevocationsBeyondMaxTimeDeltaAreDropped() throws Exception {
+        RevocationList revocations = ImmutableRevocationList.builder()
+                .addRevocations(tokenRevocation("expired.token", NOW - 200))
+                .addRevocations(tokenRevocation("recent.token", NOW - 10))
+                .putMeta(NotificationType.CURSOR, "cursor")
+                .putMeta(NotificationType.MAX_TIME_DELTA, 100)
+                .build();
+        when(restOperations.getForObject(any(URI.class), eq(RevocationList.class))).thenReturn(revocations);
+
+        synchronizer.sync();
+
+        assertThat(index.isRevoked("expired.token", Collections.emptyMap(), null)).isFalse();
+        assertThat(index.isRevoked("recent.token", Collections.emptyMap(), null)).isTrue();
+    }
+}
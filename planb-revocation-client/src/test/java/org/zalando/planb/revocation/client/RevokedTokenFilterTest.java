@@ -0,0 +1,88 @@
+package org.zalando.planb.revocation.client;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.zalando.planb.revocation.domain.ImmutableRevocationInfo;
+import org.zalando.planb.revocation.domain.ImmutableRevokedGlobal;
+import org.zalando.planb.revocation.domain.RevocationType;
+import org.zalando.planb.revocation.util.UnixTimestamp;
+
+import java.util.Base64;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.zalando.planb.revocation.client.RevocationIndexTest.tokenRevocation;
+
+/**
+ * Unit tests for {@link RevokedTokenFilter}.
+ *
+ * @author <a href="mailto:team-greendale@zalando.de">Team Greendale</a>
+ */
+public class RevokedTokenFilterTest {
+
+    private static final int NOW = UnixTimestamp.now();
+
+    private final RevocationIndex index = new RevocationIndex(RevocationIndexTest.MESSAGE_HASHER);
+
+    private final RevokedTokenFilter filter = new RevokedTokenFilter(index);
+
+    @Before
+    public void setUp() throws Exception {
+        index.apply(tokenRevocation("revoked.token", NOW));
+    }
+
+    /**
+     * Tests that requests with a revoked token are rejected with {@code 401 Unauthorized}.
+     */
+    @Test
+    public void testRevokedTokenIsRejected() throws Exception {
+        MockHttpServletResponse response = filter("Bearer revoked.token");
+
+        assertThat(response.getStatus()).isEqualTo(401);
+        assertThat(response.getHeader(HttpHeaders.WWW_AUTHENTICATE)).contains("invalid_token");
+    }
+
+    /**
+     * Tests that requests with a valid token, or without token, pass.
+     */
+    @Test
+    public void testValidTokenPasses() throws Exception {
+        assertThat(filter("Bearer valid.token").getStatus()).isEqualTo(200);
+        assertThat(filter(null).getStatus()).isEqualTo(200);
+    }
+
+    /**
+     * Tests that the issue time of JWT tokens is read from their claims.
+     */
+    @Test
+    public void testJwtIssuedBeforeGlobalRevocationIsRejected() throws Exception {
+        index.apply(ImmutableRevocationInfo.builder()
+                .type(RevocationType.GLOBAL)
+                .revokedAt(NOW)
+                .data(ImmutableRevokedGlobal.builder().issuedBefore(NOW - 60).build())
+                .build());
+
+        assertThat(filter("Bearer " + jwt(NOW - 120)).getStatus()).isEqualTo(401);
+        assertThat(filter("Bearer " + jwt(NOW)).getStatus()).isEqualTo(200);
+    }
+
+    private MockHttpServletResponse filter(final String authorization) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/resource");
+        if (authorization != null) {
+            request.addHeader(HttpHeaders.AUTHORIZATION, authorization);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    private static String jwt(final int issuedAt) {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString("{\"alg\":\"none\"}".getBytes(UTF_8)) + "."
+                + encoder.encodeToString(("{\"sub\":\"jdoe\",\"iat\":" + issuedAt + "}").getBytes(UTF_8)) + ".";
+    }
+}
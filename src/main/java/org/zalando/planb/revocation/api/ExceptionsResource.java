@@ -15,6 +15,7 @@ import org.zalando.planb.revocation.api.exception.AncientRevocationException;
 import org.zalando.planb.revocation.api.exception.FutureRevocationException;
 import org.zalando.planb.revocation.api.exception.RevocationUnauthorizedException;
 import org.zalando.planb.revocation.api.exception.SerializationException;
+import org.zalando.planb.revocation.api.exception.StorageTimeoutException;
 import org.zalando.planb.revocation.domain.Problem;
 
 import static org.slf4j.LoggerFactory.getLogger;
@@ -148,6 +149,21 @@ public class ExceptionsResource {
         return Problem.fromException(e, HttpStatus.INTERNAL_SERVER_ERROR);
     }
 
+    /**
+     * Handles reads from the store that did not complete in time.
+     *
+     * @param e the exception triggering the error
+     * @return a {@link Problem} with the timeout information.
+     */
+    @ExceptionHandler(StorageTimeoutException.class)
+    @ResponseStatus(value = HttpStatus.SERVICE_UNAVAILABLE)
+    @ResponseBody
+    public Problem storageTimeout(final StorageTimeoutException e) {
+        log.warn("Timed out reading from the store");
+
+        return Problem.fromException(e, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
     /**
      * Handles all remaining exceptions not covered by the other handlers.
      * <p>
@@ -1,8 +1,14 @@
 package org.zalando.planb.revocation.api;
 
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.zalando.planb.revocation.domain.RevocationDigest;
 import org.zalando.planb.revocation.domain.RevocationList;
 import org.zalando.planb.revocation.domain.RevocationRequest;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.security.NoSuchAlgorithmException;
 
 /**
@@ -13,15 +19,51 @@ import java.security.NoSuchAlgorithmException;
 public interface RevocationResource {
 
     /**
-     * Returns all the revocations since the specified timestamp.
+     * Writes all the revocations since the specified timestamp, or after the specified cursor, to the response.
      *
-     * <p>Also returns meta information which may be of importance to the client, like a refresh notification.</p>
+     * <p>Also writes meta information which may be of importance to the client, like a refresh notification, and the
+     * cursor to pass in the next call.</p>
      *
-     * @param   from  instant from when tokens were revoked, in UTC UNIX timestamp
+     * @param   from      instant from when tokens were revoked, in UTC UNIX timestamp, or {@code null}
+     * @param   cursor    cursor returned by a previous call, or {@code null}
+     * @param   request   the current request, used to answer conditional requests
+     * @param   response  the response the revocations are written to, left empty if not modified
+     */
+    void get(Integer from, String cursor, WebRequest request, HttpServletResponse response) throws IOException,
+        NoSuchAlgorithmException;
+
+    /**
+     * Returns all the revocations since the specified timestamp or cursor, waiting up to {@code wait} seconds for a
+     * newer revocation or refresh notification to be stored when there is none yet.
+     *
+     * @param   from    instant from when tokens were revoked, in UTC UNIX timestamp, or {@code null}
+     * @param   cursor  cursor returned by a previous call, or {@code null}
+     * @param   wait    maximum number of seconds to wait
+     *
+     * @return  the pending result, set with all the revocations since the specified timestamp or cursor
+     */
+    DeferredResult<RevocationList> get(Integer from, String cursor, int wait) throws NoSuchAlgorithmException;
+
+    /**
+     * Streams new revocations as Server-Sent Events, resuming after {@code lastEventId} or starting from {@code from}
+     * when specified.
+     *
+     * @param   from         instant from when tokens were revoked, in UTC UNIX timestamp, or {@code null}
+     * @param   lastEventId  id of the last event received before reconnecting, or {@code null}
+     *
+     * @return  the emitter of the events
+     */
+    SseEmitter stream(Integer from, String lastEventId);
+
+    /**
+     * Returns a Bloom filter of the hashes of all revoked tokens, so that clients only fetch revocations for tokens
+     * which might be revoked.
+     *
+     * @param   request  the current request, used to answer conditional requests
      *
-     * @return  all the revocations since the specified timestamp
+     * @return  the digest of revoked tokens, or {@code null} if not modified
      */
-    RevocationList get(int from) throws NoSuchAlgorithmException;
+    RevocationDigest digest(WebRequest request);
 
     /**
      * Posts the specified revocation to be stored.
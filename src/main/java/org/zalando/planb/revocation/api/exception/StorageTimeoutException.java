@@ -0,0 +1,17 @@
+package org.zalando.planb.revocation.api.exception;
+
+/**
+ * Thrown when the revocation store could not answer a query within its deadline.
+ *
+ * @author  <a href="mailto:team-greendale@zalando.de">Team Greendale</a>
+ */
+public class StorageTimeoutException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final String MESSAGE = "Timed out reading revocations from the store.";
+
+    public StorageTimeoutException() {
+        super(MESSAGE);
+    }
+}
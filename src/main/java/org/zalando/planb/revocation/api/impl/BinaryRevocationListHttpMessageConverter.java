@@ -0,0 +1,52 @@
+package org.zalando.planb.revocation.api.impl;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.zalando.planb.revocation.domain.RevocationInfo;
+import org.zalando.planb.revocation.domain.RevocationList;
+import org.zalando.planb.revocation.util.BinaryRevocationListReader;
+import org.zalando.planb.revocation.util.BinaryRevocationListWriter;
+
+import java.io.IOException;
+
+/**
+ * Converts {@link RevocationList}s from and to the compact binary format of {@link BinaryRevocationListWriter}.
+ *
+ * @author <a href="mailto:team-greendale@zalando.de">Team Greendale</a>
+ */
+public class BinaryRevocationListHttpMessageConverter extends AbstractHttpMessageConverter<RevocationList> {
+
+    public static final MediaType MEDIA_TYPE = MediaType.valueOf(BinaryRevocationListWriter.MEDIA_TYPE_VALUE);
+
+    public BinaryRevocationListHttpMessageConverter() {
+        super(MEDIA_TYPE);
+    }
+
+    @Override
+    protected boolean supports(final Class<?> clazz) {
+        return RevocationList.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    protected RevocationList readInternal(final Class<? extends RevocationList> clazz,
+                                          final HttpInputMessage inputMessage) throws IOException {
+        try {
+            return BinaryRevocationListReader.read(inputMessage.getBody());
+        } catch (IOException | ArithmeticException e) {
+            throw new HttpMessageNotReadableException("Could not read binary revocation list", e);
+        }
+    }
+
+    @Override
+    protected void writeInternal(final RevocationList revocationList, final HttpOutputMessage outputMessage)
+            throws IOException {
+        final BinaryRevocationListWriter writer = new BinaryRevocationListWriter(outputMessage.getBody());
+        for (RevocationInfo revocation : revocationList.revocations()) {
+            writer.write(revocation);
+        }
+        writer.finish(revocationList.meta());
+    }
+}
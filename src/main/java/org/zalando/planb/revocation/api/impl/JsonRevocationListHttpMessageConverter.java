@@ -0,0 +1,51 @@
+package org.zalando.planb.revocation.api.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.zalando.planb.revocation.domain.RevocationList;
+import org.zalando.planb.revocation.util.RevocationJsonCodec;
+
+import java.io.IOException;
+
+/**
+ * Converts {@link RevocationList}s from and to JSON with the pre-built reader and writer of a
+ * {@link RevocationJsonCodec}.
+ * <p>
+ * <p>Produces the same JSON as the generic Jackson converter, which remains in charge of all other types.</p>
+ *
+ * @author <a href="mailto:team-greendale@zalando.de">Team Greendale</a>
+ */
+public class JsonRevocationListHttpMessageConverter extends AbstractHttpMessageConverter<RevocationList> {
+
+    private final RevocationJsonCodec codec;
+
+    public JsonRevocationListHttpMessageConverter(final RevocationJsonCodec codec) {
+        super(MediaType.APPLICATION_JSON_UTF8, new MediaType("application", "*+json"));
+        this.codec = codec;
+    }
+
+    @Override
+    protected boolean supports(final Class<?> clazz) {
+        return RevocationList.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    protected RevocationList readInternal(final Class<? extends RevocationList> clazz,
+                                          final HttpInputMessage inputMessage) throws IOException {
+        try {
+            return codec.revocationListReader().readValue(inputMessage.getBody());
+        } catch (JsonProcessingException e) {
+            throw new HttpMessageNotReadableException("Could not read revocation list", e);
+        }
+    }
+
+    @Override
+    protected void writeInternal(final RevocationList revocationList, final HttpOutputMessage outputMessage)
+            throws IOException {
+        codec.writerFor(revocationList).writeValue(outputMessage.getBody(), revocationList);
+    }
+}
@@ -12,6 +12,7 @@ import org.springframework.web.bind.annotation.RestController;
 import org.zalando.planb.revocation.api.NotificationResource;
 import org.zalando.planb.revocation.domain.NotificationType;
 import org.zalando.planb.revocation.persistence.RevocationStore;
+import org.zalando.planb.revocation.persistence.RevocationTailer;
 
 @RestController
 @RequestMapping(path = "/notifications", produces = MediaType.APPLICATION_JSON_VALUE)
@@ -20,9 +21,12 @@ public class NotificationResourceImpl implements NotificationResource {
 
     private final RevocationStore storage;
 
+    private final RevocationTailer revocationTailer;
+
     @Autowired
-    public NotificationResourceImpl(RevocationStore storage) {
+    public NotificationResourceImpl(RevocationStore storage, RevocationTailer revocationTailer) {
         this.storage = storage;
+        this.revocationTailer = revocationTailer;
     }
 
     @Override
@@ -50,6 +54,9 @@ public class NotificationResourceImpl implements NotificationResource {
                 }
 
                 storage.storeRefresh(from);
+
+                // Wakes up requests waiting on this node without waiting for the next scheduled tail
+                revocationTailer.requestTail();
                 break;
         }
     }
@@ -0,0 +1,219 @@
+package org.zalando.planb.revocation.api.impl;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import org.slf4j.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Lets concurrent requests for the same response share a single rendering of it.
+ * <p>
+ * <p>The first request for a key renders the response into a buffer, and requests for the same key arriving meanwhile
+ * wait for it and write the same bytes. Nothing is cached: once rendered, the next request for the key renders the
+ * response again.</p>
+ * <p>
+ * <p>Responses larger than {@code maxSize} bytes are not shared. The first request then streams the rest of its
+ * response directly, and the waiting requests render their own, so that large responses are never held in memory as a
+ * whole, and waiting requests are not held by a slow client. Waiting requests also render their own response when the
+ * shared rendering fails.</p>
+ *
+ * @param <K> the type of the keys identifying equal responses
+ * @author <a href="mailto:team-greendale@zalando.de">Team Greendale</a>
+ */
+class ResponseCoalescer<K> {
+
+    private static final Logger LOG = getLogger(ResponseCoalescer.class);
+
+    static final String METRIC_PREFIX = "planb.revocations.coalescing";
+
+    private final int maxSize;
+
+    private final ConcurrentMap<K, Rendering> renderings = new ConcurrentHashMap<>();
+
+    private final Histogram callers;
+
+    private final Counter coalesced;
+
+    private final Counter oversized;
+
+    /**
+     * Constructs a new coalescer.
+     *
+     * @param maxSize        maximum size in bytes of shared responses, {@code 0} to disable coalescing
+     * @param metricRegistry registry where the number of callers served by each rendering is published
+     */
+    ResponseCoalescer(final int maxSize, final MetricRegistry metricRegistry) {
+        this.maxSize = maxSize;
+
+        callers = metricRegistry.histogram(METRIC_PREFIX + ".callers");
+        coalesced = metricRegistry.counter(METRIC_PREFIX + ".coalesced");
+        oversized = metricRegistry.counter(METRIC_PREFIX + ".oversized");
+    }
+
+    /**
+     * Renders a response.
+     */
+    @FunctionalInterface
+    interface Renderer {
+
+        /**
+         * Writes the response to the specified stream.
+         *
+         * @param out the stream the response is written to
+         * @throws IOException if the response could not be written
+         */
+        void render(OutputStream out) throws IOException;
+    }
+
+    /**
+     * Writes the response for the specified key, rendered by this or a concurrent call.
+     *
+     * @param key      identifies equal responses
+     * @param out      the stream the response is written to
+     * @param renderer renders the response, unless shared with a concurrent call
+     * @throws IOException if the response could not be written
+     */
+    void write(final K key, final OutputStream out, final Renderer renderer) throws IOException {
+        if (maxSize <= 0) {
+            renderer.render(out);
+            return;
+        }
+
+        final Rendering joining = new Rendering();
+        final Rendering rendering = renderings.merge(key, joining, (current, ignored) -> current.join());
+        if (rendering == joining) {
+            render(key, rendering, out, renderer);
+            return;
+        }
+
+        coalesced.inc();
+        final byte[] shared = rendering.await();
+        if (shared != null) {
+            out.write(shared);
+        } else {
+            renderer.render(out);
+        }
+    }
+
+    private void render(final K key, final Rendering rendering, final OutputStream out, final Renderer renderer)
+            throws IOException {
+        final Buffer buffer = new Buffer(out, () -> {
+            oversized.inc();
+            release(key, rendering, null);
+        });
+        try {
+            renderer.render(buffer);
+        } catch (IOException | RuntimeException | Error e) {
+            release(key, rendering, null);
+            throw e;
+        }
+
+        if (buffer.isSpilled()) {
+            return;
+        }
+        final byte[] bytes = buffer.toByteArray();
+        release(key, rendering, bytes);
+        out.write(bytes);
+    }
+
+    /*
+     * Removed before completion, so that callers arriving afterwards render a fresh response, and the number of callers
+     * does not change anymore.
+     */
+    private void release(final K key, final Rendering rendering, final byte[] bytes) {
+        if (renderings.remove(key, rendering)) {
+            callers.update(rendering.callers.get());
+        }
+        rendering.result.complete(bytes);
+    }
+
+    /**
+     * A rendering in progress, and the callers waiting for it.
+     */
+    private static final class Rendering {
+
+        private final AtomicInteger callers = new AtomicInteger(1);
+
+        private final CompletableFuture<byte[]> result = new CompletableFuture<>();
+
+        private Rendering join() {
+            callers.incrementAndGet();
+            return this;
+        }
+
+        private byte[] await() {
+            try {
+                return result.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            } catch (ExecutionException e) {
+                LOG.debug("Shared rendering failed", e);
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Buffers up to {@code maxSize} bytes, then writes them to the underlying stream and passes everything else
+     * through.
+     */
+    private final class Buffer extends OutputStream {
+
+        private final OutputStream out;
+
+        private final Runnable onSpill;
+
+        private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+        private Buffer(final OutputStream out, final Runnable onSpill) {
+            this.out = out;
+            this.onSpill = onSpill;
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            if (buffer != null && buffer.size() + len > maxSize) {
+                onSpill.run();
+                buffer.writeTo(out);
+                buffer = null;
+            }
+            if (buffer != null) {
+                buffer.write(b, off, len);
+            } else {
+                out.write(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (buffer == null) {
+                out.flush();
+            }
+        }
+
+        private boolean isSpilled() {
+            return buffer == null;
+        }
+
+        private byte[] toByteArray() {
+            return buffer.toByteArray();
+        }
+    }
+}
@@ -5,9 +5,11 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
 import org.zalando.planb.revocation.config.WebConfig;
 
+import com.codahale.metrics.Counter;
 import com.codahale.metrics.Histogram;
 import com.codahale.metrics.MetricRegistry;
 
@@ -19,19 +21,40 @@ import com.codahale.metrics.MetricRegistry;
  */
 public class ResponseSizeHandlerInterceptor extends HandlerInterceptorAdapter {
 
+    /**
+     * Request attribute holding the number of bytes written by handlers streaming their response without a
+     * {@code Content-Length}.
+     */
+    public static final String RESPONSE_SIZE_ATTRIBUTE = ResponseSizeHandlerInterceptor.class.getName() + ".size";
+
     private final Histogram histogram;
 
+    private final Counter okResponses;
+
+    private final Counter notModifiedResponses;
+
     public ResponseSizeHandlerInterceptor(MetricRegistry metricRegistry) {
         this.histogram = metricRegistry.histogram("planb.revocations.responseSize");
+        this.okResponses = metricRegistry.counter("planb.revocations.responses.ok");
+        this.notModifiedResponses = metricRegistry.counter("planb.revocations.responses.notModified");
     }
 
     @Override
     public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex)
             throws Exception {
         if (HttpMethod.GET.name().equals(request.getMethod())) {
+            if (response.getStatus() == HttpStatus.OK.value()) {
+                okResponses.inc();
+            } else if (response.getStatus() == HttpStatus.NOT_MODIFIED.value()) {
+                notModifiedResponses.inc();
+            }
+
             String headerValue = response.getHeader(HttpHeaders.CONTENT_LENGTH);
+            Object streamed = request.getAttribute(RESPONSE_SIZE_ATTRIBUTE);
             if (headerValue != null) {
                 histogram.update(Long.valueOf(headerValue));
+            } else if (streamed instanceof Long) {
+                histogram.update((Long) streamed);
             }
         }
     }
@@ -0,0 +1,426 @@
+package org.zalando.planb.revocation.api.impl;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import org.slf4j.Logger;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.zalando.planb.revocation.domain.Refresh;
+import org.zalando.planb.revocation.domain.RevocationData;
+import org.zalando.planb.revocation.domain.RevocationInfo;
+import org.zalando.planb.revocation.persistence.RevocationTailer;
+import org.zalando.planb.revocation.util.UnixTimestamp;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Fans out the revocations and refresh notifications found by a {@link RevocationTailer} to Server-Sent Events
+ * subscribers.
+ * <p>
+ * <p>New revocations are converted once and queued to every subscriber. Each subscriber has a bounded buffer, drained
+ * by a sender thread, and is disconnected when its buffer is full instead of slowing down the others. Senders wait
+ * for each write only up to a deadline, so that a stalled client is disconnected without holding one of them. Events
+ * carry {@code revoked_at} and the bucket UUID of the revocation as id, so that clients can resume with
+ * {@code Last-Event-ID}.</p>
+ *
+ * @author <a href="mailto:team-greendale@zalando.de">Team Greendale</a>
+ */
+class RevocationEventStream implements RevocationTailer.Listener {
+
+    private static final Logger LOG = getLogger(RevocationEventStream.class);
+
+    static final String METRIC_PREFIX = "planb.revocations.stream";
+
+    static final String REVOCATION_EVENT = "revocation";
+
+    static final String REFRESH_EVENT = "refresh";
+
+    private final Function<Collection<RevocationData>, List<RevocationInfo>> converter;
+
+    private final Executor sender;
+
+    private final Executor writer;
+
+    private final int bufferSize;
+
+    private final long timeout;
+
+    private final long writeTimeout;
+
+    private final int lookback;
+
+    private final Set<Subscriber> subscribers = new CopyOnWriteArraySet<>();
+
+    private final Timer lag;
+
+    private final Counter slowConsumers;
+
+    /**
+     * Constructs a new stream without subscribers.
+     *
+     * @param converter      converts revocations to the representation sent to subscribers
+     * @param sender         executor sending events to subscribers
+     * @param writer         executor performing the blocking writes of the senders, growing with stalled subscribers
+     * @param bufferSize     maximum number of events waiting to be sent to a single subscriber
+     * @param timeout        time after which subscribers are disconnected, in milliseconds
+     * @param writeTimeout   time after which subscribers not accepting an event are disconnected, in milliseconds
+     * @param lookback       seconds before the previous tail query that the tailer queries again
+     * @param metricRegistry registry where subscriber count, fan-out lag and disconnection metrics are published
+     */
+    RevocationEventStream(final Function<Collection<RevocationData>, List<RevocationInfo>> converter,
+                          final Executor sender, final Executor writer, final int bufferSize, final long timeout,
+                          final long writeTimeout, final int lookback, final MetricRegistry metricRegistry) {
+        this.converter = converter;
+        this.sender = sender;
+        this.writer = writer;
+        this.bufferSize = bufferSize;
+        this.timeout = timeout;
+        this.writeTimeout = writeTimeout;
+        this.lookback = lookback;
+
+        lag = metricRegistry.timer(METRIC_PREFIX + ".lag");
+        slowConsumers = metricRegistry.counter(METRIC_PREFIX + ".slowConsumers");
+        metricRegistry.register(METRIC_PREFIX + ".subscribers", (Gauge<Integer>) subscribers::size);
+    }
+
+    /**
+     * Subscribes a new client, receiving all revocations found from now on.
+     * <p>
+     * <p>Must be followed by a call to {@link Subscription#start(List)} with the revocations stored before.</p>
+     *
+     * @return the new subscription
+     */
+    Subscription subscribe() {
+        final Subscriber subscriber = new Subscriber(new SseEmitter(timeout));
+        subscribers.add(subscriber);
+        subscriber.emitter.onCompletion(() -> subscribers.remove(subscriber));
+        return subscriber;
+    }
+
+    @Override
+    public void onRevocations(final List<RevocationData> revocations) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+
+        final List<Event> events = events(revocations);
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(events);
+        }
+    }
+
+    @Override
+    public void onRefresh(final Refresh refresh) {
+        final List<Event> events = new ArrayList<>(1);
+        events.add(new Event(null, REFRESH_EVENT, refresh));
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(events);
+        }
+    }
+
+    private List<Event> events(final List<RevocationData> revocations) {
+        final List<RevocationInfo> infos = converter.apply(revocations);
+        final List<Event> events = new ArrayList<>(infos.size());
+        for (int i = 0; i < infos.size(); i++) {
+            events.add(new Event(id(revocations.get(i)), REVOCATION_EVENT, infos.get(i)));
+        }
+        return events;
+    }
+
+    /**
+     * Returns the event id of a revocation, formatted as {@code <revoked_at>-<bucket_uuid>}.
+     *
+     * @param revocation the revocation
+     * @return the id of the event sent for the revocation
+     */
+    static String id(final RevocationData revocation) {
+        return revocation.bucketUuid()
+                .map(uuid -> revocation.revokedAt() + "-" + uuid)
+                .orElse(String.valueOf(revocation.revokedAt()));
+    }
+
+    /**
+     * Returns the revocations following the one identified by a {@code Last-Event-ID}.
+     *
+     * @param lastEventId the id of the last event received by the client
+     * @param stored      the revocations stored since one second before the last event, in {@code revoked_at} order
+     * @return the revocations the client did not receive yet
+     * @throws IllegalArgumentException if the id is not a valid event id
+     */
+    static List<RevocationData> following(final String lastEventId, final Collection<RevocationData> stored) {
+        final int revokedAt = revokedAt(lastEventId);
+
+        // Revocations of the same second are only skipped up to the last event, in the order of the store
+        final List<RevocationData> sameSecond = new ArrayList<>();
+        final List<RevocationData> following = new ArrayList<>(stored.size());
+        for (RevocationData revocation : stored) {
+            if (revocation.revokedAt() == revokedAt) {
+                sameSecond.add(revocation);
+                if (id(revocation).equals(lastEventId)) {
+                    sameSecond.clear();
+                }
+            } else if (revocation.revokedAt() > revokedAt) {
+                following.add(revocation);
+            }
+        }
+
+        sameSecond.addAll(following);
+        return sameSecond;
+    }
+
+    /**
+     * Returns the {@code revoked_at} of the revocation identified by an event id.
+     *
+     * @param eventId the event id
+     * @return the {@code revoked_at} of the revocation, in UTC UNIX timestamp
+     * @throws IllegalArgumentException if the id is not a valid event id
+     */
+    static int revokedAt(final String eventId) {
+        final int separator = eventId.indexOf('-');
+        try {
+            if (separator >= 0) {
+                UUID.fromString(eventId.substring(separator + 1));
+                return Integer.parseInt(eventId.substring(0, separator));
+            }
+            return Integer.parseInt(eventId);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid 'Last-Event-ID': " + eventId);
+        }
+    }
+
+    /**
+     * A subscription to the stream.
+     */
+    interface Subscription {
+
+        /**
+         * Returns the emitter of the subscription, to be returned by the handler method.
+         *
+         * @return the emitter sending events to the client
+         */
+        SseEmitter getEmitter();
+
+        /**
+         * Starts sending events, beginning with the specified revocations stored before subscribing.
+         *
+         * @param replay revocations to send before the ones found from now on, in {@code revoked_at} order
+         */
+        void start(List<RevocationData> replay);
+
+        /**
+         * Cancels the subscription before it was started.
+         */
+        void cancel();
+    }
+
+    private static final class Event {
+
+        private final String id;
+
+        private final String name;
+
+        private final Object data;
+
+        private final long createdAt = System.nanoTime();
+
+        private Event(final String id, final String name, final Object data) {
+            this.id = id;
+            this.name = name;
+            this.data = data;
+        }
+    }
+
+    private final class Subscriber implements Subscription {
+
+        private final SseEmitter emitter;
+
+        private final BlockingQueue<Event> buffer = new ArrayBlockingQueue<>(bufferSize);
+
+        private final AtomicBoolean scheduled = new AtomicBoolean(true);
+
+        /*
+         * Ids of replayed revocations that the tailer may still report as new, only accessed by the sender.
+         */
+        private final Set<String> replayed = new HashSet<>();
+
+        private volatile List<RevocationData> replay;
+
+        private volatile boolean closed = false;
+
+        private Subscriber(final SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        @Override
+        public SseEmitter getEmitter() {
+            return emitter;
+        }
+
+        @Override
+        public void start(final List<RevocationData> replay) {
+            this.replay = replay;
+
+            // Scheduled since subscribing, so that events found meanwhile are buffered until the replay is sent
+            sender.execute(this::drain);
+        }
+
+        @Override
+        public void cancel() {
+            subscribers.remove(this);
+        }
+
+        private void offer(final List<Event> events) {
+            for (Event event : events) {
+                if (closed) {
+                    return;
+                }
+                if (!buffer.offer(event)) {
+
+                    // The sender may be blocked writing to the client, it completes the emitter when it returns
+                    LOG.info("Disconnecting slow subscriber after {} buffered events", bufferSize);
+                    slowConsumers.inc();
+                    disconnect();
+                }
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                sender.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                if (replay != null) {
+                    if (!sendReplay(replay)) {
+                        return;
+                    }
+                    replay = null;
+                }
+
+                Event event;
+                while (!closed && (event = buffer.poll()) != null) {
+                    if (event.id != null && replayed.remove(event.id)) {
+                        continue;
+                    }
+                    if (!send(event)) {
+                        return;
+                    }
+                    lag.update(System.nanoTime() - event.createdAt, TimeUnit.NANOSECONDS);
+                }
+
+                if (closed) {
+                    emitter.complete();
+                }
+            } catch (IOException | RuntimeException e) {
+                LOG.debug("Could not send events to subscriber", e);
+                closed = true;
+                subscribers.remove(this);
+                emitter.completeWithError(e);
+            } finally {
+                scheduled.set(false);
+            }
+
+            if (!closed && !buffer.isEmpty()) {
+                schedule();
+            }
+        }
+
+        /*
+         * Returns false if the client did not accept an event in time, and was disconnected.
+         */
+        private boolean sendReplay(final List<RevocationData> revocations) throws IOException {
+            final int reportable = UnixTimestamp.now() - 2 * lookback;
+            for (Event event : events(revocations)) {
+                if (closed) {
+                    return true;
+                }
+                if (!send(event)) {
+                    return false;
+                }
+                if (((RevocationInfo) event.data).revokedAt() >= reportable) {
+                    replayed.add(event.id);
+                }
+            }
+            return true;
+        }
+
+        /*
+         * Returns false if the client did not accept the event in time, and was disconnected.
+         */
+        private boolean send(final Event event) throws IOException {
+            final SseEmitter.SseEventBuilder builder = SseEmitter.event().name(event.name).data(event.data);
+            if (event.id != null) {
+                builder.id(event.id);
+            }
+
+            final FutureTask<Void> write = new FutureTask<>(() -> {
+                emitter.send(builder);
+                return null;
+            });
+            try {
+                writer.execute(write);
+            } catch (RejectedExecutionException e) {
+
+                // No write of this subscriber is pending, so that the emitter can be completed right away
+                LOG.info("Disconnecting subscriber, no writer left for its event");
+                slowConsumers.inc();
+                disconnect();
+                emitter.completeWithError(e);
+                return false;
+            }
+            try {
+                write.get(writeTimeout, TimeUnit.MILLISECONDS);
+                return true;
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IllegalStateException("Could not send event to subscriber", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while sending event to subscriber", e);
+            } catch (TimeoutException e) {
+
+                // The emitter is locked by the blocked write, it is completed once the connection fails
+                LOG.info("Disconnecting subscriber not accepting an event within {} ms", writeTimeout);
+                slowConsumers.inc();
+                disconnect();
+                try {
+                    writer.execute(() -> emitter.completeWithError(e));
+                } catch (RejectedExecutionException rejected) {
+                    LOG.debug("No writer left to complete the subscriber, it times out instead");
+                }
+                return false;
+            }
+        }
+
+        private void disconnect() {
+            closed = true;
+            subscribers.remove(this);
+            buffer.clear();
+        }
+    }
+}
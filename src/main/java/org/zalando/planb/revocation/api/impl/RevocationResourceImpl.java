@@ -1,18 +1,37 @@
 package org.zalando.planb.revocation.api.impl;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.CountingOutputStream;
 import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.zalando.planb.revocation.api.RevocationResource;
 import org.zalando.planb.revocation.config.properties.CassandraProperties;
+import org.zalando.planb.revocation.config.properties.DigestProperties;
+import org.zalando.planb.revocation.config.properties.RevocationProperties;
+import org.zalando.planb.revocation.config.properties.StreamProperties;
+import org.zalando.planb.revocation.config.properties.TailerProperties;
+import org.zalando.planb.revocation.domain.Cursor;
 import org.zalando.planb.revocation.domain.ImmutableRevocationInfo;
 import org.zalando.planb.revocation.domain.ImmutableRevocationList;
 import org.zalando.planb.revocation.domain.ImmutableRevokedClaimsInfo;
@@ -20,6 +39,7 @@ import org.zalando.planb.revocation.domain.ImmutableRevokedTokenInfo;
 import org.zalando.planb.revocation.domain.NotificationType;
 import org.zalando.planb.revocation.domain.Refresh;
 import org.zalando.planb.revocation.domain.RevocationData;
+import org.zalando.planb.revocation.domain.RevocationDigest;
 import org.zalando.planb.revocation.domain.RevocationInfo;
 import org.zalando.planb.revocation.domain.RevocationList;
 import org.zalando.planb.revocation.domain.RevocationRequest;
@@ -28,19 +48,35 @@ import org.zalando.planb.revocation.domain.RevokedData;
 import org.zalando.planb.revocation.domain.RevokedGlobal;
 import org.zalando.planb.revocation.domain.RevokedInfo;
 import org.zalando.planb.revocation.domain.RevokedTokenData;
+import org.zalando.planb.revocation.persistence.CachingRevocationStore;
 import org.zalando.planb.revocation.persistence.CassandraRevocationStore;
 import org.zalando.planb.revocation.persistence.RevocationStore;
+import org.zalando.planb.revocation.persistence.RevocationTailer;
 import org.zalando.planb.revocation.service.RevocationAuthorizationService;
+import org.zalando.planb.revocation.util.BinaryRevocationListWriter;
+import org.zalando.planb.revocation.util.JsonRevocationListWriter;
 import org.zalando.planb.revocation.util.MessageHasher;
+import org.zalando.planb.revocation.util.RevocationJsonCodec;
+import org.zalando.planb.revocation.util.RevocationListWriter;
+import org.zalando.planb.revocation.util.UnixTimestamp;
 
+import javax.annotation.PostConstruct;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.security.NoSuchAlgorithmException;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.EnumMap;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.time.Instant.ofEpochSecond;
 import static org.slf4j.LoggerFactory.getLogger;
 import static org.zalando.planb.revocation.domain.RevocationType.CLAIM;
@@ -69,17 +105,367 @@ public class RevocationResourceImpl implements RevocationResource {
     @Autowired
     private RevocationAuthorizationService revocationAuthorizationService;
 
+    @Autowired
+    private RevocationProperties revocationProperties;
+
+    @Autowired
+    private RevocationTailer revocationTailer;
+
+    @Autowired
+    @Qualifier("revocationsResponseExecutor")
+    private TaskExecutor responseExecutor;
+
+    @Autowired
+    @Qualifier("revocationsStreamExecutor")
+    private TaskExecutor streamExecutor;
+
+    @Autowired
+    @Qualifier("revocationsStreamWriter")
+    private TaskExecutor streamWriter;
+
+    @Autowired
+    private StreamProperties streamProperties;
+
+    @Autowired
+    private TailerProperties tailerProperties;
+
+    @Autowired
+    private MetricRegistry metricRegistry;
+
+    @Autowired
+    private RevocationJsonCodec revocationJsonCodec;
+
+    @Autowired
+    private DigestProperties digestProperties;
+
+    @Autowired
+    private TaskScheduler taskScheduler;
+
+    private Counter wokenUp;
+
+    private Counter timedOut;
+
+    private RevocationEventStream eventStream;
+
+    private TokenRevocationDigest tokenDigest;
+
+    private ResponseCoalescer<String> coalescer;
+
+    @PostConstruct
+    public void initialize() {
+        wokenUp = metricRegistry.counter("planb.revocations.waiting.woken");
+        timedOut = metricRegistry.counter("planb.revocations.waiting.timedOut");
+
+        eventStream = new RevocationEventStream(this::convert, streamExecutor, streamWriter,
+                streamProperties.getBufferSize(), streamProperties.getTimeout(), streamProperties.getWriteTimeout(),
+                tailerProperties.getLookback(), metricRegistry);
+        revocationTailer.addListener(eventStream);
+
+        tokenDigest = new TokenRevocationDigest(this::convert, () -> storage.getRevocations(digestFrom()),
+                messageHasher.hashingAlgorithms().get(TOKEN), digestProperties.getExpectedInsertions(),
+                digestProperties.getFalsePositiveProbability(), metricRegistry);
+        revocationTailer.addListener(tokenDigest);
+        tokenDigest.scheduleRebuilds(taskScheduler, digestProperties.getRebuildInMilliseconds());
+
+        coalescer = new ResponseCoalescer<>(revocationProperties.getMaxCoalescedSize(), metricRegistry);
+    }
+
+    /**
+     * Writes all the revocations since the specified timestamp or cursor to the response.
+     * <p>
+     * <p>Revocations are read from the store page by page, and each page is converted and written right away, so that
+     * large windows are never held in memory at once. The meta information comes after the revocations and holds a
+     * {@link NotificationType#CURSOR} after the last written revocation, so that the next call with it returns only
+     * newer revocations, including the ones of the same second.</p>
+     * <p>
+     * <p>The revocations are written as JSON, or in the compact format of {@link BinaryRevocationListWriter} when the
+     * client prefers it in its {@code Accept} header.</p>
+     * <p>
+     * <p>Concurrent requests for the same revocations share a single rendering of the response, unless it is larger
+     * than {@code revocation.maxCoalescedSize}.</p>
+     * <p>
+     * <p>Responses carry an {@code ETag} when the store can tell cheaply whether its revocations changed. Requests with
+     * a matching {@code If-None-Match} header get {@link HttpStatus#NOT_MODIFIED} without reading the revocations.</p>
+     *
+     * @param from     instant from when tokens were revoked, in UTC UNIX timestamp, ignored when {@code cursor} is set
+     * @param cursor   cursor returned by a previous call
+     * @param request  the current request
+     * @param response the response the revocations are written to
+     */
+    @Override
+    @RequestMapping(method = RequestMethod.GET,
+            produces = {MediaType.APPLICATION_JSON_VALUE, BinaryRevocationListWriter.MEDIA_TYPE_VALUE})
+    public void get(@RequestParam(required = false) final Integer from,
+                    @RequestParam(required = false) final String cursor, final WebRequest request,
+                    final HttpServletResponse response) throws IOException, NoSuchAlgorithmException {
+        final Cursor position = position(from, cursor);
+        log.debug("GET revocations since {} ({})", position,
+                ZonedDateTime.ofInstant(ofEpochSecond(position.revokedAt()), ZoneId.systemDefault()));
+        final Refresh refresh = storage.getRefresh();
+        final boolean binary = prefersBinary(request);
+
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        final String etag = etag(position, refresh, binary);
+        if (etag != null && request.checkNotModified(etag)) {
+            return;
+        }
+
+        final CountingOutputStream out = new CountingOutputStream(response.getOutputStream());
+        response.setContentType(binary ? BinaryRevocationListWriter.MEDIA_TYPE_VALUE
+                : MediaType.APPLICATION_JSON_UTF8_VALUE);
+        coalescer.write(coalescingKey(position, refresh, binary), out, rendered -> writeRevocations(position, refresh,
+                binary ? new BinaryRevocationListWriter(rendered) : new JsonRevocationListWriter(
+                        revocationJsonCodec, rendered)));
+        request.setAttribute(ResponseSizeHandlerInterceptor.RESPONSE_SIZE_ATTRIBUTE, out.getCount(),
+                RequestAttributes.SCOPE_REQUEST);
+    }
+
+    /**
+     * Returns all the revocations since the specified timestamp, waiting for new ones if there are none yet.
+     * <p>
+     * <p>The request is held open without blocking a thread until a revocation or refresh notification newer than
+     * {@code from} is stored, by this or another node, or until {@code wait} seconds passed. The response is the same
+     * as without waiting, possibly without revocations.</p>
+     *
+     * @param from   instant from when tokens were revoked, in UTC UNIX timestamp, ignored when {@code cursor} is set
+     * @param cursor cursor returned by a previous call
+     * @param wait   maximum number of seconds to wait, limited by {@code revocation.maxWait}
+     * @return all the revocations since the specified timestamp or cursor, once available
+     */
     @Override
-    @RequestMapping(method = RequestMethod.GET)
-    @ResponseStatus(HttpStatus.OK)
+    @RequestMapping(method = RequestMethod.GET, params = "wait",
+            produces = {MediaType.APPLICATION_JSON_VALUE, BinaryRevocationListWriter.MEDIA_TYPE_VALUE})
     @ResponseBody
-    public RevocationList get(@RequestParam final int from) throws NoSuchAlgorithmException {
-        log.debug("GET revocations since {} ({})", from, ZonedDateTime.ofInstant(ofEpochSecond(from), ZoneId.systemDefault()));
-        Collection<RevocationData> revocations = storage.getRevocations(from);
+    public DeferredResult<RevocationList> get(@RequestParam(required = false) final Integer from,
+                                              @RequestParam(required = false) final String cursor,
+                                              @RequestParam final int wait) throws NoSuchAlgorithmException {
+        if (wait < 0) {
+            throw new IllegalArgumentException("'wait' must not be negative");
+        }
+        final Cursor position = position(from, cursor);
+        log.debug("GET revocations since {}, waiting up to {} seconds", position, wait);
+
+        final DeferredResult<RevocationList> result = new DeferredResult<>(
+                TimeUnit.SECONDS.toMillis(Math.max(1, Math.min(wait, revocationProperties.getMaxWait()))));
+        final Waiter waiter = new Waiter(position, result);
+
+        // Registered before reading, so that nothing stored in between is missed
+        revocationTailer.addListener(waiter);
+        result.onCompletion(() -> revocationTailer.removeListener(waiter));
+        result.onTimeout(waiter::timeout);
+
+        final Refresh refresh = storage.getRefresh();
+        final RevocationList revocations = revocations(position, refresh);
+        if (wait == 0 || !revocations.revocations().isEmpty() || isNewer(refresh, position)) {
+            result.setResult(revocations);
+        }
+        return result;
+    }
+
+    /**
+     * Streams new revocations as Server-Sent Events.
+     * <p>
+     * <p>Each revocation is sent as a {@code revocation} event with {@code <revoked_at>-<bucket_uuid>} as id, and each
+     * new refresh notification as a {@code refresh} event. Clients resuming with {@code Last-Event-ID} first get the
+     * revocations stored after the last event they received, and clients passing {@code from} the ones stored since
+     * then. Otherwise only revocations stored from now on are sent.</p>
+     *
+     * @param from        instant from when tokens were revoked, in UTC UNIX timestamp, ignored when resuming
+     * @param lastEventId id of the last event received before reconnecting
+     * @return the emitter of the events
+     */
+    @Override
+    @RequestMapping(value = "/stream", method = RequestMethod.GET,
+            produces = {MediaType.APPLICATION_JSON_VALUE, "text/event-stream"}) // problems are sent as JSON
+    public SseEmitter stream(@RequestParam(required = false) final Integer from,
+                             @RequestHeader(value = "Last-Event-ID", required = false) final String lastEventId) {
+        log.debug("GET revocation stream since {}, last event {}", from, lastEventId);
+
+        // Subscribed before reading, so that nothing stored in between is missed
+        final RevocationEventStream.Subscription subscription = eventStream.subscribe();
+        try {
+            final List<RevocationData> replay;
+            if (lastEventId != null) {
+                final int revokedAt = RevocationEventStream.revokedAt(lastEventId);
+                replay = RevocationEventStream.following(lastEventId, storage.getRevocations(revokedAt - 1));
+            } else if (from != null) {
+                replay = new ArrayList<>(storage.getRevocations(from));
+            } else {
+                replay = Collections.emptyList();
+            }
+            subscription.start(replay);
+        } catch (RuntimeException e) {
+            subscription.cancel();
+            throw e;
+        }
+        return subscription.getEmitter();
+    }
+
+    /**
+     * Returns a Bloom filter of the hashes of all revoked tokens.
+     * <p>
+     * <p>Clients can check tokens against the filter, and only need to fetch the revocations when a token might be
+     * revoked. The filter is kept up to date as revocations arrive, and built on the first request if it was not yet.
+     * Requests with an {@code If-None-Match} header matching the generation of the filter get
+     * {@link HttpStatus#NOT_MODIFIED}.</p>
+     *
+     * @param request the current request
+     * @return the digest, or {@code null} if not modified
+     */
+    @Override
+    @RequestMapping(value = "/digest", method = RequestMethod.GET)
+    @ResponseBody
+    public RevocationDigest digest(final WebRequest request) {
+        RevocationDigest digest = tokenDigest.get();
+        if (digest == null) {
+            tokenDigest.rebuild();
+            digest = tokenDigest.get();
+        }
+
+        if (request.checkNotModified("\"" + digest.generation() + "\"")) {
+            return null;
+        }
+        return digest;
+    }
+
+    /**
+     * Posts the specified revocation to be stored.
+     * <p>
+     * <p>Revokes tokens associated with the specified revocation type.</p>
+     * <p>
+     * <p>If the field {@code issued_before} is a timestamp set in the future, returns {@link HttpStatus#BAD_REQUEST}.
+     * </p>
+     *
+     * @param revocation the revocation associated with the tokens to revoke
+     */
+    @Override
+    @RequestMapping(method = RequestMethod.POST)
+    @ResponseStatus(HttpStatus.CREATED)
+    public void post(@RequestBody final RevocationRequest revocation) {
+        revocationAuthorizationService.checkAuthorization(revocation);
+        storage.storeRevocation(revocation);
+
+        // Wakes up requests waiting on this node without waiting for the next scheduled tail
+        revocationTailer.requestTail();
+    }
+
+    /*
+     * The writer is only finished on success, so that a failure after the response was committed does not end it with
+     * a complete list.
+     */
+    private void writeRevocations(final Cursor position, final Refresh refresh, final RevocationListWriter writer)
+            throws IOException {
+        final int pageSize = Math.max(1, cassandraProperties.getFetchSize());
+        final List<RevocationData> page = new ArrayList<>(pageSize);
+        final Cursor[] next = {position};
+        try {
+            storage.forEachRevocation(position, revocation -> {
+                page.add(revocation);
+                next[0] = next(next[0], revocation);
+                if (page.size() == pageSize) {
+                    writePage(page, writer);
+                }
+            });
+            writePage(page, writer);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.finish(metaInformation(refresh, next[0]));
+    }
+
+    private void writePage(final List<RevocationData> page, final RevocationListWriter writer) {
+        try {
+            for (RevocationInfo info : revocationInfos(page)) {
+                writer.write(info);
+            }
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        page.clear();
+    }
+
+    /*
+     * The binary format is only used when preferred over JSON, so that clients accepting anything get JSON.
+     */
+    private static boolean prefersBinary(final WebRequest request) {
+        final String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (accept == null) {
+            return false;
+        }
+
+        final List<MediaType> accepted = MediaType.parseMediaTypes(accept);
+        MediaType.sortByQualityValue(accepted);
+        for (MediaType mediaType : accepted) {
+            if (mediaType.includes(MediaType.APPLICATION_JSON)) {
+                return false;
+            }
+            if (mediaType.includes(BinaryRevocationListHttpMessageConverter.MEDIA_TYPE)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private RevocationList revocations(final Cursor position, final Refresh refresh) throws NoSuchAlgorithmException {
+        final Collection<RevocationData> revocations = storage.getRevocations(position);
+
+        Cursor next = position;
+        for (RevocationData revocation : revocations) {
+            next = next(next, revocation);
+        }
+
+        return ImmutableRevocationList.builder()
+                .meta(metaInformation(refresh, next))
+                .revocations(revocationInfos(revocations))
+                .build();
+    }
+
+    /*
+     * Stores may return the revocations of one second in any bucket UUID order, the cursor is after the newest one.
+     */
+    private static Cursor next(final Cursor cursor, final RevocationData revocation) {
+        return cursor.isBefore(revocation) ? Cursor.after(revocation) : cursor;
+    }
+
+    private static Cursor position(final Integer from, final String cursor) {
+        if (cursor != null) {
+            return Cursor.decode(cursor);
+        }
+        if (from != null) {
+            return Cursor.after(from);
+        }
+        throw new IllegalArgumentException("Either 'from' or 'cursor' is required");
+    }
+
+    private List<RevocationInfo> convert(final Collection<RevocationData> revocations) {
+        try {
+            return revocationInfos(revocations);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private List<RevocationInfo> revocationInfos(final Collection<RevocationData> revocations)
+            throws NoSuchAlgorithmException {
+
+        // Revocations without a usable stored hash are hashed in one batch
+        List<String> storedHashes = new ArrayList<>(revocations.size());
+        List<RevokedData> unhashed = new ArrayList<>(revocations.size());
+        for (RevocationData stored : revocations) {
+            String hash = storedHash(stored);
+            storedHashes.add(hash);
+            unhashed.add(hash == null ? stored.revocationRequest().data() : null);
+        }
+        List<String> computedHashes = messageHasher.hashAndEncode(unhashed);
 
         List<RevocationInfo> apiRevocations = new ArrayList<>(revocations.size());
+        int i = 0;
         for (RevocationData stored : revocations) {
             final RevokedData data = stored.revocationRequest().data();
+            final String hash = storedHashes.get(i) != null ? storedHashes.get(i) : computedHashes.get(i);
+            i++;
 
             RevokedInfo revokedInfo = null;
             if (data instanceof RevokedGlobal) {
@@ -89,7 +475,7 @@ public class RevocationResourceImpl implements RevocationResource {
             } else if (data instanceof RevokedClaimsData) {
                 revokedInfo = ImmutableRevokedClaimsInfo.builder()
                         .names(((RevokedClaimsData) data).claims().keySet())
-                        .valueHash(messageHasher.hashAndEncode(CLAIM, ((RevokedClaimsData) data).claims().values()))
+                        .valueHash(hash)
                         .hashAlgorithm(messageHasher.hashingAlgorithms().get(CLAIM))
                         .issuedBefore(((RevokedClaimsData) data).issuedBefore())
                         .separator(messageHasher.separator())
@@ -97,7 +483,7 @@ public class RevocationResourceImpl implements RevocationResource {
 
             } else if (data instanceof RevokedTokenData) {
                 revokedInfo = ImmutableRevokedTokenInfo.builder()
-                        .tokenHash(messageHasher.hashAndEncode(TOKEN, ((RevokedTokenData) data).token()))
+                        .tokenHash(hash)
                         .hashAlgorithm(messageHasher.hashingAlgorithms().get(TOKEN))
                         .issuedBefore(((RevokedTokenData) data).issuedBefore())
                         .build();
@@ -110,39 +496,72 @@ public class RevocationResourceImpl implements RevocationResource {
                     .build());
         }
 
-        return ImmutableRevocationList.builder()
-                .meta(metaInformation())
-                .revocations(apiRevocations)
-                .build();
+        return apiRevocations;
     }
 
-    /**
-     * Posts the specified revocation to be stored.
-     * <p>
-     * <p>Revokes tokens associated with the specified revocation type.</p>
-     * <p>
-     * <p>If the field {@code issued_before} is a timestamp set in the future, returns {@link HttpStatus#BAD_REQUEST}.
-     * </p>
-     *
-     * @param revocation the revocation associated with the tokens to revoke
+    /*
+     * Hashes stored with a different algorithm, salt or separator are ignored, and computed again.
      */
-    @Override
-    @RequestMapping(method = RequestMethod.POST)
-    @ResponseStatus(HttpStatus.CREATED)
-    public void post(@RequestBody final RevocationRequest revocation) {
-        revocationAuthorizationService.checkAuthorization(revocation);
-        storage.storeRevocation(revocation);
+    private String storedHash(final RevocationData stored) {
+        final String fingerprint = messageHasher.fingerprints().get(stored.revocationRequest().type());
+        if (stored.hashFingerprint().equals(Optional.of(fingerprint))) {
+            return stored.revocationHash().orElse(null);
+        }
+        return null;
     }
 
-    private EnumMap<NotificationType, Object> metaInformation() {
+    /*
+     * The digest holds the revocations within the time limit, so that rebuilds drop the ones beyond it.
+     */
+    private int digestFrom() {
+        return isTimeBounded(storage) ? UnixTimestamp.now() - cassandraProperties.getMaxTimeDelta() + 1 : 0;
+    }
+
+    /*
+     * Requests with the same key get the same response, as long as they are concurrent.
+     */
+    private static String coalescingKey(final Cursor position, final Refresh refresh, final boolean binary) {
+        final StringBuilder key = new StringBuilder(position.encode()).append(binary ? "/binary" : "/json");
+        if (refresh != null) {
+            key.append('/').append(refresh.refreshFrom()).append('/').append(refresh.refreshTimestamp());
+        }
+        return key.toString();
+    }
+
+    /*
+     * Validator of the response for the specified position, or null when the store can not tell cheaply whether it
+     * changed. Timestamps beyond the time limit are not validated, so that clients get the error instead.
+     */
+    private String etag(final Cursor position, final Refresh refresh, final boolean binary) {
+        if (isTimeBounded(storage)
+                && (UnixTimestamp.now() - position.revokedAt()) > cassandraProperties.getMaxTimeDelta()) {
+            return null;
+        }
+
+        final Optional<String> version = storage.getVersion(position.revokedAt() - 1);
+        if (!version.isPresent()) {
+            return null;
+        }
+
+        final Hasher hasher = Hashing.murmur3_128().newHasher()
+                .putString(position.encode(), UTF_8)
+                .putString(version.get(), UTF_8)
+                .putString(messageHasher.fingerprints().toString(), UTF_8)
+                .putBoolean(binary);
+        if (refresh != null) {
+            hasher.putInt(refresh.refreshFrom()).putInt(refresh.refreshTimestamp());
+        }
+        return "\"" + hasher.hash() + "\"";
+    }
+
+    private EnumMap<NotificationType, Object> metaInformation(final Refresh refresh, final Cursor next) {
         EnumMap<NotificationType, Object> metaInfo = new EnumMap<>(NotificationType.class);
+        metaInfo.put(NotificationType.CURSOR, next.encode());
 
-        if (storage instanceof CassandraRevocationStore) {
+        if (isTimeBounded(storage)) {
             metaInfo.put(NotificationType.MAX_TIME_DELTA, cassandraProperties.getMaxTimeDelta());
         }
 
-        Refresh refresh = storage.getRefresh();
-
         if (refresh != null) {
             metaInfo.put(NotificationType.REFRESH_FROM, refresh.refreshFrom());
             metaInfo.put(NotificationType.REFRESH_TIMESTAMP, refresh.refreshTimestamp());
@@ -150,4 +569,68 @@ public class RevocationResourceImpl implements RevocationResource {
 
         return metaInfo;
     }
+
+    private static boolean isNewer(final Refresh refresh, final Cursor position) {
+        return refresh != null && refresh.refreshTimestamp() > position.revokedAt();
+    }
+
+    private static boolean isTimeBounded(final RevocationStore store) {
+        if (store instanceof CachingRevocationStore) {
+            return isTimeBounded(((CachingRevocationStore) store).getDelegate());
+        }
+        return store instanceof CassandraRevocationStore;
+    }
+
+    /**
+     * A request waiting for revocations or refresh notifications newer than {@code position}.
+     */
+    private final class Waiter implements RevocationTailer.Listener {
+
+        private final Cursor position;
+
+        private final DeferredResult<RevocationList> result;
+
+        private final AtomicBoolean woken = new AtomicBoolean(false);
+
+        private Waiter(final Cursor position, final DeferredResult<RevocationList> result) {
+            this.position = position;
+            this.result = result;
+        }
+
+        @Override
+        public void onRevocations(final List<RevocationData> revocations) {
+            if (revocations.stream().anyMatch(position::isBefore)) {
+                wakeUp();
+            }
+        }
+
+        @Override
+        public void onRefresh(final Refresh refresh) {
+            if (isNewer(refresh, position)) {
+                wakeUp();
+            }
+        }
+
+        private void wakeUp() {
+            if (!result.isSetOrExpired() && woken.compareAndSet(false, true)) {
+                wokenUp.inc();
+                responseExecutor.execute(this::respond);
+            }
+        }
+
+        private void timeout() {
+            if (woken.compareAndSet(false, true)) {
+                timedOut.inc();
+                respond();
+            }
+        }
+
+        private void respond() {
+            try {
+                result.setResult(revocations(position, storage.getRefresh()));
+            } catch (Exception e) {
+                result.setErrorResult(e);
+            }
+        }
+    }
 }
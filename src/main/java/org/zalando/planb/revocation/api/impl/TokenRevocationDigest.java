@@ -0,0 +1,231 @@
+package org.zalando.planb.revocation.api.impl;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.hash.Hashing;
+import org.slf4j.Logger;
+import org.springframework.scheduling.TaskScheduler;
+import org.zalando.planb.revocation.domain.ImmutableRevocationDigest;
+import org.zalando.planb.revocation.domain.Refresh;
+import org.zalando.planb.revocation.domain.RevocationData;
+import org.zalando.planb.revocation.domain.RevocationDigest;
+import org.zalando.planb.revocation.domain.RevocationInfo;
+import org.zalando.planb.revocation.domain.RevocationType;
+import org.zalando.planb.revocation.domain.RevokedTokenInfo;
+import org.zalando.planb.revocation.persistence.RevocationTailer;
+import org.zalando.planb.revocation.util.TokenHashBloomFilter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ScheduledFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Maintains a {@link TokenHashBloomFilter} of the hashes of revoked tokens, as exposed by the revocations endpoint.
+ * <p>
+ * <p>New token revocations found by a {@link RevocationTailer} are put into the filter as they arrive. Revocations
+ * beyond the time limit can not be removed from a Bloom filter, so the filter is rebuilt from the store on a schedule
+ * of its own, which also resizes it. Revocations found while rebuilding are put into the rebuilt filter as well, so
+ * that none is lost when it replaces the current one.</p>
+ * <p>
+ * <p>Requests are served an immutable snapshot, taken by the first request after the filter changed, so that batches
+ * of new revocations do not each copy and hash the whole filter.</p>
+ *
+ * @author <a href="mailto:team-greendale@zalando.de">Team Greendale</a>
+ */
+class TokenRevocationDigest implements RevocationTailer.Listener {
+
+    private static final Logger LOG = getLogger(TokenRevocationDigest.class);
+
+    static final String METRIC_PREFIX = "planb.revocations.digest";
+
+    private final Function<Collection<RevocationData>, List<RevocationInfo>> converter;
+
+    private final Supplier<Collection<RevocationData>> loader;
+
+    private final String hashAlgorithm;
+
+    private final int expectedInsertions;
+
+    private final double falsePositiveProbability;
+
+    private final Timer rebuildTimer;
+
+    private final Object lock = new Object();
+
+    /*
+     * Only accessed while holding the lock. The filter is null until built, pending is only set while rebuilding.
+     */
+    private TokenHashBloomFilter filter;
+
+    private List<String> pending;
+
+    private volatile RevocationDigest digest;
+
+    /*
+     * Set when the filter changed since the last snapshot, only cleared while holding the lock.
+     */
+    private volatile boolean dirty;
+
+    /**
+     * Constructs a new digest, not built yet.
+     *
+     * @param converter                converts revocations to the representation exposed by the revocations endpoint
+     * @param loader                   reads all revocations within the time limit from the store
+     * @param hashAlgorithm            the algorithm tokens are hashed with
+     * @param expectedInsertions       the minimum number of token revocations the filter is sized for
+     * @param falsePositiveProbability the false positive probability the filter is sized for
+     * @param metricRegistry           registry where rebuild latency and filter size metrics are published
+     */
+    TokenRevocationDigest(final Function<Collection<RevocationData>, List<RevocationInfo>> converter,
+                          final Supplier<Collection<RevocationData>> loader, final String hashAlgorithm,
+                          final int expectedInsertions, final double falsePositiveProbability,
+                          final MetricRegistry metricRegistry) {
+        this.converter = converter;
+        this.loader = loader;
+        this.hashAlgorithm = hashAlgorithm;
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveProbability = falsePositiveProbability;
+
+        rebuildTimer = metricRegistry.timer(METRIC_PREFIX + ".rebuild");
+        metricRegistry.register(METRIC_PREFIX + ".insertions",
+                (Gauge<Integer>) () -> get() == null ? 0 : digest.insertions());
+        metricRegistry.register(METRIC_PREFIX + ".bits",
+                (Gauge<Integer>) () -> get() == null ? 0 : digest.numBits());
+    }
+
+    /**
+     * Returns the current snapshot of the filter.
+     *
+     * @return the digest, or {@code null} if it was not built yet
+     */
+    RevocationDigest get() {
+        if (dirty) {
+            synchronized (lock) {
+                if (dirty) {
+                    digest = snapshot(filter);
+                    dirty = false;
+                }
+            }
+        }
+        return digest;
+    }
+
+    /**
+     * Rebuilds the filter from the store at a fixed delay, starting right away.
+     *
+     * @param scheduler the scheduler running the rebuilds
+     * @param delay     the delay between the end of a rebuild and the start of the next one, in milliseconds
+     * @return the scheduled rebuilds
+     */
+    ScheduledFuture<?> scheduleRebuilds(final TaskScheduler scheduler, final long delay) {
+        return scheduler.scheduleWithFixedDelay(this::rebuild, delay);
+    }
+
+    /**
+     * Builds a new filter from the stored revocations and replaces the current one.
+     * <p>
+     * <p>The filter is sized for twice the number of token revocations found, and at least for the expected number of
+     * insertions.</p>
+     */
+    synchronized void rebuild() {
+        synchronized (lock) {
+            pending = new ArrayList<>();
+        }
+
+        try (Timer.Context ignored = rebuildTimer.time()) {
+            final Set<String> hashes = tokenHashes(loader.get());
+            final TokenHashBloomFilter rebuilt = TokenHashBloomFilter.create(
+                    Math.max(expectedInsertions, 2 * hashes.size()), falsePositiveProbability);
+            for (String hash : hashes) {
+                put(rebuilt, hash);
+            }
+
+            synchronized (lock) {
+                for (String hash : pending) {
+                    if (hashes.add(hash)) {
+                        put(rebuilt, hash);
+                    }
+                }
+                filter = rebuilt;
+                digest = snapshot(rebuilt);
+                dirty = false;
+            }
+            LOG.debug("Rebuilt digest of {} token revocations", hashes.size());
+        } finally {
+            synchronized (lock) {
+                pending = null;
+            }
+        }
+    }
+
+    @Override
+    public void onRevocations(final List<RevocationData> revocations) {
+        final Set<String> hashes = tokenHashes(revocations);
+        if (hashes.isEmpty()) {
+            return;
+        }
+
+        synchronized (lock) {
+            if (pending != null) {
+                pending.addAll(hashes);
+            }
+            if (filter != null) {
+                for (String hash : hashes) {
+                    put(filter, hash);
+                }
+                dirty = true;
+            }
+        }
+    }
+
+    @Override
+    public void onRefresh(final Refresh refresh) {
+
+        // Clients refreshing revocations still have to check the revoked tokens
+    }
+
+    private Set<String> tokenHashes(final Collection<RevocationData> revocations) {
+        final Set<String> hashes = new LinkedHashSet<>();
+        for (RevocationInfo info : converter.apply(revocations)) {
+            if (info.type() == RevocationType.TOKEN) {
+                hashes.add(((RevokedTokenInfo) info.data()).tokenHash());
+            }
+        }
+        return hashes;
+    }
+
+    private static void put(final TokenHashBloomFilter filter, final String hash) {
+        try {
+            filter.put(hash);
+        } catch (IllegalArgumentException e) {
+            LOG.warn("Could not put token hash into the digest, the token hash algorithm must produce at least 128 "
+                    + "bits", e);
+        }
+    }
+
+    private RevocationDigest snapshot(final TokenHashBloomFilter filter) {
+        final byte[] bits = filter.toByteArray();
+        return ImmutableRevocationDigest.builder()
+                .generation(Hashing.murmur3_128().newHasher()
+                        .putInt(filter.getNumBits())
+                        .putInt(filter.getNumHashFunctions())
+                        .putInt(filter.getInsertions())
+                        .putBytes(bits)
+                        .hash()
+                        .toString())
+                .hashAlgorithm(hashAlgorithm)
+                .numBits(filter.getNumBits())
+                .numHashFunctions(filter.getNumHashFunctions())
+                .insertions(filter.getInsertions())
+                .bits(bits)
+                .build();
+    }
+}
@@ -0,0 +1,147 @@
+package org.zalando.planb.revocation.config;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.zalando.planb.revocation.util.UnixTimestamp;
+import org.zalando.stups.oauth2.spring.server.TokenInfoRequestExecutor;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Executor keeping the token info responses of another executor in memory, by a SHA-256 hash of the access token.
+ * <p>
+ * <p>Responses for valid tokens are kept for their {@code expires_in}, but at most {@code cacheDuration} seconds.
+ * Error responses, for invalid tokens, are kept for {@code negativeCacheDuration} seconds. Failed requests are not
+ * kept. Concurrent lookups of the same token share a single request.</p>
+ *
+ * @author <a href="mailto:team-greendale@zalando.de">Team Greendale</a>
+ */
+public class CachingTokenInfoRequestExecutor implements TokenInfoRequestExecutor {
+
+    static final String METRIC_PREFIX = "planb.revocations.tokenInfo";
+
+    private final TokenInfoRequestExecutor delegate;
+
+    private final int cacheDuration;
+
+    private final int negativeCacheDuration;
+
+    private final Cache<HashCode, Entry> responses;
+
+    private final ConcurrentMap<HashCode, CompletableFuture<Map<String, Object>>> lookups =
+            new ConcurrentHashMap<>();
+
+    private final Counter hits;
+
+    private final Counter misses;
+
+    private final Counter shared;
+
+    private final Timer requests;
+
+    /**
+     * Constructs a new executor.
+     *
+     * @param delegate              the executor requesting the token info endpoints
+     * @param cacheSize             maximum number of kept responses, {@code 0} disables caching
+     * @param cacheDuration         maximum time a valid token's response is kept, in seconds
+     * @param negativeCacheDuration time an error response is kept, in seconds
+     * @param metricRegistry        registry where hits, misses and the latency of requests are published
+     */
+    public CachingTokenInfoRequestExecutor(final TokenInfoRequestExecutor delegate, final int cacheSize,
+                                           final int cacheDuration, final int negativeCacheDuration,
+                                           final MetricRegistry metricRegistry) {
+        this.delegate = delegate;
+        this.cacheDuration = cacheDuration;
+        this.negativeCacheDuration = negativeCacheDuration;
+
+        responses = CacheBuilder.newBuilder().maximumSize(cacheSize).build();
+        hits = metricRegistry.counter(METRIC_PREFIX + ".cache.hits");
+        misses = metricRegistry.counter(METRIC_PREFIX + ".cache.misses");
+        shared = metricRegistry.counter(METRIC_PREFIX + ".cache.shared");
+        requests = metricRegistry.timer(METRIC_PREFIX + ".requests");
+    }
+
+    @Override
+    public Map<String, Object> getMap(final String accessToken) {
+        final HashCode key = Hashing.sha256().hashString(accessToken, UTF_8);
+
+        final Entry entry = responses.getIfPresent(key);
+        if (entry != null && entry.expiresAt > UnixTimestamp.now()) {
+            hits.inc();
+            return entry.tokenInfo;
+        }
+        misses.inc();
+
+        final CompletableFuture<Map<String, Object>> lookup = new CompletableFuture<>();
+        final CompletableFuture<Map<String, Object>> running = lookups.putIfAbsent(key, lookup);
+        if (running != null) {
+            shared.inc();
+            return await(running);
+        }
+
+        try {
+            final Map<String, Object> tokenInfo;
+            try (Timer.Context ignored = requests.time()) {
+                tokenInfo = delegate.getMap(accessToken);
+            }
+            responses.put(key, new Entry(tokenInfo, expiresAt(tokenInfo)));
+            lookup.complete(tokenInfo);
+            return tokenInfo;
+        } catch (RuntimeException e) {
+            lookup.completeExceptionally(e);
+            throw e;
+        } finally {
+            lookups.remove(key, lookup);
+        }
+    }
+
+    private int expiresAt(final Map<String, Object> tokenInfo) {
+        final int now = UnixTimestamp.now();
+        if (tokenInfo.containsKey("error")) {
+            return now + negativeCacheDuration;
+        }
+
+        final Object expiresIn = tokenInfo.get("expires_in");
+        if (expiresIn instanceof Number) {
+            return now + (int) Math.min(cacheDuration, ((Number) expiresIn).longValue());
+        }
+        return now + cacheDuration;
+    }
+
+    private static Map<String, Object> await(final CompletableFuture<Map<String, Object>> lookup) {
+        try {
+            return Uninterruptibles.getUninterruptibly(lookup);
+        } catch (ExecutionException e) {
+            // the failure of the shared request, e.g. a RestClientException
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Token info request failed", e.getCause());
+        }
+    }
+
+    private static final class Entry {
+
+        private final Map<String, Object> tokenInfo;
+
+        private final int expiresAt;
+
+        private Entry(final Map<String, Object> tokenInfo, final int expiresAt) {
+            this.tokenInfo = tokenInfo;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
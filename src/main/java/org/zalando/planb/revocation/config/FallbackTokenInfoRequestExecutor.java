@@ -1,21 +1,46 @@
 package org.zalando.planb.revocation.config;
 
+import com.codahale.metrics.ExponentiallyDecayingReservoir;
+import com.codahale.metrics.Histogram;
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
 import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestOperations;
+import org.zalando.planb.revocation.config.properties.TokenInfoProperties;
 import org.zalando.stups.oauth2.spring.server.DefaultTokenInfoRequestExecutor;
 import org.zalando.stups.oauth2.spring.server.TokenInfoRequestExecutor;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Executor that allows several tokeninfo endpoints separated by "|", then requests
- * by order of definition in the string, and if an error happens, falls-back to the next one.
+ * Executor that allows several tokeninfo endpoints separated by ",", then requests
+ * by order of latency, and if an error happens, falls-back to the next one.
+ * <p>
+ * <p>Endpoints are ranked by the exponentially weighted moving average of their response times, in order of
+ * definition until they responded. Failed requests count as taking at least {@code tokeninfo.readTimeout}. An endpoint
+ * that was not requested for {@code tokeninfo.probeInterval} milliseconds is tried first by the next request, so that
+ * an endpoint ranked last is measured again once it recovered. An endpoint failing
+ * {@code tokeninfo.failureThreshold} times in a row is skipped for {@code tokeninfo.openDuration} milliseconds, unless
+ * all endpoints are skipped, and then tried again.</p>
+ * <p>
+ * <p>With {@code tokeninfo.hedge}, a second request is sent to the next endpoint once the first one takes longer than
+ * the {@code tokeninfo.hedgePercentile} of its recent response times, and the first valid response is returned. The
+ * other request is left to complete, so that its response time is still recorded.</p>
  *
  * @author vroldanbetan
  *
@@ -26,28 +51,75 @@ public class FallbackTokenInfoRequestExecutor implements TokenInfoRequestExecuto
 
     private final static String URI_SEPARATOR = "\\,";
 
-    private List<TokenInfoRequestExecutor> executors;
+    /**
+     * Weight of the latest response time in the moving average.
+     */
+    private static final double EWMA_ALPHA = 0.2;
+
+    private final List<Endpoint> endpoints;
+
+    private final TokenInfoProperties properties;
+
+    private final ExecutorService hedgingExecutor;
 
     public FallbackTokenInfoRequestExecutor(final String tokenInfoEndpointUrl) {
-        executors = buildExecutorsFromMultipleURLs(tokenInfoEndpointUrl);
+        this(tokenInfoEndpointUrl, new TokenInfoProperties());
+    }
+
+    public FallbackTokenInfoRequestExecutor(final String tokenInfoEndpointUrl, final TokenInfoProperties properties) {
+        this(tokenInfoEndpointUrl, properties, DefaultTokenInfoRequestExecutor.buildRestTemplate());
+    }
+
+    public FallbackTokenInfoRequestExecutor(final String tokenInfoEndpointUrl, final TokenInfoProperties properties,
+                                            final RestOperations restOperations) {
+        this.properties = properties;
+        endpoints = buildEndpointsFromMultipleURLs(tokenInfoEndpointUrl, restOperations);
+        hedgingExecutor = properties.isHedge() && endpoints.size() > 1
+                ? Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+                        .setNameFormat("tokeninfo-%d").setDaemon(true).build())
+                : null;
     }
 
-    private List<TokenInfoRequestExecutor> buildExecutorsFromMultipleURLs(String tokenInfoEndpointUrl) {
+    private List<Endpoint> buildEndpointsFromMultipleURLs(String tokenInfoEndpointUrl, RestOperations restOperations) {
         log.info("Token Info with fallback enabled: {}", tokenInfoEndpointUrl);
-        final List<TokenInfoRequestExecutor> tokenInfoRequestExecutors = new ArrayList<>();
+        final List<Endpoint> tokenInfoEndpoints = new ArrayList<>();
         for (String endpoint : tokenInfoEndpointUrl.split(URI_SEPARATOR)) {
-            tokenInfoRequestExecutors.add(new DefaultTokenInfoRequestExecutor(endpoint.trim()));
+            tokenInfoEndpoints.add(new Endpoint(endpoint.trim(), new DefaultTokenInfoRequestExecutor(endpoint.trim(),
+                    restOperations)));
         }
-        return ImmutableList.copyOf(tokenInfoRequestExecutors);
+        return ImmutableList.copyOf(tokenInfoEndpoints);
     }
 
     @Override
     public Map<String, Object> getMap(String accessToken) {
+        final List<Endpoint> ranked = rank();
+        if (hedgingExecutor == null) {
+            return requestInOrder(ranked, accessToken);
+        }
+        return requestHedged(ranked, accessToken);
+    }
+
+    /*
+     * Endpoints with an open circuit go last, so that they are only tried when all others failed.
+     */
+    private List<Endpoint> rank() {
+        final long now = System.nanoTime();
+        final Map<Endpoint, Double> scores = new IdentityHashMap<>(endpoints.size());
+        for (Endpoint endpoint : endpoints) {
+            scores.put(endpoint, endpoint.score(now));
+        }
+
+        final List<Endpoint> ranked = new ArrayList<>(endpoints);
+        ranked.sort(Comparator.comparing((Endpoint e) -> e.isOpen(now)).thenComparingDouble(scores::get));
+        return ranked;
+    }
+
+    private Map<String, Object> requestInOrder(final List<Endpoint> ranked, final String accessToken) {
         RuntimeException cachedException = new InvalidTokenException("Access Token not valid");
         Map<String, Object> result = Collections.emptyMap();
-        for (TokenInfoRequestExecutor executor : executors) {
+        for (Endpoint endpoint : ranked) {
             try {
-                result = executor.getMap(accessToken);
+                result = endpoint.getMap(accessToken);
                 if (result.containsKey("error")) {
                     log.warn("Token info responded {} for provided token: {}", result.get("error"), result.get("error_description"));
                 } else {
@@ -63,4 +135,155 @@ public class FallbackTokenInfoRequestExecutor implements TokenInfoRequestExecuto
         }
         throw cachedException;
     }
+
+    private Map<String, Object> requestHedged(final List<Endpoint> ranked, final String accessToken) {
+        final CompletionService<Map<String, Object>> requests = new ExecutorCompletionService<>(hedgingExecutor);
+        final List<Future<Map<String, Object>>> pending = new ArrayList<>();
+        RuntimeException cachedException = new InvalidTokenException("Access Token not valid");
+        Map<String, Object> result = Collections.emptyMap();
+
+        int next = 0;
+        boolean hedged = false;
+        try {
+            pending.add(requests.submit(() -> ranked.get(0).getMap(accessToken)));
+            next++;
+            int running = 1;
+            while (running > 0) {
+                final Future<Map<String, Object>> done;
+                if (!hedged && next < ranked.size()) {
+                    done = requests.poll(ranked.get(0).hedgeDelay(), TimeUnit.MILLISECONDS);
+                    if (done == null) {
+                        final Endpoint hedge = ranked.get(next++);
+                        log.debug("Token info request is slow, hedging with {}", hedge.url);
+                        pending.add(requests.submit(() -> hedge.getMap(accessToken)));
+                        hedged = true;
+                        running++;
+                        continue;
+                    }
+                } else {
+                    done = requests.take();
+                }
+                running--;
+
+                try {
+                    result = done.get();
+                    if (result.containsKey("error")) {
+                        log.warn("Token info responded {} for provided token: {}", result.get("error"), result.get("error_description"));
+                    } else {
+                        return result;
+                    }
+                } catch (ExecutionException e) {
+                    if (!(e.getCause() instanceof RestClientException)) {
+                        throw new IllegalStateException("Token info request failed", e.getCause());
+                    }
+                    log.warn("Token info request failed: {}", e.getCause().getMessage());
+                    cachedException = (RestClientException) e.getCause();
+                }
+
+                if (running == 0 && next < ranked.size()) {
+                    final Endpoint fallback = ranked.get(next++);
+                    pending.add(requests.submit(() -> fallback.getMap(accessToken)));
+                    running++;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // requests already sent are left to complete, only queued ones are dropped
+            pending.forEach(f -> f.cancel(false));
+        }
+
+        if (!result.isEmpty()) {
+            return result;
+        }
+        throw cachedException;
+    }
+
+    /**
+     * A token info endpoint, its response times and its circuit.
+     */
+    private final class Endpoint {
+
+        private final String url;
+
+        private final TokenInfoRequestExecutor executor;
+
+        private final Histogram latencies = new Histogram(new ExponentiallyDecayingReservoir());
+
+        private double ewma;
+
+        private boolean sampled;
+
+        /*
+         * Time of the last response, or of the last probe sent, in System.nanoTime().
+         */
+        private long requestedAt = System.nanoTime();
+
+        private int consecutiveFailures;
+
+        private volatile long openUntil;
+
+        private Endpoint(final String url, final TokenInfoRequestExecutor executor) {
+            this.url = url;
+            this.executor = executor;
+        }
+
+        private Map<String, Object> getMap(final String accessToken) {
+            final long start = System.nanoTime();
+            try {
+                final Map<String, Object> result = executor.getMap(accessToken);
+                succeeded(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                return result;
+            } catch (RestClientException e) {
+                failed(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                throw e;
+            }
+        }
+
+        /*
+         * Endpoints not requested for the probe interval score 0, for one request only.
+         */
+        private synchronized double score(final long now) {
+            if (now - requestedAt > TimeUnit.MILLISECONDS.toNanos(properties.getProbeInterval())) {
+                requestedAt = now;
+                return 0;
+            }
+            return ewma;
+        }
+
+        private synchronized void succeeded(final long millis) {
+            sample(millis);
+            latencies.update(millis);
+            consecutiveFailures = 0;
+            openUntil = 0;
+        }
+
+        private synchronized void failed(final long millis) {
+            sample(Math.max(millis, properties.getReadTimeout()));
+            consecutiveFailures++;
+            if (consecutiveFailures >= properties.getFailureThreshold()) {
+                log.warn("Token info endpoint {} failed {} times in a row, skipping it for {} ms", url,
+                        consecutiveFailures, properties.getOpenDuration());
+                openUntil = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(properties.getOpenDuration());
+            }
+        }
+
+        private void sample(final long millis) {
+            ewma = sampled ? EWMA_ALPHA * millis + (1 - EWMA_ALPHA) * ewma : millis;
+            sampled = true;
+            requestedAt = System.nanoTime();
+        }
+
+        private boolean isOpen(final long now) {
+            return openUntil - now > 0;
+        }
+
+        private long hedgeDelay() {
+            if (latencies.getCount() == 0) {
+                return properties.getHedgeMinDelay();
+            }
+            return Math.max(properties.getHedgeMinDelay(),
+                    (long) latencies.getSnapshot().getValue(properties.getHedgePercentile()));
+        }
+    }
 }
@@ -1,11 +1,13 @@
 package org.zalando.planb.revocation.config;
 
 import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.guava.GuavaModule;
 import org.springframework.boot.autoconfigure.AutoConfigureBefore;
 import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.zalando.planb.revocation.util.RevocationJsonCodec;
 
 @Configuration
 @AutoConfigureBefore(JacksonAutoConfiguration.class)
@@ -15,4 +17,12 @@ public class JacksonConfig {
     public Module guavaModule() {
         return new GuavaModule();
     }
+
+    /**
+     * Readers and writers for revocations, built once from the configured {@link ObjectMapper}.
+     */
+    @Bean
+    public RevocationJsonCodec revocationJsonCodec(final ObjectMapper objectMapper) {
+        return new RevocationJsonCodec(objectMapper);
+    }
 }
@@ -0,0 +1,84 @@
+package org.zalando.planb.revocation.config;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+import org.zalando.planb.revocation.config.properties.TokenInfoProperties;
+import org.zalando.stups.oauth2.spring.server.DefaultTokenInfoRequestExecutor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTP client shared by all token info endpoints, keeping connections alive in a pool.
+ * <p>
+ * <p>Connections are reused across requests, so that TCP and TLS handshakes are not on the path of every validated
+ * access token. Connections idle for longer than {@code tokeninfo.idleTimeout} milliseconds are closed in the
+ * background. The pool's leased, pending and available connections are published as gauges.</p>
+ *
+ * @author <a href="mailto:team-greendale@zalando.de">Team Greendale</a>
+ */
+public class PooledTokenInfoHttpClient implements Closeable {
+
+    static final String METRIC_PREFIX = "planb.revocations.tokenInfo.pool";
+
+    private final PoolingHttpClientConnectionManager connectionManager;
+
+    private final CloseableHttpClient httpClient;
+
+    /**
+     * Constructs a new client.
+     *
+     * @param properties     the limits and timeouts of the pool
+     * @param metricRegistry registry where the state of the pool is published
+     */
+    public PooledTokenInfoHttpClient(final TokenInfoProperties properties, final MetricRegistry metricRegistry) {
+        connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(properties.getMaxConnections());
+        connectionManager.setDefaultMaxPerRoute(properties.getMaxConnectionsPerRoute());
+
+        httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectTimeout(properties.getConnectTimeout())
+                        .setSocketTimeout(properties.getReadTimeout())
+                        .setConnectionRequestTimeout(properties.getConnectionRequestTimeout())
+                        .build())
+                .evictExpiredConnections()
+                .evictIdleConnections(properties.getIdleTimeout(), TimeUnit.MILLISECONDS)
+                .build();
+
+        metricRegistry.register(METRIC_PREFIX + ".leased",
+                (Gauge<Integer>) () -> connectionManager.getTotalStats().getLeased());
+        metricRegistry.register(METRIC_PREFIX + ".pending",
+                (Gauge<Integer>) () -> connectionManager.getTotalStats().getPending());
+        metricRegistry.register(METRIC_PREFIX + ".available",
+                (Gauge<Integer>) () -> connectionManager.getTotalStats().getAvailable());
+    }
+
+    /**
+     * Returns a template sending requests through the pool, handling error responses like the token info executors'
+     * default one.
+     *
+     * @return a new template
+     */
+    public RestTemplate restTemplate() {
+        final RestTemplate restTemplate = DefaultTokenInfoRequestExecutor.buildRestTemplate();
+        restTemplate.setRequestFactory(new HttpComponentsClientHttpRequestFactory(httpClient));
+        return restTemplate;
+    }
+
+    /**
+     * Closes all pooled connections and stops the eviction of idle ones.
+     */
+    @Override
+    public void close() throws IOException {
+        httpClient.close();
+    }
+}
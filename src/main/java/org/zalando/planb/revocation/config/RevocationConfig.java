@@ -1,5 +1,6 @@
 package org.zalando.planb.revocation.config;
 
+import com.codahale.metrics.MetricRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
@@ -33,7 +34,9 @@ public class RevocationConfig {
     public RevocationAuthorizationService revocationAuthorizationService(
             AuthorizationRulesStore authorizationRulesStore,
             RevocationProperties revocationProperties,
-            CassandraProperties cassandraProperties) {
-        return new RuleBasedClaimRevocationAuthorizationService(authorizationRulesStore, revocationProperties, cassandraProperties);
+            CassandraProperties cassandraProperties,
+            MetricRegistry metricRegistry) {
+        return new RuleBasedClaimRevocationAuthorizationService(authorizationRulesStore, revocationProperties,
+                cassandraProperties, metricRegistry);
     }
 }
@@ -1,5 +1,6 @@
 package org.zalando.planb.revocation.config;
 
+import com.codahale.metrics.MetricRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.security.oauth2.resource.ResourceServerProperties;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
@@ -17,6 +18,7 @@ import org.springframework.security.oauth2.provider.token.ResourceServerTokenSer
 import org.springframework.security.web.header.writers.HstsHeaderWriter;
 import org.springframework.security.web.util.matcher.AnyRequestMatcher;
 import org.zalando.planb.revocation.config.properties.ApiSecurityProperties;
+import org.zalando.planb.revocation.config.properties.TokenInfoProperties;
 import org.zalando.planb.revocation.domain.CurrentUser;
 import org.zalando.stups.oauth2.spring.security.expression.ExtendedOAuth2WebSecurityExpressionHandler;
 import org.zalando.stups.oauth2.spring.server.DefaultAuthenticationExtractor;
@@ -29,7 +31,7 @@ import java.util.concurrent.TimeUnit;
  */
 @Configuration
 @EnableResourceServer
-@EnableConfigurationProperties(ApiSecurityProperties.class)
+@EnableConfigurationProperties({ApiSecurityProperties.class, TokenInfoProperties.class})
 public class SecurityConfig extends WebSecurityConfigurerAdapter implements ResourceServerConfigurer {
 
     @Autowired
@@ -38,11 +40,24 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter implements Reso
     @Autowired
     private ResourceServerProperties resourceServerProperties;
 
+    @Autowired
+    private TokenInfoProperties tokenInfoProperties;
+
+    @Bean
+    public PooledTokenInfoHttpClient tokenInfoHttpClient(final MetricRegistry metricRegistry) {
+        return new PooledTokenInfoHttpClient(tokenInfoProperties, metricRegistry);
+    }
+
     @Bean
-    public ResourceServerTokenServices tokenInfoTokenServices() {
+    public ResourceServerTokenServices tokenInfoTokenServices(final PooledTokenInfoHttpClient tokenInfoHttpClient,
+                                                              final MetricRegistry metricRegistry) {
         return new TokenInfoResourceServerTokenServices("CLIENT_ID_NOT_NEEDED",
                 new DefaultAuthenticationExtractor(),
-                new FallbackTokenInfoRequestExecutor(resourceServerProperties.getTokenInfoUri()));
+                new CachingTokenInfoRequestExecutor(
+                        new FallbackTokenInfoRequestExecutor(resourceServerProperties.getTokenInfoUri(),
+                                tokenInfoProperties, tokenInfoHttpClient.restTemplate()),
+                        tokenInfoProperties.getCacheSize(), tokenInfoProperties.getCacheDuration(),
+                        tokenInfoProperties.getNegativeCacheDuration(), metricRegistry));
     }
 
     @Override
@@ -1,27 +1,69 @@
 package org.zalando.planb.revocation.config;
 
+import com.codahale.metrics.MetricRegistry;
 import com.datastax.driver.core.Session;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.zalando.planb.revocation.config.properties.CacheProperties;
 import org.zalando.planb.revocation.config.properties.CassandraProperties;
+import org.zalando.planb.revocation.config.properties.RevocationProperties;
+import org.zalando.planb.revocation.config.properties.TailerProperties;
 import org.zalando.planb.revocation.domain.CurrentUser;
 import org.zalando.planb.revocation.management.CassandraHealthIndicator;
 import org.zalando.planb.revocation.persistence.AuthorizationRulesStore;
+import org.zalando.planb.revocation.persistence.BucketDirectory;
+import org.zalando.planb.revocation.persistence.BucketDirectoryBackfill;
+import org.zalando.planb.revocation.persistence.BucketPlanner;
+import org.zalando.planb.revocation.persistence.CachingRevocationStore;
 import org.zalando.planb.revocation.persistence.CassandraAuthorizationRuleStore;
 import org.zalando.planb.revocation.persistence.CassandraRevocationStore;
 import org.zalando.planb.revocation.persistence.InMemoryAuthorizationRuleStore;
 import org.zalando.planb.revocation.persistence.InMemoryRevocationStore;
+import org.zalando.planb.revocation.persistence.RevocationHashBackfill;
 import org.zalando.planb.revocation.persistence.RevocationStore;
+import org.zalando.planb.revocation.persistence.RevocationTailer;
+import org.zalando.planb.revocation.persistence.SealedBucketCache;
+import org.zalando.planb.revocation.util.MessageHasher;
+import org.zalando.planb.revocation.util.RevocationJsonCodec;
 
 @Configuration
+@EnableScheduling
+@EnableConfigurationProperties({CacheProperties.class, TailerProperties.class})
 @AutoConfigureAfter(CassandraConfig.class)
 public class StorageConfig {
 
+    /**
+     * Scheduler running all {@code @Scheduled} jobs. Spring's default runs them on a single thread, where the hourly
+     * backfills and the full cache resync would hold up the tailer and the cache refresh running every second.
+     */
+    @Bean
+    public TaskScheduler taskScheduler(final RevocationProperties revocationProperties) {
+        final ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(revocationProperties.getSchedulerThreads());
+        scheduler.setThreadNamePrefix("scheduler-");
+        return scheduler;
+    }
+
+    @Bean
+    public RevocationTailer revocationTailer(final RevocationStore revocationStore,
+                                             final TailerProperties tailerProperties,
+                                             final MetricRegistry metricRegistry) {
+        final RevocationTailer tailer = new RevocationTailer(revocationStore, tailerProperties.getLookback(),
+                metricRegistry);
+        if (revocationStore instanceof RevocationTailer.Listener) {
+            tailer.addListener((RevocationTailer.Listener) revocationStore);
+        }
+        return tailer;
+    }
+
     @Configuration
     @ConditionalOnBean(Session.class)
     static class CassandraStorageConfig {
@@ -29,20 +71,59 @@ public class StorageConfig {
         @Autowired
         private CassandraProperties cassandraProperties;
 
+        @Autowired
+        private CacheProperties cacheProperties;
+
         @Autowired
         private Session session;
 
         @Bean
-        public RevocationStore revocationStore(final CurrentUser currentUser, final ObjectMapper objectMapper) {
-            return new CassandraRevocationStore(session, cassandraProperties.getReadConsistencyLevel(),
-                    cassandraProperties.getWriteConsistencyLevel(), cassandraProperties.getMaxTimeDelta(),
-                    currentUser, objectMapper);
+        public RevocationStore revocationStore(final CurrentUser currentUser,
+                                               final RevocationJsonCodec revocationJsonCodec,
+                                               final MessageHasher messageHasher,
+                                               final MetricRegistry metricRegistry) {
+            final int timeToLive = BucketPlanner.effectiveTimeToLive(session, cassandraProperties.getTimeToLive());
+            final RevocationStore store = new CassandraRevocationStore(session,
+                    cassandraProperties.getReadConsistencyLevel(), cassandraProperties.getWriteConsistencyLevel(),
+                    cassandraProperties.getMaxTimeDelta(), cassandraProperties.getMaxBucketQueriesInFlight(),
+                    cassandraProperties.getReadDeadline(), cassandraProperties.getFetchSize(),
+                    new SealedBucketCache(cassandraProperties.getSealedBucketCacheSize(), timeToLive, metricRegistry),
+                    new BucketDirectory(session, cassandraProperties.getReadConsistencyLevel(),
+                            cassandraProperties.getWriteConsistencyLevel(), cassandraProperties.getMaxTimeDelta(),
+                            cassandraProperties.getBucketDirectoryCacheDuration(), metricRegistry),
+                    new BucketPlanner(timeToLive, metricRegistry),
+                    cassandraProperties.getRefreshCacheDuration(), cassandraProperties.isWriteLegacyColumns(),
+                    currentUser, revocationJsonCodec, messageHasher);
+
+            if (!cacheProperties.isEnabled()) {
+                return store;
+            }
+            return new CachingRevocationStore(store, cassandraProperties.getMaxTimeDelta(),
+                    cacheProperties.getTailLookback(), metricRegistry);
         }
 
         @Bean
-        public AuthorizationRulesStore authorizationRulesStore() {
+        public RevocationHashBackfill revocationHashBackfill(final RevocationStore revocationStore) {
+            RevocationStore store = revocationStore;
+            if (store instanceof CachingRevocationStore) {
+                store = ((CachingRevocationStore) store).getDelegate();
+            }
+            return new RevocationHashBackfill((CassandraRevocationStore) store);
+        }
+
+        @Bean
+        public BucketDirectoryBackfill bucketDirectoryBackfill(final RevocationStore revocationStore) {
+            RevocationStore store = revocationStore;
+            if (store instanceof CachingRevocationStore) {
+                store = ((CachingRevocationStore) store).getDelegate();
+            }
+            return new BucketDirectoryBackfill((CassandraRevocationStore) store);
+        }
+
+        @Bean
+        public AuthorizationRulesStore authorizationRulesStore(final MetricRegistry metricRegistry) {
             return new CassandraAuthorizationRuleStore(session, cassandraProperties.getReadConsistencyLevel(),
-                    cassandraProperties.getWriteConsistencyLevel());
+                    cassandraProperties.getWriteConsistencyLevel(), metricRegistry);
         }
 
         @Bean
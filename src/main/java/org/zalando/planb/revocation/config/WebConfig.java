@@ -2,20 +2,28 @@ package org.zalando.planb.revocation.config;
 
 import com.codahale.metrics.MetricRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.ComponentScan.Filter;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
+import org.zalando.planb.revocation.api.impl.BinaryRevocationListHttpMessageConverter;
+import org.zalando.planb.revocation.api.impl.JsonRevocationListHttpMessageConverter;
 import org.zalando.planb.revocation.api.impl.ResponseSizeHandlerInterceptor;
+import org.zalando.planb.revocation.config.properties.DigestProperties;
+import org.zalando.planb.revocation.config.properties.StreamProperties;
+import org.zalando.planb.revocation.util.RevocationJsonCodec;
 import org.zalando.planb.revocation.web.RequestInfoMDCFilter;
 
 @Configuration
+@EnableConfigurationProperties({StreamProperties.class, DigestProperties.class})
 @ComponentScan(
         useDefaultFilters = false,
         includeFilters = @Filter(classes = {Controller.class, RestController.class, ControllerAdvice.class}),
@@ -37,6 +45,63 @@ public class WebConfig {
         };
     }
 
+    /**
+     * Executor building the responses of {@code GET} requests waiting for new revocations, so that the tailing thread
+     * waking them up is not held.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor revocationsResponseExecutor() {
+        final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(Runtime.getRuntime().availableProcessors());
+        executor.setThreadNamePrefix("revocations-response-");
+        return executor;
+    }
+
+    /**
+     * Executor writing Server-Sent Events to subscribers of the revocation stream.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor revocationsStreamExecutor(final StreamProperties streamProperties) {
+        final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(streamProperties.getSenderThreads());
+        executor.setThreadNamePrefix("revocations-stream-");
+        return executor;
+    }
+
+    /**
+     * Executor performing the blocking writes of the revocation stream's senders, which wait for them only up to the
+     * write timeout. It grows with the number of stalled subscribers, whose writes keep a thread until the connection
+     * fails, up to {@code revocation.stream.maxWriters}.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor revocationsStreamWriter(final StreamProperties streamProperties) {
+        final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(streamProperties.getSenderThreads());
+        executor.setMaxPoolSize(Math.max(streamProperties.getMaxWriters(), streamProperties.getSenderThreads()));
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("revocations-stream-writer-");
+        return executor;
+    }
+
+    /**
+     * Writes revocation lists in the compact binary format to clients preferring it, picked up by Spring Boot next to
+     * the JSON converter.
+     */
+    @Bean
+    public BinaryRevocationListHttpMessageConverter binaryRevocationListHttpMessageConverter() {
+        return new BinaryRevocationListHttpMessageConverter();
+    }
+
+    /**
+     * Writes revocation lists as JSON with a pre-built writer, picked up by Spring Boot in front of the generic JSON
+     * converter.
+     */
+    @Bean
+    public JsonRevocationListHttpMessageConverter jsonRevocationListHttpMessageConverter(
+            final RevocationJsonCodec revocationJsonCodec) {
+        return new JsonRevocationListHttpMessageConverter(revocationJsonCodec);
+    }
+
     @Bean
     public RequestInfoMDCFilter requestInfoMDCFilter() {
         return new RequestInfoMDCFilter();
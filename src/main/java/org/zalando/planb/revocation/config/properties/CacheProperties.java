@@ -0,0 +1,49 @@
+package org.zalando.planb.revocation.config.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Properties used to configure the in-memory revocation window.
+ * <p>
+ * <p>The following properties are used and can be defined through <a
+ * href="https://docs.spring.io/spring-boot/docs/current/reference/html/boot-features-external-config.html">Spring
+ * Configuration</a>:</p>
+ * <p>
+ * <ul>
+ * <li>{@code revocation.cache.enabled} - Serves revocations from an in-memory index of the whole
+ * {@code cassandra.maxTimeDelta} window instead of querying Cassandra on every request. Default value is
+ * {@code false};</li>
+ * <li>{@code revocation.cache.tailLookback} - How many seconds before the newest known revocation are queried again
+ * when tailing the store, so that rows written by nodes with a slightly late clock are not missed. Default value is
+ * {@code 60};</li>
+ * <li>{@code revocation.cache.refreshInMilliseconds} - Interval between two tail queries. Default value is
+ * {@code 1000};</li>
+ * <li>{@code revocation.cache.resyncInMilliseconds} - Interval between two full reloads of the window, which drop rows
+ * expired in the store. Default value is {@code 600000}.</li>
+ * </ul>
+ *
+ * @author <a href="mailto:team-greendale@zalando.de">Team Greendale</a>
+ */
+@ConfigurationProperties(prefix = "revocation.cache")
+public class CacheProperties {
+
+    private boolean enabled = false;
+
+    private int tailLookback = 60;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getTailLookback() {
+        return tailLookback;
+    }
+
+    public void setTailLookback(int tailLookback) {
+        this.tailLookback = tailLookback;
+    }
+}
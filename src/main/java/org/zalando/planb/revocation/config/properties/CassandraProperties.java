@@ -32,6 +32,27 @@ import static com.datastax.driver.core.ConsistencyLevel.ONE;
  * <li>{@code cassandra.password} - User password to access the Cassandra cluster. Default value is empty;</li>
  * <li>{@code cassandra.maxTimeDelta} - The maximum time span limit to get revocations, in seconds. Default value is
  * {@code 2678400}, meaning that a client can get revocations from since 31 days ago maximum.</li>
+ * <li>{@code cassandra.maxBucketQueriesInFlight} - The maximum number of bucket queries running concurrently when
+ * getting revocations. Default value is {@code 8};</li>
+ * <li>{@code cassandra.readDeadline} - The maximum time in milliseconds to read all buckets when getting
+ * revocations. Default value is {@code 5000};</li>
+ * <li>{@code cassandra.timeToLive} - The {@code default_time_to_live} of the revocation table, in seconds, used
+ * when it can not be read from the schema. Default value is {@code 7200};</li>
+ * <li>{@code cassandra.sealedBucketCacheSize} - The maximum number of past buckets whose contents are kept in memory.
+ * {@code 0} disables the cache. Default value is {@code 100};</li>
+ * <li>{@code cassandra.refreshCacheDuration} - How long the latest refresh notification is kept in memory before
+ * reading it again, in milliseconds. {@code 0} disables the cache. Default value is {@code 60000};</li>
+ * <li>{@code cassandra.fetchSize} - The number of rows fetched per page when streaming revocations to a client, which
+ * is also the number of revocations converted and written at once. Default value is {@code 1000};</li>
+ * <li>{@code cassandra.writeLegacyColumns} - Whether revocations are also written to the {@code revocation_type} and
+ * {@code revocation_data} columns, for instances not reading the typed columns yet. Can be disabled once all instances
+ * read them. Default value is {@code true};</li>
+ * <li>{@code cassandra.bucketDirectoryCacheDuration} - How long the directory of the newest revocation per bucket is
+ * kept in memory before reading it again, in milliseconds. Sealed buckets without newer revocations than requested are
+ * not queried. {@code 0} disables skipping buckets. Default value is {@code 60000};</li>
+ * <li>{@code cassandra.bucketDirectoryBackfillInMilliseconds} - Interval between two runs of the job recording the
+ * newest revocation of each sealed bucket in the directory, including empty buckets. Default value is
+ * {@code 3600000}.</li>
  * </ul>
  *
  * @author <a href="mailto:rodrigo.reis@zalando.de">Rodrigo Reis</a>
@@ -58,6 +79,22 @@ public class CassandraProperties {
     // Maybe this maxTimeDelta should be derived from the bucket size in Cassandra...
     private int maxTimeDelta = (int) Duration.ofDays(31).getSeconds();
 
+    private int maxBucketQueriesInFlight = 8;
+
+    private int readDeadline = 5000;
+
+    private int timeToLive = 7200;
+
+    private int sealedBucketCacheSize = 100;
+
+    private int refreshCacheDuration = 60000;
+
+    private int fetchSize = 1000;
+
+    private boolean writeLegacyColumns = true;
+
+    private int bucketDirectoryCacheDuration = 60000;
+
     private String healthCheckQuery = "SELECT release_version FROM system.local;";
 
     public String getKeyspace() {
@@ -132,6 +169,70 @@ public class CassandraProperties {
         this.maxTimeDelta = maxTimeDelta;
     }
 
+    public int getMaxBucketQueriesInFlight() {
+        return maxBucketQueriesInFlight;
+    }
+
+    public void setMaxBucketQueriesInFlight(int maxBucketQueriesInFlight) {
+        this.maxBucketQueriesInFlight = maxBucketQueriesInFlight;
+    }
+
+    public int getReadDeadline() {
+        return readDeadline;
+    }
+
+    public void setReadDeadline(int readDeadline) {
+        this.readDeadline = readDeadline;
+    }
+
+    public int getTimeToLive() {
+        return timeToLive;
+    }
+
+    public void setTimeToLive(int timeToLive) {
+        this.timeToLive = timeToLive;
+    }
+
+    public int getSealedBucketCacheSize() {
+        return sealedBucketCacheSize;
+    }
+
+    public void setSealedBucketCacheSize(int sealedBucketCacheSize) {
+        this.sealedBucketCacheSize = sealedBucketCacheSize;
+    }
+
+    public int getRefreshCacheDuration() {
+        return refreshCacheDuration;
+    }
+
+    public void setRefreshCacheDuration(int refreshCacheDuration) {
+        this.refreshCacheDuration = refreshCacheDuration;
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    public boolean isWriteLegacyColumns() {
+        return writeLegacyColumns;
+    }
+
+    public void setWriteLegacyColumns(boolean writeLegacyColumns) {
+        this.writeLegacyColumns = writeLegacyColumns;
+    }
+
+    public int getBucketDirectoryCacheDuration() {
+        return bucketDirectoryCacheDuration;
+    }
+
+    public void setBucketDirectoryCacheDuration(int bucketDirectoryCacheDuration) {
+        this.bucketDirectoryCacheDuration = bucketDirectoryCacheDuration;
+    }
+
     public String getHealthCheckQuery() {
         return healthCheckQuery;
     }
@@ -0,0 +1,55 @@
+package org.zalando.planb.revocation.config.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Properties used to configure the Bloom filter digest of revoked token hashes.
+ * <p>
+ * <p>The following properties are used and can be defined through <a
+ * href="https://docs.spring.io/spring-boot/docs/current/reference/html/boot-features-external-config.html">Spring
+ * Configuration</a>:</p>
+ * <p>
+ * <ul>
+ * <li>{@code revocation.digest.expectedInsertions} - Number of token revocations the filter is sized for. Rebuilds
+ * size it for the number of token revocations found when larger. Default value is {@code 10000};</li>
+ * <li>{@code revocation.digest.falsePositiveProbability} - Probability of a token hash that was not revoked being
+ * reported by the filter, once sized. Default value is {@code 0.01};</li>
+ * <li>{@code revocation.digest.rebuildInMilliseconds} - Interval between full rebuilds of the filter from the store,
+ * dropping revocations beyond the time limit. Default value is {@code 600000}.</li>
+ * </ul>
+ *
+ * @author <a href="mailto:team-greendale@zalando.de">Team Greendale</a>
+ */
+@ConfigurationProperties(prefix = "revocation.digest")
+public class DigestProperties {
+
+    private int expectedInsertions = 10000;
+
+    private double falsePositiveProbability = 0.01;
+
+    private long rebuildInMilliseconds = 600000;
+
+    public int getExpectedInsertions() {
+        return expectedInsertions;
+    }
+
+    public void setExpectedInsertions(int expectedInsertions) {
+        this.expectedInsertions = expectedInsertions;
+    }
+
+    public double getFalsePositiveProbability() {
+        return falsePositiveProbability;
+    }
+
+    public void setFalsePositiveProbability(double falsePositiveProbability) {
+        this.falsePositiveProbability = falsePositiveProbability;
+    }
+
+    public long getRebuildInMilliseconds() {
+        return rebuildInMilliseconds;
+    }
+
+    public void setRebuildInMilliseconds(long rebuildInMilliseconds) {
+        this.rebuildInMilliseconds = rebuildInMilliseconds;
+    }
+}
@@ -22,6 +22,8 @@ import java.util.Map;
  * <li>{@code revocation.hashing.salt} - Salt value used to hash revocation values;</li>
  * <li>{@code revocation.hashing.separator} - The separator used to concatenate claim values in
  * {@link RevokedClaimsInfo}. Default is '|';</li>
+ * <li>{@code revocation.hashing.backfillInMilliseconds} - Interval between two runs of the job storing the hash of
+ * revocations stored without one, or with a different algorithm, salt or separator. Default is {@code 3600000};</li>
  * </ul>
  *
  * @author <a href="mailto:rodrigo.reis@zalando.de">Rodrigo Reis</a>
@@ -3,7 +3,7 @@ package org.zalando.planb.revocation.config.properties;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 /**
- * General configuration properties used for posting revocations.
+ * General configuration properties used for getting and posting revocations.
  * <p>
  * <p>The following properties are used and can be defined through <a
  * href="https://docs.spring.io/spring-boot/docs/current/reference/html/boot-features-external-config.html">Spring
@@ -13,6 +13,19 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
  * <li>{@code revocation.timestampThreshold} - A value in seconds used to give a threshold for {@code issued_before}
  * values when posting revocations. Default value is 5 seconds. This means that a revocation will be accepted if
  * {@code issued_before} is equal to the current
+ * <li>{@code revocation.maxWait} - Maximum number of seconds a {@code GET} with the {@code wait} parameter is held open
+ * until a new revocation or refresh notification is stored. Longer waits are shortened to this value. Default value is
+ * 60 seconds;</li>
+ * <li>{@code revocation.maxCoalescedSize} - Maximum size in bytes of a {@code GET} response shared by concurrent
+ * requests for the same revocations. Larger responses are rendered for each request. {@code 0} disables sharing.
+ * Default value is {@code 1048576};</li>
+ * <li>{@code revocation.authorizationCacheSize} - Maximum number of cached authorization decisions for claim-based
+ * revocations, by caller token and revoked claims. {@code 0} disables caching. Default value is {@code 10000};</li>
+ * <li>{@code revocation.authorizationCacheDuration} - Maximum number of seconds an authorization decision is cached,
+ * shortened to the expiry of the caller's token. Default value is {@code 300};</li>
+ * <li>{@code revocation.schedulerThreads} - Number of threads running the scheduled jobs, such as the tailer, the cache
+ * refresh and the backfills. With at least one thread per job, a long job never delays the others. Default value is
+ * {@code 8}.</li>
  * </ul>
  *
  * @author <a href="mailto:rodrigo.reis@zalando.de">Rodrigo Reis</a>
@@ -22,6 +35,16 @@ public class RevocationProperties {
 
     private int timestampThreshold = 5;
 
+    private int maxWait = 60;
+
+    private int maxCoalescedSize = 1048576;
+
+    private int authorizationCacheSize = 10000;
+
+    private int authorizationCacheDuration = 300;
+
+    private int schedulerThreads = 8;
+
     public int getTimestampThreshold() {
         return timestampThreshold;
     }
@@ -29,4 +52,44 @@ public class RevocationProperties {
     public void setTimestampThreshold(int timestampThreshold) {
         this.timestampThreshold = timestampThreshold;
     }
+
+    public int getMaxWait() {
+        return maxWait;
+    }
+
+    public void setMaxWait(int maxWait) {
+        this.maxWait = maxWait;
+    }
+
+    public int getMaxCoalescedSize() {
+        return maxCoalescedSize;
+    }
+
+    public void setMaxCoalescedSize(int maxCoalescedSize) {
+        this.maxCoalescedSize = maxCoalescedSize;
+    }
+
+    public int getAuthorizationCacheSize() {
+        return authorizationCacheSize;
+    }
+
+    public void setAuthorizationCacheSize(int authorizationCacheSize) {
+        this.authorizationCacheSize = authorizationCacheSize;
+    }
+
+    public int getAuthorizationCacheDuration() {
+        return authorizationCacheDuration;
+    }
+
+    public void setAuthorizationCacheDuration(int authorizationCacheDuration) {
+        this.authorizationCacheDuration = authorizationCacheDuration;
+    }
+
+    public int getSchedulerThreads() {
+        return schedulerThreads;
+    }
+
+    public void setSchedulerThreads(int schedulerThreads) {
+        this.schedulerThreads = schedulerThreads;
+    }
 }
@@ -0,0 +1,80 @@
+package org.zalando.planb.revocation.config.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Properties used to configure the Server-Sent Events stream of revocations.
+ * <p>
+ * <p>The following properties are used and can be defined through <a
+ * href="https://docs.spring.io/spring-boot/docs/current/reference/html/boot-features-external-config.html">Spring
+ * Configuration</a>:</p>
+ * <p>
+ * <ul>
+ * <li>{@code revocation.stream.bufferSize} - Maximum number of events waiting to be sent to a single subscriber.
+ * Subscribers falling further behind are disconnected. Default value is {@code 1000};</li>
+ * <li>{@code revocation.stream.timeout} - Time in milliseconds after which subscribers are disconnected, and expected
+ * to reconnect with {@code Last-Event-ID}. Default value is {@code 300000};</li>
+ * <li>{@code revocation.stream.senderThreads} - Number of threads writing events to subscribers. Default value is
+ * {@code 4};</li>
+ * <li>{@code revocation.stream.writeTimeout} - Time in milliseconds that writing a single event to a subscriber may
+ * take. Subscribers not accepting an event in time are disconnected. Default value is {@code 10000};</li>
+ * <li>{@code revocation.stream.maxWriters} - Maximum number of threads performing writes, including the ones of
+ * stalled subscribers that did not finish in time. Subscribers are disconnected when no thread is left for their
+ * write. Default value is {@code 100}.</li>
+ * </ul>
+ *
+ * @author <a href="mailto:team-greendale@zalando.de">Team Greendale</a>
+ */
+@ConfigurationProperties(prefix = "revocation.stream")
+public class StreamProperties {
+
+    private int bufferSize = 1000;
+
+    private long timeout = 300000;
+
+    private int senderThreads = 4;
+
+    private long writeTimeout = 10000;
+
+    private int maxWriters = 100;
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    public long getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(long timeout) {
+        this.timeout = timeout;
+    }
+
+    public int getSenderThreads() {
+        return senderThreads;
+    }
+
+    public void setSenderThreads(int senderThreads) {
+        this.senderThreads = senderThreads;
+    }
+
+    public long getWriteTimeout() {
+        return writeTimeout;
+    }
+
+    public void setWriteTimeout(long writeTimeout) {
+        this.writeTimeout = writeTimeout;
+    }
+
+    public int getMaxWriters() {
+        return maxWriters;
+    }
+
+    public void setMaxWriters(int maxWriters) {
+        this.maxWriters = maxWriters;
+    }
+}
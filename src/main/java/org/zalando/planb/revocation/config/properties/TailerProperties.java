@@ -0,0 +1,33 @@
+package org.zalando.planb.revocation.config.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Properties used to configure how new revocations and refresh notifications are followed.
+ * <p>
+ * <p>The following properties are used and can be defined through <a
+ * href="https://docs.spring.io/spring-boot/docs/current/reference/html/boot-features-external-config.html">Spring
+ * Configuration</a>:</p>
+ * <p>
+ * <ul>
+ * <li>{@code revocation.tailer.lookback} - How many seconds before the previous tail query are queried again, so that
+ * rows written by nodes with a slightly late clock are not missed. Default value is {@code 60};</li>
+ * <li>{@code revocation.tailer.tailInMilliseconds} - Interval between two tail queries, which bounds how long it takes
+ * to notice revocations stored by other nodes. Default value is {@code 1000}.</li>
+ * </ul>
+ *
+ * @author <a href="mailto:team-greendale@zalando.de">Team Greendale</a>
+ */
+@ConfigurationProperties(prefix = "revocation.tailer")
+public class TailerProperties {
+
+    private int lookback = 60;
+
+    public int getLookback() {
+        return lookback;
+    }
+
+    public void setLookback(int lookback) {
+        this.lookback = lookback;
+    }
+}
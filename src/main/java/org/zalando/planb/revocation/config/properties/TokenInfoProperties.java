@@ -0,0 +1,199 @@
+package org.zalando.planb.revocation.config.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Properties used to configure how access tokens are validated against the token info endpoints.
+ * <p>
+ * <p>The following properties are used and can be defined through <a
+ * href="https://docs.spring.io/spring-boot/docs/current/reference/html/boot-features-external-config.html">Spring
+ * Configuration</a>:</p>
+ * <p>
+ * <ul>
+ * <li>{@code tokeninfo.cacheSize} - Maximum number of token info responses kept in memory, by a hash of the access
+ * token. {@code 0} disables caching. Default value is {@code 10000};</li>
+ * <li>{@code tokeninfo.cacheDuration} - Maximum number of seconds a valid token's response is kept, shortened to its
+ * {@code expires_in}. Default value is {@code 300};</li>
+ * <li>{@code tokeninfo.negativeCacheDuration} - Number of seconds an error response for an invalid token is kept.
+ * Default value is {@code 10};</li>
+ * <li>{@code tokeninfo.failureThreshold} - Number of consecutive failed requests after which a token info endpoint
+ * is skipped. Default value is {@code 3};</li>
+ * <li>{@code tokeninfo.openDuration} - Number of milliseconds a failing token info endpoint is skipped. Default value
+ * is {@code 30000};</li>
+ * <li>{@code tokeninfo.probeInterval} - Number of milliseconds after which a token info endpoint that was not
+ * requested is tried first again, so that endpoints ranked last can recover. Default value is {@code 10000};</li>
+ * <li>{@code tokeninfo.hedge} - Whether a second request is sent to the next token info endpoint when the first one
+ * is slow. Default value is {@code false};</li>
+ * <li>{@code tokeninfo.hedgePercentile} - Quantile of an endpoint's recent response times after which the second
+ * request is sent. Default value is {@code 0.95};</li>
+ * <li>{@code tokeninfo.hedgeMinDelay} - Minimum number of milliseconds waited before the second request is sent.
+ * Default value is {@code 50};</li>
+ * <li>{@code tokeninfo.maxConnections} - Maximum number of pooled connections to all token info endpoints. Default
+ * value is {@code 100};</li>
+ * <li>{@code tokeninfo.maxConnectionsPerRoute} - Maximum number of pooled connections to a single token info
+ * endpoint. Default value is {@code 20};</li>
+ * <li>{@code tokeninfo.connectTimeout} - Number of milliseconds to wait for a connection to be established. Default
+ * value is {@code 1000};</li>
+ * <li>{@code tokeninfo.readTimeout} - Number of milliseconds to wait for data from an established connection.
+ * Default value is {@code 5000};</li>
+ * <li>{@code tokeninfo.connectionRequestTimeout} - Number of milliseconds to wait for a connection from the pool.
+ * Default value is {@code 1000};</li>
+ * <li>{@code tokeninfo.idleTimeout} - Number of milliseconds after which idle pooled connections are closed. Default
+ * value is {@code 30000}.</li>
+ * </ul>
+ *
+ * @author <a href="mailto:team-greendale@zalando.de">Team Greendale</a>
+ */
+@ConfigurationProperties(prefix = "tokeninfo")
+public class TokenInfoProperties {
+
+    private int cacheSize = 10000;
+
+    private int cacheDuration = 300;
+
+    private int negativeCacheDuration = 10;
+
+    private int failureThreshold = 3;
+
+    private long openDuration = 30000;
+
+    private long probeInterval = 10000;
+
+    private boolean hedge = false;
+
+    private double hedgePercentile = 0.95;
+
+    private long hedgeMinDelay = 50;
+
+    private int maxConnections = 100;
+
+    private int maxConnectionsPerRoute = 20;
+
+    private int connectTimeout = 1000;
+
+    private int readTimeout = 5000;
+
+    private int connectionRequestTimeout = 1000;
+
+    private long idleTimeout = 30000;
+
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    public void setCacheSize(int cacheSize) {
+        this.cacheSize = cacheSize;
+    }
+
+    public int getCacheDuration() {
+        return cacheDuration;
+    }
+
+    public void setCacheDuration(int cacheDuration) {
+        this.cacheDuration = cacheDuration;
+    }
+
+    public int getNegativeCacheDuration() {
+        return negativeCacheDuration;
+    }
+
+    public void setNegativeCacheDuration(int negativeCacheDuration) {
+        this.negativeCacheDuration = negativeCacheDuration;
+    }
+
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    public void setFailureThreshold(int failureThreshold) {
+        this.failureThreshold = failureThreshold;
+    }
+
+    public long getOpenDuration() {
+        return openDuration;
+    }
+
+    public void setOpenDuration(long openDuration) {
+        this.openDuration = openDuration;
+    }
+
+    public long getProbeInterval() {
+        return probeInterval;
+    }
+
+    public void setProbeInterval(long probeInterval) {
+        this.probeInterval = probeInterval;
+    }
+
+    public boolean isHedge() {
+        return hedge;
+    }
+
+    public void setHedge(boolean hedge) {
+        this.hedge = hedge;
+    }
+
+    public double getHedgePercentile() {
+        return hedgePercentile;
+    }
+
+    public void setHedgePercentile(double hedgePercentile) {
+        this.hedgePercentile = hedgePercentile;
+    }
+
+    public long getHedgeMinDelay() {
+        return hedgeMinDelay;
+    }
+
+    public void setHedgeMinDelay(long hedgeMinDelay) {
+        this.hedgeMinDelay = hedgeMinDelay;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+    }
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public int getReadTimeout() {
+        return readTimeout;
+    }
+
+    public void setReadTimeout(int readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+
+    public int getConnectionRequestTimeout() {
+        return connectionRequestTimeout;
+    }
+
+    public void setConnectionRequestTimeout(int connectionRequestTimeout) {
+        this.connectionRequestTimeout = connectionRequestTimeout;
+    }
+
+    public long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public void setIdleTimeout(long idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+}
@@ -0,0 +1,132 @@
+package org.zalando.planb.revocation.domain;
+
+import org.immutables.value.Value;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Position in the stored revocations, right after a revocation returned to a client.
+ * <p>
+ * <p>Stored revocations are ordered by {@code revoked_at} and then by bucket UUID, as compared by
+ * {@link #BUCKET_UUID_ORDER}. A cursor without bucket UUID is positioned after all revocations of its second, which
+ * is what the {@code from} parameter stands for.</p>
+ *
+ * @author <a href="mailto:team-greendale@zalando.de">Team Greendale</a>
+ */
+@Value.Immutable
+public abstract class Cursor {
+
+    /**
+     * Total order of bucket UUIDs used by cursors, by timestamp and then by the unsigned least significant bits.
+     * <p>
+     * <p>This is the service's own order, not the clustering order of the revocation table, where Cassandra compares
+     * the least significant bytes as signed. Revocations are always compared to cursors in memory, so the order only
+     * has to be total and stable.</p>
+     */
+    public static final Comparator<UUID> BUCKET_UUID_ORDER = (a, b) -> {
+        if (a.version() == 1 && b.version() == 1) {
+            final int byTimestamp = Long.compare(a.timestamp(), b.timestamp());
+            return byTimestamp != 0 ? byTimestamp : Long.compareUnsigned(
+                    a.getLeastSignificantBits(), b.getLeastSignificantBits());
+        }
+        return a.compareTo(b);
+    };
+
+    private static final byte ENCODING_VERSION = 1;
+
+    /**
+     * Returns the {@code revoked_at} of the last revocation before this cursor.
+     *
+     * @return the instant when the revocation was submitted, in UTC Unix Timestamp format
+     */
+    public abstract Integer revokedAt();
+
+    /**
+     * Returns the bucket UUID of the last revocation before this cursor.
+     *
+     * @return the time based UUID of the revocation, or empty if the cursor is after all revocations of its second
+     */
+    public abstract Optional<UUID> bucketUuid();
+
+    /**
+     * Returns whether the specified revocation comes after this cursor.
+     *
+     * @param revocation the stored revocation
+     * @return {@code true} if the revocation is strictly newer than the cursor
+     */
+    public boolean isBefore(final RevocationData revocation) {
+        if (revocation.revokedAt() != revokedAt().intValue()) {
+            return revocation.revokedAt() > revokedAt();
+        }
+        return bucketUuid().isPresent() && revocation.bucketUuid().isPresent()
+                && BUCKET_UUID_ORDER.compare(revocation.bucketUuid().get(), bucketUuid().get()) > 0;
+    }
+
+    /**
+     * Encodes this cursor as an opaque, URL safe string.
+     *
+     * @return the encoded cursor
+     */
+    public String encode() {
+        final ByteBuffer buffer = ByteBuffer.allocate(bucketUuid().isPresent() ? 21 : 5)
+                .put(ENCODING_VERSION)
+                .putInt(revokedAt());
+        bucketUuid().ifPresent(uuid -> buffer
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits()));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    /**
+     * Decodes a cursor previously returned by {@link #encode()}.
+     *
+     * @param encoded the encoded cursor
+     * @return the decoded cursor
+     * @throws IllegalArgumentException if {@code encoded} is not a valid cursor
+     */
+    public static Cursor decode(final String encoded) {
+        final byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(encoded);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + encoded);
+        }
+        if ((bytes.length != 5 && bytes.length != 21) || bytes[0] != ENCODING_VERSION) {
+            throw new IllegalArgumentException("Invalid cursor: " + encoded);
+        }
+
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes, 1, bytes.length - 1);
+        final ImmutableCursor.Builder cursor = ImmutableCursor.builder().revokedAt(buffer.getInt());
+        if (buffer.hasRemaining()) {
+            cursor.bucketUuid(new UUID(buffer.getLong(), buffer.getLong()));
+        }
+        return cursor.build();
+    }
+
+    /**
+     * Returns a cursor after all revocations of the specified second.
+     *
+     * @param revokedAt UTC UNIX timestamp
+     * @return a cursor for revocations strictly newer than {@code revokedAt}
+     */
+    public static Cursor after(final int revokedAt) {
+        return ImmutableCursor.builder().revokedAt(revokedAt).build();
+    }
+
+    /**
+     * Returns a cursor right after the specified stored revocation.
+     *
+     * @param revocation the stored revocation
+     * @return a cursor for revocations strictly newer than {@code revocation}
+     */
+    public static Cursor after(final RevocationData revocation) {
+        return ImmutableCursor.builder()
+                .revokedAt(revocation.revokedAt())
+                .bucketUuid(revocation.bucketUuid())
+                .build();
+    }
+}
@@ -20,7 +20,11 @@ public enum NotificationType {
     /**
      * UNIX Timestamp (UTC) informing clients when {@link NotificationType#REFRESH_FROM} was set.
      */
-    REFRESH_TIMESTAMP(false);
+    REFRESH_TIMESTAMP(false),
+    /**
+     * Opaque position after the last returned revocation, to get only newer revocations in the next request.
+     */
+    CURSOR(false);
 
     private final Boolean isSettable;
 
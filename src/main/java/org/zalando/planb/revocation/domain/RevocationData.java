@@ -1,10 +1,14 @@
 package org.zalando.planb.revocation.domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import org.immutables.value.Value;
 import org.zalando.planb.revocation.util.UnixTimestamp;
 
+import java.util.Optional;
+import java.util.UUID;
+
 /**
  * Holds data about a newly submitted revocation to be stored.
  *
@@ -33,4 +37,35 @@ public abstract class RevocationData {
     public Integer revokedAt() {
         return UnixTimestamp.now();
     }
+
+    /**
+     * Returns the unique identifier assigned by the store when the revocation was persisted.
+     * <p>
+     * <p>Together with {@link RevocationData#revokedAt()} it uniquely identifies a stored revocation. Not exposed when
+     * serializing.</p>
+     *
+     * @return the time based UUID of the stored revocation, or empty if it was not persisted yet
+     */
+    @JsonIgnore
+    public abstract Optional<UUID> bucketUuid();
+
+    /**
+     * Returns the hash of the revoked token or claim values, computed when the revocation was stored.
+     * <p>
+     * <p>Only valid while {@link RevocationData#hashFingerprint()} matches the fingerprint of the current hashing
+     * configuration. Not exposed when serializing.</p>
+     *
+     * @return the Base64 URL encoded hash, or empty if it was not computed when storing
+     */
+    @JsonIgnore
+    public abstract Optional<String> revocationHash();
+
+    /**
+     * Returns the fingerprint of the hashing configuration used to compute {@link RevocationData#revocationHash()}.
+     * Not exposed when serializing.
+     *
+     * @return the hashing configuration fingerprint, or empty if no hash was computed when storing
+     */
+    @JsonIgnore
+    public abstract Optional<String> hashFingerprint();
 }
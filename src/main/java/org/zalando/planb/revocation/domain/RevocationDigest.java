@@ -0,0 +1,61 @@
+package org.zalando.planb.revocation.domain;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import org.immutables.value.Value;
+
+/**
+ * A Bloom filter of the hashes of all revoked tokens, letting clients check tokens without holding the revocations.
+ * <p>
+ * <p>The filter is laid out as described in {@link org.zalando.planb.revocation.util.TokenHashBloomFilter}. Tokens not
+ * in the filter are not revoked by a {@link RevocationType#TOKEN} revocation, while tokens in the filter may be.</p>
+ *
+ * @author <a href="mailto:team-greendale@zalando.de">Team Greendale</a>
+ */
+@Value.Immutable
+@JsonSerialize
+@JsonDeserialize(as = ImmutableRevocationDigest.class)
+public interface RevocationDigest {
+
+    /**
+     * Returns an opaque marker of the filter contents, the same on all nodes holding the same filter.
+     *
+     * @return the generation of the filter
+     */
+    String generation();
+
+    /**
+     * Returns the algorithm tokens are hashed with before checking them against the filter.
+     *
+     * @return the name of the hash algorithm
+     */
+    String hashAlgorithm();
+
+    /**
+     * Returns the number of bits of the filter.
+     *
+     * @return the number of bits
+     */
+    int numBits();
+
+    /**
+     * Returns the number of bits set for each token hash.
+     *
+     * @return the number of hash functions
+     */
+    int numHashFunctions();
+
+    /**
+     * Returns the number of token revocations put into the filter, not counting the ones found in the filter already.
+     *
+     * @return the number of insertions
+     */
+    int insertions();
+
+    /**
+     * Returns the bits of the filter, serialized as Base64.
+     *
+     * @return the bits of the filter
+     */
+    byte[] bits();
+}
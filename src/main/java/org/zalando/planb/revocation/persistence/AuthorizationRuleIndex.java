@@ -0,0 +1,175 @@
+package org.zalando.planb.revocation.persistence;
+
+import org.zalando.planb.revocation.domain.AuthorizationRule;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Immutable index of {@link AuthorizationRule rules} by their {@code (claim name, claim value)} pairs.
+ * <p>
+ * <p>Each rule is filed under a single one of its claims, the one shared with the fewest other rules. Since a matching
+ * rule has all its claims contained in the request, it is always found by looking up the claims of the request, and
+ * only the rules found are checked completely. Matching therefore costs a lookup per claim of the request, plus a check
+ * per rule sharing the rarest claim, instead of a check per stored rule. Rules without claims match every request.</p>
+ * <p>
+ * <p>Rules are indexed twice: once by their allowed revocation claims only, for
+ * {@link AuthorizationRulesStore#retrieveByMatchingAllowedClaims(AuthorizationRule)}, and once by both their allowed
+ * revocation and required user claims, for {@link AuthorizationRulesStore#retrieveByMatchingClaims(AuthorizationRule)}.
+ * </p>
+ * <p>
+ * <p>Never modified once built, so that it can be read without locking and replaced as a whole.</p>
+ *
+ * @author <a href="mailto:team-greendale@zalando.de">Team Greendale</a>
+ */
+final class AuthorizationRuleIndex {
+
+    static final AuthorizationRuleIndex EMPTY = new AuthorizationRuleIndex(Collections.emptyList());
+
+    private final List<AuthorizationRule> rules;
+
+    private final Postings byAllowedClaims;
+
+    private final Postings byAllClaims;
+
+    /**
+     * Builds the index of the specified rules.
+     *
+     * @param rules the rules to be indexed
+     */
+    AuthorizationRuleIndex(final Collection<AuthorizationRule> rules) {
+        this.rules = Collections.unmodifiableList(new ArrayList<>(rules));
+
+        final Map<Map.Entry<String, String>, Integer> allowedFrequencies = frequencies(this.rules,
+                AuthorizationRule::allowedRevocationClaims);
+        final Map<Map.Entry<String, String>, Integer> requiredFrequencies = frequencies(this.rules,
+                AuthorizationRule::requiredUserClaims);
+        byAllowedClaims = new Postings(this.rules, allowedFrequencies, Collections.emptyMap(), false);
+        byAllClaims = new Postings(this.rules, allowedFrequencies, requiredFrequencies, true);
+    }
+
+    /**
+     * Returns all indexed rules.
+     *
+     * @return the rules, in the order they were indexed
+     */
+    List<AuthorizationRule> getRules() {
+        return rules;
+    }
+
+    /**
+     * Returns the rules whose allowed revocation claims are all contained in the reference's.
+     *
+     * @param reference the rule holding the claims of the revocation
+     * @return the matching rules, may be empty
+     */
+    Collection<AuthorizationRule> matchingAllowedClaims(final AuthorizationRule reference) {
+        return byAllowedClaims.matching(reference, Collections.emptyMap());
+    }
+
+    /**
+     * Returns the rules whose allowed revocation claims and required user claims are all contained in the reference's.
+     *
+     * @param reference the rule holding the claims of the revocation and the claims of the user
+     * @return the matching rules, may be empty
+     */
+    Collection<AuthorizationRule> matchingClaims(final AuthorizationRule reference) {
+        return byAllClaims.matching(reference, reference.requiredUserClaims());
+    }
+
+    private static Map<Map.Entry<String, String>, Integer> frequencies(
+            final List<AuthorizationRule> rules, final Function<AuthorizationRule, Map<String, String>> claims) {
+        final Map<Map.Entry<String, String>, Integer> frequencies = new HashMap<>();
+        for (AuthorizationRule rule : rules) {
+            for (Map.Entry<String, String> claim : claims.apply(rule).entrySet()) {
+                frequencies.merge(claim, 1, Integer::sum);
+            }
+        }
+        return frequencies;
+    }
+
+    /**
+     * Rules filed under their rarest allowed revocation claim, or required user claim if those are matched.
+     */
+    private static final class Postings {
+
+        private final Map<Map.Entry<String, String>, List<AuthorizationRule>> byAllowedClaim = new HashMap<>();
+
+        private final Map<Map.Entry<String, String>, List<AuthorizationRule>> byRequiredClaim = new HashMap<>();
+
+        private final List<AuthorizationRule> withoutClaims = new ArrayList<>();
+
+        private final boolean matchRequiredClaims;
+
+        private Postings(final List<AuthorizationRule> rules,
+                         final Map<Map.Entry<String, String>, Integer> allowedFrequencies,
+                         final Map<Map.Entry<String, String>, Integer> requiredFrequencies,
+                         final boolean matchRequiredClaims) {
+            this.matchRequiredClaims = matchRequiredClaims;
+            for (AuthorizationRule rule : rules) {
+                final Map.Entry<String, String> rarestAllowed = rarest(rule.allowedRevocationClaims(),
+                        allowedFrequencies);
+                final Map.Entry<String, String> rarestRequired = rarest(rule.requiredUserClaims(),
+                        requiredFrequencies);
+
+                if (rarestRequired != null && (rarestAllowed == null
+                        || requiredFrequencies.get(rarestRequired) < allowedFrequencies.get(rarestAllowed))) {
+                    byRequiredClaim.computeIfAbsent(rarestRequired, c -> new ArrayList<>(1)).add(rule);
+                } else if (rarestAllowed != null) {
+                    byAllowedClaim.computeIfAbsent(rarestAllowed, c -> new ArrayList<>(1)).add(rule);
+                } else {
+                    withoutClaims.add(rule);
+                }
+            }
+        }
+
+        /*
+         * Only counted claims are considered, so that rules are never filed under required claims when those are not
+         * matched.
+         */
+        private static Map.Entry<String, String> rarest(final Map<String, String> claims,
+                                                        final Map<Map.Entry<String, String>, Integer> frequencies) {
+            Map.Entry<String, String> rarest = null;
+            int lowest = Integer.MAX_VALUE;
+            for (Map.Entry<String, String> claim : claims.entrySet()) {
+                final Integer frequency = frequencies.get(claim);
+                if (frequency != null && frequency < lowest) {
+                    rarest = claim;
+                    lowest = frequency;
+                }
+            }
+            return rarest;
+        }
+
+        private Collection<AuthorizationRule> matching(final AuthorizationRule reference,
+                                                       final Map<String, String> userClaims) {
+            final List<AuthorizationRule> matching = new ArrayList<>();
+            collect(withoutClaims, reference, matching);
+            for (Map.Entry<String, String> claim : reference.allowedRevocationClaims().entrySet()) {
+                collect(byAllowedClaim.get(claim), reference, matching);
+            }
+            for (Map.Entry<String, String> claim : userClaims.entrySet()) {
+                collect(byRequiredClaim.get(claim), reference, matching);
+            }
+            return matching;
+        }
+
+        private void collect(final List<AuthorizationRule> candidates, final AuthorizationRule reference,
+                             final List<AuthorizationRule> matching) {
+            if (candidates == null) {
+                return;
+            }
+            for (AuthorizationRule candidate : candidates) {
+                if (reference.matchesAllowedRevocationClaims(candidate)
+                        && (!matchRequiredClaims || reference.matchesRequiredUserClaims(candidate))) {
+                    matching.add(candidate);
+                }
+            }
+        }
+    }
+}
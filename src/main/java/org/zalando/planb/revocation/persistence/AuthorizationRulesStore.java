@@ -23,6 +23,23 @@ public interface AuthorizationRulesStore {
      */
     Collection<AuthorizationRule> retrieveByMatchingAllowedClaims(AuthorizationRule authorizationRule);
 
+    /**
+     * Determines which persisted {@link AuthorizationRule rules} authorize the argument request for the argument user.
+     * <p />
+     * This is done by retrieving all persisted {@link AuthorizationRule rules}
+     * whose allowed revocation claims are contained in the argument's allowed revocation claims,
+     * and whose required user claims are contained in the argument's required user claims.
+     *
+     * @param authorizationRule the revocation request as allowed revocation claims, and the claims of the user
+     *                          performing it as required user claims
+     * @return found authorizing {@link AuthorizationRule rules}. May be empty.
+     */
+    default Collection<AuthorizationRule> retrieveByMatchingClaims(AuthorizationRule authorizationRule) {
+        return retrieveByMatchingAllowedClaims(authorizationRule).stream()
+                .filter(authorizationRule::matchesRequiredUserClaims)
+                .collect(Collectors.toSet());
+    }
+
     /**
      * Persists the argument {@link AuthorizationRule rule} to the store.
      * Can be retrieved via {@link AuthorizationRulesStore#retrieveByMatchingAllowedClaims(AuthorizationRule)}
@@ -31,6 +48,15 @@ public interface AuthorizationRulesStore {
      */
     void store(AuthorizationRule authorizationRule);
 
+    /**
+     * Registers a listener called whenever the {@link AuthorizationRule rules} retrieved from the store may have
+     * changed, e.g. after storing a rule or reloading them. Stores whose rules never change need not call it.
+     *
+     * @param listener the listener, called on the thread that changed the rules
+     */
+    default void addChangeListener(Runnable listener) {
+    }
+
     /**
      * Given a collection of candidate {@link AuthorizationRule rules}, determines all matching by
      * a reference rule's {@link AuthorizationRule#allowedRevocationClaims()}.
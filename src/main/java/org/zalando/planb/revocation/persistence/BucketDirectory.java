@@ -0,0 +1,193 @@
+package org.zalando.planb.revocation.persistence;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.RegularStatement;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.querybuilder.QueryBuilder;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import org.slf4j.Logger;
+import org.zalando.planb.revocation.persistence.CassandraRevocationStore.Bucket;
+import org.zalando.planb.revocation.util.LocalDateFormatter;
+import org.zalando.planb.revocation.util.UnixTimestamp;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.datastax.driver.core.querybuilder.QueryBuilder.bindMarker;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.eq;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.gte;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.set;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.timestamp;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Directory of the newest {@code revoked_at} per bucket, so that buckets without revocations after a given instant are
+ * not queried.
+ * <p>
+ * <p>The newest {@code revoked_at} is written with every revocation, using it as the write timestamp, so that the
+ * highest value wins regardless of the order of writes. Buckets without revocations are only recorded by
+ * {@link CassandraRevocationStore#backfillBucketDirectory()}, with {@code 0}. Buckets missing in the directory are
+ * always queried.</p>
+ * <p>
+ * <p>The directory is kept in memory for {@code cacheDuration} milliseconds. It is only used for buckets that were
+ * sealed when it was read, since only then no more revocations can be written to them.</p>
+ *
+ * @author <a href="mailto:team-greendale@zalando.de">Team Greendale</a>
+ */
+public class BucketDirectory {
+
+    private static final Logger LOG = getLogger(BucketDirectory.class);
+
+    static final String METRIC_PREFIX = "planb.revocations.bucketDirectory";
+
+    private static final String DIRECTORY_TABLE = "bucket_directory";
+
+    private static final RegularStatement SELECT_DIRECTORY = QueryBuilder.select()
+            .column("bucket_date").column("bucket_interval").column("max_revoked_at")
+            .from(DIRECTORY_TABLE)
+            .where(eq("directory_year", bindMarker()))
+            .and(gte("bucket_date", bindMarker()));
+
+    private static final RegularStatement UPDATE_DIRECTORY = QueryBuilder.update(DIRECTORY_TABLE)
+            .using(timestamp(bindMarker()))
+            .with(set("max_revoked_at", bindMarker()))
+            .where(eq("directory_year", bindMarker()))
+            .and(eq("bucket_date", bindMarker()))
+            .and(eq("bucket_interval", bindMarker()));
+
+    private final Session session;
+
+    private final int maxTimeDelta;
+
+    private final PreparedStatement getDirectory;
+
+    private final PreparedStatement updateDirectory;
+
+    private final Supplier<Snapshot> snapshot;
+
+    private final Counter skipped;
+
+    /**
+     * Constructs a new directory.
+     *
+     * @param session        session configured to a Cassandra cluster
+     * @param read           consistency level for SELECT queries
+     * @param write          consistency level for UPDATE queries
+     * @param maxTimeDelta   maximum time span limit to get revocations, in seconds
+     * @param cacheDuration  how long the directory is kept in memory, in milliseconds, {@code 0} to never skip buckets
+     * @param metricRegistry registry where the number of skipped buckets is published
+     */
+    public BucketDirectory(final Session session, final ConsistencyLevel read, final ConsistencyLevel write,
+                           final int maxTimeDelta, final int cacheDuration, final MetricRegistry metricRegistry) {
+        this.session = session;
+        this.maxTimeDelta = maxTimeDelta;
+
+        getDirectory = session.prepare(SELECT_DIRECTORY).setConsistencyLevel(read);
+        updateDirectory = session.prepare(UPDATE_DIRECTORY).setConsistencyLevel(write);
+        snapshot = cacheDuration > 0
+                ? Suppliers.memoizeWithExpiration(this::load, cacheDuration, TimeUnit.MILLISECONDS)
+                : () -> Snapshot.EMPTY;
+
+        skipped = metricRegistry.counter(METRIC_PREFIX + ".skipped");
+    }
+
+    /**
+     * Records a revocation in the specified bucket.
+     *
+     * @param bucket    the bucket the revocation is written to
+     * @param revokedAt the {@code revoked_at} of the revocation, or {@code 0} to record an empty bucket
+     */
+    public void update(final Bucket bucket, final int revokedAt) {
+        session.execute(updateStatement(bucket, revokedAt));
+    }
+
+    /**
+     * Returns the statement recording a revocation in the specified bucket, to be executed along with others.
+     *
+     * @param bucket    the bucket the revocation is written to
+     * @param revokedAt the {@code revoked_at} of the revocation
+     * @return the statement updating the directory
+     */
+    public BoundStatement updateStatement(final Bucket bucket, final int revokedAt) {
+        return updateDirectory.bind(TimeUnit.SECONDS.toMicros(revokedAt), revokedAt, year(bucket), bucket.date,
+                bucket.interval);
+    }
+
+    /**
+     * Returns whether the specified bucket is known to hold no revocations after {@code from}.
+     *
+     * @param bucket the bucket
+     * @param from   UTC UNIX timestamp after which revocations are read
+     * @return {@code true} if the bucket does not need to be queried, {@code false} as well if the directory could
+     * not be read
+     */
+    public boolean isEmptyAfter(final Bucket bucket, final int from) {
+        final Snapshot current;
+        try {
+            current = snapshot.get();
+        } catch (RuntimeException e) {
+            LOG.warn("Could not read the bucket directory, querying bucket {} {}", bucket.date, bucket.interval, e);
+            return false;
+        }
+        if (current.readAt < bucket.end() + SealedBucketCache.SEAL_GRACE) {
+            return false;
+        }
+
+        final Integer maxRevokedAt = current.maxRevokedAt.get(bucket);
+        if (maxRevokedAt == null || maxRevokedAt > from) {
+            return false;
+        }
+        skipped.inc();
+        return true;
+    }
+
+    private Snapshot load() {
+        final int readAt = UnixTimestamp.now();
+        final int from = readAt - maxTimeDelta;
+        final String fromDate = LocalDateFormatter.get().format(new Date(((long) from) * 1000));
+
+        final Map<Bucket, Integer> maxRevokedAt = new HashMap<>();
+        for (int year = year(from); year <= year(readAt); year++) {
+            for (Row r : session.execute(getDirectory.bind(year, fromDate))) {
+                maxRevokedAt.put(new Bucket(r.getString("bucket_date"), r.getInt("bucket_interval"), 0),
+                        r.getInt("max_revoked_at"));
+            }
+        }
+        return new Snapshot(readAt, maxRevokedAt);
+    }
+
+    private static int year(final Bucket bucket) {
+        return Integer.parseInt(bucket.date.substring(0, 4));
+    }
+
+    private static int year(final int timestamp) {
+        return Instant.ofEpochSecond(timestamp).atZone(ZoneId.of("UTC")).getYear();
+    }
+
+    /**
+     * The directory as read at a given instant.
+     */
+    private static final class Snapshot {
+
+        private static final Snapshot EMPTY = new Snapshot(0, new HashMap<>());
+
+        private final int readAt;
+
+        private final Map<Bucket, Integer> maxRevokedAt;
+
+        private Snapshot(final int readAt, final Map<Bucket, Integer> maxRevokedAt) {
+            this.readAt = readAt;
+            this.maxRevokedAt = maxRevokedAt;
+        }
+    }
+}
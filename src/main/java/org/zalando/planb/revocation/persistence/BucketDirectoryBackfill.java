@@ -0,0 +1,39 @@
+package org.zalando.planb.revocation.persistence;
+
+import org.slf4j.Logger;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Periodically records the newest revocation of each sealed bucket in the {@link BucketDirectory}, e.g. for buckets
+ * written before the directory existed, or empty ones.
+ *
+ * @author <a href="mailto:team-greendale@zalando.de">Team Greendale</a>
+ */
+public class BucketDirectoryBackfill {
+
+    private static final Logger LOG = getLogger(BucketDirectoryBackfill.class);
+
+    private final CassandraRevocationStore store;
+
+    /**
+     * Constructs a new instance backfilling the bucket directory of the specified store.
+     *
+     * @param store the store holding the revocations
+     */
+    public BucketDirectoryBackfill(final CassandraRevocationStore store) {
+        this.store = store;
+    }
+
+    @Scheduled(fixedDelayString = "${cassandra.bucketDirectoryBackfillInMilliseconds:3600000}",
+            initialDelayString = "${cassandra.bucketDirectoryBackfillInitialDelayInMilliseconds:0}")
+    public void run() {
+        try {
+            int recorded = store.backfillBucketDirectory();
+            LOG.info("Backfilled the bucket directory with {} buckets holding revocations", recorded);
+        } catch (RuntimeException e) {
+            LOG.warn("Could not backfill the bucket directory", e);
+        }
+    }
+}
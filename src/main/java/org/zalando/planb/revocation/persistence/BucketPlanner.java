@@ -0,0 +1,111 @@
+package org.zalando.planb.revocation.persistence;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.datastax.driver.core.KeyspaceMetadata;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.TableMetadata;
+import org.slf4j.Logger;
+import org.zalando.planb.revocation.persistence.CassandraRevocationStore.Bucket;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Plans the buckets queried for revocations, leaving out buckets whose rows have all expired.
+ * <p>
+ * <p>Rows expire {@code timeToLive} seconds after they were written. A bucket whose time range ended more than
+ * {@code timeToLive} seconds ago, plus the {@link SealedBucketCache#SEAL_GRACE} during which late writes may still
+ * arrive, only holds tombstones, so querying it can not return any revocation.</p>
+ *
+ * @author <a href="mailto:team-greendale@zalando.de">Team Greendale</a>
+ */
+public class BucketPlanner {
+
+    private static final Logger LOG = getLogger(BucketPlanner.class);
+
+    static final String METRIC_PREFIX = "planb.revocations.bucketPlanner";
+
+    static final String REVOCATION_TABLE = "revocation";
+
+    private final int timeToLive;
+
+    private final Counter planned;
+
+    private final Counter skipped;
+
+    /**
+     * Constructs a new planner.
+     *
+     * @param timeToLive     the time to live of revocations, in seconds, {@code 0} if they do not expire
+     * @param metricRegistry registry where the number of planned and skipped buckets is published
+     */
+    public BucketPlanner(final int timeToLive, final MetricRegistry metricRegistry) {
+        this.timeToLive = timeToLive;
+
+        planned = metricRegistry.counter(METRIC_PREFIX + ".planned");
+        skipped = metricRegistry.counter(METRIC_PREFIX + ".skipped");
+    }
+
+    /**
+     * Returns the buckets that may still hold revocations after {@code from}.
+     *
+     * @param from UTC UNIX timestamp after which revocations are read
+     * @param now  current UTC UNIX timestamp
+     * @return the buckets to be queried, in ascending order
+     */
+    public List<Bucket> plan(final int from, final int now) {
+        final List<Bucket> buckets = new ArrayList<>();
+        for (Bucket b : CassandraRevocationStore.getBuckets(from, now)) {
+            if (isExpired(b, now)) {
+                skipped.inc();
+            } else {
+                planned.inc();
+                buckets.add(b);
+            }
+        }
+        return buckets;
+    }
+
+    /**
+     * Returns whether all rows of the specified bucket have expired.
+     *
+     * @param bucket the bucket
+     * @param now    current UTC UNIX timestamp
+     * @return {@code true} if the bucket can not hold live rows anymore
+     */
+    public boolean isExpired(final Bucket bucket, final int now) {
+        return timeToLive > 0 && bucket.end() + SealedBucketCache.SEAL_GRACE + timeToLive <= now;
+    }
+
+    /**
+     * Returns the {@code default_time_to_live} of the revocation table, as found in the schema of the session's
+     * keyspace.
+     * <p>
+     * <p>The schema is authoritative, since it is what expires rows. The configured value is only used when the table
+     * can not be found, and a mismatch is logged.</p>
+     *
+     * @param session    session connected to the keyspace of the revocation table
+     * @param configured the configured time to live, in seconds
+     * @return the effective time to live of revocations, in seconds, {@code 0} if they do not expire
+     */
+    public static int effectiveTimeToLive(final Session session, final int configured) {
+        final KeyspaceMetadata keyspace = session.getLoggedKeyspace() == null ? null
+                : session.getCluster().getMetadata().getKeyspace(session.getLoggedKeyspace());
+        final TableMetadata table = keyspace == null ? null : keyspace.getTable(REVOCATION_TABLE);
+        if (table == null) {
+            LOG.warn("Could not read the schema of the revocation table, using configured time to live of {}s",
+                    configured);
+            return configured;
+        }
+
+        final int timeToLive = table.getOptions().getDefaultTimeToLive();
+        if (timeToLive != configured) {
+            LOG.warn("Configured time to live of {}s differs from the default_time_to_live of {}s of the revocation "
+                    + "table, using the latter", configured, timeToLive);
+        }
+        return timeToLive;
+    }
+}
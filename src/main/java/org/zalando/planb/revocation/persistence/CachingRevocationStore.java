@@ -0,0 +1,387 @@
+package org.zalando.planb.revocation.persistence;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.zalando.planb.revocation.domain.Cursor;
+import org.zalando.planb.revocation.domain.Refresh;
+import org.zalando.planb.revocation.domain.RevocationData;
+import org.zalando.planb.revocation.domain.RevocationRequest;
+import org.zalando.planb.revocation.util.UnixTimestamp;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * {@link RevocationStore} decorator that serves revocations from an in-memory, time ordered index.
+ * <p>
+ * <p>The index holds the whole {@code maxTimeDelta} window. It is kept fresh by periodically tailing the delegate for
+ * revocations newer than the high-water mark, so reads are a range scan over the index without any round trip to the
+ * delegate. A periodic full reload drops revocations that expired in the delegate.</p>
+ *
+ * @author <a href="mailto:team-greendale@zalando.de">Team Greendale</a>
+ */
+public class CachingRevocationStore implements RevocationStore {
+
+    private static final Logger LOG = getLogger(CachingRevocationStore.class);
+
+    static final String METRIC_PREFIX = "planb.revocations.cache";
+
+    private final RevocationStore delegate;
+
+    private final int maxTimeDelta;
+
+    private final int tailLookback;
+
+    private final Timer tailTimer;
+
+    private final AtomicBoolean refreshRequested = new AtomicBoolean();
+
+    private final ExecutorService requestedRefreshes = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+            .setNameFormat("revocation-cache-%d").setDaemon(true).build());
+
+    private volatile ConcurrentNavigableMap<IndexKey, RevocationData> index = new ConcurrentSkipListMap<>();
+
+    private volatile int highWaterMark;
+
+    private volatile long lastRefresh;
+
+    private volatile boolean initialized = false;
+
+    /*
+     * XOR of the fingerprints of all indexed keys, only updated while holding the lock.
+     */
+    private long digest;
+
+    private volatile String version;
+
+    /**
+     * Constructs a new instance caching revocations of the specified {@code delegate}.
+     *
+     * @param delegate       the store holding the revocations
+     * @param maxTimeDelta   maximum time span limit to get revocations, in seconds
+     * @param tailLookback   seconds before the high-water mark to query again when tailing the delegate
+     * @param metricRegistry registry where staleness, size and tail latency metrics are published
+     */
+    public CachingRevocationStore(final RevocationStore delegate, final int maxTimeDelta, final int tailLookback,
+                                  final MetricRegistry metricRegistry) {
+        this.delegate = delegate;
+        this.maxTimeDelta = maxTimeDelta;
+        this.tailLookback = tailLookback;
+
+        tailTimer = metricRegistry.timer(METRIC_PREFIX + ".tail");
+        metricRegistry.register(METRIC_PREFIX + ".size", (Gauge<Integer>) () -> index.size());
+        metricRegistry.register(METRIC_PREFIX + ".staleness", (Gauge<Long>) this::staleness);
+    }
+
+    /**
+     * Returns the decorated store.
+     *
+     * @return the decorated store
+     */
+    public RevocationStore getDelegate() {
+        return delegate;
+    }
+
+    @PostConstruct
+    public void initialize() {
+        try {
+            resync();
+        } catch (RuntimeException e) {
+            LOG.warn("Could not load revocation window, serving from delegate until the next refresh", e);
+        }
+    }
+
+    /**
+     * Stops the thread serving requested refreshes, dropping the ones not started yet.
+     */
+    @PreDestroy
+    public void shutdown() {
+        requestedRefreshes.shutdownNow();
+    }
+
+    @Override
+    public Collection<RevocationData> getRevocations(final int from) {
+        if ((UnixTimestamp.now() - (from + 1)) > maxTimeDelta) {
+
+            // same limit as the delegate, the index does not hold anything older
+            throw new IllegalArgumentException("'from' timestamp is too old!");
+        }
+
+        if (!initialized) {
+            return delegate.getRevocations(from);
+        }
+
+        return new ArrayList<>(index.tailMap(IndexKey.first(from + 1)).values());
+    }
+
+    /**
+     * Returns the indexed revocations after the cursor, without reading the revocations of the cursor's second.
+     *
+     * @param cursor the position after the last revocation already returned
+     * @return the revocations after the cursor
+     */
+    @Override
+    public Collection<RevocationData> getRevocations(final Cursor cursor) {
+        if (!initialized || !cursor.bucketUuid().isPresent()) {
+            return RevocationStore.super.getRevocations(cursor);
+        }
+        if ((UnixTimestamp.now() - cursor.revokedAt()) > maxTimeDelta) {
+            throw new IllegalArgumentException("'from' timestamp is too old!");
+        }
+
+        return new ArrayList<>(index.tailMap(new IndexKey(cursor.revokedAt(), cursor.bucketUuid().get()), false)
+                .values());
+    }
+
+    /**
+     * Iterates over a view of the indexed revocations after the cursor, without copying them.
+     *
+     * @param cursor the position after the last revocation already returned
+     * @param action the action performed for each revocation
+     */
+    @Override
+    public void forEachRevocation(final Cursor cursor, final Consumer<? super RevocationData> action) {
+        if (!initialized) {
+            delegate.forEachRevocation(cursor, action);
+            return;
+        }
+        if ((UnixTimestamp.now() - cursor.revokedAt()) > maxTimeDelta) {
+            throw new IllegalArgumentException("'from' timestamp is too old!");
+        }
+
+        final ConcurrentNavigableMap<IndexKey, RevocationData> after = cursor.bucketUuid()
+                .map(uuid -> index.tailMap(new IndexKey(cursor.revokedAt(), uuid), false))
+                .orElseGet(() -> index.tailMap(IndexKey.first(cursor.revokedAt() + 1)));
+        after.values().forEach(action);
+    }
+
+    /**
+     * Stores the revocation in the delegate and requests a refresh on a background thread, so that the revocation is
+     * visible to reads on this node without waiting for the next scheduled refresh.
+     * <p>
+     * <p>Returns once the revocation is stored, without waiting for the refresh. Stores made before a requested refresh
+     * starts are served by that refresh.</p>
+     *
+     * @param revocation the revocation to store
+     */
+    @Override
+    public void storeRevocation(final RevocationRequest revocation) {
+        delegate.storeRevocation(revocation);
+        if (refreshRequested.compareAndSet(false, true)) {
+            try {
+                requestedRefreshes.execute(() -> {
+                    // reset first, so that a store made during the refresh causes another one
+                    refreshRequested.set(false);
+                    try {
+                        refresh();
+                    } catch (RuntimeException e) {
+                        LOG.warn("Could not refresh revocation window after storing a revocation", e);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                refreshRequested.set(false);
+                LOG.debug("Not refreshing revocation window, shutting down");
+            }
+        }
+    }
+
+    @Override
+    public Refresh getRefresh() {
+        return delegate.getRefresh();
+    }
+
+    @Override
+    public void storeRefresh(final int from) {
+        delegate.storeRefresh(from);
+    }
+
+    /**
+     * Returns a version derived from the newest indexed revocation and a digest of all indexed revocations.
+     * <p>
+     * <p>Nodes holding the same revocations return the same version.</p>
+     *
+     * @return the version of the index, or empty while the index is not loaded
+     */
+    @Override
+    public Optional<String> getVersion() {
+        return initialized ? Optional.of(version) : Optional.empty();
+    }
+
+    /**
+     * Queries the delegate for revocations newer than the high-water mark and merges them into the index.
+     * <p>
+     * <p>Revocations older than {@code maxTimeDelta} are evicted afterwards.</p>
+     */
+    @Scheduled(fixedDelayString = "${revocation.cache.refreshInMilliseconds:1000}",
+            initialDelayString = "${revocation.cache.refreshInMilliseconds:1000}")
+    public synchronized void refresh() {
+        if (!initialized) {
+            resync();
+            return;
+        }
+
+        final int now = UnixTimestamp.now();
+        final int from = Math.max(highWaterMark - tailLookback, windowStart(now));
+
+        final Collection<RevocationData> revocations;
+        try (Timer.Context ignored = tailTimer.time()) {
+            revocations = delegate.getRevocations(from);
+        }
+        for (RevocationData revocation : revocations) {
+            final IndexKey key = IndexKey.of(revocation);
+            if (index.put(key, revocation) == null) {
+                digest ^= key.fingerprint();
+            }
+            highWaterMark = Math.max(highWaterMark, revocation.revokedAt());
+        }
+
+        final ConcurrentNavigableMap<IndexKey, RevocationData> expired = index.headMap(
+                IndexKey.first(windowStart(now)));
+        for (IndexKey key : expired.keySet()) {
+            digest ^= key.fingerprint();
+        }
+        expired.clear();
+        version = version(index, digest);
+
+        lastRefresh = System.currentTimeMillis();
+        LOG.debug("Tailed {} revocations since {}, high-water mark is {}", revocations.size(), from, highWaterMark);
+    }
+
+    /**
+     * Replaces the index with a full reload of the window from the delegate.
+     */
+    @Scheduled(fixedDelayString = "${revocation.cache.resyncInMilliseconds:600000}",
+            initialDelayString = "${revocation.cache.resyncInMilliseconds:600000}")
+    public synchronized void resync() {
+        final int from = windowStart(UnixTimestamp.now());
+
+        final ConcurrentNavigableMap<IndexKey, RevocationData> reloaded = new ConcurrentSkipListMap<>();
+        final Collection<RevocationData> revocations;
+        try (Timer.Context ignored = tailTimer.time()) {
+            revocations = delegate.getRevocations(from);
+        }
+
+        int newest = 0;
+        long reloadedDigest = 0;
+        for (RevocationData revocation : revocations) {
+            final IndexKey key = IndexKey.of(revocation);
+            if (reloaded.put(key, revocation) == null) {
+                reloadedDigest ^= key.fingerprint();
+            }
+            newest = Math.max(newest, revocation.revokedAt());
+        }
+
+        version = version(reloaded, reloadedDigest);
+        highWaterMark = newest;
+        digest = reloadedDigest;
+        index = reloaded;
+
+        lastRefresh = System.currentTimeMillis();
+        initialized = true;
+        LOG.debug("Loaded {} revocations since {}, high-water mark is {}", reloaded.size(), from, highWaterMark);
+    }
+
+    private static String version(final ConcurrentNavigableMap<IndexKey, RevocationData> index, final long digest) {
+        final Map.Entry<IndexKey, RevocationData> newest = index.lastEntry();
+        if (newest == null) {
+            return "0";
+        }
+        return newest.getKey().revokedAt + "-" + newest.getKey().bucketUuid + "-" + Long.toHexString(digest);
+    }
+
+    /*
+     * The delegate rejects queries older than maxTimeDelta, measured on its own clock. Starting one second later keeps
+     * the query valid when the clock ticks in between.
+     */
+    private int windowStart(final int now) {
+        return now - maxTimeDelta + 1;
+    }
+
+    /**
+     * Returns the time elapsed since the index was last refreshed successfully.
+     *
+     * @return the staleness of the index in milliseconds, or {@code -1} if it was never loaded
+     */
+    long staleness() {
+        return initialized ? System.currentTimeMillis() - lastRefresh : -1;
+    }
+
+    /**
+     * Identifies a revocation in the index, ordered by {@code revoked_at} and then by bucket UUID, like cursors.
+     * <p>
+     * <p>Keys without a bucket UUID sort first among keys with the same timestamp, which makes them usable as range
+     * bounds.</p>
+     */
+    static final class IndexKey implements Comparable<IndexKey> {
+
+        private static final Comparator<IndexKey> ORDER = Comparator.<IndexKey>comparingInt(k -> k.revokedAt)
+                .thenComparing(k -> k.bucketUuid, Comparator.nullsFirst(Cursor.BUCKET_UUID_ORDER));
+
+        private final int revokedAt;
+
+        private final UUID bucketUuid;
+
+        private IndexKey(final int revokedAt, final UUID bucketUuid) {
+            this.revokedAt = revokedAt;
+            this.bucketUuid = bucketUuid;
+        }
+
+        static IndexKey of(final RevocationData revocation) {
+            return new IndexKey(revocation.revokedAt(), revocation.bucketUuid().orElse(null));
+        }
+
+        static IndexKey first(final int revokedAt) {
+            return new IndexKey(revokedAt, null);
+        }
+
+        /*
+         * Well distributed hash of the key, so that the XOR of many keys is unlikely to collide.
+         */
+        long fingerprint() {
+            long h = revokedAt * 0x9E3779B97F4A7C15L;
+            if (bucketUuid != null) {
+                h ^= bucketUuid.getMostSignificantBits();
+                h = Long.rotateLeft(h, 31) ^ bucketUuid.getLeastSignificantBits();
+            }
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb9fe1a85ec53L;
+            return h ^ (h >>> 33);
+        }
+
+        @Override
+        public int compareTo(final IndexKey other) {
+            return ORDER.compare(this, other);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            return o instanceof IndexKey && compareTo((IndexKey) o) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * revokedAt + (bucketUuid == null ? 0 : bucketUuid.hashCode());
+        }
+    }
+}
@@ -1,5 +1,10 @@
 package org.zalando.planb.revocation.persistence;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.datastax.driver.core.BatchStatement;
 import com.datastax.driver.core.BoundStatement;
 import com.datastax.driver.core.ConsistencyLevel;
 import com.datastax.driver.core.PreparedStatement;
@@ -8,35 +13,67 @@ import com.datastax.driver.core.ResultSet;
 import com.datastax.driver.core.Row;
 import com.datastax.driver.core.Session;
 import com.datastax.driver.core.querybuilder.QueryBuilder;
+import com.datastax.driver.core.utils.UUIDs;
 import org.slf4j.Logger;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.zalando.planb.revocation.domain.AuthorizationRule;
 import org.zalando.planb.revocation.domain.ImmutableAuthorizationRule;
 
 import javax.annotation.PostConstruct;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.stream.Collectors;
 
 import static com.datastax.driver.core.querybuilder.QueryBuilder.bindMarker;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.eq;
 import static com.datastax.driver.core.querybuilder.QueryBuilder.now;
 import static org.slf4j.LoggerFactory.getLogger;
 
+/**
+ * Stores {@link AuthorizationRule rules} in Cassandra, and matches revocations against an in-memory
+ * {@link AuthorizationRuleIndex} of all of them.
+ * <p>
+ * <p>Every change to the rules also changes the row of the {@code authorization_rule_version} table. Rules are reloaded
+ * periodically, but only when the version changed since they were last loaded, or when there is no version yet. A rule
+ * and the new version are written in one logged batch, so that no rule is stored without changing the version. Rules
+ * stored through this instance are added to the index right away.</p>
+ */
 public class CassandraAuthorizationRuleStore implements AuthorizationRulesStore.Internal {
 
+    static final String METRIC_PREFIX = "planb.revocations.authorizationRules";
+
     private final Logger log = getLogger(getClass());
 
-    private List<AuthorizationRule> inMemoryRuleStore = Collections.emptyList();
+    private volatile AuthorizationRuleIndex inMemoryRuleStore = AuthorizationRuleIndex.EMPTY;
+
+    private UUID loadedVersion;
+
+    private final List<Runnable> changeListeners = new CopyOnWriteArrayList<>();
 
     private final Session session;
 
+    private final ConsistencyLevel writeConsistency;
+
     private final PreparedStatement getRules;
 
     private final PreparedStatement insertRule;
 
+    private final PreparedStatement getVersion;
+
+    private final PreparedStatement updateVersion;
+
+    private final Timer reloads;
+
+    private final Counter skippedReloads;
+
     private static final String AUTHORIZATION_TABLE = "authorization_rule";
+    private static final String VERSION_TABLE = "authorization_rule_version";
+    private static final int VERSION_KEY = 0;
     private static final String REQUIRED_USER_CLAIMS = "required_user_claims";
     private static final String ALLOWED_REVOCATION_CLAIMS = "allowed_revocation_claims";
     private static final String CREATED_BY = "created_by";
@@ -54,11 +91,27 @@ public class CassandraAuthorizationRuleStore implements AuthorizationRulesStore.
             .column(ALLOWED_REVOCATION_CLAIMS)
             .from(AUTHORIZATION_TABLE);
     private static final RegularStatement CLEANUP_AUTHORIZATION = QueryBuilder.truncate(AUTHORIZATION_TABLE);
-
-    public CassandraAuthorizationRuleStore(final Session session, final ConsistencyLevel read, final ConsistencyLevel write) {
+    private static final RegularStatement SELECT_VERSION = QueryBuilder.select()
+            .column("version")
+            .from(VERSION_TABLE)
+            .where(eq("version_key", VERSION_KEY));
+    private static final RegularStatement UPDATE_VERSION = QueryBuilder.insertInto(VERSION_TABLE)
+            .value("version_key", VERSION_KEY)
+            .value("version", bindMarker("version"));
+
+    public CassandraAuthorizationRuleStore(final Session session, final ConsistencyLevel read,
+                                           final ConsistencyLevel write, final MetricRegistry metricRegistry) {
         this.session = session;
+        writeConsistency = write;
         getRules = session.prepare(SELECT_AUTHORIZATION).setConsistencyLevel(read);
         insertRule = session.prepare(INSERT_AUTHORIZATION).setConsistencyLevel(write);
+        getVersion = session.prepare(SELECT_VERSION).setConsistencyLevel(read);
+        updateVersion = session.prepare(UPDATE_VERSION).setConsistencyLevel(write);
+
+        reloads = metricRegistry.timer(METRIC_PREFIX + ".reloads");
+        skippedReloads = metricRegistry.counter(METRIC_PREFIX + ".skippedReloads");
+        metricRegistry.register(METRIC_PREFIX + ".count",
+                (Gauge<Integer>) () -> inMemoryRuleStore.getRules().size());
     }
 
     @PostConstruct
@@ -68,28 +121,76 @@ public class CassandraAuthorizationRuleStore implements AuthorizationRulesStore.
     }
 
     @Scheduled(fixedDelayString = "${revocation.authorization.reloadInMilliseconds}", initialDelayString = "${revocation.authorization.reloadInMilliseconds}")
-    private void loadAuthorizationRuleStore() {
-        inMemoryRuleStore = Optional.ofNullable(getRules.bind())
-                .map(session::execute)
-                .map(ResultSet::all)
-                .map(this::toAuthorizationRules)
-                .orElse(Collections.emptyList());
+    synchronized void loadAuthorizationRuleStore() {
+        // read before the rules, so that changes in between are reloaded next time
+        final UUID version = readVersion();
+        if (version != null && version.equals(loadedVersion)) {
+            skippedReloads.inc();
+            return;
+        }
+
+        try (Timer.Context ignored = reloads.time()) {
+            inMemoryRuleStore = new AuthorizationRuleIndex(Optional.ofNullable(getRules.bind())
+                    .map(session::execute)
+                    .map(ResultSet::all)
+                    .map(this::toAuthorizationRules)
+                    .orElse(Collections.emptyList()));
+            loadedVersion = version;
+        }
+        changeListeners.forEach(Runnable::run);
+        log.debug("Loaded {} authorization rules, version {}", inMemoryRuleStore.getRules().size(), version);
     }
 
     @Override
     public Collection<AuthorizationRule> retrieveByMatchingAllowedClaims(AuthorizationRule authorizationRule) {
-        return findMatchingRulesByAllowedClaims(inMemoryRuleStore, authorizationRule);
+        return inMemoryRuleStore.matchingAllowedClaims(authorizationRule);
+    }
+
+    @Override
+    public Collection<AuthorizationRule> retrieveByMatchingClaims(AuthorizationRule authorizationRule) {
+        return inMemoryRuleStore.matchingClaims(authorizationRule);
     }
 
     @Override
-    public void store(AuthorizationRule authorizationRule) {
+    public synchronized void store(AuthorizationRule authorizationRule) {
         final BoundStatement insert = insertRule.bind()
                 .setMap(REQUIRED_USER_CLAIMS, authorizationRule.requiredUserClaims())
                 .setMap(ALLOWED_REVOCATION_CLAIMS, authorizationRule.allowedRevocationClaims())
                 .setString(CREATED_BY, null)
                 .setString(LAST_MODIFIED_BY, null);
-        session.execute(insert);
-        loadAuthorizationRuleStore();
+
+        // the rules in memory are only complete if no other node changed them since they were loaded
+        final boolean upToDate = loadedVersion != null && loadedVersion.equals(readVersion());
+        final UUID version = UUIDs.timeBased();
+        session.execute(new BatchStatement(BatchStatement.Type.LOGGED)
+                .add(insert)
+                .add(versionStatement(version))
+                .setConsistencyLevel(writeConsistency));
+
+        final List<AuthorizationRule> rules = new ArrayList<>(inMemoryRuleStore.getRules());
+        rules.add(authorizationRule);
+        inMemoryRuleStore = new AuthorizationRuleIndex(rules);
+        if (upToDate) {
+            loadedVersion = version;
+        }
+        changeListeners.forEach(Runnable::run);
+    }
+
+    @Override
+    public void addChangeListener(Runnable listener) {
+        changeListeners.add(listener);
+    }
+
+    private UUID readVersion() {
+        return Optional.ofNullable(session.execute(getVersion.bind()).one())
+                .map(row -> row.getUUID("version"))
+                .orElse(null);
+    }
+
+    private BoundStatement versionStatement(final UUID version) {
+        final BoundStatement statement = updateVersion.bind();
+        statement.setUUID("version", version);
+        return statement;
     }
 
     private List<AuthorizationRule> toAuthorizationRules(List<Row> rows) {
@@ -105,8 +206,12 @@ public class CassandraAuthorizationRuleStore implements AuthorizationRulesStore.
 
 
     @Override
-    public void cleanup() {
-        inMemoryRuleStore = Collections.emptyList();
+    public synchronized void cleanup() {
+        inMemoryRuleStore = AuthorizationRuleIndex.EMPTY;
         session.execute(CLEANUP_AUTHORIZATION);
+        final UUID version = UUIDs.timeBased();
+        session.execute(versionStatement(version));
+        loadedVersion = version;
+        changeListeners.forEach(Runnable::run);
     }
 }
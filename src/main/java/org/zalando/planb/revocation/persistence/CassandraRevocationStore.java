@@ -1,54 +1,87 @@
 package org.zalando.planb.revocation.persistence;
 
+import com.datastax.driver.core.BatchStatement;
 import com.datastax.driver.core.BoundStatement;
 import com.datastax.driver.core.ConsistencyLevel;
 import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.RegularStatement;
 import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
 import com.datastax.driver.core.Row;
 import com.datastax.driver.core.Session;
+import com.datastax.driver.core.querybuilder.Insert;
 import com.datastax.driver.core.querybuilder.QueryBuilder;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.MoreExecutors;
 import org.slf4j.Logger;
 import org.zalando.planb.revocation.api.exception.SerializationException;
+import org.zalando.planb.revocation.api.exception.StorageTimeoutException;
 import org.zalando.planb.revocation.domain.CurrentUser;
+import org.zalando.planb.revocation.domain.Cursor;
 import org.zalando.planb.revocation.domain.ImmutableRefresh;
 import org.zalando.planb.revocation.domain.ImmutableRevocationData;
 import org.zalando.planb.revocation.domain.ImmutableRevocationRequest;
+import org.zalando.planb.revocation.domain.ImmutableRevokedClaimsData;
+import org.zalando.planb.revocation.domain.ImmutableRevokedGlobal;
+import org.zalando.planb.revocation.domain.ImmutableRevokedTokenData;
 import org.zalando.planb.revocation.domain.Refresh;
 import org.zalando.planb.revocation.domain.RevocationData;
 import org.zalando.planb.revocation.domain.RevocationRequest;
 import org.zalando.planb.revocation.domain.RevocationType;
 import org.zalando.planb.revocation.domain.RevokedClaimsData;
-import org.zalando.planb.revocation.domain.RevokedData;
+import org.zalando.planb.revocation.domain.RevokedGlobal;
 import org.zalando.planb.revocation.domain.RevokedTokenData;
 import org.zalando.planb.revocation.util.LocalDateFormatter;
+import org.zalando.planb.revocation.util.MessageHasher;
+import org.zalando.planb.revocation.util.RevocationJsonCodec;
 import org.zalando.planb.revocation.util.UnixTimestamp;
 
 import java.io.IOException;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.EnumMap;
-import java.util.LinkedList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static com.datastax.driver.core.querybuilder.QueryBuilder.asc;
 import static com.datastax.driver.core.querybuilder.QueryBuilder.bindMarker;
 import static com.datastax.driver.core.querybuilder.QueryBuilder.eq;
 import static com.datastax.driver.core.querybuilder.QueryBuilder.gt;
 import static com.datastax.driver.core.querybuilder.QueryBuilder.now;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.set;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.ttl;
 import static org.slf4j.LoggerFactory.getLogger;
 
 /**
  * Interface to Cassandra cluster.
+ * <p>
+ * <p>Versions of the stored revocations are only known while a {@link RevocationTailer} following this store notifies
+ * it about the revocations written by other nodes.</p>
  *
  * @author <a href="mailto:rodrigo.reis@zalando.de">Rodrigo Reis</a>
  */
-public class CassandraRevocationStore implements RevocationStore {
+public class CassandraRevocationStore implements RevocationStore, RevocationTailer.Listener {
 
     private static final Logger LOG = getLogger(CassandraRevocationStore.class);
 
@@ -59,22 +92,92 @@ public class CassandraRevocationStore implements RevocationStore {
 
     private static final String REFRESH_TABLE = "refresh";
 
-    private static final RegularStatement SELECT_REVOCATION = QueryBuilder.select().column("revocation_type")
-            .column("revocation_data")
-            .column("revoked_by").column("revoked_at")
-            .column("bucket_uuid").from(REVOCATION_TABLE)
+    /*
+     * Rows are written with the type as a code and the revoked data in typed columns. Rows written before only have
+     * revocation_type and revocation_data, as text and JSON, and are read as well until they expire.
+     */
+    private static final String[] REVOCATION_COLUMNS = {"revocation_type", "revocation_data", "type_code", "token",
+            "claims", "issued_before", "revoked_at", "bucket_uuid", "revocation_hash", "hash_fingerprint"};
+
+    private static final RegularStatement SELECT_REVOCATION = QueryBuilder.select(REVOCATION_COLUMNS)
+            .from(REVOCATION_TABLE)
             .where(eq("bucket_date", bindMarker()))
             .and(eq("bucket_interval", bindMarker())).and(
                     gt("revoked_at", bindMarker()));
 
-    private static final RegularStatement INSERT_REVOCATION = QueryBuilder.insertInto(REVOCATION_TABLE)
-            .value("bucket_date", bindMarker())
-            .value("bucket_interval", bindMarker())
-            .value("revocation_type", bindMarker())
-            .value("revocation_data", bindMarker())
-            .value("revoked_by", bindMarker())
-            .value("revoked_at", bindMarker())
-            .value("bucket_uuid", now());
+    private static final RegularStatement SELECT_REVOCATION_ASCENDING = QueryBuilder.select(REVOCATION_COLUMNS)
+            .from(REVOCATION_TABLE)
+            .where(eq("bucket_date", bindMarker()))
+            .and(eq("bucket_interval", bindMarker()))
+            .and(gt("revoked_at", bindMarker()))
+            .orderBy(asc("revoked_at"));
+
+    /*
+     * Either column is written for all rows, depending on when they were written.
+     */
+    private static final RegularStatement SELECT_BUCKET = QueryBuilder.select()
+            .column("revocation_type").column("revocation_data")
+            .column("type_code").column("token").column("claims").column("issued_before")
+            .column("revoked_at").column("bucket_uuid")
+            .column("revocation_hash").column("hash_fingerprint")
+            .ttl("issued_before").ttl("revocation_data").from(REVOCATION_TABLE)
+            .where(eq("bucket_date", bindMarker()))
+            .and(eq("bucket_interval", bindMarker()));
+
+    private static final RegularStatement SELECT_NEWEST = QueryBuilder.select().column("revoked_at")
+            .from(REVOCATION_TABLE)
+            .where(eq("bucket_date", bindMarker()))
+            .and(eq("bucket_interval", bindMarker()))
+            .limit(1);
+
+    static final int SELECT_BUCKET_TTL_INDEX = 10;
+
+    static final int SELECT_BUCKET_LEGACY_TTL_INDEX = 11;
+
+    /*
+     * Seconds after the last tail until versions are no longer known, as revocations written by other nodes may have
+     * been missed since.
+     */
+    static final int MAX_TAIL_AGE = 10;
+
+    private static final int TOKEN_CODE = 1;
+
+    private static final int CLAIM_CODE = 2;
+
+    private static final int GLOBAL_CODE = 3;
+
+    /*
+     * Only the typed columns of the type's data are written, so that no null values are written for the others.
+     */
+    private static RegularStatement insertRevocation(final RevocationType type, final boolean legacyColumns) {
+        final Insert insert = QueryBuilder.insertInto(REVOCATION_TABLE)
+                .value("bucket_date", bindMarker())
+                .value("bucket_interval", bindMarker())
+                .value("type_code", bindMarker());
+        if (type == RevocationType.TOKEN) {
+            insert.value("token", bindMarker());
+        } else if (type == RevocationType.CLAIM) {
+            insert.value("claims", bindMarker());
+        }
+        insert.value("issued_before", bindMarker());
+        if (legacyColumns) {
+            insert.value("revocation_type", bindMarker()).value("revocation_data", bindMarker());
+        }
+        return insert.value("revoked_by", bindMarker())
+                .value("revoked_at", bindMarker())
+                .value("bucket_uuid", now())
+                .value("revocation_hash", bindMarker())
+                .value("hash_fingerprint", bindMarker());
+    }
+
+    private static final RegularStatement UPDATE_HASH = QueryBuilder.update(REVOCATION_TABLE)
+            .using(ttl(bindMarker()))
+            .with(set("revocation_hash", bindMarker()))
+            .and(set("hash_fingerprint", bindMarker()))
+            .where(eq("bucket_date", bindMarker()))
+            .and(eq("bucket_interval", bindMarker()))
+            .and(eq("revoked_at", bindMarker()))
+            .and(eq("bucket_uuid", bindMarker()));
 
     private static final RegularStatement INSERT_REFRESH = QueryBuilder.insertInto(REFRESH_TABLE)
             .value("refresh_year", bindMarker())
@@ -92,9 +195,31 @@ public class CassandraRevocationStore implements RevocationStore {
 
     private final int maxTimeDelta;
 
+    private final int maxBucketQueriesInFlight;
+
+    private final int readDeadline;
+
+    private final int fetchSize;
+
+    private final SealedBucketCache bucketCache;
+
+    private final BucketDirectory bucketDirectory;
+
+    private final BucketPlanner bucketPlanner;
+
     private final PreparedStatement getFrom;
 
-    private final PreparedStatement insertRevocation;
+    private final PreparedStatement getFromAscending;
+
+    private final Map<RevocationType, PreparedStatement> insertRevocations = new EnumMap<>(RevocationType.class);
+
+    private final PreparedStatement getBucket;
+
+    private final PreparedStatement getNewest;
+
+    private final PreparedStatement updateHash;
+
+    private final ConsistencyLevel writeConsistency;
 
     private final PreparedStatement getRefresh;
 
@@ -104,7 +229,21 @@ public class CassandraRevocationStore implements RevocationStore {
 
     private final CurrentUser currentUser;
 
-    private final ObjectMapper objectMapper;
+    private final RevocationJsonCodec jsonCodec;
+
+    private final MessageHasher messageHasher;
+
+    private final int refreshCacheDuration;
+
+    private final boolean writeLegacyColumns;
+
+    private volatile Supplier<Optional<Refresh>> latestRefresh;
+
+    private final String instanceId = UUID.randomUUID().toString();
+
+    private final AtomicLong changes = new AtomicLong();
+
+    private volatile int lastTail = Integer.MIN_VALUE;
 
     /**
      * Constructs a new instance configured with the provided {@code session} and {@code maxTimeDelta}.
@@ -112,29 +251,83 @@ public class CassandraRevocationStore implements RevocationStore {
      * @param read         consistency level for SELECT queries
      * @param write        consistency level for INSERT queries
      * @param maxTimeDelta maximum time span limit to get revocations, in seconds
+     * @param maxBucketQueriesInFlight maximum number of bucket queries running concurrently for one read
+     * @param readDeadline maximum time to read all buckets, in milliseconds
+     * @param fetchSize number of rows fetched per page when iterating over revocations
+     * @param bucketCache cache for the contents of sealed buckets
+     * @param bucketDirectory directory of the newest revocation per bucket, to skip buckets without newer ones
+     * @param bucketPlanner plans the buckets to be queried, leaving out buckets whose rows have all expired
+     * @param refreshCacheDuration how long the latest refresh notification is kept in memory, in milliseconds
+     * @param writeLegacyColumns whether revocations are also written as text and JSON, for instances not reading the
+     *                           typed columns yet
      * @param currentUser currentUser supplier
-     * @param objectMapper the object mapper
+     * @param jsonCodec reads and writes the data of revocations
+     * @param messageHasher hasher used to compute the hash of revoked values when storing them
      */
     public CassandraRevocationStore(final Session session, final ConsistencyLevel read, final ConsistencyLevel write,
-                                    final int maxTimeDelta, final CurrentUser currentUser, final ObjectMapper objectMapper) {
+                                    final int maxTimeDelta, final int maxBucketQueriesInFlight,
+                                    final int readDeadline, final int fetchSize, final SealedBucketCache bucketCache,
+                                    final BucketDirectory bucketDirectory, final BucketPlanner bucketPlanner,
+                                    final int refreshCacheDuration, final boolean writeLegacyColumns,
+                                    final CurrentUser currentUser, final RevocationJsonCodec jsonCodec,
+                                    final MessageHasher messageHasher) {
         this.session = session;
         this.maxTimeDelta = maxTimeDelta;
+        this.maxBucketQueriesInFlight = maxBucketQueriesInFlight;
+        this.readDeadline = readDeadline;
+        this.fetchSize = fetchSize;
+        this.bucketCache = bucketCache;
+        this.bucketDirectory = bucketDirectory;
+        this.bucketPlanner = bucketPlanner;
         this.currentUser = currentUser;
-        this.objectMapper = objectMapper;
+        this.jsonCodec = jsonCodec;
+        this.messageHasher = messageHasher;
+        this.refreshCacheDuration = refreshCacheDuration;
+        this.writeLegacyColumns = writeLegacyColumns;
 
         getFrom = session.prepare(SELECT_REVOCATION).setConsistencyLevel(read);
-        insertRevocation = session.prepare(INSERT_REVOCATION).setConsistencyLevel(write);
+        getFromAscending = session.prepare(SELECT_REVOCATION_ASCENDING).setConsistencyLevel(read);
+        for (RevocationType type : RevocationType.values()) {
+            insertRevocations.put(type, session.prepare(insertRevocation(type, writeLegacyColumns))
+                    .setConsistencyLevel(write));
+        }
+        getBucket = session.prepare(SELECT_BUCKET).setConsistencyLevel(read);
+        getNewest = session.prepare(SELECT_NEWEST).setConsistencyLevel(read);
+        updateHash = session.prepare(UPDATE_HASH).setConsistencyLevel(write);
+        writeConsistency = write;
         getRefresh = session.prepare(SELECT_REFRESH).setConsistencyLevel(read);
         storeRefresh = session.prepare(INSERT_REFRESH).setConsistencyLevel(write);
+
+        latestRefresh = newRefreshCache();
     }
 
     static class Bucket {
         public String date;
         public int interval;
+        public int start;
 
-        Bucket(final String d, final int i) {
+        Bucket(final String d, final int i, final int s) {
             date = d;
             interval = i;
+            start = s;
+        }
+
+        int end() {
+            return start + BUCKET_LENGTH;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (!(o instanceof Bucket)) {
+                return false;
+            }
+            Bucket other = (Bucket) o;
+            return interval == other.interval && date.equals(other.date);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * date.hashCode() + interval;
         }
     }
 
@@ -150,7 +343,7 @@ public class CassandraRevocationStore implements RevocationStore {
             String bucketDate = LocalDateFormatter.get().format(new Date(((long) from) * 1000));
             int bucketInterval = getInterval(from);
 
-            buckets.add(new Bucket(bucketDate, bucketInterval));
+            buckets.add(new Bucket(bucketDate, bucketInterval, from - (from % BUCKET_LENGTH)));
 
             from += BUCKET_LENGTH;
 
@@ -159,59 +352,407 @@ public class CassandraRevocationStore implements RevocationStore {
         return buckets;
     }
 
+    /**
+     * Returns all revocations stored after {@code from}, in {@code revoked_at} order.
+     * <p>
+     * <p>One query is issued per bucket. Queries run concurrently, bounded by {@code maxBucketQueriesInFlight}, and
+     * must all complete before the {@code readDeadline} elapses. Sealed buckets are read whole and then served from the
+     * {@link SealedBucketCache}, so only the bucket being written to is queried once they are cached. Sealed buckets
+     * without revocations after {@code from} according to the {@link BucketDirectory} are not queried at all, nor are
+     * buckets whose rows have all expired according to the {@link BucketPlanner}.</p>
+     *
+     * @param from UTC UNIX timestamp after which revocations are returned
+     * @return the revocations stored after {@code from}
+     * @throws StorageTimeoutException if not all buckets could be read within the deadline
+     */
     @Override
     public Collection<RevocationData> getRevocations(final int from) {
 
-        Collection<RevocationData> revocations = new LinkedList<>();
-
         int currentTime = UnixTimestamp.now();
-        if ((currentTime - from) > maxTimeDelta) {
+
+        // limited by the oldest second returned, like cursors, as they read from the second before them
+        if ((currentTime - (from + 1)) > maxTimeDelta) {
 
             // avoid erroneous query of too many buckets
             throw new IllegalArgumentException("'from' timestamp is too old!");
         }
 
-        for (Bucket b : getBuckets(from, currentTime)) {
-
-            ResultSet rs = session.execute(getFrom.bind(b.date, b.interval, from));
-            List<Row> rows = rs.all();
-
-            for (Row r : rows) {
-                try {
-                    RevocationType type = RevocationType.valueOf(r.getString("revocation_type").toUpperCase());
-                    String unmappedData = r.getString("revocation_data");
-
-                    RevokedData data = null;
-                    switch (type) {
-                        case TOKEN:
-                            data = objectMapper.readValue(unmappedData, RevokedTokenData.class);
-                            break;
-                        case CLAIM:
-                            data = objectMapper.readValue(unmappedData, RevokedClaimsData.class);
-                            break;
-                        case GLOBAL:
-                            data = objectMapper.readValue(unmappedData, RevokedTokenData.class);
-                            break;
-                    }
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(readDeadline);
+        final Semaphore inFlight = new Semaphore(maxBucketQueriesInFlight);
+        final List<Bucket> buckets = bucketPlanner.plan(from, currentTime);
+        final List<List<RevocationData>> cached = new ArrayList<>(buckets.size());
+        final List<ResultSetFuture> pending = new ArrayList<>(buckets.size());
+        try {
+            for (Bucket b : buckets) {
+                if (bucketDirectory.isEmptyAfter(b, from)) {
+                    cached.add(Collections.emptyList());
+                    pending.add(null);
+                    continue;
+                }
+
+                final boolean sealed = bucketCache.isSealed(b, currentTime);
+                final List<RevocationData> hit = sealed ? bucketCache.get(b, currentTime) : null;
+                cached.add(hit);
+                if (hit != null) {
+                    pending.add(null);
+                    continue;
+                }
 
-                    RevocationData revocationData = ImmutableRevocationData.builder()
-                            .revocationRequest(ImmutableRevocationRequest.builder()
-                                    .type(type)
-                                    .data(data)
-                                    .build())
-                            .revokedAt(r.getInt("revoked_at"))
-                            .build();
-
-                    revocations.add(revocationData);
-                } catch (IOException ex) {
-                    LOG.error("Failed to read revocation", ex);
+                if (!inFlight.tryAcquire(remaining(deadline), TimeUnit.NANOSECONDS)) {
+                    throw new StorageTimeoutException();
                 }
+                // sealed buckets are read whole, so that their contents can be cached
+                ResultSetFuture future = session.executeAsync(getFrom.bind(b.date, b.interval, sealed ? 0 : from));
+                future.addListener(inFlight::release, MoreExecutors.directExecutor());
+                pending.add(future);
             }
+
+            // Buckets cover consecutive time ranges, each one sorted by revoked_at DESC
+            final int notExpired = bucketCache.expiredUpTo(currentTime);
+            List<RevocationData> revocations = new ArrayList<>();
+            for (int i = 0; i < buckets.size(); i++) {
+                List<RevocationData> bucket = cached.get(i);
+                if (bucket != null) {
+
+                    // cached rows may have expired in Cassandra in the meantime
+                    bucket.stream().filter(r -> r.revokedAt() > from && r.revokedAt() > notExpired)
+                            .forEach(revocations::add);
+                    continue;
+                }
+
+                bucket = toRevocations(pending.get(i).get(remaining(deadline), TimeUnit.NANOSECONDS), deadline);
+                Collections.reverse(bucket);
+                if (bucketCache.isSealed(buckets.get(i), currentTime)) {
+                    bucketCache.put(buckets.get(i), Collections.unmodifiableList(bucket));
+                    bucket.stream().filter(r -> r.revokedAt() > from).forEach(revocations::add);
+                } else {
+                    revocations.addAll(bucket);
+                }
+            }
+            return revocations;
+
+        } catch (TimeoutException e) {
+            throw new StorageTimeoutException();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StorageTimeoutException();
+        } catch (ExecutionException e) {
+            Throwables.propagateIfPossible(e.getCause());
+            throw new IllegalStateException("Failed to read revocations", e.getCause());
+        } finally {
+            pending.stream().filter(Objects::nonNull).forEach(future -> future.cancel(true));
         }
+    }
+
+    /**
+     * Performs the specified action for each revocation after the cursor, in {@code revoked_at} order.
+     * <p>
+     * <p>Buckets are queried like in {@link #getRevocations(int)}: concurrently, bounded by
+     * {@code maxBucketQueriesInFlight}, and all of them within the {@code readDeadline}. Sealed buckets are read whole
+     * and put into the {@link SealedBucketCache}. The others are queried in {@code revoked_at} order and paged through
+     * {@code fetchSize} rows at a time, so that at most one page of each is held in memory. The next page is fetched
+     * in the background while the current one is consumed.</p>
+     *
+     * @param cursor the position after the last revocation already returned
+     * @param action the action performed for each revocation
+     * @throws StorageTimeoutException if not all buckets could be read within the deadline
+     */
+    @Override
+    public void forEachRevocation(final Cursor cursor, final Consumer<? super RevocationData> action) {
+        final int currentTime = UnixTimestamp.now();
+        if ((currentTime - cursor.revokedAt()) > maxTimeDelta) {
+            throw new IllegalArgumentException("'from' timestamp is too old!");
+        }
+
+        // The cursor's second is read as well, revocations up to the cursor are skipped
+        final int from = cursor.revokedAt() - 1;
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(readDeadline);
+        final Semaphore inFlight = new Semaphore(maxBucketQueriesInFlight);
+        final List<Bucket> buckets = bucketPlanner.plan(from, currentTime);
+        final List<Boolean> sealed = new ArrayList<>(buckets.size());
+        final List<List<RevocationData>> cached = new ArrayList<>(buckets.size());
+        final List<ResultSetFuture> pending = new ArrayList<>(buckets.size());
+        try {
+            for (Bucket b : buckets) {
+                final boolean isSealed = bucketCache.isSealed(b, currentTime);
+                sealed.add(isSealed);
+                if (bucketDirectory.isEmptyAfter(b, from)) {
+                    cached.add(Collections.emptyList());
+                    pending.add(null);
+                    continue;
+                }
+
+                final List<RevocationData> hit = isSealed ? bucketCache.get(b, currentTime) : null;
+                cached.add(hit);
+                if (hit != null) {
+                    pending.add(null);
+                    continue;
+                }
+
+                if (!inFlight.tryAcquire(remaining(deadline), TimeUnit.NANOSECONDS)) {
+                    throw new StorageTimeoutException();
+                }
+                // sealed buckets are read whole, so that their contents can be cached
+                final BoundStatement statement = isSealed ? getFrom.bind(b.date, b.interval, 0)
+                        : getFromAscending.bind(b.date, b.interval, from);
+                statement.setFetchSize(fetchSize);
+                ResultSetFuture future = session.executeAsync(statement);
+                future.addListener(inFlight::release, MoreExecutors.directExecutor());
+                pending.add(future);
+            }
+
+            final int notExpired = bucketCache.expiredUpTo(currentTime);
+            for (int i = 0; i < buckets.size(); i++) {
+                List<RevocationData> bucket = cached.get(i);
+                if (bucket != null) {
+
+                    // cached rows may have expired in Cassandra in the meantime
+                    bucket.stream().filter(r -> r.revokedAt() > notExpired && cursor.isBefore(r)).forEach(action);
+                    continue;
+                }
 
+                final ResultSet rs = pending.get(i).get(remaining(deadline), TimeUnit.NANOSECONDS);
+                if (sealed.get(i)) {
+                    bucket = toRevocations(rs, deadline);
+                    Collections.reverse(bucket);
+                    bucketCache.put(buckets.get(i), Collections.unmodifiableList(bucket));
+                    bucket.stream().filter(cursor::isBefore).forEach(action);
+                } else {
+                    forEachRow(rs, deadline, revocation -> {
+                        if (cursor.isBefore(revocation)) {
+                            action.accept(revocation);
+                        }
+                    });
+                }
+            }
+
+        } catch (TimeoutException e) {
+            throw new StorageTimeoutException();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StorageTimeoutException();
+        } catch (ExecutionException e) {
+            Throwables.propagateIfPossible(e.getCause());
+            throw new IllegalStateException("Failed to read revocations", e.getCause());
+        } finally {
+            pending.stream().filter(Objects::nonNull).forEach(future -> future.cancel(true));
+        }
+    }
+
+    private static long remaining(final long deadline) {
+        return Math.max(0, deadline - System.nanoTime());
+    }
+
+    private List<RevocationData> toRevocations(final ResultSet rs, final long deadline)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        List<RevocationData> revocations = new ArrayList<>();
+        forEachRow(rs, deadline, revocations::add);
         return revocations;
     }
 
+    /*
+     * Pages are fetched within the deadline, the next one in the background once half of the current one is consumed.
+     */
+    private void forEachRow(final ResultSet rs, final long deadline, final Consumer<RevocationData> action)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        final Iterator<Row> rows = rs.iterator();
+        while (true) {
+            if (rs.getAvailableWithoutFetching() == 0 && !rs.isFullyFetched()) {
+                rs.fetchMoreResults().get(remaining(deadline), TimeUnit.NANOSECONDS);
+            } else if (rs.getAvailableWithoutFetching() == fetchSize / 2 && !rs.isFullyFetched()) {
+                rs.fetchMoreResults();
+            }
+            if (!rows.hasNext()) {
+                return;
+            }
+
+            try {
+                action.accept(toRevocation(rows.next()));
+            } catch (IOException ex) {
+                LOG.error("Failed to read revocation", ex);
+            }
+        }
+    }
+
+    private RevocationData toRevocation(final Row r) throws IOException {
+        return ImmutableRevocationData.builder()
+                .revocationRequest(toRevocationRequest(r, jsonCodec))
+                .revokedAt(r.getInt("revoked_at"))
+                .bucketUuid(r.getUUID("bucket_uuid"))
+                .revocationHash(Optional.ofNullable(r.getString("revocation_hash")))
+                .hashFingerprint(Optional.ofNullable(r.getString("hash_fingerprint")))
+                .build();
+    }
+
+    /**
+     * Reads the type and data of a revocation from its typed columns, or from its text and JSON columns if it was
+     * written before the typed columns were introduced.
+     *
+     * @param r         the row of the revocation
+     * @param jsonCodec reads the data of revocations written as JSON
+     * @return the type and data of the revocation
+     * @throws IOException if the revocation could not be read
+     */
+    static RevocationRequest toRevocationRequest(final Row r, final RevocationJsonCodec jsonCodec)
+            throws IOException {
+        if (r.isNull("type_code")) {
+            final RevocationType type = RevocationType.valueOf(r.getString("revocation_type").toUpperCase());
+            return ImmutableRevocationRequest.builder()
+                    .type(type)
+                    .data(jsonCodec.readData(type, r.getString("revocation_data")))
+                    .build();
+        }
+
+        final int code = r.getInt("type_code");
+        switch (code) {
+            case TOKEN_CODE:
+                return ImmutableRevocationRequest.builder()
+                        .type(RevocationType.TOKEN)
+                        .data(ImmutableRevokedTokenData.builder()
+                                .token(r.getString("token"))
+                                .issuedBefore(r.getInt("issued_before"))
+                                .build())
+                        .build();
+            case CLAIM_CODE:
+                return ImmutableRevocationRequest.builder()
+                        .type(RevocationType.CLAIM)
+                        .data(ImmutableRevokedClaimsData.builder()
+                                .putAllClaims(r.getMap("claims", String.class, String.class))
+                                .issuedBefore(r.getInt("issued_before"))
+                                .build())
+                        .build();
+            case GLOBAL_CODE:
+                return ImmutableRevocationRequest.builder()
+                        .type(RevocationType.GLOBAL)
+                        .data(ImmutableRevokedGlobal.builder()
+                                .issuedBefore(r.getInt("issued_before"))
+                                .build())
+                        .build();
+            default:
+                throw new IOException("Unknown revocation type code " + code);
+        }
+    }
+
+    private static int typeCode(final RevocationType type) {
+        switch (type) {
+            case TOKEN:
+                return TOKEN_CODE;
+            case CLAIM:
+                return CLAIM_CODE;
+            default:
+                return GLOBAL_CODE;
+        }
+    }
+
+    /**
+     * Stores the hash of revocations stored without one, or with a hash computed with a different hashing
+     * configuration.
+     * <p>
+     * <p>Updated cells get the remaining time to live of the revocation, so that they expire together with it.</p>
+     * <p>
+     * <p>Buckets are paged through {@code fetchSize} rows at a time, and updates are sent asynchronously, at most
+     * {@code maxBucketQueriesInFlight} at once, so that a large backlog of revocations without a hash neither holds
+     * whole buckets in memory nor waits for each update in turn.</p>
+     *
+     * @return the number of updated revocations
+     */
+    public int backfillHashes() {
+        final int now = UnixTimestamp.now();
+        final Semaphore inFlight = new Semaphore(maxBucketQueriesInFlight);
+        final AtomicInteger updated = new AtomicInteger();
+        try {
+            for (Bucket b : bucketPlanner.plan(now - maxTimeDelta, now)) {
+                final int selectedAt = UnixTimestamp.now();
+                final BoundStatement statement = getBucket.bind(b.date, b.interval);
+                statement.setFetchSize(fetchSize);
+                final ResultSet rs = session.execute(statement);
+                for (Row r : rs) {
+                    if (rs.getAvailableWithoutFetching() == fetchSize / 2 && !rs.isFullyFetched()) {
+                        rs.fetchMoreResults();
+                    }
+                    try {
+                        final RevocationData revocation = toRevocation(r);
+                        if (revocation.revocationRequest().type() == RevocationType.GLOBAL) {
+                            continue;
+                        }
+
+                        final String fingerprint = messageHasher.fingerprints()
+                                .get(revocation.revocationRequest().type());
+                        if (revocation.hashFingerprint().equals(Optional.of(fingerprint))) {
+                            continue;
+                        }
+
+                        final String hash = messageHasher.hashAndEncode(revocation.revocationRequest().data());
+                        if (hash == null) {
+                            continue;
+                        }
+
+                        // one second less, so that the hash never outlives the revocation itself
+                        int ttl = 0;
+                        final int ttlIndex = r.isNull(SELECT_BUCKET_TTL_INDEX) ? SELECT_BUCKET_LEGACY_TTL_INDEX
+                                : SELECT_BUCKET_TTL_INDEX;
+                        if (!r.isNull(ttlIndex)) {
+                            ttl = r.getInt(ttlIndex) - (UnixTimestamp.now() - selectedAt) - 1;
+                            if (ttl <= 0) {
+                                continue;
+                            }
+                        }
+
+                        inFlight.acquire();
+                        final ResultSetFuture future = session.executeAsync(updateHash.bind(ttl, hash, fingerprint,
+                                b.date, b.interval, revocation.revokedAt(), revocation.bucketUuid().get()));
+                        Futures.addCallback(future, new FutureCallback<ResultSet>() {
+                            @Override
+                            public void onSuccess(final ResultSet result) {
+                                updated.incrementAndGet();
+                                inFlight.release();
+                            }
+
+                            @Override
+                            public void onFailure(final Throwable t) {
+                                LOG.warn("Failed to backfill revocation hash", t);
+                                inFlight.release();
+                            }
+                        }, MoreExecutors.directExecutor());
+                    } catch (IOException | NoSuchAlgorithmException ex) {
+                        LOG.error("Failed to backfill revocation hash", ex);
+                    }
+                }
+            }
+
+            // waits for the last updates
+            inFlight.acquire(maxBucketQueriesInFlight);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return updated.get();
+    }
+
+    /**
+     * Records the newest revocation of each sealed bucket in the {@link BucketDirectory}, including empty buckets.
+     * <p>
+     * <p>Covers buckets written before the directory existed, or by instances not maintaining it. Recording is
+     * idempotent, since the directory keeps the newest {@code revoked_at} per bucket.</p>
+     *
+     * @return the number of recorded buckets holding revocations
+     */
+    public int backfillBucketDirectory() {
+        final int now = UnixTimestamp.now();
+        int recorded = 0;
+        for (Bucket b : bucketPlanner.plan(now - maxTimeDelta, now)) {
+            if (!bucketCache.isSealed(b, now)) {
+                continue;
+            }
+
+            final Row newest = session.execute(getNewest.bind(b.date, b.interval)).one();
+            bucketDirectory.update(b, newest == null ? 0 : newest.getInt("revoked_at"));
+            if (newest != null) {
+                recorded++;
+            }
+        }
+        return recorded;
+    }
+
     protected static int getInterval(final int timestamp) {
         int hours = timestamp / (60 * 60);
         return (hours % 24) / 8;
@@ -223,38 +764,104 @@ public class CassandraRevocationStore implements RevocationStore {
         final String date = LocalDateFormatter.get().format(new Date(((long) revokedAt) * 1000));
 
         int interval = getInterval(revokedAt);
-        try {
-            String data = objectMapper.writeValueAsString(revocation.data());
-            LOG.debug("Storing in bucket: {} {} {}", date, interval, data);
-
-            final BoundStatement bs = insertRevocation.bind(date, interval, revocation.type().name(), data,
-                    currentUser.get(), revokedAt);
+        LOG.debug("Storing in bucket: {} {} {}", date, interval, revocation.data());
+
+        final RevocationType type = revocation.type();
+        final List<Object> values = new ArrayList<>();
+        values.add(date);
+        values.add(interval);
+        values.add(typeCode(type));
+        switch (type) {
+            case TOKEN:
+                final RevokedTokenData token = (RevokedTokenData) revocation.data();
+                values.add(token.token());
+                values.add(token.issuedBefore());
+                break;
+            case CLAIM:
+                final RevokedClaimsData claims = (RevokedClaimsData) revocation.data();
+                values.add(claims.claims());
+                values.add(claims.issuedBefore());
+                break;
+            case GLOBAL:
+                values.add(((RevokedGlobal) revocation.data()).issuedBefore());
+                break;
+        }
+        if (writeLegacyColumns) {
+            values.add(type.name());
+            try {
+                values.add(jsonCodec.writeValueAsString(revocation.data()));
+            } catch (JsonProcessingException ex) {
+                throw new SerializationException();
+            }
+        }
 
-            session.execute(bs);
-        } catch (JsonProcessingException ex) {
-            throw new SerializationException();
+        String hash = null;
+        try {
+            hash = messageHasher.hashAndEncode(revocation.data());
+        } catch (NoSuchAlgorithmException ex) {
+            LOG.warn("Failed to hash revocation, it will be hashed when read", ex);
         }
+        values.add(currentUser.get());
+        values.add(revokedAt);
+        values.add(hash);
+        values.add(hash == null ? null : messageHasher.fingerprints().get(type));
+
+        // recorded in the same logged batch, so that the directory never misses a stored revocation
+        session.execute(new BatchStatement(BatchStatement.Type.LOGGED)
+                .add(bucketDirectory.updateStatement(new Bucket(date, interval, revokedAt - revokedAt % BUCKET_LENGTH),
+                        revokedAt))
+                .add(insertRevocations.get(type).bind(values.toArray()))
+                .setConsistencyLevel(writeConsistency));
+        changes.incrementAndGet();
     }
 
+    /**
+     * Returns the latest refresh notification.
+     * <p>
+     * <p>The notification is kept in memory for {@code refreshCacheDuration} milliseconds, or until a refresh is stored
+     * through this instance. At the beginning of the year, while the {@code maxTimeDelta} window still reaches into
+     * the previous year, the previous year's partition is read when the current one is empty.</p>
+     *
+     * @return the latest refresh notification, or {@code null} if there is none
+     */
     @Override
     public Refresh getRefresh() {
-        int yearBucket = LocalDate.now(ZoneId.of("UTC")).getYear();
+        return latestRefresh.get().orElse(null);
+    }
+
+    private Supplier<Optional<Refresh>> newRefreshCache() {
+        if (refreshCacheDuration <= 0) {
+            return this::loadRefresh;
+        }
+        return Suppliers.memoizeWithExpiration(this::loadRefresh, refreshCacheDuration, TimeUnit.MILLISECONDS);
+    }
+
+    private Optional<Refresh> loadRefresh() {
+        final LocalDate today = LocalDate.now(ZoneId.of("UTC"));
+
+        Optional<Refresh> refresh = loadRefresh(today.getYear());
+        final long startOfYear = today.withDayOfYear(1).atStartOfDay(ZoneId.of("UTC")).toEpochSecond();
+        if (!refresh.isPresent() && UnixTimestamp.now() - maxTimeDelta < startOfYear) {
+            refresh = loadRefresh(today.getYear() - 1);
+        }
+        return refresh;
+    }
 
-        // TODO Include the case when it's the beginning of the year (2 buckets needed)
+    private Optional<Refresh> loadRefresh(final int yearBucket) {
         ResultSet rs = session.execute(getRefresh.bind(yearBucket));
 
         // No refreshes returns null
         if (rs.isExhausted()) {
-            return null;
+            return Optional.empty();
         }
 
         // Only the first, although the result set should be 1 already.
         Row first = rs.one();
 
-        return ImmutableRefresh.builder()
+        return Optional.of(ImmutableRefresh.builder()
                 .refreshFrom(first.getInt("refresh_from"))
                 .refreshTimestamp(first.getInt("refresh_ts"))
-                .build();
+                .build());
     }
 
     @Override
@@ -265,5 +872,46 @@ public class CassandraRevocationStore implements RevocationStore {
 
         BoundStatement statement = storeRefresh.bind(yearBucket, UnixTimestamp.now(), from, currentUser.get());
         session.execute(statement);
+
+        // the next read loads the new notification
+        latestRefresh = newRefreshCache();
+    }
+
+    /**
+     * Returns an empty version, as revocations expire all the time without being written or tailed.
+     *
+     * @return an empty version
+     */
+    @Override
+    public Optional<String> getVersion() {
+        return Optional.empty();
+    }
+
+    /**
+     * Returns a version counting the revocations stored on this node or tailed from others since it started.
+     * <p>
+     * <p>Empty when revocations after {@code from} may have expired, or when the store was not tailed for
+     * {@value #MAX_TAIL_AGE} seconds.</p>
+     *
+     * @param from UTC UNIX timestamp after which the revocations are versioned
+     * @return the current version, or empty if unknown
+     */
+    @Override
+    public Optional<String> getVersion(final int from) {
+        final int currentTime = UnixTimestamp.now();
+        if (from < bucketCache.expiredUpTo(currentTime) || lastTail < currentTime - MAX_TAIL_AGE) {
+            return Optional.empty();
+        }
+        return Optional.of(instanceId + "-" + changes.get());
+    }
+
+    @Override
+    public void onRevocations(final List<RevocationData> revocations) {
+        changes.incrementAndGet();
+    }
+
+    @Override
+    public void onTail(final int tailedAt) {
+        lastTail = tailedAt;
     }
 }
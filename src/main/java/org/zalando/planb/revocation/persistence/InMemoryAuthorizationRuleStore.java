@@ -5,23 +5,40 @@ import org.zalando.planb.revocation.domain.AuthorizationRule;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class InMemoryAuthorizationRuleStore implements AuthorizationRulesStore.Internal {
 
-    private List<AuthorizationRule> claims = new ArrayList<>();
+    private volatile AuthorizationRuleIndex index = AuthorizationRuleIndex.EMPTY;
+
+    private final List<Runnable> changeListeners = new CopyOnWriteArrayList<>();
 
     @Override
     public Collection<AuthorizationRule> retrieveByMatchingAllowedClaims(AuthorizationRule authorizationRule) {
-        return findMatchingRulesByAllowedClaims(claims, authorizationRule);
+        return index.matchingAllowedClaims(authorizationRule);
+    }
+
+    @Override
+    public Collection<AuthorizationRule> retrieveByMatchingClaims(AuthorizationRule authorizationRule) {
+        return index.matchingClaims(authorizationRule);
     }
 
-   @Override
-    public void store(AuthorizationRule authorizationRule) {
-        claims.add(authorizationRule);
+    @Override
+    public synchronized void store(AuthorizationRule authorizationRule) {
+        List<AuthorizationRule> rules = new ArrayList<>(index.getRules());
+        rules.add(authorizationRule);
+        index = new AuthorizationRuleIndex(rules);
+        changeListeners.forEach(Runnable::run);
+    }
+
+    @Override
+    public void addChangeListener(Runnable listener) {
+        changeListeners.add(listener);
     }
 
-    public void cleanup() {
-        claims.clear();
+    public synchronized void cleanup() {
+        index = AuthorizationRuleIndex.EMPTY;
+        changeListeners.forEach(Runnable::run);
     }
 
 }
@@ -1,5 +1,6 @@
 package org.zalando.planb.revocation.persistence;
 
+import com.datastax.driver.core.utils.UUIDs;
 import org.slf4j.Logger;
 import org.zalando.planb.revocation.domain.ImmutableRefresh;
 import org.zalando.planb.revocation.domain.ImmutableRevocationData;
@@ -7,10 +8,12 @@ import org.zalando.planb.revocation.domain.Refresh;
 import org.zalando.planb.revocation.domain.RevocationData;
 import org.zalando.planb.revocation.domain.RevocationRequest;
 
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.LinkedList;
+import java.util.Deque;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.stream.Collectors;
 
 import static org.slf4j.LoggerFactory.getLogger;
@@ -19,9 +22,9 @@ public class InMemoryRevocationStore implements RevocationStore {
 
     private final Logger log = getLogger(getClass());
 
-    private final List<RevocationData> revocations = new ArrayList<>();
+    private final List<RevocationData> revocations = new CopyOnWriteArrayList<>();
 
-    private final LinkedList<Refresh> refreshNotifications = new LinkedList<>();
+    private final Deque<Refresh> refreshNotifications = new ConcurrentLinkedDeque<>();
 
     @Override
     public Collection<RevocationData> getRevocations(final int from) {
@@ -30,7 +33,10 @@ public class InMemoryRevocationStore implements RevocationStore {
 
     @Override
     public void storeRevocation(final RevocationRequest revocation) {
-        final RevocationData revocationData = ImmutableRevocationData.builder().revocationRequest(revocation).build();
+        final RevocationData revocationData = ImmutableRevocationData.builder()
+                .revocationRequest(revocation)
+                .bucketUuid(UUIDs.timeBased())
+                .build();
         log.debug("Store revocation in memory: {}", revocationData);
         revocations.add(revocationData);
     }
@@ -46,4 +52,14 @@ public class InMemoryRevocationStore implements RevocationStore {
         log.debug("Store refresh in memory: {}", refreshNotification);
         refreshNotifications.offer(refreshNotification);
     }
+
+    /**
+     * Returns the number of stored revocations, as revocations are never removed.
+     *
+     * @return the number of stored revocations
+     */
+    @Override
+    public Optional<String> getVersion() {
+        return Optional.of(String.valueOf(revocations.size()));
+    }
 }
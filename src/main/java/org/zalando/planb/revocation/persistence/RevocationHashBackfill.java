@@ -0,0 +1,39 @@
+package org.zalando.planb.revocation.persistence;
+
+import org.slf4j.Logger;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Periodically stores the hash of revocations stored without one, e.g. before hashes were stored at write time or
+ * before the hashing configuration changed.
+ *
+ * @author <a href="mailto:team-greendale@zalando.de">Team Greendale</a>
+ */
+public class RevocationHashBackfill {
+
+    private static final Logger LOG = getLogger(RevocationHashBackfill.class);
+
+    private final CassandraRevocationStore store;
+
+    /**
+     * Constructs a new instance backfilling hashes in the specified store.
+     *
+     * @param store the store holding the revocations
+     */
+    public RevocationHashBackfill(final CassandraRevocationStore store) {
+        this.store = store;
+    }
+
+    @Scheduled(fixedDelayString = "${revocation.hashing.backfillInMilliseconds:3600000}",
+            initialDelayString = "${revocation.hashing.backfillInitialDelayInMilliseconds:60000}")
+    public void run() {
+        try {
+            int updated = store.backfillHashes();
+            LOG.info("Backfilled the hash of {} revocations", updated);
+        } catch (RuntimeException e) {
+            LOG.warn("Could not backfill revocation hashes", e);
+        }
+    }
+}
@@ -1,11 +1,16 @@
 package org.zalando.planb.revocation.persistence;
 
+import org.zalando.planb.revocation.domain.Cursor;
 import org.zalando.planb.revocation.domain.Refresh;
 import org.zalando.planb.revocation.domain.RevocationData;
 import org.zalando.planb.revocation.domain.RevocationInfo;
 import org.zalando.planb.revocation.domain.RevocationRequest;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * Created by jmussler on 11.02.16.
@@ -14,6 +19,39 @@ public interface RevocationStore {
 
     Collection<RevocationData> getRevocations(int from);
 
+    /**
+     * Returns the revocations strictly newer than the specified cursor, in {@code (revoked_at, bucket_uuid)} order.
+     * <p>
+     * <p>By default the revocations of the cursor's second are read as well, and the ones up to the cursor dropped.</p>
+     *
+     * @param cursor the position after the last revocation already returned
+     * @return the revocations after the cursor
+     */
+    default Collection<RevocationData> getRevocations(final Cursor cursor) {
+        final Collection<RevocationData> revocations = getRevocations(cursor.revokedAt() - 1);
+        final List<RevocationData> after = new ArrayList<>(revocations.size());
+        for (RevocationData revocation : revocations) {
+            if (cursor.isBefore(revocation)) {
+                after.add(revocation);
+            }
+        }
+        return after;
+    }
+
+    /**
+     * Performs the specified action for each revocation strictly newer than the specified cursor, in
+     * {@code (revoked_at, bucket_uuid)} order.
+     * <p>
+     * <p>Stores able to page through their revocations should not hold more than one page in memory at a time. By
+     * default the revocations are read with {@link #getRevocations(Cursor)}.</p>
+     *
+     * @param cursor the position after the last revocation already returned
+     * @param action the action performed for each revocation
+     */
+    default void forEachRevocation(final Cursor cursor, final Consumer<? super RevocationData> action) {
+        getRevocations(cursor).forEach(action);
+    }
+
     /**
      * Stores the specified revocation data into the store.
      *
@@ -36,4 +74,28 @@ public interface RevocationStore {
      * @param from UTC UNIX timestamp from when to refresh revocations.
      */
     void storeRefresh(int from);
+
+    /**
+     * Returns a version of the stored revocations, which changes whenever revocations are added or removed.
+     * <p>
+     * <p>Allows to tell whether the result of {@link RevocationStore#getRevocations(int)} changed without reading the
+     * revocations. Stores that can not tell without reading them return an empty version.</p>
+     *
+     * @return the current version, or empty if unknown
+     */
+    Optional<String> getVersion();
+
+    /**
+     * Returns a version of the revocations stored after the specified timestamp, which changes whenever one of them
+     * is added or removed.
+     * <p>
+     * <p>Allows to tell whether the result of {@link RevocationStore#getRevocations(int)} for the same timestamp
+     * changed. By default the version of all stored revocations.</p>
+     *
+     * @param from UTC UNIX timestamp after which the revocations are versioned
+     * @return the current version, or empty if unknown
+     */
+    default Optional<String> getVersion(final int from) {
+        return getVersion();
+    }
 }
@@ -0,0 +1,251 @@
+package org.zalando.planb.revocation.persistence;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.zalando.planb.revocation.domain.Refresh;
+import org.zalando.planb.revocation.domain.RevocationData;
+import org.zalando.planb.revocation.util.UnixTimestamp;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Follows the revocations and refresh notifications stored by this and other nodes, and notifies listeners about new
+ * ones.
+ * <p>
+ * <p>The store is queried periodically for the revocations of the last {@code lookback} seconds before the previous
+ * query, which only touches the current bucket. Revocations already seen are skipped, so that rows written late by
+ * nodes with a slightly late clock are still reported once. Callers storing revocations on this node can
+ * {@link #requestTail() request} a query right away instead of waiting for the next one.</p>
+ *
+ * @author <a href="mailto:team-greendale@zalando.de">Team Greendale</a>
+ */
+public class RevocationTailer {
+
+    private static final Logger LOG = getLogger(RevocationTailer.class);
+
+    static final String METRIC_PREFIX = "planb.revocations.tailer";
+
+    private final RevocationStore store;
+
+    private final int lookback;
+
+    private final Timer tailTimer;
+
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    private final AtomicBoolean tailRequested = new AtomicBoolean();
+
+    private final ExecutorService requestedTails = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+            .setNameFormat("revocation-tailer-%d").setDaemon(true).build());
+
+    /*
+     * Bucket UUIDs of the revocations seen since the start of the previous query, by revoked_at. Only accessed while
+     * holding the lock.
+     */
+    private final NavigableMap<Integer, Set<UUID>> seen = new TreeMap<>();
+
+    private int lastTail = UnixTimestamp.now();
+
+    private boolean primed = false;
+
+    private Refresh refresh;
+
+    private volatile int highWaterMark;
+
+    /**
+     * Constructs a new instance following the specified store.
+     *
+     * @param store          the store to follow
+     * @param lookback       seconds before the previous query to query again, so that late rows are not missed
+     * @param metricRegistry registry where listener count and tail latency metrics are published
+     */
+    public RevocationTailer(final RevocationStore store, final int lookback, final MetricRegistry metricRegistry) {
+        this.store = store;
+        this.lookback = lookback;
+
+        tailTimer = metricRegistry.timer(METRIC_PREFIX + ".tail");
+        metricRegistry.register(METRIC_PREFIX + ".listeners", (Gauge<Integer>) listeners::size);
+    }
+
+    @PostConstruct
+    public void initialize() {
+        try {
+            tail();
+        } catch (RuntimeException e) {
+            LOG.warn("Could not tail revocations, retrying on the next tail", e);
+        }
+    }
+
+    /**
+     * Stops the thread serving requested queries, dropping the ones not started yet.
+     */
+    @PreDestroy
+    public void shutdown() {
+        requestedTails.shutdownNow();
+    }
+
+    /**
+     * Registers a listener to be notified about revocations and refresh notifications found from now on.
+     *
+     * @param listener the listener
+     */
+    public void addListener(final Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Unregisters a listener.
+     *
+     * @param listener the listener
+     */
+    public void removeListener(final Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Returns the newest {@code revoked_at} seen so far.
+     *
+     * @return the newest {@code revoked_at} seen, in UTC UNIX timestamp, or {@code 0} if none was seen
+     */
+    public int getHighWaterMark() {
+        return highWaterMark;
+    }
+
+    /**
+     * Requests a query of the store on a background thread, without waiting for the next scheduled one.
+     * <p>
+     * <p>Returns right away. Requests made before a requested query starts are served by that query, so that
+     * concurrent writers cause a single one.</p>
+     */
+    public void requestTail() {
+        if (tailRequested.compareAndSet(false, true)) {
+            try {
+                requestedTails.execute(() -> {
+                    // reset first, so that a request made during the query causes another one
+                    tailRequested.set(false);
+                    try {
+                        tail();
+                    } catch (RuntimeException e) {
+                        LOG.warn("Could not tail revocations", e);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                tailRequested.set(false);
+                LOG.debug("Not tailing revocations, shutting down");
+            }
+        }
+    }
+
+    /**
+     * Queries the store for revocations and refresh notifications, and notifies listeners about the ones not seen
+     * before.
+     * <p>
+     * <p>The first query only records what was already stored, without notifying listeners.</p>
+     */
+    @Scheduled(fixedDelayString = "${revocation.tailer.tailInMilliseconds:1000}",
+            initialDelayString = "${revocation.tailer.tailInMilliseconds:1000}")
+    public synchronized void tail() {
+        final int now = UnixTimestamp.now();
+        final int from = lastTail - lookback;
+
+        final Collection<RevocationData> revocations;
+        final Refresh latestRefresh;
+        try (Timer.Context ignored = tailTimer.time()) {
+            revocations = store.getRevocations(from);
+            latestRefresh = store.getRefresh();
+        }
+
+        final List<RevocationData> found = new ArrayList<>();
+        for (RevocationData revocation : revocations) {
+            if (seen.computeIfAbsent(revocation.revokedAt(), k -> new HashSet<>())
+                    .add(revocation.bucketUuid().orElse(null))) {
+                found.add(revocation);
+            }
+            highWaterMark = Math.max(highWaterMark, revocation.revokedAt());
+        }
+
+        // The next query starts after these
+        lastTail = now;
+        seen.headMap(lastTail - lookback, true).clear();
+
+        final boolean refreshed = !Objects.equals(refresh, latestRefresh);
+        refresh = latestRefresh;
+
+        if (primed) {
+            if (!found.isEmpty()) {
+                notifyListeners(l -> l.onRevocations(Collections.unmodifiableList(found)));
+            }
+            if (refreshed && latestRefresh != null) {
+                notifyListeners(l -> l.onRefresh(latestRefresh));
+            }
+        }
+        primed = true;
+        notifyListeners(l -> l.onTail(now));
+        LOG.debug("Tailed {} new revocations since {}, high-water mark is {}", found.size(), from, highWaterMark);
+    }
+
+    private void notifyListeners(final Consumer<Listener> notification) {
+        for (Listener listener : listeners) {
+            try {
+                notification.accept(listener);
+            } catch (RuntimeException e) {
+                LOG.warn("Listener {} failed to handle a notification", listener, e);
+            }
+        }
+    }
+
+    /**
+     * Listener of the revocations and refresh notifications found by a {@link RevocationTailer}.
+     * <p>
+     * <p>Listeners are notified on the tailing thread and should return quickly.</p>
+     */
+    public interface Listener {
+
+        /**
+         * Called with revocations not seen before.
+         *
+         * @param revocations the new revocations, in {@code revoked_at} order of each query
+         */
+        default void onRevocations(final List<RevocationData> revocations) {
+        }
+
+        /**
+         * Called when the latest refresh notification changed.
+         *
+         * @param refresh the latest refresh notification
+         */
+        default void onRefresh(final Refresh refresh) {
+        }
+
+        /**
+         * Called after each successful query, once the listener was notified about what it found.
+         *
+         * @param tailedAt the time the query started, in UTC UNIX timestamp
+         */
+        default void onTail(final int tailedAt) {
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package org.zalando.planb.revocation.persistence;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import org.zalando.planb.revocation.domain.RevocationData;
+import org.zalando.planb.revocation.persistence.CassandraRevocationStore.Bucket;
+
+import java.util.List;
+
+/**
+ * Bounded cache of the decoded contents of sealed buckets.
+ * <p>
+ * <p>A bucket is sealed once its time range ended more than {@link #SEAL_GRACE} seconds ago, after which no more
+ * revocations are written to it. Its rows can only disappear by expiring, so the contents read once remain valid until
+ * the newest row would have hit the table's {@code default_time_to_live}, when the entry is evicted.</p>
+ *
+ * @author <a href="mailto:team-greendale@zalando.de">Team Greendale</a>
+ */
+public class SealedBucketCache {
+
+    /**
+     * Seconds after the end of a bucket during which revocations may still be written to it by nodes with a late
+     * clock.
+     */
+    static final int SEAL_GRACE = 60;
+
+    static final String METRIC_PREFIX = "planb.revocations.bucketCache";
+
+    private final int timeToLive;
+
+    private final Cache<Bucket, Entry> cache;
+
+    private final Counter hits;
+
+    private final Counter misses;
+
+    private final Counter evictions;
+
+    /**
+     * Constructs a new cache holding up to {@code maximumSize} buckets.
+     *
+     * @param maximumSize    maximum number of cached buckets, {@code 0} disables caching
+     * @param timeToLive     the {@code default_time_to_live} of the revocation table, in seconds, {@code 0} if
+     *                       revocations do not expire
+     * @param metricRegistry registry where hit, miss and eviction counters are published
+     */
+    public SealedBucketCache(final int maximumSize, final int timeToLive, final MetricRegistry metricRegistry) {
+        this.timeToLive = timeToLive;
+
+        hits = metricRegistry.counter(METRIC_PREFIX + ".hits");
+        misses = metricRegistry.counter(METRIC_PREFIX + ".misses");
+        evictions = metricRegistry.counter(METRIC_PREFIX + ".evictions");
+
+        cache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .<Bucket, Entry>removalListener(n -> {
+                    if (n.getCause() != RemovalCause.REPLACED) {
+                        evictions.inc();
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Returns whether no more revocations can be written to the specified bucket.
+     *
+     * @param bucket the bucket
+     * @param now    current UTC UNIX timestamp
+     * @return {@code true} if the bucket is sealed
+     */
+    public boolean isSealed(final Bucket bucket, final int now) {
+        return bucket.end() + SEAL_GRACE <= now;
+    }
+
+    /**
+     * Returns the cached contents of the specified bucket.
+     *
+     * @param bucket the bucket
+     * @param now    current UTC UNIX timestamp
+     * @return the revocations of the bucket in {@code revoked_at} order, or {@code null} if the bucket is not cached
+     */
+    public List<RevocationData> get(final Bucket bucket, final int now) {
+        Entry entry = cache.getIfPresent(bucket);
+        if (entry != null && entry.expiresAt <= now) {
+            cache.invalidate(bucket);
+            entry = null;
+        }
+
+        if (entry == null) {
+            misses.inc();
+            return null;
+        }
+        hits.inc();
+        return entry.revocations;
+    }
+
+    /**
+     * Caches the contents of a sealed bucket.
+     *
+     * @param bucket      the sealed bucket
+     * @param revocations all revocations of the bucket in {@code revoked_at} order
+     */
+    public void put(final Bucket bucket, final List<RevocationData> revocations) {
+        cache.put(bucket, new Entry(revocations, timeToLive > 0 ? bucket.end() + timeToLive : Integer.MAX_VALUE));
+    }
+
+    /**
+     * Returns the {@code default_time_to_live} of the revocation table.
+     *
+     * @return the time to live of revocations, in seconds
+     */
+    public int getTimeToLive() {
+        return timeToLive;
+    }
+
+    /**
+     * Returns the newest {@code revoked_at} of revocations that have expired by now.
+     *
+     * @param now current UTC UNIX timestamp
+     * @return the UTC UNIX timestamp up to which cached revocations are no longer returned
+     */
+    public int expiredUpTo(final int now) {
+        return timeToLive > 0 ? now - timeToLive : 0;
+    }
+
+    private static final class Entry {
+
+        private final List<RevocationData> revocations;
+
+        private final int expiresAt;
+
+        private Entry(final List<RevocationData> revocations, final int expiresAt) {
+            this.revocations = revocations;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
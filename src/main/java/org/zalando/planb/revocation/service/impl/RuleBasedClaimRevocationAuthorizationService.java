@@ -1,5 +1,13 @@
 package org.zalando.planb.revocation.service.impl;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.nimbusds.jwt.JWTClaimsSet;
 import com.nimbusds.jwt.JWTParser;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContext;
@@ -12,41 +20,123 @@ import org.zalando.planb.revocation.domain.AuthorizationRule;
 import org.zalando.planb.revocation.domain.ImmutableAuthorizationRule;
 import org.zalando.planb.revocation.domain.RevokedClaimsData;
 import org.zalando.planb.revocation.persistence.AuthorizationRulesStore;
+import org.zalando.planb.revocation.util.UnixTimestamp;
 
 import java.text.ParseException;
-import java.util.Collection;
 import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Authorizes claim-based revocations by matching the claims of the caller's token and the revoked claims against the
+ * stored {@link AuthorizationRule rules}.
+ * <p>
+ * <p>Decisions are cached by a SHA-256 digest of the caller's token and the revoked claims, so that repeated
+ * revocations by the same caller neither parse the token nor match the rules again. Entries expire with the token, or
+ * after {@code revocation.authorizationCacheDuration} seconds, and all of them are dropped whenever the rules
+ * change. Each decision also records the generation of the rules it was made with, and is ignored once the rules
+ * changed, so that a decision cached while they change is not used.</p>
+ */
 public class RuleBasedClaimRevocationAuthorizationService extends AbstractAuthorizationService {
 
+    static final String METRIC_PREFIX = "planb.revocations.authorizationCache";
+
     private final AuthorizationRulesStore authorizationRulesStore;
 
+    private final int cacheDuration;
+
+    private final Cache<HashCode, Decision> decisions;
+
+    private final AtomicLong rulesChanges = new AtomicLong();
+
+    private final Counter hits;
+
+    private final Counter misses;
+
     public RuleBasedClaimRevocationAuthorizationService(
             AuthorizationRulesStore authorizationRulesStore,
             RevocationProperties revocationProperties,
-            CassandraProperties cassandraProperties) {
+            CassandraProperties cassandraProperties,
+            MetricRegistry metricRegistry) {
         super(revocationProperties, cassandraProperties);
         this.authorizationRulesStore = authorizationRulesStore;
+        this.cacheDuration = revocationProperties.getAuthorizationCacheDuration();
+
+        decisions = CacheBuilder.newBuilder()
+                .maximumSize(revocationProperties.getAuthorizationCacheSize())
+                .build();
+        hits = metricRegistry.counter(METRIC_PREFIX + ".hits");
+        misses = metricRegistry.counter(METRIC_PREFIX + ".misses");
+
+        authorizationRulesStore.addChangeListener(() -> {
+            rulesChanges.incrementAndGet();
+            decisions.invalidateAll();
+        });
     }
 
     protected void checkClaimBasedRevocation(final RevokedClaimsData claimsData) {
-        final AuthorizationRule sourceRule = ImmutableAuthorizationRule
-                .builder()
-                .requiredUserClaims(getRequiredUserClaimsFromContext()).build();
-        final AuthorizationRule targetRule = ImmutableAuthorizationRule
+        final String accessToken = getAccessTokenFromContext();
+        final HashCode key = decisionKey(accessToken, claimsData.claims());
+        final int now = UnixTimestamp.now();
+
+        // read before the rules, so that decisions based on rules changed meanwhile are made again next time
+        final long generation = rulesChanges.get();
+        Decision decision = decisions.getIfPresent(key);
+        if (decision != null && decision.generation == generation && decision.expiresAt > now) {
+            hits.inc();
+        } else {
+            misses.inc();
+            decision = decide(accessToken, claimsData.claims(), now, generation);
+            decisions.put(key, decision);
+        }
+
+        if (!decision.authorized) {
+            throw new RevocationUnauthorizedException(ImmutableAuthorizationRule.builder()
+                    .allowedRevocationClaims(claimsData.claims()).build());
+        }
+    }
+
+    private Decision decide(final String accessToken, final Map<String, String> revokedClaims, final int now,
+                            final long generation) {
+        final JWTClaimsSet claimsSet;
+        try {
+            claimsSet = JWTParser.parse(accessToken).getJWTClaimsSet();
+        } catch (ParseException e) {
+            throw new IllegalArgumentException("Could not parse client token, non-JWT tokens are not allowed for claim-based revocation", e);
+        }
+
+        final AuthorizationRule requestRule = ImmutableAuthorizationRule
                 .builder()
-                .allowedRevocationClaims(claimsData.claims()).build();
-        final Collection<AuthorizationRule> sourceRules = authorizationRulesStore.retrieveByMatchingAllowedClaims(targetRule);
-        sourceRules.stream()
-                .filter(sourceRule::matchesRequiredUserClaims)
-                .findAny()
-                .orElseThrow(() -> new RevocationUnauthorizedException(targetRule));
+                .allowedRevocationClaims(revokedClaims)
+                .requiredUserClaims(claimsSet.getClaims().entrySet().stream()
+                        .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().toString())))
+                .build();
+        final boolean authorized = !authorizationRulesStore.retrieveByMatchingClaims(requestRule).isEmpty();
+
+        int expiresAt = now + cacheDuration;
+        if (claimsSet.getExpirationTime() != null) {
+            expiresAt = (int) Math.min(expiresAt, claimsSet.getExpirationTime().getTime() / 1000);
+        }
+        return new Decision(authorized, expiresAt, generation);
+    }
+
+    /*
+     * Claims are sorted, so that equal claim sets give equal keys.
+     */
+    private static HashCode decisionKey(final String accessToken, final Map<String, String> revokedClaims) {
+        final Hasher hasher = Hashing.sha256().newHasher().putString(accessToken, UTF_8).putByte((byte) 0);
+        new TreeMap<>(revokedClaims).forEach((name, value) -> hasher
+                .putString(name, UTF_8).putByte((byte) 0)
+                .putString(value, UTF_8).putByte((byte) 0));
+        return hasher.hash();
     }
 
-    private Map<String, String> getRequiredUserClaimsFromContext() {
-        String accessToken = Optional.of(SecurityContextHolder.getContext())
+    private String getAccessTokenFromContext() {
+        return Optional.of(SecurityContextHolder.getContext())
                 .map(SecurityContext::getAuthentication)
                 .map(auth -> (OAuth2Authentication) auth)
                 .map(OAuth2Authentication::getUserAuthentication)
@@ -54,11 +144,20 @@ public class RuleBasedClaimRevocationAuthorizationService extends AbstractAuthor
                 .map(theDetails -> (Map<?, ?>) theDetails)
                 .map(m -> (String) m.get("access_token"))
                 .orElseThrow(() -> new IllegalStateException("Could not find access_token in SecurityContext"));
-        try {
-            Map<String, Object> requiredUserClaims = JWTParser.parse(accessToken).getJWTClaimsSet().getClaims();
-            return requiredUserClaims.entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().toString()));
-        } catch (ParseException e) {
-            throw new IllegalArgumentException("Could not parse client token, non-JWT tokens are not allowed for claim-based revocation", e);
+    }
+
+    private static final class Decision {
+
+        private final boolean authorized;
+
+        private final int expiresAt;
+
+        private final long generation;
+
+        private Decision(final boolean authorized, final int expiresAt, final long generation) {
+            this.authorized = authorized;
+            this.expiresAt = expiresAt;
+            this.generation = generation;
         }
     }
 }
@@ -0,0 +1,203 @@
+package org.zalando.planb.revocation.util;
+
+import com.google.common.io.ByteStreams;
+import org.zalando.planb.revocation.domain.ImmutableRevocationInfo;
+import org.zalando.planb.revocation.domain.ImmutableRevocationList;
+import org.zalando.planb.revocation.domain.ImmutableRevokedClaimsInfo;
+import org.zalando.planb.revocation.domain.ImmutableRevokedGlobal;
+import org.zalando.planb.revocation.domain.ImmutableRevokedTokenInfo;
+import org.zalando.planb.revocation.domain.NotificationType;
+import org.zalando.planb.revocation.domain.RevocationList;
+import org.zalando.planb.revocation.domain.RevocationType;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.zalando.planb.revocation.util.BinaryRevocationListWriter.CLAIM;
+import static org.zalando.planb.revocation.util.BinaryRevocationListWriter.END;
+import static org.zalando.planb.revocation.util.BinaryRevocationListWriter.GLOBAL;
+import static org.zalando.planb.revocation.util.BinaryRevocationListWriter.INTEGER_VALUE;
+import static org.zalando.planb.revocation.util.BinaryRevocationListWriter.MAGIC;
+import static org.zalando.planb.revocation.util.BinaryRevocationListWriter.STRING_VALUE;
+import static org.zalando.planb.revocation.util.BinaryRevocationListWriter.TOKEN;
+import static org.zalando.planb.revocation.util.BinaryRevocationListWriter.VERSION;
+
+/**
+ * Reads revocation lists written by {@link BinaryRevocationListWriter}.
+ * <p>
+ * <p>Meta information of unknown {@link NotificationType}s is skipped.</p>
+ *
+ * @author <a href="mailto:team-greendale@zalando.de">Team Greendale</a>
+ */
+public final class BinaryRevocationListReader {
+
+    private final InputStream in;
+
+    private final List<String> dictionary = new ArrayList<>();
+
+    private int previousRevokedAt = 0;
+
+    private BinaryRevocationListReader(final InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Reads a revocation list from the specified stream.
+     *
+     * @param in the stream holding the encoded revocation list
+     * @return the decoded revocation list
+     * @throws IOException if the stream could not be read, or does not hold a valid revocation list
+     */
+    public static RevocationList read(final InputStream in) throws IOException {
+        return new BinaryRevocationListReader(new BufferedInputStream(in)).readList();
+    }
+
+    /**
+     * Decodes the specified revocation list.
+     *
+     * @param encoded the encoded revocation list
+     * @return the decoded revocation list
+     * @throws IOException if {@code encoded} does not hold a valid revocation list
+     */
+    public static RevocationList decode(final byte[] encoded) throws IOException {
+        return new BinaryRevocationListReader(new ByteArrayInputStream(encoded)).readList();
+    }
+
+    private RevocationList readList() throws IOException {
+        final byte[] magic = new byte[MAGIC.length];
+        ByteStreams.readFully(in, magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Not a binary revocation list");
+        }
+        final int version = readByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported binary revocation list version " + version);
+        }
+
+        final ImmutableRevocationList.Builder list = ImmutableRevocationList.builder();
+        int type;
+        while ((type = readByte()) != END) {
+            list.addRevocations(readRevocation(type));
+        }
+
+        final long entries = readVarint();
+        for (long i = 0; i < entries; i++) {
+            final String name = readString();
+            final int valueType = readByte();
+            final Object value;
+            if (valueType == INTEGER_VALUE) {
+                value = Math.toIntExact(unZigZag(readVarint()));
+            } else if (valueType == STRING_VALUE) {
+                value = readString();
+            } else {
+                throw new IOException("Unknown value type " + valueType + " of " + name);
+            }
+
+            try {
+                list.putMeta(NotificationType.valueOf(name), value);
+            } catch (IllegalArgumentException e) {
+
+                // Written by a newer server
+            }
+        }
+        return list.build();
+    }
+
+    private ImmutableRevocationInfo readRevocation(final int type) throws IOException {
+        final int revokedAt = Math.toIntExact(previousRevokedAt + unZigZag(readVarint()));
+        final int issuedBefore = Math.toIntExact(revokedAt + unZigZag(readVarint()));
+        previousRevokedAt = revokedAt;
+
+        final ImmutableRevocationInfo.Builder revocation = ImmutableRevocationInfo.builder().revokedAt(revokedAt);
+        switch (type) {
+            case TOKEN:
+                return revocation.type(RevocationType.TOKEN)
+                        .data(ImmutableRevokedTokenInfo.builder()
+                                .issuedBefore(issuedBefore)
+                                .hashAlgorithm(readString())
+                                .tokenHash(readHash())
+                                .build())
+                        .build();
+
+            case CLAIM:
+                final ImmutableRevokedClaimsInfo.Builder claims = ImmutableRevokedClaimsInfo.builder()
+                        .issuedBefore(issuedBefore)
+                        .hashAlgorithm(readString())
+                        .separator(readString().charAt(0));
+                final long names = readVarint();
+                for (long i = 0; i < names; i++) {
+                    claims.addNames(readString());
+                }
+                return revocation.type(RevocationType.CLAIM).data(claims.valueHash(readHash()).build()).build();
+
+            case GLOBAL:
+                return revocation.type(RevocationType.GLOBAL)
+                        .data(ImmutableRevokedGlobal.builder().issuedBefore(issuedBefore).build())
+                        .build();
+
+            default:
+                throw new IOException("Unknown revocation type " + type);
+        }
+    }
+
+    private String readString() throws IOException {
+        final long reference = readVarint();
+        if (reference != 0) {
+            if (reference > dictionary.size()) {
+                throw new IOException("Unknown string reference " + reference);
+            }
+            return dictionary.get((int) reference - 1);
+        }
+
+        final String value = new String(readBytes(readVarint()), UTF_8);
+        dictionary.add(value);
+        return value;
+    }
+
+    private String readHash() throws IOException {
+        final long header = readVarint();
+        final byte[] bytes = readBytes(header >>> 1);
+        return (header & 1) == 0 ? Base64.getUrlEncoder().encodeToString(bytes) : new String(bytes, UTF_8);
+    }
+
+    private byte[] readBytes(final long length) throws IOException {
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Invalid length " + length);
+        }
+        final byte[] bytes = new byte[(int) length];
+        ByteStreams.readFully(in, bytes);
+        return bytes;
+    }
+
+    private int readByte() throws IOException {
+        final int b = in.read();
+        if (b < 0) {
+            throw new EOFException();
+        }
+        return b;
+    }
+
+    private long readVarint() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            final int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable length integer");
+    }
+
+    private static long unZigZag(final long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
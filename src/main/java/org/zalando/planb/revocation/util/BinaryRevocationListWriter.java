@@ -0,0 +1,211 @@
+package org.zalando.planb.revocation.util;
+
+import org.zalando.planb.revocation.domain.NotificationType;
+import org.zalando.planb.revocation.domain.RevocationInfo;
+import org.zalando.planb.revocation.domain.RevocationList;
+import org.zalando.planb.revocation.domain.RevokedClaimsInfo;
+import org.zalando.planb.revocation.domain.RevokedGlobal;
+import org.zalando.planb.revocation.domain.RevokedInfo;
+import org.zalando.planb.revocation.domain.RevokedTokenInfo;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Writes a revocation list in a compact binary format, read by {@link BinaryRevocationListReader}.
+ * <p>
+ * <p>The list starts with the {@link #MAGIC} bytes and the format {@link #VERSION}, followed by one record per
+ * revocation and an end marker, and ends with the meta information. Each record starts with its type ({@code 1} for
+ * {@code TOKEN}, {@code 2} for {@code CLAIM} and {@code 3} for {@code GLOBAL}, {@code 0} ends the records), followed by
+ * the fields of the revocation:</p>
+ * <p>
+ * <ul>
+ * <li>{@code revoked_at}, as difference to the previous record, and {@code issued_before}, as difference to
+ * {@code revoked_at}. Both are ZigZag encoded variable length integers, usually one or two bytes long;</li>
+ * <li>for tokens, the hash algorithm and the raw bytes of the token hash;</li>
+ * <li>for claims, the hash algorithm, the separator, the claim names and the raw bytes of the value hash.</li>
+ * </ul>
+ * <p>
+ * <p>Strings are dictionary encoded: the first occurrence is written as {@code 0} followed by its length and UTF-8
+ * bytes, and later occurrences as their index in the dictionary plus one. Hashes are written as their length shifted
+ * left by one, followed by their raw bytes, unless they are not padded URL Base64, in which case the lowest bit is set
+ * and their UTF-8 bytes follow instead. The meta information is written as the number of entries, followed by the
+ * name of each {@link NotificationType}, a value type ({@code 0} for integers, {@code 1} for strings) and the
+ * value.</p>
+ *
+ * @author <a href="mailto:team-greendale@zalando.de">Team Greendale</a>
+ */
+public class BinaryRevocationListWriter implements RevocationListWriter {
+
+    /**
+     * Media type of revocation lists in this format.
+     */
+    public static final String MEDIA_TYPE_VALUE = "application/x.planb-revocation-list";
+
+    static final byte[] MAGIC = {'P', 'B', 'R', 'L'};
+
+    static final int VERSION = 1;
+
+    static final int END = 0;
+
+    static final int TOKEN = 1;
+
+    static final int CLAIM = 2;
+
+    static final int GLOBAL = 3;
+
+    static final int INTEGER_VALUE = 0;
+
+    static final int STRING_VALUE = 1;
+
+    private final OutputStream out;
+
+    private final Map<String, Integer> dictionary = new HashMap<>();
+
+    private int previousRevokedAt = 0;
+
+    /**
+     * Starts writing a revocation list to the specified stream.
+     *
+     * @param out the stream the list is written to
+     * @throws IOException if the start of the list could not be written
+     */
+    public BinaryRevocationListWriter(final OutputStream out) throws IOException {
+        this.out = new BufferedOutputStream(out);
+        this.out.write(MAGIC);
+        this.out.write(VERSION);
+    }
+
+    /**
+     * Encodes the specified revocation list.
+     *
+     * @param revocationList the revocation list
+     * @return the encoded revocation list
+     */
+    public static byte[] encode(final RevocationList revocationList) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            final BinaryRevocationListWriter writer = new BinaryRevocationListWriter(out);
+            for (RevocationInfo revocation : revocationList.revocations()) {
+                writer.write(revocation);
+            }
+            writer.finish(revocationList.meta());
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not write to memory", e);
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public void write(final RevocationInfo revocation) throws IOException {
+        final RevokedInfo data = revocation.data();
+        if (data instanceof RevokedTokenInfo) {
+            final RevokedTokenInfo token = (RevokedTokenInfo) data;
+            writeHeader(TOKEN, revocation.revokedAt(), token.issuedBefore());
+            writeString(token.hashAlgorithm());
+            writeHash(token.tokenHash());
+
+        } else if (data instanceof RevokedClaimsInfo) {
+            final RevokedClaimsInfo claims = (RevokedClaimsInfo) data;
+            writeHeader(CLAIM, revocation.revokedAt(), claims.issuedBefore());
+            writeString(claims.hashAlgorithm());
+            writeString(claims.separator().toString());
+            writeVarint(claims.names().size());
+            for (String name : claims.names()) {
+                writeString(name);
+            }
+            writeHash(claims.valueHash());
+
+        } else if (data instanceof RevokedGlobal) {
+            writeHeader(GLOBAL, revocation.revokedAt(), ((RevokedGlobal) data).issuedBefore());
+
+        } else {
+            throw new IllegalArgumentException("Unsupported revocation data: " + data);
+        }
+    }
+
+    @Override
+    public void finish(final Map<NotificationType, Object> meta) throws IOException {
+        out.write(END);
+        writeVarint(meta.size());
+        for (Map.Entry<NotificationType, Object> entry : meta.entrySet()) {
+            writeString(entry.getKey().name());
+            final Object value = entry.getValue();
+            if (value instanceof Integer || value instanceof Long) {
+                out.write(INTEGER_VALUE);
+                writeVarint(zigZag(((Number) value).longValue()));
+            } else if (value instanceof String) {
+                out.write(STRING_VALUE);
+                writeString((String) value);
+            } else {
+                throw new IllegalArgumentException("Unsupported value of " + entry.getKey() + ": " + value);
+            }
+        }
+        out.flush();
+    }
+
+    private void writeHeader(final int type, final int revokedAt, final int issuedBefore) throws IOException {
+        out.write(type);
+        writeVarint(zigZag((long) revokedAt - previousRevokedAt));
+        writeVarint(zigZag((long) issuedBefore - revokedAt));
+        previousRevokedAt = revokedAt;
+    }
+
+    private void writeString(final String value) throws IOException {
+        final Integer index = dictionary.get(value);
+        if (index != null) {
+            writeVarint(index + 1);
+            return;
+        }
+
+        dictionary.put(value, dictionary.size());
+        final byte[] bytes = value.getBytes(UTF_8);
+        writeVarint(0);
+        writeVarint(bytes.length);
+        out.write(bytes);
+    }
+
+    private void writeHash(final String hash) throws IOException {
+        final byte[] raw = decodeHash(hash);
+        if (raw != null) {
+            writeVarint((long) raw.length << 1);
+            out.write(raw);
+        } else {
+            final byte[] bytes = hash.getBytes(UTF_8);
+            writeVarint(((long) bytes.length << 1) | 1);
+            out.write(bytes);
+        }
+    }
+
+    /*
+     * Raw bytes of the hash, or null if encoding them again would not give back the same string.
+     */
+    private static byte[] decodeHash(final String hash) {
+        try {
+            final byte[] raw = Base64.getUrlDecoder().decode(hash);
+            return Arrays.equals(Base64.getUrlEncoder().encode(raw), hash.getBytes(UTF_8)) ? raw : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private void writeVarint(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long zigZag(final long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+}
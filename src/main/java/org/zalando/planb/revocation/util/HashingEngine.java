@@ -0,0 +1,163 @@
+package org.zalando.planb.revocation.util;
+
+import org.zalando.planb.revocation.domain.RevocationType;
+
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Hashes and encodes messages on behalf of a {@link MessageHasher}, reusing digests and buffers.
+ * <p>
+ * <p>Each thread owns one digest per revocation type, with the salt already absorbed, and byte buffers for the UTF-8
+ * encoded message, the digest and its Base64 encoding. After each hash the digest is reset and absorbs the salt again,
+ * so that only the returned {@code String} is allocated per hash.</p>
+ *
+ * @author <a href="mailto:team-greendale@zalando.de">Team Greendale</a>
+ */
+final class HashingEngine {
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder();
+
+    private final Map<RevocationType, String> algorithms = new EnumMap<>(RevocationType.class);
+
+    private final byte[] salt;
+
+    private final byte[] separator;
+
+    private final ThreadLocal<State> state = ThreadLocal.withInitial(State::new);
+
+    HashingEngine(final Map<RevocationType, String> algorithms, final String salt, final char separator) {
+        this.algorithms.putAll(algorithms);
+        this.salt = salt.getBytes(UTF_8);
+        this.separator = String.valueOf(separator).getBytes(UTF_8);
+    }
+
+    String hashAndEncode(final RevocationType type, final String... messages) throws NoSuchAlgorithmException {
+        final State s = state.get();
+        s.length = 0;
+        for (int i = 0; i < messages.length; i++) {
+            s.append(messages[i], i > 0);
+        }
+        return s.hashAndEncode(type, messages.length);
+    }
+
+    String hashAndEncode(final RevocationType type, final Iterable<String> messages) throws NoSuchAlgorithmException {
+        final State s = state.get();
+        s.length = 0;
+        int count = 0;
+        for (String message : messages) {
+            s.append(message, count++ > 0);
+        }
+        return s.hashAndEncode(type, count);
+    }
+
+    /**
+     * Buffers and digests owned by a single thread.
+     */
+    private final class State {
+
+        private final Map<RevocationType, MessageDigest> digests = new EnumMap<>(RevocationType.class);
+
+        private final Map<RevocationType, byte[]> digestBuffers = new EnumMap<>(RevocationType.class);
+
+        private byte[] message = new byte[256];
+
+        private int length;
+
+        private byte[] encoded = new byte[128];
+
+        /*
+         * Same output as String.getBytes(UTF_8), including the '?' replacement of unpaired surrogates.
+         */
+        private void append(final String value, final boolean separated) {
+            ensureMessageCapacity(length + separator.length + value.length() * 3);
+            if (separated) {
+                System.arraycopy(separator, 0, message, length, separator.length);
+                length += separator.length;
+            }
+
+            for (int i = 0; i < value.length(); i++) {
+                final char c = value.charAt(i);
+                if (c < 0x80) {
+                    message[length++] = (byte) c;
+                } else if (c < 0x800) {
+                    message[length++] = (byte) (0xc0 | (c >> 6));
+                    message[length++] = (byte) (0x80 | (c & 0x3f));
+                } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    final int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    message[length++] = (byte) (0xf0 | (codePoint >> 18));
+                    message[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                    message[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                    message[length++] = (byte) (0x80 | (codePoint & 0x3f));
+                } else if (Character.isSurrogate(c)) {
+                    message[length++] = '?';
+                } else {
+                    message[length++] = (byte) (0xe0 | (c >> 12));
+                    message[length++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                    message[length++] = (byte) (0x80 | (c & 0x3f));
+                }
+            }
+        }
+
+        private String hashAndEncode(final RevocationType type, final int count) throws NoSuchAlgorithmException {
+            if (count == 0) {
+                throw new IllegalArgumentException("No messages to hash");
+            }
+
+            final String algorithm = algorithms.get(type);
+            if (algorithm == null) {
+
+                // Nothing to hash, the message itself is encoded
+                return encode(Arrays.copyOf(message, length));
+            }
+
+            final MessageDigest digest = digest(type, algorithm);
+            final byte[] hashed = digestBuffers.get(type);
+            try {
+                digest.update(message, 0, length);
+                digest.digest(hashed, 0, hashed.length);
+            } catch (DigestException e) {
+                throw new IllegalStateException("Failed to hash message with " + algorithm, e);
+            } finally {
+                digest.reset();
+                digest.update(salt);
+            }
+            return encode(hashed);
+        }
+
+        private MessageDigest digest(final RevocationType type, final String algorithm)
+                throws NoSuchAlgorithmException {
+            MessageDigest digest = digests.get(type);
+            if (digest == null) {
+                digest = MessageDigest.getInstance(algorithm);
+                digest.update(salt);
+                digests.put(type, digest);
+                digestBuffers.put(type, new byte[digest.getDigestLength()]);
+            }
+            return digest;
+        }
+
+        private String encode(final byte[] hashed) {
+            final int encodedLength = 4 * ((hashed.length + 2) / 3);
+            if (encoded.length < encodedLength) {
+                encoded = new byte[encodedLength];
+            }
+            return new String(encoded, 0, ENCODER.encode(hashed, encoded), US_ASCII);
+        }
+
+        private void ensureMessageCapacity(final int capacity) {
+            if (message.length < capacity) {
+                message = Arrays.copyOf(message, Math.max(capacity, message.length * 2));
+            }
+        }
+    }
+}
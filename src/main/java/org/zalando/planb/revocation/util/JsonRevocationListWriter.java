@@ -0,0 +1,55 @@
+package org.zalando.planb.revocation.util;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.google.common.collect.ImmutableMap;
+import org.zalando.planb.revocation.domain.NotificationType;
+import org.zalando.planb.revocation.domain.RevocationInfo;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+
+/**
+ * Writes a revocation list as {@code {"revocations":[...],"meta":{...}}} with a {@link JsonGenerator}.
+ * <p>
+ * <p>The meta information comes last, since it is only known once all revocations were written. A writer that is not
+ * finished leaves the JSON incomplete, so that clients can not mistake a failed response for a complete one.</p>
+ *
+ * @author <a href="mailto:team-greendale@zalando.de">Team Greendale</a>
+ */
+public class JsonRevocationListWriter implements RevocationListWriter {
+
+    private final RevocationJsonCodec codec;
+
+    private final JsonGenerator generator;
+
+    /**
+     * Starts writing a revocation list to the specified stream.
+     *
+     * @param codec the writers used to serialize revocations and meta information
+     * @param out   the stream the list is written to
+     * @throws IOException if the start of the list could not be written
+     */
+    public JsonRevocationListWriter(final RevocationJsonCodec codec, final OutputStream out) throws IOException {
+        this.codec = codec;
+        generator = codec.getObjectMapper().getFactory().createGenerator(out, JsonEncoding.UTF8)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.writeStartObject();
+        generator.writeArrayFieldStart("revocations");
+    }
+
+    @Override
+    public void write(final RevocationInfo revocation) throws IOException {
+        codec.writerFor(revocation).writeValue(generator, revocation);
+    }
+
+    @Override
+    public void finish(final Map<NotificationType, Object> meta) throws IOException {
+        generator.writeEndArray();
+        generator.writeFieldName("meta");
+        codec.writerFor(meta).writeValue(generator, ImmutableMap.copyOf(meta));
+        generator.writeEndObject();
+        generator.close();
+    }
+}
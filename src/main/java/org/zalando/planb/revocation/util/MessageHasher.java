@@ -2,13 +2,22 @@ package org.zalando.planb.revocation.util;
 
 import org.immutables.value.Value;
 import org.zalando.planb.revocation.domain.RevocationType;
+import org.zalando.planb.revocation.domain.RevokedClaimsData;
+import org.zalando.planb.revocation.domain.RevokedData;
+import org.zalando.planb.revocation.domain.RevokedTokenData;
 
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Base64;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
 import java.util.Map;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 /**
  * Utility class to hash messages.
  *
@@ -45,6 +54,29 @@ public abstract class MessageHasher {
      */
     public abstract Character separator();
 
+    /**
+     * Returns a fingerprint of the hashing configuration of each revocation type.
+     * <p>
+     * <p>Hashes computed with the same algorithm, salt and separator share the same fingerprint, so a stored hash can
+     * be reused as long as its fingerprint matches the current one. The fingerprint does not disclose the salt.</p>
+     *
+     * @return a map with the fingerprint of each revocation type
+     */
+    @Value.Lazy
+    public Map<RevocationType, String> fingerprints() {
+        Map<RevocationType, String> fingerprints = new EnumMap<>(RevocationType.class);
+        for (RevocationType type : RevocationType.values()) {
+            String configuration = hashingAlgorithms().getOrDefault(type, "") + '\0' + separator() + '\0' + salt();
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-256").digest(configuration.getBytes(UTF_8));
+                fingerprints.put(type, Base64.getUrlEncoder().withoutPadding().encodeToString(digest).substring(0, 16));
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not supported", e);
+            }
+        }
+        return Collections.unmodifiableMap(fingerprints);
+    }
+
     /**
      * Hashes the specified messages using the algorithm specified by the <code>RevocationType</code> parameter. Returns
      * a Base64 URL encoding of the Hash.
@@ -56,23 +88,7 @@ public abstract class MessageHasher {
      * @return a Base64 URL encoded version of the hash.
      */
     public String hashAndEncode(final RevocationType type, final String... messages) throws NoSuchAlgorithmException {
-
-        StringBuilder messageConcatenated = new StringBuilder();
-        for (String message : messages) {
-            messageConcatenated.append(message);
-            messageConcatenated.append(separator());
-        }
-
-        String message = messageConcatenated.substring(0, messageConcatenated.length() - 1);
-
-        byte[] hashed = message.getBytes();
-
-        if (hashingAlgorithms().containsKey(type)) {
-            String algorithm = hashingAlgorithms().get(type);
-            hashed = MessageDigest.getInstance(algorithm).digest((salt() + message).getBytes());
-        }
-
-        return Base64.getUrlEncoder().encodeToString(hashed);
+        return engine().hashAndEncode(type, messages);
     }
 
     /**
@@ -86,6 +102,42 @@ public abstract class MessageHasher {
      * @return a Base64 URL encoded version of the hash.
      */
     public String hashAndEncode(final RevocationType type, final Collection<String> messages) throws NoSuchAlgorithmException {
-        return hashAndEncode(type, messages.toArray(new String[]{}));
+        return engine().hashAndEncode(type, messages);
+    }
+
+    /**
+     * Hashes the revoked token or claim values of the specified revocation data, the same way as exposed in the API.
+     *
+     * @param data the revocation data
+     * @return a Base64 URL encoded version of the hash, or {@code null} if the revocation has no values to hash
+     */
+    public String hashAndEncode(final RevokedData data) throws NoSuchAlgorithmException {
+        if (data instanceof RevokedTokenData) {
+            return engine().hashAndEncode(RevocationType.TOKEN, ((RevokedTokenData) data).token());
+        } else if (data instanceof RevokedClaimsData) {
+            return engine().hashAndEncode(RevocationType.CLAIM, ((RevokedClaimsData) data).claims().values());
+        }
+        return null;
+    }
+
+    /**
+     * Hashes the revoked token or claim values of each of the specified revocation data.
+     *
+     * @param data the revocation data, may contain {@code null} elements
+     * @return a list with the Base64 URL encoded hash of each element, or {@code null} for elements without values to
+     * hash
+     * @see MessageHasher#hashAndEncode(RevokedData)
+     */
+    public List<String> hashAndEncode(final List<? extends RevokedData> data) throws NoSuchAlgorithmException {
+        List<String> hashes = new ArrayList<>(data.size());
+        for (RevokedData element : data) {
+            hashes.add(hashAndEncode(element));
+        }
+        return hashes;
+    }
+
+    @Value.Lazy
+    HashingEngine engine() {
+        return new HashingEngine(hashingAlgorithms(), salt(), separator());
     }
 }
@@ -0,0 +1,125 @@
+package org.zalando.planb.revocation.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.google.common.collect.ImmutableMap;
+import org.zalando.planb.revocation.domain.ImmutableRevocationInfo;
+import org.zalando.planb.revocation.domain.ImmutableRevocationList;
+import org.zalando.planb.revocation.domain.ImmutableRevokedClaimsData;
+import org.zalando.planb.revocation.domain.ImmutableRevokedGlobal;
+import org.zalando.planb.revocation.domain.ImmutableRevokedTokenData;
+import org.zalando.planb.revocation.domain.RevocationList;
+import org.zalando.planb.revocation.domain.RevocationType;
+import org.zalando.planb.revocation.domain.RevokedClaimsData;
+import org.zalando.planb.revocation.domain.RevokedData;
+import org.zalando.planb.revocation.domain.RevokedGlobal;
+import org.zalando.planb.revocation.domain.RevokedTokenData;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Pre-built {@link ObjectReader}s and {@link ObjectWriter}s for the types read and written for every revocation.
+ * <p>
+ * <p>Readers and writers are built once for their type from the application's {@link ObjectMapper}, so that they share
+ * its configuration, but do not look up their (de)serializer on every call. Values of other classes than the generated
+ * immutable ones, e.g. test doubles, are written with a generic writer.</p>
+ * <p>
+ * <p>Thread safe.</p>
+ *
+ * @author <a href="mailto:team-greendale@zalando.de">Team Greendale</a>
+ */
+public class RevocationJsonCodec {
+
+    private final ObjectMapper objectMapper;
+
+    private final Map<RevocationType, ObjectReader> dataReaders = new EnumMap<>(RevocationType.class);
+
+    private final Map<Class<?>, ObjectWriter> writers;
+
+    private final ObjectWriter genericWriter;
+
+    private final ObjectReader revocationListReader;
+
+    /**
+     * Constructs a new codec.
+     *
+     * @param objectMapper the mapper the readers and writers are built from
+     */
+    public RevocationJsonCodec(final ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+
+        dataReaders.put(RevocationType.TOKEN, objectMapper.readerFor(RevokedTokenData.class));
+        dataReaders.put(RevocationType.CLAIM, objectMapper.readerFor(RevokedClaimsData.class));
+        dataReaders.put(RevocationType.GLOBAL, objectMapper.readerFor(RevokedGlobal.class));
+        revocationListReader = objectMapper.readerFor(RevocationList.class);
+
+        genericWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        writers = ImmutableMap.<Class<?>, ObjectWriter>builder()
+                .put(ImmutableRevokedTokenData.class, genericWriter.forType(ImmutableRevokedTokenData.class))
+                .put(ImmutableRevokedClaimsData.class, genericWriter.forType(ImmutableRevokedClaimsData.class))
+                .put(ImmutableRevokedGlobal.class, genericWriter.forType(ImmutableRevokedGlobal.class))
+                .put(ImmutableRevocationInfo.class, genericWriter.forType(ImmutableRevocationInfo.class))
+                .put(ImmutableRevocationList.class, genericWriter.forType(ImmutableRevocationList.class))
+                .build();
+    }
+
+    /**
+     * Returns the mapper the readers and writers were built from.
+     *
+     * @return the object mapper
+     */
+    public ObjectMapper getObjectMapper() {
+        return objectMapper;
+    }
+
+    /**
+     * Reads the data of a revocation, as stored.
+     *
+     * @param type the type of the revocation
+     * @param json the data of the revocation
+     * @return the data, as {@link RevokedTokenData}, {@link RevokedClaimsData} or {@link RevokedGlobal} depending on
+     * the type
+     * @throws IOException if the data could not be read
+     */
+    public RevokedData readData(final RevocationType type, final String json) throws IOException {
+        return dataReaders.get(type).readValue(json);
+    }
+
+    /**
+     * Returns the reader for revocation lists.
+     *
+     * @return the reader, for reading {@link RevocationList}s
+     */
+    public ObjectReader revocationListReader() {
+        return revocationListReader;
+    }
+
+    /**
+     * Returns a writer for the specified value, pre-built for the generated immutable revocation types.
+     * <p>
+     * <p>Writers do not flush after each value, so that writing many values into one generator stays buffered.</p>
+     *
+     * @param value the value to be written
+     * @return the writer for the class of the value
+     */
+    public ObjectWriter writerFor(final Object value) {
+        final ObjectWriter writer = writers.get(value.getClass());
+        return writer != null ? writer : genericWriter;
+    }
+
+    /**
+     * Writes a value as a string.
+     *
+     * @param value the value, e.g. the data of a revocation to be stored
+     * @return the JSON representation of the value
+     * @throws JsonProcessingException if the value could not be written
+     */
+    public String writeValueAsString(final Object value) throws JsonProcessingException {
+        return writerFor(value).writeValueAsString(value);
+    }
+}
@@ -0,0 +1,34 @@
+package org.zalando.planb.revocation.util;
+
+import org.zalando.planb.revocation.domain.NotificationType;
+import org.zalando.planb.revocation.domain.RevocationInfo;
+import org.zalando.planb.revocation.domain.RevocationList;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Writes a {@link RevocationList} incrementally, one revocation at a time, followed by its meta information.
+ * <p>
+ * <p>The underlying stream is flushed but not closed by {@link #finish(Map)}.</p>
+ *
+ * @author <a href="mailto:team-greendale@zalando.de">Team Greendale</a>
+ */
+public interface RevocationListWriter {
+
+    /**
+     * Writes the next revocation of the list.
+     *
+     * @param revocation the revocation
+     * @throws IOException if the revocation could not be written
+     */
+    void write(RevocationInfo revocation) throws IOException;
+
+    /**
+     * Writes the meta information, which ends the list.
+     *
+     * @param meta the meta information of the list
+     * @throws IOException if the meta information could not be written
+     */
+    void finish(Map<NotificationType, Object> meta) throws IOException;
+}
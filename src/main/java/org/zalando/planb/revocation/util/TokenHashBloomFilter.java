@@ -0,0 +1,159 @@
+package org.zalando.planb.revocation.util;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+/**
+ * Bloom filter of revoked token hashes, as returned in {@code token_hash} by the revocations endpoint.
+ * <p>
+ * <p>The filter is simple to implement by clients: the URL Base64 token hash is decoded, and its first two 8 byte big
+ * endian words {@code h1} and {@code h2} give the bit indexes {@code (h1 + i * h2) mod numBits}, for {@code i} from
+ * {@code 0} to {@code numHashFunctions - 1}, using unsigned arithmetic. Bit {@code j} is bit {@code j mod 8} of byte
+ * {@code j / 8}, starting with the least significant bit. Token hashes are digests, so no further hashing is needed.
+ * </p>
+ * <p>
+ * <p>Not thread safe.</p>
+ *
+ * @author <a href="mailto:team-greendale@zalando.de">Team Greendale</a>
+ */
+public class TokenHashBloomFilter {
+
+    private final byte[] bits;
+
+    private final int numBits;
+
+    private final int numHashFunctions;
+
+    private int insertions;
+
+    private TokenHashBloomFilter(final byte[] bits, final int numBits, final int numHashFunctions,
+                                 final int insertions) {
+        if (numBits <= 0 || numHashFunctions <= 0 || bits.length != (numBits + 7) / 8) {
+            throw new IllegalArgumentException("Invalid filter of " + numBits + " bits and " + numHashFunctions
+                    + " hash functions");
+        }
+        this.bits = bits;
+        this.numBits = numBits;
+        this.numHashFunctions = numHashFunctions;
+        this.insertions = insertions;
+    }
+
+    /**
+     * Creates an empty filter sized for the specified number of token hashes and false positive probability.
+     *
+     * @param expectedInsertions        the number of token hashes expected to be put into the filter
+     * @param falsePositiveProbability the probability of {@link #mightContain(String)} returning {@code true} for a
+     *                                  hash that was not put, once the expected number of hashes was put
+     * @return the empty filter
+     */
+    public static TokenHashBloomFilter create(final int expectedInsertions, final double falsePositiveProbability) {
+        if (expectedInsertions <= 0 || falsePositiveProbability <= 0 || falsePositiveProbability >= 1) {
+            throw new IllegalArgumentException("Invalid filter size: " + expectedInsertions + " insertions at "
+                    + falsePositiveProbability + " false positive probability");
+        }
+
+        final double ln2 = Math.log(2);
+        final int numBits = (int) Math.min(Integer.MAX_VALUE - 7,
+                Math.ceil(-expectedInsertions * Math.log(falsePositiveProbability) / (ln2 * ln2)));
+        final int numHashFunctions = Math.max(1, (int) Math.round((double) numBits / expectedInsertions * ln2));
+        return new TokenHashBloomFilter(new byte[(numBits + 7) / 8], numBits, numHashFunctions, 0);
+    }
+
+    /**
+     * Restores a filter from its parameters and bits.
+     *
+     * @param bits             the bits of the filter, as returned by {@link #toByteArray()}
+     * @param numBits          the number of bits of the filter
+     * @param numHashFunctions the number of hash functions of the filter
+     * @return the filter, holding a copy of {@code bits}
+     * @throws IllegalArgumentException if the parameters do not match the bits
+     */
+    public static TokenHashBloomFilter of(final byte[] bits, final int numBits, final int numHashFunctions) {
+        return new TokenHashBloomFilter(bits.clone(), numBits, numHashFunctions, 0);
+    }
+
+    /**
+     * Puts a token hash into the filter.
+     *
+     * @param tokenHash the token hash, in URL Base64 encoding
+     * @return {@code true} if bits of the filter changed
+     * @throws IllegalArgumentException if the hash is not URL Base64, or shorter than 16 bytes
+     */
+    public boolean put(final String tokenHash) {
+        final ByteBuffer hash = decode(tokenHash);
+        final long h1 = hash.getLong();
+        final long h2 = hash.getLong();
+
+        boolean changed = false;
+        for (int i = 0; i < numHashFunctions; i++) {
+            final int index = index(h1, h2, i);
+            final byte mask = (byte) (1 << (index & 7));
+            changed |= (bits[index >>> 3] & mask) == 0;
+            bits[index >>> 3] |= mask;
+        }
+        if (changed) {
+            insertions++;
+        }
+        return changed;
+    }
+
+    /**
+     * Returns whether the token hash might have been put into the filter.
+     *
+     * @param tokenHash the token hash, in URL Base64 encoding
+     * @return {@code false} if the hash was definitely not put
+     * @throws IllegalArgumentException if the hash is not URL Base64, or shorter than 16 bytes
+     */
+    public boolean mightContain(final String tokenHash) {
+        final ByteBuffer hash = decode(tokenHash);
+        final long h1 = hash.getLong();
+        final long h2 = hash.getLong();
+
+        for (int i = 0; i < numHashFunctions; i++) {
+            final int index = index(h1, h2, i);
+            if ((bits[index >>> 3] & (1 << (index & 7))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int index(final long h1, final long h2, final int i) {
+        return (int) Long.remainderUnsigned(h1 + i * h2, numBits);
+    }
+
+    private static ByteBuffer decode(final String tokenHash) {
+        final byte[] hash = Base64.getUrlDecoder().decode(tokenHash);
+        if (hash.length < 16) {
+            throw new IllegalArgumentException("Token hash is shorter than 16 bytes: " + tokenHash);
+        }
+        return ByteBuffer.wrap(hash);
+    }
+
+    /**
+     * Returns a copy of the bits of the filter.
+     *
+     * @return the bits of the filter
+     */
+    public byte[] toByteArray() {
+        return bits.clone();
+    }
+
+    public int getNumBits() {
+        return numBits;
+    }
+
+    public int getNumHashFunctions() {
+        return numHashFunctions;
+    }
+
+    /**
+     * Returns the number of hashes put into the filter since it was created, not counting the ones that did not change
+     * any bit, like hashes put before.
+     *
+     * @return the number of insertions
+     */
+    public int getInsertions() {
+        return insertions;
+    }
+}
@@ -14,42 +14,52 @@ import org.zalando.planb.revocation.api.exception.SerializationException;
 import org.zalando.planb.revocation.api.impl.NotificationResourceImpl;
 import org.zalando.planb.revocation.domain.NotificationType;
 import org.zalando.planb.revocation.persistence.RevocationStore;
+import org.zalando.planb.revocation.persistence.RevocationTailer;
 
 public class NotificationResourceImplTest {
 
     private MockMvc mockMvc;
     private RevocationStore revocationStore;
+    private RevocationTailer revocationTailer;
 
     @Before
     public void setUp() {
         revocationStore = Mockito.mock(RevocationStore.class);
-        mockMvc = standaloneSetup(new NotificationResourceImpl(revocationStore))
+        revocationTailer = Mockito.mock(RevocationTailer.class);
+        mockMvc = standaloneSetup(new NotificationResourceImpl(revocationStore, revocationTailer))
                 .setControllerAdvice(new ExceptionsResource())
                 .alwaysDo(print()).build();
     }
 
     @Test(expected = IllegalArgumentException.class)
     public void typeNotSettableThrowsException() {
-        NotificationResourceImpl resource = new NotificationResourceImpl(revocationStore);
+        NotificationResourceImpl resource = new NotificationResourceImpl(revocationStore, revocationTailer);
         resource.post(NotificationType.REFRESH_TIMESTAMP, null);
     }
 
     @Test(expected = IllegalArgumentException.class)
     public void valueIsNullThrowsException() {
-        NotificationResourceImpl resource = new NotificationResourceImpl(revocationStore);
+        NotificationResourceImpl resource = new NotificationResourceImpl(revocationStore, revocationTailer);
         resource.post(NotificationType.REFRESH_FROM, null);
     }
 
     @Test(expected = IllegalArgumentException.class)
     public void valueNotParseableIntegerThrowsException() {
-        NotificationResourceImpl resource = new NotificationResourceImpl(revocationStore);
+        NotificationResourceImpl resource = new NotificationResourceImpl(revocationStore, revocationTailer);
         resource.post(NotificationType.REFRESH_FROM, "NotAnInteger");
     }
 
     @Test(expected = SerializationException.class)
     public void storageUnableToStoreFromThrowsException() {
-        NotificationResourceImpl resource = new NotificationResourceImpl(revocationStore);
+        NotificationResourceImpl resource = new NotificationResourceImpl(revocationStore, revocationTailer);
         Mockito.doThrow(new SerializationException()).when(revocationStore).storeRefresh(12);
         resource.post(NotificationType.REFRESH_FROM, "12");
     }
+
+    @Test
+    public void storingRefreshTailsRightAway() {
+        NotificationResourceImpl resource = new NotificationResourceImpl(revocationStore, revocationTailer);
+        resource.post(NotificationType.REFRESH_FROM, "12");
+        Mockito.verify(revocationTailer).requestTail();
+    }
 }
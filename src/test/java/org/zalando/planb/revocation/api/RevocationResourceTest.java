@@ -1,6 +1,9 @@
 package org.zalando.planb.revocation.api;
 
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import exclude.from.componentscan.NoopRevocationAuthorizationConfig;
+import com.jayway.jsonpath.JsonPath;
 import org.junit.Before;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -8,8 +11,10 @@ import org.springframework.boot.test.SpringApplicationConfiguration;
 import org.springframework.boot.test.WebIntegrationTest;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
@@ -19,9 +24,31 @@ import org.zalando.planb.revocation.Main;
 import org.zalando.planb.revocation.config.properties.CassandraProperties;
 import org.zalando.planb.revocation.config.properties.RevocationProperties;
 import org.zalando.planb.revocation.domain.Problem;
+import org.zalando.planb.revocation.domain.RevocationDigest;
+import org.zalando.planb.revocation.domain.RevocationList;
+import org.zalando.planb.revocation.domain.RevocationType;
+import org.zalando.planb.revocation.domain.RevokedTokenInfo;
 import org.zalando.planb.revocation.util.ApiGuildCompliance;
+import org.zalando.planb.revocation.util.BinaryRevocationListReader;
+import org.zalando.planb.revocation.util.BinaryRevocationListWriter;
 import org.zalando.planb.revocation.util.InstantTimestamp;
-
+import org.zalando.planb.revocation.util.TokenHashBloomFilter;
+import org.zalando.planb.revocation.util.UnixTimestamp;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 /**
@@ -47,6 +74,12 @@ public class RevocationResourceTest extends AbstractSpringTest {
     @Autowired
     private CassandraProperties cassandraProperties;
 
+    @Autowired
+    private MetricRegistry metricRegistry;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     private MockMvc mvc;
 
     @Before
@@ -204,6 +237,300 @@ public class RevocationResourceTest extends AbstractSpringTest {
         ApiGuildCompliance.isStandardProblem(result);
     }
 
+    /**
+     * Tests that {@code GET}ing revocations with a current {@code If-None-Match} returns {@code HTTP NOT_MODIFIED},
+     * until a new revocation is stored.
+     */
+    @Test
+    public void testNotModifiedWhenETagMatches() throws Exception {
+        String from = String.valueOf(InstantTimestamp.ONE_HOUR_AGO.seconds());
+        long notModified = metricRegistry.counter("planb.revocations.responses.notModified").getCount();
+
+        String etag = mvc.perform(MockMvcRequestBuilders.get("/revocations?from=" + from))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(etag).isNotEmpty();
+
+        mvc.perform(MockMvcRequestBuilders.get("/revocations?from=" + from).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        assertThat(metricRegistry.counter("planb.revocations.responses.notModified").getCount())
+                .isEqualTo(notModified + 1);
+
+        String claimRevocation = "{ \"type\": \"CLAIM\", \"data\": {\"claims\":{\"uid\":\"3035729288\"}} }";
+        mvc.perform(MockMvcRequestBuilders.post("/revocations").contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.AUTHORIZATION, VALID_ACCESS_TOKEN).content(claimRevocation))
+                .andExpect(status().isCreated());
+
+        mvc.perform(MockMvcRequestBuilders.get("/revocations?from=" + from).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, not(etag)));
+    }
+
+    /**
+     * Tests that {@code GET}ing revocations with the returned cursor only returns newer revocations, even within the
+     * same second.
+     */
+    @Test
+    public void testCursorReturnsOnlyNewerRevocations() throws Exception {
+        String claimRevocation = "{ \"type\": \"CLAIM\", \"data\": {\"claims\":{\"uid\":\"5544332211\"}} }";
+        mvc.perform(MockMvcRequestBuilders.post("/revocations").contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.AUTHORIZATION, VALID_ACCESS_TOKEN).content(claimRevocation))
+                .andExpect(status().isCreated());
+
+        String cursor = JsonPath.read(mvc.perform(MockMvcRequestBuilders.get("/revocations?from="
+                + InstantTimestamp.ONE_HOUR_AGO.seconds()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(), "$.meta.CURSOR");
+
+        mvc.perform(MockMvcRequestBuilders.get("/revocations?cursor=" + cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.revocations", empty()))
+                .andExpect(jsonPath("$.meta.CURSOR").value(cursor));
+
+        mvc.perform(MockMvcRequestBuilders.post("/revocations").contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.AUTHORIZATION, VALID_ACCESS_TOKEN).content(claimRevocation))
+                .andExpect(status().isCreated());
+
+        mvc.perform(MockMvcRequestBuilders.get("/revocations?cursor=" + cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.revocations", hasSize(1)))
+                .andExpect(jsonPath("$.meta.CURSOR").value(not(cursor)));
+    }
+
+    /**
+     * Tests that revocations written page by page make up the same response as when written in a single page, and that
+     * the size of the streamed response is recorded.
+     */
+    @Test
+    public void testRevocationsAreWrittenPageByPage() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            String claimRevocation = "{ \"type\": \"CLAIM\", \"data\": {\"claims\":{\"uid\":\"10" + i + "\"}} }";
+            mvc.perform(MockMvcRequestBuilders.post("/revocations").contentType(MediaType.APPLICATION_JSON)
+                    .header(HttpHeaders.AUTHORIZATION, VALID_ACCESS_TOKEN).content(claimRevocation))
+                    .andExpect(status().isCreated());
+        }
+        String from = String.valueOf(InstantTimestamp.ONE_HOUR_AGO.seconds());
+        long recordedSizes = metricRegistry.histogram("planb.revocations.responseSize").getCount();
+
+        String singlePage = mvc.perform(MockMvcRequestBuilders.get("/revocations?from=" + from))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse().getContentAsString();
+
+        int fetchSize = cassandraProperties.getFetchSize();
+        cassandraProperties.setFetchSize(2);
+        try {
+            mvc.perform(MockMvcRequestBuilders.get("/revocations?from=" + from))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.revocations", hasSize(greaterThanOrEqualTo(5))))
+                    .andExpect(content().string(singlePage));
+        } finally {
+            cassandraProperties.setFetchSize(fetchSize);
+        }
+        assertThat(metricRegistry.histogram("planb.revocations.responseSize").getCount())
+                .isEqualTo(recordedSizes + 2);
+    }
+
+    /**
+     * Tests that {@code GET}ing revocations accepting the binary media type returns the same revocation list as JSON,
+     * with its own {@code ETag}.
+     */
+    @Test
+    public void testBinaryRevocationListWhenAccepted() throws Exception {
+        String claimRevocation = "{ \"type\": \"CLAIM\", \"data\": {\"claims\":{\"uid\":\"7766554433\"}} }";
+        mvc.perform(MockMvcRequestBuilders.post("/revocations").contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.AUTHORIZATION, VALID_ACCESS_TOKEN).content(claimRevocation))
+                .andExpect(status().isCreated());
+        String from = String.valueOf(InstantTimestamp.ONE_HOUR_AGO.seconds());
+
+        MockHttpServletResponse json = mvc.perform(MockMvcRequestBuilders.get("/revocations?from=" + from)
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn().getResponse();
+        MockHttpServletResponse binary = mvc.perform(MockMvcRequestBuilders.get("/revocations?from=" + from)
+                .header(HttpHeaders.ACCEPT, "application/json;q=0.5, " + BinaryRevocationListWriter.MEDIA_TYPE_VALUE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(BinaryRevocationListWriter.MEDIA_TYPE_VALUE))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+                .andReturn().getResponse();
+
+        RevocationList decoded = BinaryRevocationListReader.decode(binary.getContentAsByteArray());
+        assertThat(decoded.revocations()).isNotEmpty();
+        assertThat(decoded).isEqualTo(objectMapper.readValue(json.getContentAsString(), RevocationList.class));
+        assertThat(binary.getHeader(HttpHeaders.ETAG)).isNotEqualTo(json.getHeader(HttpHeaders.ETAG));
+    }
+
+    /**
+     * Tests that {@code GET}ing revocations with an invalid cursor returns a HTTP {@code BAD_REQUEST}.
+     */
+    @Test
+    public void testBadRequestWhenInvalidCursorOnGet() throws Exception {
+        ResultActions result = mvc.perform(MockMvcRequestBuilders.get("/revocations?cursor=yesterday"));
+
+        result.andExpect(status().isBadRequest());
+
+        ApiGuildCompliance.isStandardProblem(result);
+    }
+
+    /**
+     * Tests that {@code GET}ing revocations with {@code wait} holds the request open until a new revocation is stored.
+     */
+    @Test
+    public void testWaitingUntilRevocationIsStored() throws Exception {
+        int from = UnixTimestamp.now();
+        MvcResult waiting = mvc.perform(MockMvcRequestBuilders.get("/revocations?from=" + from + "&wait=30"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        assertThatThrownBy(() -> waiting.getAsyncResult(100)).isInstanceOf(IllegalStateException.class);
+
+        // Revoked after from
+        while (UnixTimestamp.now() <= from) {
+            Thread.sleep(50);
+        }
+        String claimRevocation = "{ \"type\": \"CLAIM\", \"data\": {\"claims\":{\"uid\":\"1234567890\"}} }";
+        mvc.perform(MockMvcRequestBuilders.post("/revocations").contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.AUTHORIZATION, VALID_ACCESS_TOKEN).content(claimRevocation))
+                .andExpect(status().isCreated());
+
+        mvc.perform(MockMvcRequestBuilders.asyncDispatch(waiting))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.revocations", hasSize(1)))
+                .andExpect(jsonPath("$.revocations[0].type").value("CLAIM"));
+    }
+
+    /**
+     * Tests that {@code GET}ing revocations with {@code wait} responds right away when there are revocations already.
+     */
+    @Test
+    public void testNoWaitingWhenRevocationsExist() throws Exception {
+        String claimRevocation = "{ \"type\": \"CLAIM\", \"data\": {\"claims\":{\"uid\":\"0987654321\"}} }";
+        mvc.perform(MockMvcRequestBuilders.post("/revocations").contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.AUTHORIZATION, VALID_ACCESS_TOKEN).content(claimRevocation))
+                .andExpect(status().isCreated());
+
+        String from = String.valueOf(InstantTimestamp.ONE_HOUR_AGO.seconds());
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/revocations?from=" + from + "&wait=30"))
+                .andExpect(request().asyncStarted())
+                .andExpect(request().asyncResult(notNullValue()))
+                .andReturn();
+
+        mvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.revocations", not(empty())));
+    }
+
+    /**
+     * Tests that the digest holds the hashes of revoked tokens as returned by the revocations endpoint, and that it
+     * changes when a token is revoked.
+     */
+    @Test
+    public void testDigestHoldsRevokedTokenHashes() throws Exception {
+        String etag = mvc.perform(MockMvcRequestBuilders.get("/revocations/digest"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mvc.perform(MockMvcRequestBuilders.get("/revocations/digest").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        String tokenRevocation = "{ \"type\": \"TOKEN\", \"data\": {\"token\":\"digest.test.token\"} }";
+        mvc.perform(MockMvcRequestBuilders.post("/revocations").contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.AUTHORIZATION, VALID_ACCESS_TOKEN).content(tokenRevocation))
+                .andExpect(status().isCreated());
+
+        RevocationList revocations = objectMapper.readValue(mvc.perform(MockMvcRequestBuilders.get(
+                "/revocations?from=" + InstantTimestamp.ONE_HOUR_AGO.seconds()))
+                .andReturn().getResponse().getContentAsString(), RevocationList.class);
+        MockHttpServletResponse response = mvc.perform(MockMvcRequestBuilders.get("/revocations/digest")
+                .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, not(etag)))
+                .andReturn().getResponse();
+        RevocationDigest digest = objectMapper.readValue(response.getContentAsString(), RevocationDigest.class);
+
+        TokenHashBloomFilter filter = TokenHashBloomFilter.of(digest.bits(), digest.numBits(),
+                digest.numHashFunctions());
+        revocations.revocations().stream()
+                .filter(revocation -> revocation.type() == RevocationType.TOKEN)
+                .forEach(revocation -> assertThat(filter.mightContain(
+                        ((RevokedTokenInfo) revocation.data()).tokenHash())).isTrue());
+        assertThat(digest.insertions()).isGreaterThanOrEqualTo(1);
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo("\"" + digest.generation() + "\"");
+    }
+
+    /**
+     * Tests that the revocation stream sends stored revocations, and resumes after the last event.
+     */
+    @Test
+    public void testStreamResumesAfterLastEvent() throws Exception {
+        String claimRevocation = "{ \"type\": \"CLAIM\", \"data\": {\"claims\":{\"uid\":\"1122334455\"}} }";
+        mvc.perform(MockMvcRequestBuilders.post("/revocations").contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.AUTHORIZATION, VALID_ACCESS_TOKEN).content(claimRevocation))
+                .andExpect(status().isCreated());
+
+        String from = String.valueOf(InstantTimestamp.ONE_HOUR_AGO.seconds());
+        MvcResult streaming = mvc.perform(MockMvcRequestBuilders.get("/revocations/stream?from=" + from)
+                .accept("text/event-stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        awaitContent(streaming, "event:revocation");
+        String events = awaitQuiet(streaming);
+
+        // The id of the last event sent
+        Matcher ids = Pattern.compile("id:(.*)").matcher(events);
+        String lastEventId = null;
+        while (ids.find()) {
+            lastEventId = ids.group(1);
+        }
+
+        mvc.perform(MockMvcRequestBuilders.post("/revocations").contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.AUTHORIZATION, VALID_ACCESS_TOKEN).content(claimRevocation))
+                .andExpect(status().isCreated());
+
+        MvcResult resumed = mvc.perform(MockMvcRequestBuilders.get("/revocations/stream")
+                .accept("text/event-stream").header("Last-Event-ID", lastEventId))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String resumedEvents = awaitContent(resumed, "event:revocation");
+
+        assertThat(resumedEvents).doesNotContain("id:" + lastEventId + "\n");
+        assertThat(resumedEvents.split("event:revocation", -1)).hasSize(2);
+    }
+
+    /**
+     * Tests that resuming the revocation stream with an invalid {@code Last-Event-ID} returns a HTTP
+     * {@code BAD_REQUEST}.
+     */
+    @Test
+    public void testBadRequestWhenStreamResumesWithInvalidId() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/revocations/stream").header("Last-Event-ID", "yesterday"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private static String awaitContent(final MvcResult result, final String expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        String content = result.getResponse().getContentAsString();
+        while (!content.contains(expected) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            content = result.getResponse().getContentAsString();
+        }
+        return content;
+    }
+
+    /*
+     * Stored revocations may be sent in several writes, so wait until no more are sent.
+     */
+    private static String awaitQuiet(final MvcResult result) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        String previous;
+        String content = result.getResponse().getContentAsString();
+        do {
+            previous = content;
+            Thread.sleep(200);
+            content = result.getResponse().getContentAsString();
+        } while (!content.equals(previous) && System.currentTimeMillis() < deadline);
+        return content;
+    }
+
     /**
      * Tests that when {@code POST}ing revocations with a future {@code issued_before} field (but behind the
      * threshold limit), a HTTP {@code CREATED} is returned.
@@ -0,0 +1,173 @@
+package org.zalando.planb.revocation.api.impl;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for {@link ResponseCoalescer}.
+ *
+ * @author <a href="mailto:team-greendale@zalando.de">Team Greendale</a>
+ */
+public class ResponseCoalescerTest {
+
+    private static final int FOLLOWERS = 3;
+
+    private final CountDownLatch rendering = new CountDownLatch(1);
+
+    private final AtomicInteger renderings = new AtomicInteger();
+
+    private MetricRegistry metricRegistry;
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        metricRegistry = new MetricRegistry();
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Tests that concurrent requests for the same key share one rendering, and that the number of callers is recorded.
+     */
+    @Test
+    public void testConcurrentRequestsShareRendering() throws Exception {
+        ResponseCoalescer<String> coalescer = new ResponseCoalescer<>(1024, metricRegistry);
+
+        Future<String> leader = executor.submit(() -> write(coalescer, "key", "response", true));
+        List<Future<String>> followers = startFollowers(coalescer);
+        rendering.countDown();
+
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("response");
+        for (Future<String> follower : followers) {
+            assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo("response");
+        }
+        assertThat(renderings.get()).isEqualTo(1);
+        assertThat(metricRegistry.histogram("planb.revocations.coalescing.callers").getSnapshot().getMax())
+                .isEqualTo(FOLLOWERS + 1);
+
+        assertThat(write(coalescer, "key", "next", false)).isEqualTo("next");
+        assertThat(renderings.get()).isEqualTo(2);
+    }
+
+    /**
+     * Tests that responses larger than the maximum size are not shared, but still written completely.
+     */
+    @Test
+    public void testOversizedResponsesAreNotShared() throws Exception {
+        ResponseCoalescer<String> coalescer = new ResponseCoalescer<>(4, metricRegistry);
+
+        Future<String> leader = executor.submit(() -> write(coalescer, "key", "large response", true));
+        List<Future<String>> followers = startFollowers(coalescer);
+        rendering.countDown();
+
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("large response");
+        for (Future<String> follower : followers) {
+            assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo("response");
+        }
+        assertThat(renderings.get()).isEqualTo(FOLLOWERS + 1);
+        assertThat(metricRegistry.counter("planb.revocations.coalescing.oversized").getCount()).isEqualTo(1);
+    }
+
+    /**
+     * Tests that waiting requests render their own response when the shared rendering fails.
+     */
+    @Test
+    public void testWaitingRequestsRenderWhenSharedRenderingFails() throws Exception {
+        ResponseCoalescer<String> coalescer = new ResponseCoalescer<>(1024, metricRegistry);
+
+        Future<String> leader = executor.submit(() -> {
+            coalescer.write("key", new ByteArrayOutputStream(), out -> {
+                renderings.incrementAndGet();
+                awaitRendering();
+                throw new IOException("Broken");
+            });
+            return null;
+        });
+        List<Future<String>> followers = startFollowers(coalescer);
+        rendering.countDown();
+
+        assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IOException.class);
+        for (Future<String> follower : followers) {
+            assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo("response");
+        }
+    }
+
+    /**
+     * Tests that requests for different keys do not share renderings.
+     */
+    @Test
+    public void testDifferentKeysAreRenderedSeparately() throws Exception {
+        ResponseCoalescer<String> coalescer = new ResponseCoalescer<>(1024, metricRegistry);
+
+        Future<String> first = executor.submit(() -> write(coalescer, "first", "first", true));
+        assertThat(write(coalescer, "second", "second", false)).isEqualTo("second");
+        rendering.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("first");
+        assertThat(metricRegistry.counter("planb.revocations.coalescing.coalesced").getCount()).isZero();
+    }
+
+    /*
+     * Started once the leader is rendering, returning when all joined it.
+     */
+    private List<Future<String>> startFollowers(final ResponseCoalescer<String> coalescer) throws InterruptedException {
+        while (renderings.get() == 0) {
+            Thread.sleep(1);
+        }
+
+        List<Future<String>> followers = new ArrayList<>();
+        for (int i = 0; i < FOLLOWERS; i++) {
+            followers.add(executor.submit(() -> write(coalescer, "key", "response", false)));
+        }
+        while (metricRegistry.counter("planb.revocations.coalescing.coalesced").getCount() < FOLLOWERS) {
+            Thread.sleep(1);
+        }
+        return followers;
+    }
+
+    private String write(final ResponseCoalescer<String> coalescer, final String key, final String response,
+                         final boolean waitForFollowers) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        coalescer.write(key, out, rendered -> {
+            renderings.incrementAndGet();
+            if (waitForFollowers) {
+                awaitRendering();
+            }
+            byte[] bytes = response.getBytes(UTF_8);
+            for (int i = 0; i < bytes.length; i += 3) {
+                rendered.write(bytes, i, Math.min(3, bytes.length - i));
+            }
+        });
+        return out.toString("UTF-8");
+    }
+
+    private void awaitRendering() {
+        try {
+            rendering.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
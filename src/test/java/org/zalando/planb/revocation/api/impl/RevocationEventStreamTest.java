@@ -0,0 +1,181 @@
+package org.zalando.planb.revocation.api.impl;
+
+import com.codahale.metrics.MetricRegistry;
+import com.datastax.driver.core.utils.UUIDs;
+import org.junit.Before;
+import org.junit.Test;
+import org.zalando.planb.revocation.domain.ImmutableRevocationInfo;
+import org.zalando.planb.revocation.domain.ImmutableRevokedGlobal;
+import org.zalando.planb.revocation.domain.RevocationData;
+import org.zalando.planb.revocation.domain.RevocationInfo;
+import org.zalando.planb.revocation.domain.RevocationType;
+import org.zalando.planb.revocation.util.InstantTimestamp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.zalando.planb.revocation.util.domain.DomainUtils.revocationData;
+
+/**
+ * Unit tests for {@link RevocationEventStream}.
+ *
+ * @author <a href="mailto:team-greendale@zalando.de">Team Greendale</a>
+ */
+public class RevocationEventStreamTest {
+
+    private static final int SECOND = InstantTimestamp.FIVE_MINUTES_AGO.seconds();
+
+    private final List<Runnable> pendingSends = new ArrayList<>();
+
+    private final List<Runnable> stalledWrites = new ArrayList<>();
+
+    private boolean stalled = false;
+
+    private boolean saturated = false;
+
+    private MetricRegistry metricRegistry;
+
+    private RevocationEventStream stream;
+
+    @Before
+    public void setUp() {
+        metricRegistry = new MetricRegistry();
+        stream = new RevocationEventStream(revocations -> revocations.stream()
+                .map(r -> ImmutableRevocationInfo.builder()
+                        .type(RevocationType.GLOBAL)
+                        .revokedAt(r.revokedAt())
+                        .data(ImmutableRevokedGlobal.builder().issuedBefore(r.revokedAt()).build())
+                        .build())
+                .collect(Collectors.<RevocationInfo>toList()),
+                pendingSends::add, this::write, 2, 60000, 10, 60, metricRegistry);
+    }
+
+    /**
+     * Tests that resuming skips the revocations up to the last event, including the ones of the same second.
+     */
+    @Test
+    public void testFollowingLastEvent() {
+        RevocationData first = revocationData(SECOND);
+        RevocationData second = revocationData(SECOND);
+        RevocationData third = revocationData(SECOND);
+        RevocationData next = revocationData(SECOND + 1);
+        List<RevocationData> stored = Arrays.asList(revocationData(SECOND - 1), first, second, third, next);
+
+        assertThat(RevocationEventStream.following(RevocationEventStream.id(second), stored))
+                .containsExactly(third, next);
+        assertThat(RevocationEventStream.following(RevocationEventStream.id(next), stored)).isEmpty();
+    }
+
+    /**
+     * Tests that all revocations of the same second are sent again when the last event is not stored anymore.
+     */
+    @Test
+    public void testFollowingUnknownLastEvent() {
+        RevocationData first = revocationData(SECOND);
+        RevocationData next = revocationData(SECOND + 1);
+
+        assertThat(RevocationEventStream.following(SECOND + "-" + UUIDs.timeBased(), Arrays.asList(first, next)))
+                .containsExactly(first, next);
+        assertThat(RevocationEventStream.following(String.valueOf(SECOND), Arrays.asList(first, next)))
+                .containsExactly(first, next);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidLastEventId() {
+        RevocationEventStream.revokedAt(SECOND + "-nope");
+    }
+
+    /**
+     * Tests that a subscriber whose buffer is full is disconnected, without affecting the other subscribers.
+     */
+    @Test
+    public void testSlowSubscriberIsDisconnected() {
+        RevocationEventStream.Subscription slow = stream.subscribe();
+        slow.start(Collections.emptyList());
+        RevocationEventStream.Subscription fast = stream.subscribe();
+        fast.start(Collections.emptyList());
+        assertThat(metricRegistry.getGauges().get("planb.revocations.stream.subscribers").getValue()).isEqualTo(2);
+
+        // Only the fast subscriber gets to send its events
+        sendPending(1);
+        stream.onRevocations(Collections.singletonList(revocationData(SECOND)));
+        sendPending(1);
+        stream.onRevocations(Arrays.asList(revocationData(SECOND + 1), revocationData(SECOND + 2)));
+
+        assertThat(metricRegistry.counter("planb.revocations.stream.slowConsumers").getCount()).isEqualTo(1);
+        assertThat(metricRegistry.getGauges().get("planb.revocations.stream.subscribers").getValue()).isEqualTo(1);
+        assertThat(metricRegistry.timer("planb.revocations.stream.lag").getCount()).isEqualTo(1);
+    }
+
+    /**
+     * Tests that revocations found while replaying are not sent twice.
+     */
+    @Test
+    public void testReplayedRevocationsAreNotSentTwice() {
+        RevocationData recent = revocationData(InstantTimestamp.NOW.seconds());
+
+        RevocationEventStream.Subscription subscription = stream.subscribe();
+        stream.onRevocations(Collections.singletonList(recent));
+        subscription.start(Collections.singletonList(recent));
+        sendPending(0);
+
+        assertThat(metricRegistry.timer("planb.revocations.stream.lag").getCount()).isZero();
+    }
+
+    /**
+     * Tests that a subscriber not accepting an event in time is disconnected, without holding the sender.
+     */
+    @Test
+    public void testStalledSubscriberIsDisconnected() {
+        RevocationEventStream.Subscription subscription = stream.subscribe();
+        subscription.start(Collections.singletonList(revocationData(SECOND)));
+        stalled = true;
+        sendPending(0);
+
+        assertThat(metricRegistry.counter("planb.revocations.stream.slowConsumers").getCount()).isEqualTo(1);
+        assertThat(metricRegistry.getGauges().get("planb.revocations.stream.subscribers").getValue()).isEqualTo(0);
+
+        // The stalled write, then the completion of the emitter once it returns
+        assertThat(stalledWrites).hasSize(2);
+
+        stream.onRevocations(Collections.singletonList(revocationData(SECOND + 1)));
+        assertThat(pendingSends).isEmpty();
+    }
+
+    /**
+     * Tests that a subscriber is disconnected when no writer is left for its events.
+     */
+    @Test
+    public void testSubscriberIsDisconnectedWhenNoWriterIsLeft() {
+        RevocationEventStream.Subscription subscription = stream.subscribe();
+        subscription.start(Collections.singletonList(revocationData(SECOND)));
+        saturated = true;
+        sendPending(0);
+
+        assertThat(metricRegistry.counter("planb.revocations.stream.slowConsumers").getCount()).isEqualTo(1);
+        assertThat(metricRegistry.getGauges().get("planb.revocations.stream.subscribers").getValue()).isEqualTo(0);
+
+        stream.onRevocations(Collections.singletonList(revocationData(SECOND + 1)));
+        assertThat(pendingSends).isEmpty();
+    }
+
+    private void write(final Runnable write) {
+        if (saturated) {
+            throw new RejectedExecutionException("no writer left");
+        }
+        if (stalled) {
+            stalledWrites.add(write);
+        } else {
+            write.run();
+        }
+    }
+
+    private void sendPending(final int index) {
+        pendingSends.remove(index).run();
+    }
+}
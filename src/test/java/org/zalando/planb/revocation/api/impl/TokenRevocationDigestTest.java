@@ -0,0 +1,177 @@
+package org.zalando.planb.revocation.api.impl;
+
+import com.codahale.metrics.MetricRegistry;
+import com.datastax.driver.core.utils.UUIDs;
+import org.junit.Before;
+import org.junit.Test;
+import org.zalando.planb.revocation.domain.ImmutableRevocationData;
+import org.zalando.planb.revocation.domain.ImmutableRevocationInfo;
+import org.zalando.planb.revocation.domain.ImmutableRevocationRequest;
+import org.zalando.planb.revocation.domain.ImmutableRevokedGlobal;
+import org.zalando.planb.revocation.domain.ImmutableRevokedTokenData;
+import org.zalando.planb.revocation.domain.ImmutableRevokedTokenInfo;
+import org.zalando.planb.revocation.domain.RevocationData;
+import org.zalando.planb.revocation.domain.RevocationDigest;
+import org.zalando.planb.revocation.domain.RevocationInfo;
+import org.zalando.planb.revocation.domain.RevocationType;
+import org.zalando.planb.revocation.domain.RevokedTokenData;
+import org.zalando.planb.revocation.util.InstantTimestamp;
+import org.zalando.planb.revocation.util.TokenHashBloomFilter;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for {@link TokenRevocationDigest}.
+ *
+ * @author <a href="mailto:team-greendale@zalando.de">Team Greendale</a>
+ */
+public class TokenRevocationDigestTest {
+
+    private MetricRegistry metricRegistry;
+
+    private TokenRevocationDigest digest;
+
+    private Supplier<Collection<RevocationData>> loader;
+
+    @Before
+    public void setUp() {
+        metricRegistry = new MetricRegistry();
+        digest = new TokenRevocationDigest(revocations -> revocations.stream()
+                .map(TokenRevocationDigestTest::info)
+                .collect(Collectors.<RevocationInfo>toList()),
+                () -> loader.get(), "SHA-256", 100, 0.01, metricRegistry);
+    }
+
+    /**
+     * Tests that revocations found after the filter was built are put into it, changing its generation.
+     */
+    @Test
+    public void testRevocationsArePutIncrementally() {
+        digest.onRevocations(Collections.singletonList(token("before")));
+        assertThat(digest.get()).isNull();
+
+        loader = () -> Collections.singletonList(token("stored"));
+        digest.rebuild();
+        RevocationDigest built = digest.get();
+        assertThat(filter(built).mightContain(hash("stored"))).isTrue();
+        assertThat(filter(built).mightContain(hash("new"))).isFalse();
+        assertThat(built.insertions()).isEqualTo(1);
+        assertThat(built.hashAlgorithm()).isEqualTo("SHA-256");
+
+        digest.onRevocations(Arrays.asList(token("new"), global()));
+        RevocationDigest updated = digest.get();
+        assertThat(filter(updated).mightContain(hash("stored"))).isTrue();
+        assertThat(filter(updated).mightContain(hash("new"))).isTrue();
+        assertThat(updated.insertions()).isEqualTo(2);
+        assertThat(updated.generation()).isNotEqualTo(built.generation());
+        assertThat(metricRegistry.getGauges().get("planb.revocations.digest.insertions").getValue()).isEqualTo(2);
+        assertThat(digest.get()).isSameAs(updated);
+    }
+
+    /**
+     * Tests that revocations found while rebuilding are not lost, and not counted twice when also stored.
+     */
+    @Test
+    public void testRevocationsFoundWhileRebuildingAreKept() {
+        loader = () -> {
+            digest.onRevocations(Arrays.asList(token("stored"), token("found")));
+            return Collections.singletonList(token("stored"));
+        };
+        digest.rebuild();
+
+        RevocationDigest built = digest.get();
+        assertThat(filter(built).mightContain(hash("stored"))).isTrue();
+        assertThat(filter(built).mightContain(hash("found"))).isTrue();
+        assertThat(built.insertions()).isEqualTo(2);
+    }
+
+    /**
+     * Tests that rebuilding drops revocations not stored anymore, and that equal filters have the same generation.
+     */
+    @Test
+    public void testRebuildDropsExpiredRevocations() {
+        loader = () -> Arrays.asList(token("expired"), token("stored"));
+        digest.rebuild();
+        loader = () -> Collections.singletonList(token("stored"));
+        digest.rebuild();
+        RevocationDigest rebuilt = digest.get();
+
+        assertThat(filter(rebuilt).mightContain(hash("expired"))).isFalse();
+        assertThat(filter(rebuilt).mightContain(hash("stored"))).isTrue();
+
+        loader = () -> Collections.singletonList(token("stored"));
+        digest.rebuild();
+        assertThat(digest.get().generation()).isEqualTo(rebuilt.generation());
+        assertThat(metricRegistry.timer("planb.revocations.digest.rebuild").getCount()).isEqualTo(3);
+    }
+
+    private static TokenHashBloomFilter filter(final RevocationDigest digest) {
+        return TokenHashBloomFilter.of(digest.bits(), digest.numBits(), digest.numHashFunctions());
+    }
+
+    private static RevocationInfo info(final RevocationData revocation) {
+        if (revocation.revocationRequest().type() != RevocationType.TOKEN) {
+            return ImmutableRevocationInfo.builder()
+                    .type(RevocationType.GLOBAL)
+                    .revokedAt(revocation.revokedAt())
+                    .data(ImmutableRevokedGlobal.builder().issuedBefore(revocation.revokedAt()).build())
+                    .build();
+        }
+
+        final RevokedTokenData data = (RevokedTokenData) revocation.revocationRequest().data();
+        return ImmutableRevocationInfo.builder()
+                .type(RevocationType.TOKEN)
+                .revokedAt(revocation.revokedAt())
+                .data(ImmutableRevokedTokenInfo.builder()
+                        .tokenHash(hash(data.token()))
+                        .hashAlgorithm("SHA-256")
+                        .issuedBefore(data.issuedBefore())
+                        .build())
+                .build();
+    }
+
+    private static RevocationData token(final String token) {
+        return ImmutableRevocationData.builder()
+                .revocationRequest(ImmutableRevocationRequest.builder()
+                        .type(RevocationType.TOKEN)
+                        .data(ImmutableRevokedTokenData.builder()
+                                .token(token)
+                                .issuedBefore(InstantTimestamp.FIVE_MINUTES_AGO.seconds())
+                                .build())
+                        .build())
+                .revokedAt(InstantTimestamp.NOW.seconds())
+                .bucketUuid(UUIDs.timeBased())
+                .build();
+    }
+
+    private static RevocationData global() {
+        return ImmutableRevocationData.builder()
+                .revocationRequest(ImmutableRevocationRequest.builder()
+                        .type(RevocationType.GLOBAL)
+                        .data(ImmutableRevokedGlobal.builder()
+                                .issuedBefore(InstantTimestamp.FIVE_MINUTES_AGO.seconds())
+                                .build())
+                        .build())
+                .revokedAt(InstantTimestamp.NOW.seconds())
+                .build();
+    }
+
+    private static String hash(final String token) {
+        try {
+            return Base64.getUrlEncoder().encodeToString(
+                    MessageDigest.getInstance("SHA-256").digest(token.getBytes(UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
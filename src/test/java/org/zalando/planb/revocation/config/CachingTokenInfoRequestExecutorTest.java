@@ -0,0 +1,153 @@
+package org.zalando.planb.revocation.config;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for {@link CachingTokenInfoRequestExecutor}.
+ *
+ * @author <a href="mailto:team-greendale@zalando.de">Team Greendale</a>
+ */
+public class CachingTokenInfoRequestExecutorTest {
+
+    private static final Map<String, Object> VALID = ImmutableMap.of("uid", "testapp", "expires_in", 3600);
+
+    private static final Map<String, Object> INVALID = ImmutableMap.of("error", "invalid_request");
+
+    private final AtomicInteger requests = new AtomicInteger();
+
+    private MetricRegistry metricRegistry;
+
+    @Before
+    public void setUp() {
+        metricRegistry = new MetricRegistry();
+    }
+
+    /**
+     * Tests that responses for valid tokens are kept, and counted as hits.
+     */
+    @Test
+    public void testValidResponsesAreCached() {
+        CachingTokenInfoRequestExecutor executor = executor(token -> VALID, 300);
+
+        assertThat(executor.getMap("token")).isEqualTo(VALID);
+        assertThat(executor.getMap("token")).isEqualTo(VALID);
+        assertThat(executor.getMap("other")).isEqualTo(VALID);
+
+        assertThat(requests.get()).isEqualTo(2);
+        assertThat(metricRegistry.counter(CachingTokenInfoRequestExecutor.METRIC_PREFIX + ".cache.hits").getCount())
+                .isEqualTo(1);
+        assertThat(metricRegistry.timer(CachingTokenInfoRequestExecutor.METRIC_PREFIX + ".requests").getCount())
+                .isEqualTo(2);
+    }
+
+    /**
+     * Tests that responses are not kept beyond the token's {@code expires_in}.
+     */
+    @Test
+    public void testExpiresInIsRespected() {
+        CachingTokenInfoRequestExecutor executor = executor(token -> ImmutableMap.of("uid", "testapp",
+                "expires_in", 0), 300);
+
+        executor.getMap("token");
+        executor.getMap("token");
+
+        assertThat(requests.get()).isEqualTo(2);
+    }
+
+    /**
+     * Tests that error responses are kept for the negative cache duration, and failed requests not at all.
+     */
+    @Test
+    public void testNegativeResults() {
+        CachingTokenInfoRequestExecutor executor = executor(token -> {
+            if (token.equals("failing")) {
+                throw new HttpServerErrorException(HttpStatus.INTERNAL_SERVER_ERROR);
+            }
+            return INVALID;
+        }, 300);
+
+        assertThat(executor.getMap("invalid")).isEqualTo(INVALID);
+        assertThat(executor.getMap("invalid")).isEqualTo(INVALID);
+        assertThatThrownBy(() -> executor.getMap("failing")).isInstanceOf(HttpServerErrorException.class);
+        assertThatThrownBy(() -> executor.getMap("failing")).isInstanceOf(HttpServerErrorException.class);
+
+        assertThat(requests.get()).isEqualTo(3);
+    }
+
+    /**
+     * Tests that nothing is kept when caching is disabled.
+     */
+    @Test
+    public void testDisabled() {
+        CachingTokenInfoRequestExecutor executor = new CachingTokenInfoRequestExecutor(token -> {
+            requests.incrementAndGet();
+            return VALID;
+        }, 0, 300, 10, metricRegistry);
+
+        executor.getMap("token");
+        executor.getMap("token");
+
+        assertThat(requests.get()).isEqualTo(2);
+    }
+
+    /**
+     * Tests that concurrent lookups of the same token share one request.
+     */
+    @Test
+    public void testConcurrentLookupsShareRequest() throws Exception {
+        CountDownLatch responding = new CountDownLatch(1);
+        CachingTokenInfoRequestExecutor executor = executor(token -> {
+            try {
+                responding.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return VALID;
+        }, 300);
+
+        ExecutorService threads = Executors.newFixedThreadPool(2);
+        try {
+            Future<Map<String, Object>> first = threads.submit(() -> executor.getMap("token"));
+            while (requests.get() == 0) {
+                Thread.sleep(1);
+            }
+            Future<Map<String, Object>> second = threads.submit(() -> executor.getMap("token"));
+            while (metricRegistry.counter(CachingTokenInfoRequestExecutor.METRIC_PREFIX + ".cache.shared")
+                    .getCount() == 0) {
+                Thread.sleep(1);
+            }
+            responding.countDown();
+
+            assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo(VALID);
+            assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo(VALID);
+            assertThat(requests.get()).isEqualTo(1);
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    private CachingTokenInfoRequestExecutor executor(final Function<String, Map<String, Object>> tokenInfo,
+                                                     final int cacheDuration) {
+        return new CachingTokenInfoRequestExecutor(token -> {
+            requests.incrementAndGet();
+            return tokenInfo.apply(token);
+        }, 100, cacheDuration, 10, metricRegistry);
+    }
+}
@@ -9,6 +9,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.web.client.HttpClientErrorException;
 import org.zalando.planb.revocation.AbstractOAuthTest;
+import org.zalando.planb.revocation.config.properties.TokenInfoProperties;
 
 import java.util.Map;
 import java.util.UUID;
@@ -88,4 +89,94 @@ public class FallbackTokenInfoRequestExecutorTest extends AbstractOAuthTest {
         Map<String, Object> result = executor.getMap(INVALID_TOKEN);
         assertThat(result).containsKey("error");
     }
+
+    @Test
+    public void testSlowEndpointIsRankedLast() {
+        secondServerMock.stubFor(get(urlEqualTo("/tokeninfo"))
+                .withHeader(HttpHeaders.AUTHORIZATION, equalTo(VALID_ACCESS_TOKEN))
+                .willReturn(aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(ContentTypeHeader.KEY, MediaType.APPLICATION_JSON_VALUE)
+                        .withBody(TOKENINFO_RESPONSE)
+                        .withFixedDelay(300)));
+
+        FallbackTokenInfoRequestExecutor executor =
+                new FallbackTokenInfoRequestExecutor(FIRST_TOKEN_INFO_URI + "," + SECOND_TOKEN_INFO_URI);
+        for (int i = 0; i < 3; i++) {
+            assertThat(executor.getMap(SAMPLE_TOKEN_2)).hasSize(7);
+        }
+
+        secondServerMock.verify(1, getRequestedFor(urlEqualTo("/tokeninfo")));
+    }
+
+    @Test
+    public void testSlowEndpointIsProbedAgain() throws InterruptedException {
+        secondServerMock.stubFor(get(urlEqualTo("/tokeninfo"))
+                .withHeader(HttpHeaders.AUTHORIZATION, equalTo(VALID_ACCESS_TOKEN))
+                .willReturn(aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(ContentTypeHeader.KEY, MediaType.APPLICATION_JSON_VALUE)
+                        .withBody(TOKENINFO_RESPONSE)
+                        .withFixedDelay(300)));
+        TokenInfoProperties properties = new TokenInfoProperties();
+        properties.setProbeInterval(500);
+
+        FallbackTokenInfoRequestExecutor executor = new FallbackTokenInfoRequestExecutor(
+                FIRST_TOKEN_INFO_URI + "," + SECOND_TOKEN_INFO_URI, properties);
+        for (int i = 0; i < 3; i++) {
+            assertThat(executor.getMap(SAMPLE_TOKEN_2)).hasSize(7);
+        }
+        secondServerMock.verify(1, getRequestedFor(urlEqualTo("/tokeninfo")));
+
+        Thread.sleep(600);
+        assertThat(executor.getMap(SAMPLE_TOKEN_2)).hasSize(7);
+        secondServerMock.verify(2, getRequestedFor(urlEqualTo("/tokeninfo")));
+    }
+
+    @Test
+    public void testHedgingCutsTailLatency() {
+        secondServerMock.stubFor(get(urlEqualTo("/tokeninfo"))
+                .withHeader(HttpHeaders.AUTHORIZATION, equalTo(VALID_ACCESS_TOKEN))
+                .willReturn(aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(ContentTypeHeader.KEY, MediaType.APPLICATION_JSON_VALUE)
+                        .withBody(TOKENINFO_RESPONSE)
+                        .withFixedDelay(1000)));
+        TokenInfoProperties properties = new TokenInfoProperties();
+        properties.setHedge(true);
+
+        long start = System.currentTimeMillis();
+        Map<String, Object> unhedged = new FallbackTokenInfoRequestExecutor(
+                FIRST_TOKEN_INFO_URI + "," + SECOND_TOKEN_INFO_URI).getMap(SAMPLE_TOKEN_2);
+        long unhedgedMillis = System.currentTimeMillis() - start;
+
+        start = System.currentTimeMillis();
+        Map<String, Object> hedged = new FallbackTokenInfoRequestExecutor(
+                FIRST_TOKEN_INFO_URI + "," + SECOND_TOKEN_INFO_URI, properties).getMap(SAMPLE_TOKEN_2);
+        long hedgedMillis = System.currentTimeMillis() - start;
+
+        assertThat(unhedged).hasSize(7);
+        assertThat(hedged).hasSize(7);
+        assertThat(unhedgedMillis).isGreaterThanOrEqualTo(1000);
+        assertThat(hedgedMillis).isLessThan(1000);
+    }
+
+    @Test
+    public void testFailingEndpointIsSkipped() {
+        secondServerMock.stubFor(get(urlEqualTo("/tokeninfo"))
+                .withHeader(HttpHeaders.AUTHORIZATION, equalTo(VALID_ACCESS_TOKEN))
+                .willReturn(aResponse()
+                        .withStatus(HttpStatus.INTERNAL_SERVER_ERROR.value())));
+        TokenInfoProperties properties = new TokenInfoProperties();
+        properties.setFailureThreshold(2);
+
+        FallbackTokenInfoRequestExecutor executor = new FallbackTokenInfoRequestExecutor(
+                FIRST_TOKEN_INFO_URI + "," + SECOND_TOKEN_INFO_URI, properties);
+        for (int i = 0; i < 5; i++) {
+            assertThat(executor.getMap(SAMPLE_TOKEN_2)).hasSize(7);
+        }
+
+        // The failure counts as a read timeout, ranking the endpoint last right away
+        secondServerMock.verify(1, getRequestedFor(urlEqualTo("/tokeninfo")));
+    }
 }
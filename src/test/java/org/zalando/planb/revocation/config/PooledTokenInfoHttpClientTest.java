@@ -0,0 +1,90 @@
+package org.zalando.planb.revocation.config;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.github.tomakehurst.wiremock.http.ContentTypeHeader;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.ResourceAccessException;
+import org.zalando.planb.revocation.AbstractOAuthTest;
+import org.zalando.planb.revocation.config.properties.TokenInfoProperties;
+
+import java.io.IOException;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for {@link PooledTokenInfoHttpClient}.
+ *
+ * @author <a href="mailto:team-greendale@zalando.de">Team Greendale</a>
+ */
+public class PooledTokenInfoHttpClientTest extends AbstractOAuthTest {
+
+    private static final String TOKEN_INFO_URI =
+            "http://localhost:" + Integer.valueOf(System.getProperty("wiremock.port", "10080")) + "/tokeninfo";
+
+    private static final String SLOW_TOKEN = "slow";
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+
+    private final TokenInfoProperties properties = new TokenInfoProperties();
+
+    private PooledTokenInfoHttpClient httpClient;
+
+    private FallbackTokenInfoRequestExecutor executor;
+
+    @Before
+    public void setUpClient() {
+        wireMock.stubFor(get(urlEqualTo("/tokeninfo"))
+                .withHeader(HttpHeaders.AUTHORIZATION, equalTo("Bearer " + SLOW_TOKEN))
+                .willReturn(aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(ContentTypeHeader.KEY, MediaType.APPLICATION_JSON_VALUE)
+                        .withBody(TOKENINFO_RESPONSE)
+                        .withFixedDelay(1000)));
+
+        properties.setReadTimeout(200);
+        httpClient = new PooledTokenInfoHttpClient(properties, metricRegistry);
+        executor = new FallbackTokenInfoRequestExecutor(TOKEN_INFO_URI, properties, httpClient.restTemplate());
+    }
+
+    @After
+    public void closeClient() throws IOException {
+        httpClient.close();
+    }
+
+    @Test
+    public void testConnectionIsKeptAlive() {
+        for (int i = 0; i < 3; i++) {
+            assertThat(executor.getMap(SAMPLE_TOKEN_2)).hasSize(7);
+        }
+
+        assertThat(gauge("leased")).isEqualTo(0);
+        assertThat(gauge("pending")).isEqualTo(0);
+        assertThat(gauge("available")).isEqualTo(1);
+    }
+
+    @Test
+    public void testErrorResponsesAreHandled() {
+        assertThat(executor.getMap(INVALID_TOKEN)).containsKey("error");
+        assertThat(gauge("leased")).isEqualTo(0);
+    }
+
+    @Test(expected = ResourceAccessException.class)
+    public void testReadTimeout() {
+        executor.getMap(SLOW_TOKEN);
+    }
+
+    private Object gauge(final String name) {
+        final Gauge<?> gauge = metricRegistry.getGauges().get(PooledTokenInfoHttpClient.METRIC_PREFIX + "." + name);
+        return gauge.getValue();
+    }
+}
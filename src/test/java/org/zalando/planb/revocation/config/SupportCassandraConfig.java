@@ -1,5 +1,6 @@
 package org.zalando.planb.revocation.config;
 
+import com.codahale.metrics.MetricRegistry;
 import com.datastax.driver.core.Session;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
@@ -35,7 +36,8 @@ public class SupportCassandraConfig {
 
     @Bean
     public CassandraAuthorizationRuleStore cassandraAuthorizationRuleStore() {
+        // own registry, since the application's store already publishes the metrics
         return new CassandraAuthorizationRuleStore(session, cassandraProperties.getReadConsistencyLevel(),
-                cassandraProperties.getWriteConsistencyLevel());
+                cassandraProperties.getWriteConsistencyLevel(), new MetricRegistry());
     }
 }
@@ -27,6 +27,14 @@ public class CassandraPropertiesTest {
         String username = "test";
         String password = "c08audshcf087ahdc";
         int maxTimeDelta = 300;
+        int maxBucketQueriesInFlight = 2;
+        int readDeadline = 1000;
+        int timeToLive = 3600;
+        int sealedBucketCacheSize = 10;
+        int refreshCacheDuration = 1000;
+        int fetchSize = 200;
+        boolean writeLegacyColumns = false;
+        int bucketDirectoryCacheDuration = 1000;
 
         properties.setKeyspace(keyspace);
         properties.setContactPoints(contactPoints);
@@ -37,6 +45,14 @@ public class CassandraPropertiesTest {
         properties.setUsername(Optional.of(username));
         properties.setPassword(Optional.of(password));
         properties.setMaxTimeDelta(maxTimeDelta);
+        properties.setMaxBucketQueriesInFlight(maxBucketQueriesInFlight);
+        properties.setReadDeadline(readDeadline);
+        properties.setTimeToLive(timeToLive);
+        properties.setSealedBucketCacheSize(sealedBucketCacheSize);
+        properties.setRefreshCacheDuration(refreshCacheDuration);
+        properties.setFetchSize(fetchSize);
+        properties.setWriteLegacyColumns(writeLegacyColumns);
+        properties.setBucketDirectoryCacheDuration(bucketDirectoryCacheDuration);
 
         assertThat(properties.getKeyspace()).isEqualTo(keyspace);
         assertThat(properties.getContactPoints()).isEqualTo(contactPoints);
@@ -47,5 +63,13 @@ public class CassandraPropertiesTest {
         assertThat(properties.getUsername().get()).isEqualTo(username);
         assertThat(properties.getPassword().get()).isEqualTo(password);
         assertThat(properties.getMaxTimeDelta()).isEqualTo(maxTimeDelta);
+        assertThat(properties.getMaxBucketQueriesInFlight()).isEqualTo(maxBucketQueriesInFlight);
+        assertThat(properties.getReadDeadline()).isEqualTo(readDeadline);
+        assertThat(properties.getTimeToLive()).isEqualTo(timeToLive);
+        assertThat(properties.getSealedBucketCacheSize()).isEqualTo(sealedBucketCacheSize);
+        assertThat(properties.getRefreshCacheDuration()).isEqualTo(refreshCacheDuration);
+        assertThat(properties.getFetchSize()).isEqualTo(fetchSize);
+        assertThat(properties.isWriteLegacyColumns()).isEqualTo(writeLegacyColumns);
+        assertThat(properties.getBucketDirectoryCacheDuration()).isEqualTo(bucketDirectoryCacheDuration);
     }
 }
\ No newline at end of file
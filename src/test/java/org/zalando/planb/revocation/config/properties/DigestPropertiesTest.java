@@ -0,0 +1,30 @@
+package org.zalando.planb.revocation.config.properties;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for {@link DigestProperties}.
+ *
+ * @author <a href="mailto:team-greendale@zalando.de">Team Greendale</a>
+ */
+public class DigestPropertiesTest {
+
+    @Test
+    public void testSetters() {
+        DigestProperties properties = new DigestProperties();
+
+        int expectedInsertions = 100;
+        double falsePositiveProbability = 0.001;
+        long rebuildInMilliseconds = 1000;
+
+        properties.setExpectedInsertions(expectedInsertions);
+        properties.setFalsePositiveProbability(falsePositiveProbability);
+        properties.setRebuildInMilliseconds(rebuildInMilliseconds);
+
+        assertThat(properties.getExpectedInsertions()).isEqualTo(expectedInsertions);
+        assertThat(properties.getFalsePositiveProbability()).isEqualTo(falsePositiveProbability);
+        assertThat(properties.getRebuildInMilliseconds()).isEqualTo(rebuildInMilliseconds);
+    }
+}
@@ -17,9 +17,24 @@ public class RevocationPropertiesTest {
         RevocationProperties properties = new RevocationProperties();
 
         int timestampThreshold = 10;
+        int maxWait = 30;
+        int maxCoalescedSize = 1024;
+        int authorizationCacheSize = 100;
+        int authorizationCacheDuration = 60;
+        int schedulerThreads = 2;
 
         properties.setTimestampThreshold(timestampThreshold);
+        properties.setMaxWait(maxWait);
+        properties.setMaxCoalescedSize(maxCoalescedSize);
+        properties.setAuthorizationCacheSize(authorizationCacheSize);
+        properties.setAuthorizationCacheDuration(authorizationCacheDuration);
+        properties.setSchedulerThreads(schedulerThreads);
 
         assertThat(properties.getTimestampThreshold()).isEqualTo(timestampThreshold);
+        assertThat(properties.getMaxWait()).isEqualTo(maxWait);
+        assertThat(properties.getMaxCoalescedSize()).isEqualTo(maxCoalescedSize);
+        assertThat(properties.getAuthorizationCacheSize()).isEqualTo(authorizationCacheSize);
+        assertThat(properties.getAuthorizationCacheDuration()).isEqualTo(authorizationCacheDuration);
+        assertThat(properties.getSchedulerThreads()).isEqualTo(schedulerThreads);
     }
 }
@@ -0,0 +1,36 @@
+package org.zalando.planb.revocation.config.properties;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for {@link StreamProperties}.
+ *
+ * @author <a href="mailto:team-greendale@zalando.de">Team Greendale</a>
+ */
+public class StreamPropertiesTest {
+
+    @Test
+    public void testSetters() {
+        StreamProperties properties = new StreamProperties();
+
+        int bufferSize = 10;
+        long timeout = 1000;
+        int senderThreads = 2;
+        long writeTimeout = 100;
+        int maxWriters = 20;
+
+        properties.setBufferSize(bufferSize);
+        properties.setTimeout(timeout);
+        properties.setSenderThreads(senderThreads);
+        properties.setWriteTimeout(writeTimeout);
+        properties.setMaxWriters(maxWriters);
+
+        assertThat(properties.getBufferSize()).isEqualTo(bufferSize);
+        assertThat(properties.getTimeout()).isEqualTo(timeout);
+        assertThat(properties.getSenderThreads()).isEqualTo(senderThreads);
+        assertThat(properties.getWriteTimeout()).isEqualTo(writeTimeout);
+        assertThat(properties.getMaxWriters()).isEqualTo(maxWriters);
+    }
+}
@@ -0,0 +1,66 @@
+package org.zalando.planb.revocation.config.properties;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for {@link TokenInfoProperties}.
+ *
+ * @author <a href="mailto:team-greendale@zalando.de">Team Greendale</a>
+ */
+public class TokenInfoPropertiesTest {
+
+    @Test
+    public void testSetters() {
+        TokenInfoProperties properties = new TokenInfoProperties();
+
+        int cacheSize = 100;
+        int cacheDuration = 60;
+        int negativeCacheDuration = 5;
+        int failureThreshold = 5;
+        long openDuration = 1000;
+        long probeInterval = 2000;
+        boolean hedge = true;
+        double hedgePercentile = 0.99;
+        long hedgeMinDelay = 20;
+        int maxConnections = 50;
+        int maxConnectionsPerRoute = 10;
+        int connectTimeout = 200;
+        int readTimeout = 800;
+        int connectionRequestTimeout = 100;
+        long idleTimeout = 5000;
+
+        properties.setCacheSize(cacheSize);
+        properties.setCacheDuration(cacheDuration);
+        properties.setNegativeCacheDuration(negativeCacheDuration);
+        properties.setFailureThreshold(failureThreshold);
+        properties.setOpenDuration(openDuration);
+        properties.setProbeInterval(probeInterval);
+        properties.setHedge(hedge);
+        properties.setHedgePercentile(hedgePercentile);
+        properties.setHedgeMinDelay(hedgeMinDelay);
+        properties.setMaxConnections(maxConnections);
+        properties.setMaxConnectionsPerRoute(maxConnectionsPerRoute);
+        properties.setConnectTimeout(connectTimeout);
+        properties.setReadTimeout(readTimeout);
+        properties.setConnectionRequestTimeout(connectionRequestTimeout);
+        properties.setIdleTimeout(idleTimeout);
+
+        assertThat(properties.getCacheSize()).isEqualTo(cacheSize);
+        assertThat(properties.getCacheDuration()).isEqualTo(cacheDuration);
+        assertThat(properties.getNegativeCacheDuration()).isEqualTo(negativeCacheDuration);
+        assertThat(properties.getFailureThreshold()).isEqualTo(failureThreshold);
+        assertThat(properties.getOpenDuration()).isEqualTo(openDuration);
+        assertThat(properties.getProbeInterval()).isEqualTo(probeInterval);
+        assertThat(properties.isHedge()).isEqualTo(hedge);
+        assertThat(properties.getHedgePercentile()).isEqualTo(hedgePercentile);
+        assertThat(properties.getHedgeMinDelay()).isEqualTo(hedgeMinDelay);
+        assertThat(properties.getMaxConnections()).isEqualTo(maxConnections);
+        assertThat(properties.getMaxConnectionsPerRoute()).isEqualTo(maxConnectionsPerRoute);
+        assertThat(properties.getConnectTimeout()).isEqualTo(connectTimeout);
+        assertThat(properties.getReadTimeout()).isEqualTo(readTimeout);
+        assertThat(properties.getConnectionRequestTimeout()).isEqualTo(connectionRequestTimeout);
+        assertThat(properties.getIdleTimeout()).isEqualTo(idleTimeout);
+    }
+}
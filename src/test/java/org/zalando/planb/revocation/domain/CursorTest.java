@@ -0,0 +1,74 @@
+package org.zalando.planb.revocation.domain;
+
+import com.datastax.driver.core.utils.UUIDs;
+import org.junit.Test;
+import org.zalando.planb.revocation.util.InstantTimestamp;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.zalando.planb.revocation.util.domain.DomainUtils.revocationData;
+
+/**
+ * Unit tests for {@link Cursor}.
+ *
+ * @author <a href="mailto:team-greendale@zalando.de">Team Greendale</a>
+ */
+public class CursorTest {
+
+    private static final int SECOND = InstantTimestamp.FIVE_MINUTES_AGO.seconds();
+
+    /**
+     * Tests that encoded cursors are decoded to the same cursor.
+     */
+    @Test
+    public void testEncodeDecode() {
+        Cursor withUuid = Cursor.after(revocationData(SECOND, UUIDs.timeBased()));
+        Cursor withoutUuid = Cursor.after(SECOND);
+
+        assertThat(Cursor.decode(withUuid.encode())).isEqualTo(withUuid);
+        assertThat(Cursor.decode(withoutUuid.encode())).isEqualTo(withoutUuid);
+        assertThat(withUuid.encode()).matches("[A-Za-z0-9_-]+");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDecodeInvalidCursor() {
+        Cursor.decode("not a cursor");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDecodeCursorOfUnknownLength() {
+        Cursor.decode("AQAAAAAA");
+    }
+
+    /**
+     * Tests that revocations of the cursor's second are after it only when their bucket UUID is newer.
+     */
+    @Test
+    public void testIsBefore() {
+        UUID first = UUIDs.startOf(SECOND * 1000L);
+        UUID last = UUIDs.endOf(SECOND * 1000L + 999);
+        Cursor cursor = Cursor.after(revocationData(SECOND, first));
+
+        assertThat(cursor.isBefore(revocationData(SECOND, first))).isFalse();
+        assertThat(cursor.isBefore(revocationData(SECOND, last))).isTrue();
+        assertThat(cursor.isBefore(revocationData(SECOND - 1, last))).isFalse();
+        assertThat(cursor.isBefore(revocationData(SECOND + 1, first))).isTrue();
+
+        assertThat(Cursor.after(SECOND).isBefore(revocationData(SECOND, last))).isFalse();
+        assertThat(Cursor.after(SECOND).isBefore(revocationData(SECOND + 1, first))).isTrue();
+    }
+
+    /**
+     * Tests that time based UUIDs are ordered by timestamp, and then by their unsigned least significant bits.
+     */
+    @Test
+    public void testBucketUuidOrder() {
+        UUID earlier = new UUID(UUIDs.startOf(1000).getMostSignificantBits(), -1L);
+        UUID later = UUIDs.startOf(2000);
+        UUID laterSigned = new UUID(later.getMostSignificantBits(), -1L);
+
+        assertThat(Cursor.BUCKET_UUID_ORDER.compare(earlier, later)).isNegative();
+        assertThat(Cursor.BUCKET_UUID_ORDER.compare(later, laterSigned)).isNegative();
+    }
+}
@@ -0,0 +1,94 @@
+package org.zalando.planb.revocation.persistence;
+
+import com.google.common.collect.ImmutableMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.zalando.planb.revocation.domain.AuthorizationRule;
+import org.zalando.planb.revocation.domain.ImmutableAuthorizationRule;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Compares matching a claim revocation against all authorization rules one by one with looking it up in an
+ * {@link AuthorizationRuleIndex}.
+ * <p>
+ * <p>Each rule allows revoking the tokens of one user of one realm to the members of one team, so that exactly one rule
+ * matches. Not run by the build. Run {@link AuthorizationRuleIndexBenchmark#main(String[])} from the test
+ * classpath.</p>
+ *
+ * @author <a href="mailto:team-greendale@zalando.de">Team Greendale</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuthorizationRuleIndexBenchmark {
+
+    private static final String[] REALMS = {"/services", "/employees", "/customers"};
+
+    @Param({"100", "10000"})
+    private int rules;
+
+    private List<AuthorizationRule> ruleList;
+
+    private AuthorizationRuleIndex index;
+
+    private AuthorizationRule request;
+
+    @Setup
+    public void setUp() {
+        ruleList = new ArrayList<>(rules);
+        for (int i = 0; i < rules; i++) {
+            ruleList.add(ImmutableAuthorizationRule.builder()
+                    .requiredUserClaims(ImmutableMap.of("realm", "/employees", "team", "team" + i % 100))
+                    .allowedRevocationClaims(ImmutableMap.of("realm", REALMS[i % REALMS.length], "uid", "user" + i))
+                    .build());
+        }
+        index = new AuthorizationRuleIndex(ruleList);
+
+        final int matching = rules / 2;
+        request = ImmutableAuthorizationRule.builder()
+                .requiredUserClaims(ImmutableMap.of("realm", "/employees", "team", "team" + matching % 100,
+                        "sub", "jdoe"))
+                .allowedRevocationClaims(ImmutableMap.of("realm", REALMS[matching % REALMS.length],
+                        "uid", "user" + matching))
+                .build();
+    }
+
+    @Benchmark
+    public Collection<AuthorizationRule> matchOneByOne() {
+        return ruleList.stream()
+                .filter(request::matchesAllowedRevocationClaims)
+                .filter(request::matchesRequiredUserClaims)
+                .collect(Collectors.toSet());
+    }
+
+    @Benchmark
+    public Collection<AuthorizationRule> matchIndexed() {
+        return index.matchingClaims(request);
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(AuthorizationRuleIndexBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
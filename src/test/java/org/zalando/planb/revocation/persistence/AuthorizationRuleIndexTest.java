@@ -0,0 +1,91 @@
+package org.zalando.planb.revocation.persistence;
+
+import org.junit.Test;
+import org.zalando.planb.revocation.domain.AuthorizationRule;
+import org.zalando.planb.revocation.domain.ImmutableAuthorizationRule;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static com.google.common.collect.ImmutableMap.of;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for {@link AuthorizationRuleIndex}.
+ *
+ * @author <a href="mailto:team-greendale@zalando.de">Team Greendale</a>
+ */
+public class AuthorizationRuleIndexTest {
+
+    private static final AuthorizationRule SERVICES = rule(of("sub", "admin"), of("realm", "/services"));
+
+    private static final AuthorizationRule SERVICE_USER = rule(of("sub", "admin"),
+            of("realm", "/services", "uid", "stups"));
+
+    private static final AuthorizationRule EMPLOYEES = rule(of("realm", "/employees", "team", "greendale"),
+            of("realm", "/employees"));
+
+    private static final AuthorizationRule ANYONE = rule(of(), of("realm", "/customers"));
+
+    private static final AuthorizationRule ANYTHING = rule(of("sub", "root"), of());
+
+    private final AuthorizationRuleIndex index = new AuthorizationRuleIndex(
+            Arrays.asList(SERVICES, SERVICE_USER, EMPLOYEES, ANYONE, ANYTHING));
+
+    /**
+     * Tests that rules are matched by their allowed revocation claims only.
+     */
+    @Test
+    public void testMatchingAllowedClaims() {
+        assertThat(index.matchingAllowedClaims(rule(of(), of("realm", "/services"))))
+                .containsOnly(SERVICES, ANYTHING);
+        assertThat(index.matchingAllowedClaims(rule(of(), of("realm", "/services", "uid", "stups"))))
+                .containsOnly(SERVICES, SERVICE_USER, ANYTHING);
+        assertThat(index.matchingAllowedClaims(rule(of(), of("uid", "stups")))).containsOnly(ANYTHING);
+    }
+
+    /**
+     * Tests that rules are matched by both their allowed revocation and required user claims.
+     */
+    @Test
+    public void testMatchingClaims() {
+        assertThat(index.matchingClaims(rule(of("sub", "admin", "uid", "x"), of("realm", "/services"))))
+                .containsOnly(SERVICES);
+        assertThat(index.matchingClaims(rule(of("sub", "other"), of("realm", "/services")))).isEmpty();
+        assertThat(index.matchingClaims(rule(of("realm", "/employees", "team", "greendale"),
+                of("realm", "/employees", "uid", "jdoe")))).containsOnly(EMPLOYEES);
+        assertThat(index.matchingClaims(rule(of("realm", "/employees"), of("realm", "/employees")))).isEmpty();
+        assertThat(index.matchingClaims(rule(of("sub", "guest"), of("realm", "/customers")))).containsOnly(ANYONE);
+        assertThat(index.matchingClaims(rule(of("sub", "root"), of("uid", "jdoe")))).containsOnly(ANYTHING);
+    }
+
+    /**
+     * Tests that rules without any claims match every request.
+     */
+    @Test
+    public void testRulesWithoutClaimsMatchEverything() {
+        AuthorizationRule everything = rule(of(), of());
+        AuthorizationRuleIndex withEverything = new AuthorizationRuleIndex(Arrays.asList(SERVICES, everything));
+
+        assertThat(withEverything.matchingAllowedClaims(rule(of(), of("uid", "x")))).containsOnly(everything);
+        assertThat(withEverything.matchingClaims(rule(of("sub", "admin"), of("realm", "/services"))))
+                .containsOnly(SERVICES, everything);
+    }
+
+    /**
+     * Tests that the empty index matches nothing.
+     */
+    @Test
+    public void testEmpty() {
+        assertThat(AuthorizationRuleIndex.EMPTY.getRules()).isEmpty();
+        assertThat(AuthorizationRuleIndex.EMPTY.matchingClaims(SERVICES)).isEmpty();
+    }
+
+    private static AuthorizationRule rule(final Map<String, String> requiredUserClaims,
+                                          final Map<String, String> allowedRevocationClaims) {
+        return ImmutableAuthorizationRule.builder()
+                .requiredUserClaims(requiredUserClaims)
+                .allowedRevocationClaims(allowedRevocationClaims)
+                .build();
+    }
+}
@@ -0,0 +1,114 @@
+package org.zalando.planb.revocation.persistence;
+
+import com.codahale.metrics.MetricRegistry;
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.KeyspaceMetadata;
+import com.datastax.driver.core.Metadata;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.TableMetadata;
+import com.datastax.driver.core.TableOptionsMetadata;
+import org.junit.Before;
+import org.junit.Test;
+import org.zalando.planb.revocation.persistence.CassandraRevocationStore.Bucket;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link BucketPlanner}.
+ *
+ * @author <a href="mailto:team-greendale@zalando.de">Team Greendale</a>
+ */
+public class BucketPlannerTest {
+
+    private static final int BUCKET_LENGTH = 8 * 60 * 60;
+
+    private static final int NOW = 1456790400 + BUCKET_LENGTH * 3 + 100; // 2016-03-02T00:01:40Z
+
+    private static final int TIME_TO_LIVE = 7200;
+
+    private MetricRegistry metricRegistry;
+
+    @Before
+    public void setUp() {
+        metricRegistry = new MetricRegistry();
+    }
+
+    /**
+     * Tests that only buckets that may hold live rows are planned, and that planned and skipped buckets are counted.
+     */
+    @Test
+    public void testExpiredBucketsAreSkipped() {
+        BucketPlanner planner = new BucketPlanner(TIME_TO_LIVE, metricRegistry);
+
+        List<Bucket> buckets = planner.plan(NOW - BUCKET_LENGTH * 3, NOW);
+
+        assertThat(buckets).isEqualTo(CassandraRevocationStore.getBuckets(NOW - BUCKET_LENGTH, NOW));
+        assertThat(metricRegistry.counter(BucketPlanner.METRIC_PREFIX + ".planned").getCount()).isEqualTo(2);
+        assertThat(metricRegistry.counter(BucketPlanner.METRIC_PREFIX + ".skipped").getCount()).isEqualTo(2);
+    }
+
+    /**
+     * Tests that buckets only expire once late writes after their end expired as well.
+     */
+    @Test
+    public void testIsExpired() {
+        BucketPlanner planner = new BucketPlanner(TIME_TO_LIVE, metricRegistry);
+        Bucket bucket = CassandraRevocationStore.getBuckets(NOW - BUCKET_LENGTH, NOW).get(0);
+        int expiresAt = bucket.end() + SealedBucketCache.SEAL_GRACE + TIME_TO_LIVE;
+
+        assertThat(planner.isExpired(bucket, expiresAt - 1)).isFalse();
+        assertThat(planner.isExpired(bucket, expiresAt)).isTrue();
+    }
+
+    /**
+     * Tests that all buckets are planned when revocations do not expire.
+     */
+    @Test
+    public void testWithoutTimeToLive() {
+        BucketPlanner planner = new BucketPlanner(0, metricRegistry);
+
+        assertThat(planner.plan(NOW - BUCKET_LENGTH * 3, NOW)).hasSize(4);
+        assertThat(metricRegistry.counter(BucketPlanner.METRIC_PREFIX + ".skipped").getCount()).isZero();
+    }
+
+    /**
+     * Tests that the time to live is read from the schema of the revocation table.
+     */
+    @Test
+    public void testEffectiveTimeToLiveFromSchema() {
+        Session session = session("revocation");
+        TableMetadata table = mock(TableMetadata.class);
+        TableOptionsMetadata options = mock(TableOptionsMetadata.class);
+        when(session.getCluster().getMetadata().getKeyspace("revocation").getTable(BucketPlanner.REVOCATION_TABLE))
+                .thenReturn(table);
+        when(table.getOptions()).thenReturn(options);
+        when(options.getDefaultTimeToLive()).thenReturn(3600);
+
+        assertThat(BucketPlanner.effectiveTimeToLive(session, TIME_TO_LIVE)).isEqualTo(3600);
+    }
+
+    /**
+     * Tests that the configured time to live is used when the schema can not be read.
+     */
+    @Test
+    public void testEffectiveTimeToLiveWithoutSchema() {
+        assertThat(BucketPlanner.effectiveTimeToLive(session("revocation"), TIME_TO_LIVE)).isEqualTo(TIME_TO_LIVE);
+        assertThat(BucketPlanner.effectiveTimeToLive(session(null), TIME_TO_LIVE)).isEqualTo(TIME_TO_LIVE);
+    }
+
+    private static Session session(final String keyspace) {
+        Session session = mock(Session.class);
+        Cluster cluster = mock(Cluster.class);
+        Metadata metadata = mock(Metadata.class);
+        KeyspaceMetadata keyspaceMetadata = mock(KeyspaceMetadata.class);
+        when(session.getLoggedKeyspace()).thenReturn(keyspace);
+        when(session.getCluster()).thenReturn(cluster);
+        when(cluster.getMetadata()).thenReturn(metadata);
+        when(metadata.getKeyspace("revocation")).thenReturn(keyspaceMetadata);
+        return session;
+    }
+}
@@ -0,0 +1,232 @@
+package org.zalando.planb.revocation.persistence;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.zalando.planb.revocation.domain.Cursor;
+import org.zalando.planb.revocation.domain.RevocationData;
+import org.zalando.planb.revocation.domain.RevocationType;
+import org.zalando.planb.revocation.util.InstantTimestamp;
+import org.zalando.planb.revocation.util.domain.DomainUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.zalando.planb.revocation.util.domain.DomainUtils.revocationData;
+
+/**
+ * Unit tests for {@link CachingRevocationStore}.
+ *
+ * @author <a href="mailto:team-greendale@zalando.de">Team Greendale</a>
+ */
+public class CachingRevocationStoreTest {
+
+    private static final int MAX_TIME_DELTA = 7200;
+
+    private static final RevocationData ONE_HOUR_AGO = revocationData(InstantTimestamp.ONE_HOUR_AGO.seconds());
+
+    private static final RevocationData FIVE_MINUTES_AGO = revocationData(InstantTimestamp.FIVE_MINUTES_AGO.seconds());
+
+    private RevocationStore delegate;
+
+    private MetricRegistry metricRegistry;
+
+    private CachingRevocationStore store;
+
+    @Before
+    public void setUp() {
+        delegate = mock(RevocationStore.class);
+        metricRegistry = new MetricRegistry();
+        store = new CachingRevocationStore(delegate, MAX_TIME_DELTA, 60, metricRegistry);
+    }
+
+    /**
+     * Tests that reads are served from the index, without querying the delegate again.
+     */
+    @Test
+    public void testReadsAreServedFromIndex() {
+        when(delegate.getRevocations(anyInt())).thenReturn(Arrays.asList(ONE_HOUR_AGO, FIVE_MINUTES_AGO));
+        store.initialize();
+
+        assertThat(store.getRevocations(InstantTimestamp.ONE_HOUR_AGO.seconds() - 1))
+                .containsExactly(ONE_HOUR_AGO, FIVE_MINUTES_AGO);
+        assertThat(store.getRevocations(InstantTimestamp.ONE_HOUR_AGO.seconds()))
+                .containsExactly(FIVE_MINUTES_AGO);
+        assertThat(store.getRevocations(InstantTimestamp.FIVE_MINUTES_AGO.seconds())).isEmpty();
+
+        verify(delegate, times(1)).getRevocations(anyInt());
+    }
+
+    /**
+     * Tests that storing a revocation refreshes the index on a background thread.
+     */
+    @Test
+    public void testStoreRevocationRequestsRefresh() throws InterruptedException {
+        when(delegate.getRevocations(anyInt())).thenReturn(Collections.singletonList(ONE_HOUR_AGO));
+        store.initialize();
+
+        when(delegate.getRevocations(anyInt())).thenReturn(Arrays.asList(ONE_HOUR_AGO, FIVE_MINUTES_AGO));
+        store.storeRevocation(DomainUtils.revocationRequest(RevocationType.TOKEN));
+
+        verify(delegate).storeRevocation(DomainUtils.revocationRequest(RevocationType.TOKEN));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (store.getRevocations(InstantTimestamp.ONE_HOUR_AGO.seconds()).isEmpty()
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(store.getRevocations(InstantTimestamp.ONE_HOUR_AGO.seconds()))
+                .containsExactly(FIVE_MINUTES_AGO);
+    }
+
+    /**
+     * Tests that revocations are still stored once the store is shut down, without refreshing the index.
+     */
+    @Test
+    public void testStoreRevocationAfterShutdown() {
+        when(delegate.getRevocations(anyInt())).thenReturn(Collections.singletonList(ONE_HOUR_AGO));
+        store.initialize();
+        store.shutdown();
+
+        store.storeRevocation(DomainUtils.revocationRequest(RevocationType.TOKEN));
+        store.storeRevocation(DomainUtils.revocationRequest(RevocationType.TOKEN));
+
+        verify(delegate, times(2)).storeRevocation(DomainUtils.revocationRequest(RevocationType.TOKEN));
+        verify(delegate).getRevocations(anyInt());
+    }
+
+    /**
+     * Tests that tailing the delegate merges new revocations without duplicating the ones already indexed.
+     */
+    @Test
+    public void testRefreshMergesNewRevocations() {
+        when(delegate.getRevocations(anyInt())).thenReturn(Collections.singletonList(ONE_HOUR_AGO));
+        store.initialize();
+
+        RevocationData now = revocationData(InstantTimestamp.NOW.seconds());
+        when(delegate.getRevocations(anyInt())).thenReturn(Arrays.asList(ONE_HOUR_AGO, FIVE_MINUTES_AGO, now));
+        store.refresh();
+
+        assertThat(store.getRevocations(InstantTimestamp.ONE_HOUR_AGO.seconds() - 1))
+                .containsExactly(ONE_HOUR_AGO, FIVE_MINUTES_AGO, now);
+        assertThat(metricRegistry.getGauges().get("planb.revocations.cache.size").getValue()).isEqualTo(3);
+    }
+
+    /**
+     * Tests that the version only changes when revocations are added or removed, and does not depend on the instance.
+     */
+    @Test
+    public void testVersion() {
+        assertThat(store.getVersion()).isEmpty();
+
+        when(delegate.getRevocations(anyInt())).thenReturn(Collections.singletonList(ONE_HOUR_AGO));
+        store.initialize();
+        String version = store.getVersion().get();
+
+        store.refresh();
+        assertThat(store.getVersion()).contains(version);
+
+        when(delegate.getRevocations(anyInt())).thenReturn(Arrays.asList(ONE_HOUR_AGO, FIVE_MINUTES_AGO));
+        store.refresh();
+        assertThat(store.getVersion().get()).isNotEqualTo(version);
+
+        CachingRevocationStore other = new CachingRevocationStore(delegate, MAX_TIME_DELTA, 60, new MetricRegistry());
+        other.initialize();
+        assertThat(other.getVersion()).isEqualTo(store.getVersion());
+
+        when(delegate.getRevocations(anyInt())).thenReturn(Collections.singletonList(ONE_HOUR_AGO));
+        store.resync();
+        assertThat(store.getVersion()).contains(version);
+    }
+
+    /**
+     * Tests that reads after a cursor only return revocations strictly newer than it.
+     */
+    @Test
+    public void testReadsAfterCursor() {
+        RevocationData sameSecond = revocationData(FIVE_MINUTES_AGO.revokedAt());
+        when(delegate.getRevocations(anyInt())).thenReturn(Arrays.asList(ONE_HOUR_AGO, FIVE_MINUTES_AGO, sameSecond));
+        store.initialize();
+
+        assertThat(store.getRevocations(Cursor.after(ONE_HOUR_AGO))).containsExactly(FIVE_MINUTES_AGO, sameSecond);
+        assertThat(store.getRevocations(Cursor.after(FIVE_MINUTES_AGO))).containsExactly(sameSecond);
+        assertThat(store.getRevocations(Cursor.after(sameSecond))).isEmpty();
+        assertThat(store.getRevocations(Cursor.after(ONE_HOUR_AGO.revokedAt()))).containsExactly(FIVE_MINUTES_AGO,
+                sameSecond);
+
+        verify(delegate, times(1)).getRevocations(anyInt());
+    }
+
+    /**
+     * Tests that iterating after a cursor visits the indexed revocations in order, and falls back to the delegate while
+     * the index could not be loaded.
+     */
+    @Test
+    public void testForEachRevocationAfterCursor() {
+        RevocationData sameSecond = revocationData(FIVE_MINUTES_AGO.revokedAt());
+        when(delegate.getRevocations(anyInt())).thenReturn(Arrays.asList(ONE_HOUR_AGO, FIVE_MINUTES_AGO, sameSecond));
+        store.initialize();
+
+        List<RevocationData> visited = new ArrayList<>();
+        store.forEachRevocation(Cursor.after(ONE_HOUR_AGO), visited::add);
+        assertThat(visited).containsExactly(FIVE_MINUTES_AGO, sameSecond);
+
+        visited.clear();
+        store.forEachRevocation(Cursor.after(FIVE_MINUTES_AGO.revokedAt()), visited::add);
+        assertThat(visited).isEmpty();
+        verify(delegate, never()).forEachRevocation(any(Cursor.class), any());
+
+        CachingRevocationStore uninitialized = new CachingRevocationStore(delegate, MAX_TIME_DELTA, 60,
+                new MetricRegistry());
+        uninitialized.forEachRevocation(Cursor.after(ONE_HOUR_AGO), visited::add);
+        verify(delegate).forEachRevocation(eq(Cursor.after(ONE_HOUR_AGO)), any());
+    }
+
+    /**
+     * Tests that a full reload drops revocations no longer returned by the delegate.
+     */
+    @Test
+    public void testResyncDropsExpiredRevocations() {
+        when(delegate.getRevocations(anyInt())).thenReturn(Arrays.asList(ONE_HOUR_AGO, FIVE_MINUTES_AGO));
+        store.initialize();
+
+        when(delegate.getRevocations(anyInt())).thenReturn(Collections.singletonList(FIVE_MINUTES_AGO));
+        store.resync();
+
+        assertThat(store.getRevocations(InstantTimestamp.ONE_HOUR_AGO.seconds() - 1))
+                .containsExactly(FIVE_MINUTES_AGO);
+    }
+
+    /**
+     * Tests that reads fall back to the delegate while the index could not be loaded.
+     */
+    @Test
+    public void testFallbackToDelegateWhenNotInitialized() {
+        when(delegate.getRevocations(anyInt())).thenThrow(new IllegalStateException("Cassandra is down"));
+        store.initialize();
+
+        assertThat(metricRegistry.getGauges().get("planb.revocations.cache.staleness").getValue()).isEqualTo(-1L);
+
+        doReturn(Collections.singletonList(FIVE_MINUTES_AGO)).when(delegate).getRevocations(anyInt());
+        assertThat(store.getRevocations(InstantTimestamp.ONE_HOUR_AGO.seconds())).containsExactly(FIVE_MINUTES_AGO);
+    }
+
+    /**
+     * Tests that the same time limit as the delegate is enforced.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testExceptionWhenFromIsTooOld() {
+        store.getRevocations(InstantTimestamp.NOW.seconds() - MAX_TIME_DELTA - 2);
+    }
+}
@@ -0,0 +1,227 @@
+package org.zalando.planb.revocation.persistence;
+
+import com.codahale.metrics.MetricRegistry;
+import com.datastax.driver.core.BatchStatement;
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.RegularStatement;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.utils.UUIDs;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.zalando.planb.revocation.domain.AuthorizationRule;
+import org.zalando.planb.revocation.domain.ImmutableAuthorizationRule;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static com.google.common.collect.ImmutableMap.of;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link CassandraAuthorizationRuleStore}.
+ *
+ * @author <a href="mailto:team-greendale@zalando.de">Team Greendale</a>
+ */
+public class CassandraAuthorizationRuleStoreTest {
+
+    private static final AuthorizationRule SERVICES = ImmutableAuthorizationRule.builder()
+            .requiredUserClaims(of("sub", "admin"))
+            .allowedRevocationClaims(of("realm", "/services"))
+            .build();
+
+    private static final AuthorizationRule EMPLOYEES = ImmutableAuthorizationRule.builder()
+            .requiredUserClaims(of("sub", "admin"))
+            .allowedRevocationClaims(of("realm", "/employees"))
+            .build();
+
+    private Session session;
+
+    private MetricRegistry metricRegistry;
+
+    private Map<String, BoundStatement> statements;
+
+    private CassandraAuthorizationRuleStore store;
+
+    @Before
+    public void setUp() {
+        statements = new HashMap<>();
+        session = mock(Session.class);
+        when(session.prepare(any(RegularStatement.class))).thenAnswer(invocation -> {
+            String query = invocation.getArguments()[0].toString();
+            BoundStatement bound = mock(BoundStatement.class, RETURNS_DEEP_STUBS);
+            statements.put(query, bound);
+
+            PreparedStatement prepared = mock(PreparedStatement.class);
+            when(prepared.setConsistencyLevel(any(ConsistencyLevel.class))).thenReturn(prepared);
+            when(prepared.bind()).thenReturn(bound);
+            return prepared;
+        });
+        when(session.execute(any(BoundStatement.class))).thenReturn(mock(ResultSet.class));
+
+        metricRegistry = new MetricRegistry();
+        store = new CassandraAuthorizationRuleStore(session, ConsistencyLevel.ONE, ConsistencyLevel.ONE,
+                metricRegistry);
+    }
+
+    /**
+     * Tests that rules are only reloaded when their version changed.
+     */
+    @Test
+    public void testReloadOnlyWhenVersionChanged() {
+        UUID version = UUIDs.timeBased();
+        ResultSet versions = versions(version, version, UUIDs.timeBased());
+        ResultSet rules = rules(SERVICES);
+        when(session.execute(statement("SELECT version"))).thenReturn(versions);
+        when(session.execute(statement("SELECT required_user_claims"))).thenReturn(rules);
+
+        store.loadAuthorizationRuleStore();
+        store.loadAuthorizationRuleStore();
+        store.loadAuthorizationRuleStore();
+
+        verify(session, times(2)).execute(statement("SELECT required_user_claims"));
+        assertThat(metricRegistry.counter(CassandraAuthorizationRuleStore.METRIC_PREFIX + ".skippedReloads")
+                .getCount()).isEqualTo(1);
+        assertThat(metricRegistry.timer(CassandraAuthorizationRuleStore.METRIC_PREFIX + ".reloads").getCount())
+                .isEqualTo(2);
+        assertThat(metricRegistry.getGauges().get(CassandraAuthorizationRuleStore.METRIC_PREFIX + ".count")
+                .getValue()).isEqualTo(1);
+    }
+
+    /**
+     * Tests that rules are always reloaded while there is no version yet.
+     */
+    @Test
+    public void testReloadWithoutVersion() {
+        ResultSet versions = versions((UUID) null);
+        ResultSet rules = rules(SERVICES);
+        when(session.execute(statement("SELECT version"))).thenReturn(versions);
+        when(session.execute(statement("SELECT required_user_claims"))).thenReturn(rules);
+
+        store.loadAuthorizationRuleStore();
+        store.loadAuthorizationRuleStore();
+
+        verify(session, times(2)).execute(statement("SELECT required_user_claims"));
+    }
+
+    /**
+     * Tests that stored rules are matched right away, without reloading, and that the version is changed in the same
+     * batch.
+     */
+    @Test
+    public void testStoredRulesAreMatchedWithoutReload() {
+        ResultSet versions = versions(UUIDs.timeBased());
+        ResultSet rules = rules(SERVICES);
+        when(session.execute(statement("SELECT version"))).thenReturn(versions);
+        when(session.execute(statement("SELECT required_user_claims"))).thenReturn(rules);
+        store.loadAuthorizationRuleStore();
+
+        store.store(EMPLOYEES);
+
+        assertThat(store.retrieveByMatchingAllowedClaims(ImmutableAuthorizationRule.builder()
+                .allowedRevocationClaims(of("realm", "/employees")).build())).containsExactly(EMPLOYEES);
+        verify(session, times(1)).execute(statement("SELECT required_user_claims"));
+
+        // Both reads, the version read again, then the batch
+        ArgumentCaptor<Statement> executed = ArgumentCaptor.forClass(Statement.class);
+        verify(session, times(4)).execute(executed.capture());
+        assertThat(((BatchStatement) executed.getValue()).getStatements())
+                .hasSize(2)
+                .contains(statement("INSERT INTO authorization_rule_version"));
+    }
+
+    /**
+     * Tests that the version written with a stored rule is taken as loaded, so that the next reload is skipped.
+     */
+    @Test
+    public void testNoReloadAfterStoringRule() {
+        UUID version = UUIDs.timeBased();
+        ResultSet versions = versions(version);
+        ResultSet rules = rules(SERVICES);
+        when(session.execute(statement("SELECT version"))).thenReturn(versions);
+        when(session.execute(statement("SELECT required_user_claims"))).thenReturn(rules);
+        store.loadAuthorizationRuleStore();
+
+        store.store(EMPLOYEES);
+
+        ArgumentCaptor<UUID> written = ArgumentCaptor.forClass(UUID.class);
+        verify(statement("INSERT INTO authorization_rule_version")).setUUID(eq("version"), written.capture());
+        assertThat(written.getValue()).isNotEqualTo(version);
+        ResultSet newVersion = versions(written.getValue());
+        when(session.execute(statement("SELECT version"))).thenReturn(newVersion);
+        store.loadAuthorizationRuleStore();
+
+        verify(session, times(1)).execute(statement("SELECT required_user_claims"));
+        assertThat(metricRegistry.counter(CassandraAuthorizationRuleStore.METRIC_PREFIX + ".skippedReloads")
+                .getCount()).isEqualTo(1);
+    }
+
+    /**
+     * Tests that rules changed by another node since the last load are reloaded after storing a rule.
+     */
+    @Test
+    public void testReloadAfterStoringRuleWhenChangedElsewhere() {
+        ResultSet versions = versions(UUIDs.timeBased(), UUIDs.timeBased());
+        ResultSet rules = rules(SERVICES);
+        when(session.execute(statement("SELECT version"))).thenReturn(versions);
+        when(session.execute(statement("SELECT required_user_claims"))).thenReturn(rules);
+        store.loadAuthorizationRuleStore();
+
+        store.store(EMPLOYEES);
+
+        ArgumentCaptor<UUID> written = ArgumentCaptor.forClass(UUID.class);
+        verify(statement("INSERT INTO authorization_rule_version")).setUUID(eq("version"), written.capture());
+        ResultSet newVersion = versions(written.getValue());
+        when(session.execute(statement("SELECT version"))).thenReturn(newVersion);
+        store.loadAuthorizationRuleStore();
+
+        verify(session, times(2)).execute(statement("SELECT required_user_claims"));
+    }
+
+    private BoundStatement statement(final String queryPart) {
+        return statements.entrySet().stream().filter(e -> e.getKey().contains(queryPart))
+                .map(Map.Entry::getValue).findFirst().get();
+    }
+
+    private static ResultSet versions(final UUID first, final UUID... next) {
+        Row firstRow = versionRow(first);
+        Row[] nextRows = Arrays.stream(next).map(CassandraAuthorizationRuleStoreTest::versionRow).toArray(Row[]::new);
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.one()).thenReturn(firstRow, nextRows);
+        return rs;
+    }
+
+    private static Row versionRow(final UUID version) {
+        Row row = mock(Row.class);
+        when(row.getUUID("version")).thenReturn(version);
+        return row;
+    }
+
+    private static ResultSet rules(final AuthorizationRule... rules) {
+        Row[] rows = Arrays.stream(rules).map(rule -> {
+            Row row = mock(Row.class);
+            when(row.getMap("required_user_claims", String.class, String.class))
+                    .thenReturn(rule.requiredUserClaims());
+            when(row.getMap("allowed_revocation_claims", String.class, String.class))
+                    .thenReturn(rule.allowedRevocationClaims());
+            return row;
+        }).toArray(Row[]::new);
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.all()).thenReturn(Arrays.asList(rows));
+        return rs;
+    }
+}
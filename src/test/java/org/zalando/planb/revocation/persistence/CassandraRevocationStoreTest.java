@@ -1,17 +1,67 @@
 package org.zalando.planb.revocation.persistence;
 
+import static com.fasterxml.jackson.databind.PropertyNamingStrategy.CAMEL_CASE_TO_LOWER_CASE_WITH_UNDERSCORES;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyVararg;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.zalando.planb.revocation.util.domain.DomainUtils.revocationData;
 
+import java.security.NoSuchAlgorithmException;
 import java.text.ParseException;
+import java.time.LocalDate;
+import java.time.ZoneId;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
+import com.codahale.metrics.MetricRegistry;
+import com.datastax.driver.core.BatchStatement;
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.RegularStatement;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.WriteType;
+import com.datastax.driver.core.exceptions.WriteTimeoutException;
+import com.datastax.driver.core.utils.UUIDs;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.guava.GuavaModule;
+import com.google.common.util.concurrent.AbstractFuture;
+import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 
+import org.zalando.planb.revocation.api.exception.StorageTimeoutException;
+import org.zalando.planb.revocation.domain.CurrentUser;
+import org.zalando.planb.revocation.domain.Cursor;
+import org.zalando.planb.revocation.domain.ImmutableRevocationRequest;
+import org.zalando.planb.revocation.domain.ImmutableRevokedClaimsData;
+import org.zalando.planb.revocation.domain.ImmutableRevokedTokenData;
+import org.zalando.planb.revocation.domain.RevocationData;
+import org.zalando.planb.revocation.domain.RevocationRequest;
+import org.zalando.planb.revocation.domain.RevocationType;
+import org.zalando.planb.revocation.domain.RevokedGlobal;
+import org.zalando.planb.revocation.util.ImmutableMessageHasher;
 import org.zalando.planb.revocation.util.LocalTimeFormatter;
+import org.zalando.planb.revocation.util.MessageHasher;
+import org.zalando.planb.revocation.util.RevocationJsonCodec;
 import org.zalando.planb.revocation.util.UnixTimestamp;
 
 /**
@@ -19,6 +69,531 @@ import org.zalando.planb.revocation.util.UnixTimestamp;
  */
 public class CassandraRevocationStoreTest {
 
+    private static final int BUCKET_LENGTH = 8 * 60 * 60;
+
+    private static final int FETCH_SIZE = 100;
+
+    private Session session;
+
+    private ObjectMapper objectMapper;
+
+    private MetricRegistry metricRegistry;
+
+    private SealedBucketCache bucketCache;
+
+    private MessageHasher messageHasher;
+
+    private boolean writeLegacyColumns = true;
+
+    private int bucketDirectoryCacheDuration = 0;
+
+    private int timeToLive = BUCKET_LENGTH * 3;
+
+    private Map<String, BoundStatement> statements;
+
+    private Map<String, Object[]> bindings;
+
+    @Before
+    public void setUp() {
+        statements = new HashMap<>();
+        bindings = new HashMap<>();
+
+        session = mock(Session.class);
+        when(session.prepare(any(RegularStatement.class))).thenAnswer(invocation -> {
+            String query = invocation.getArguments()[0].toString();
+            BoundStatement bound = mock(BoundStatement.class);
+            statements.put(query, bound);
+
+            PreparedStatement prepared = mock(PreparedStatement.class);
+            when(prepared.setConsistencyLevel(any(ConsistencyLevel.class))).thenReturn(prepared);
+            when(prepared.bind(anyVararg())).thenAnswer(bind -> {
+                bindings.put(query, bind.getArguments());
+                return bound;
+            });
+            return prepared;
+        });
+
+        messageHasher = ImmutableMessageHasher.builder()
+                .putHashingAlgorithms(RevocationType.TOKEN, "SHA-256")
+                .putHashingAlgorithms(RevocationType.CLAIM, "SHA-256")
+                .salt("salt")
+                .separator('|')
+                .build();
+
+        objectMapper = new ObjectMapper();
+        objectMapper.setPropertyNamingStrategy(CAMEL_CASE_TO_LOWER_CASE_WITH_UNDERSCORES);
+        objectMapper.registerModule(new GuavaModule());
+
+        metricRegistry = new MetricRegistry();
+        bucketCache = new SealedBucketCache(10, BUCKET_LENGTH * 3, metricRegistry);
+    }
+
+    /**
+     * Tests that rows of all queried buckets are merged in ascending {@code revoked_at} order.
+     */
+    @Test
+    public void testBucketsAreMergedInRevokedAtOrder() {
+        int now = UnixTimestamp.now();
+
+        // Cassandra returns rows of each bucket in descending order
+        ResultSetFuture previousBucket = completed(tokenRow(now - BUCKET_LENGTH + 20),
+                tokenRow(now - BUCKET_LENGTH + 10));
+        ResultSetFuture currentBucket = completed(tokenRow(now), tokenRow(now - 10));
+        when(session.executeAsync(any(Statement.class))).thenReturn(previousBucket, currentBucket);
+
+        Collection<RevocationData> revocations = store(8, 1000).getRevocations(now - BUCKET_LENGTH);
+
+        assertThat(revocations).extracting("revokedAt").containsExactly(
+                now - BUCKET_LENGTH + 10, now - BUCKET_LENGTH + 20, now - 10, now);
+        verify(session, times(2)).executeAsync(any(Statement.class));
+    }
+
+    /**
+     * Tests that the data of each revocation written as JSON is read according to its type.
+     */
+    @Test
+    public void testGlobalRevocationsAreRead() {
+        int now = UnixTimestamp.now();
+        ResultSetFuture previousBucket = completed(tokenRow(now - BUCKET_LENGTH + 10));
+        ResultSetFuture currentBucket = completed(legacyRow("GLOBAL", "{\"issued_before\":" + now + "}", now));
+        when(session.executeAsync(any(Statement.class))).thenReturn(previousBucket, currentBucket);
+
+        List<RevocationData> revocations = new ArrayList<>(store(8, 1000).getRevocations(now - BUCKET_LENGTH));
+
+        assertThat(revocations).extracting("revocationRequest.type")
+                .containsExactly(RevocationType.TOKEN, RevocationType.GLOBAL);
+        assertThat(((RevokedGlobal) revocations.get(1).revocationRequest().data()).issuedBefore()).isEqualTo(now);
+    }
+
+    /**
+     * Tests that rows written as text and JSON are read next to rows written to the typed columns.
+     */
+    @Test
+    public void testLegacyAndTypedRowsAreRead() {
+        int now = UnixTimestamp.now();
+        Row claims = mock(Row.class);
+        when(claims.getInt("type_code")).thenReturn(2);
+        when(claims.getMap("claims", String.class, String.class)).thenReturn(Collections.singletonMap("uid", "x"));
+        when(claims.getInt("issued_before")).thenReturn(now);
+        when(claims.getInt("revoked_at")).thenReturn(now);
+        when(claims.getUUID("bucket_uuid")).thenReturn(UUIDs.timeBased());
+        ResultSetFuture previousBucket = completed(
+                legacyRow("CLAIM", "{\"claims\":{\"uid\":\"x\"},\"issued_before\":" + now + "}", now - 10));
+        ResultSetFuture currentBucket = completed(claims, tokenRow(now - 5));
+        when(session.executeAsync(any(Statement.class))).thenReturn(previousBucket, currentBucket);
+
+        List<RevocationData> revocations = new ArrayList<>(store(8, 1000).getRevocations(now - BUCKET_LENGTH));
+
+        assertThat(revocations).extracting("revocationRequest.data")
+                .containsExactly(
+                        ImmutableRevokedClaimsData.builder().putClaims("uid", "x").issuedBefore(now).build(),
+                        ImmutableRevokedTokenData.builder().token("abc").issuedBefore(now - 5).build(),
+                        ImmutableRevokedClaimsData.builder().putClaims("uid", "x").issuedBefore(now).build());
+    }
+
+    /**
+     * Tests that sealed buckets without revocations after {@code from} according to the directory are not queried.
+     */
+    @Test
+    public void testBucketsWithoutNewerRevocationsAreSkipped() {
+        int now = UnixTimestamp.now();
+        int from = now - BUCKET_LENGTH * 2 + 1;
+        List<CassandraRevocationStore.Bucket> buckets = CassandraRevocationStore.getBuckets(from, now);
+        ResultSet directory = resultSet(directoryRow(buckets.get(0), from), directoryRow(buckets.get(1), now));
+        ResultSetFuture previousBucket = completed(tokenRow(now - BUCKET_LENGTH + 10));
+        ResultSetFuture currentBucket = completed(tokenRow(now));
+        when(session.executeAsync(any(Statement.class))).thenReturn(previousBucket, currentBucket);
+        bucketDirectoryCacheDuration = 60000;
+        CassandraRevocationStore store = store(8, 1000);
+        when(session.execute(statement("SELECT bucket_date"))).thenReturn(directory);
+
+        Collection<RevocationData> revocations = store.getRevocations(from);
+
+        assertThat(revocations).extracting("revokedAt").containsExactly(now - BUCKET_LENGTH + 10, now);
+        verify(session, times(2)).executeAsync(any(Statement.class));
+        assertThat(metricRegistry.counter(BucketDirectory.METRIC_PREFIX + ".skipped").getCount()).isEqualTo(1);
+    }
+
+    /**
+     * Tests that all buckets are queried when the directory can not be read.
+     */
+    @Test
+    public void testBucketsAreQueriedWhenDirectoryFails() {
+        int now = UnixTimestamp.now();
+        int from = now - BUCKET_LENGTH * 2 + 1;
+        ResultSetFuture oldestBucket = completed(tokenRow(now - BUCKET_LENGTH * 2 + 10));
+        ResultSetFuture previousBucket = completed(tokenRow(now - BUCKET_LENGTH + 10));
+        ResultSetFuture currentBucket = completed(tokenRow(now));
+        when(session.executeAsync(any(Statement.class))).thenReturn(oldestBucket, previousBucket, currentBucket);
+
+        bucketDirectoryCacheDuration = 60000;
+        CassandraRevocationStore store = store(8, 1000);
+        when(session.execute(statement("SELECT bucket_date"))).thenThrow(new IllegalStateException("unavailable"));
+
+        Collection<RevocationData> revocations = store.getRevocations(from);
+
+        assertThat(revocations).extracting("revokedAt").containsExactly(
+                now - BUCKET_LENGTH * 2 + 10, now - BUCKET_LENGTH + 10, now);
+        verify(session, times(3)).executeAsync(any(Statement.class));
+        assertThat(metricRegistry.counter(BucketDirectory.METRIC_PREFIX + ".skipped").getCount()).isEqualTo(0);
+    }
+
+    /**
+     * Tests that buckets whose rows have all expired are not queried.
+     */
+    @Test
+    public void testExpiredBucketsAreNotQueried() {
+        int now = UnixTimestamp.now();
+        ResultSetFuture previousBucket = completed(tokenRow(now - BUCKET_LENGTH + 10));
+        ResultSetFuture currentBucket = completed(tokenRow(now));
+        when(session.executeAsync(any(Statement.class))).thenReturn(previousBucket, currentBucket);
+        timeToLive = BUCKET_LENGTH - SealedBucketCache.SEAL_GRACE - 1;
+
+        Collection<RevocationData> revocations = store(8, 1000).getRevocations(now - BUCKET_LENGTH * 2 + 1);
+
+        assertThat(revocations).extracting("revokedAt").containsExactly(now - BUCKET_LENGTH + 10, now);
+        verify(session, times(2)).executeAsync(any(Statement.class));
+        assertThat(metricRegistry.counter(BucketPlanner.METRIC_PREFIX + ".skipped").getCount()).isEqualTo(1);
+        assertThat(metricRegistry.counter(BucketPlanner.METRIC_PREFIX + ".planned").getCount()).isEqualTo(2);
+    }
+
+    /**
+     * Tests that each revocation is recorded in the directory, with its {@code revoked_at} as write timestamp, in the
+     * same logged batch as the revocation.
+     */
+    @Test
+    public void testRevocationsAreRecordedInDirectory() {
+        int before = UnixTimestamp.now();
+        store(8, 1000).storeRevocation(ImmutableRevocationRequest.builder()
+                .type(RevocationType.TOKEN)
+                .data(ImmutableRevokedTokenData.builder().token("abc").build())
+                .build());
+
+        Object[] values = binding("UPDATE bucket_directory");
+        assertThat((Integer) values[1]).isBetween(before, UnixTimestamp.now());
+        assertThat(values[0]).isEqualTo(TimeUnit.SECONDS.toMicros((Integer) values[1]));
+        CassandraRevocationStore.Bucket bucket = CassandraRevocationStore.getBuckets((Integer) values[1],
+                (Integer) values[1]).get(0);
+        assertThat(values[3]).isEqualTo(bucket.date);
+        assertThat(values[4]).isEqualTo(bucket.interval);
+
+        ArgumentCaptor<Statement> executed = ArgumentCaptor.forClass(Statement.class);
+        verify(session).execute(executed.capture());
+        assertThat(executed.getValue()).isInstanceOf(BatchStatement.class);
+        assertThat(((BatchStatement) executed.getValue()).getStatements()).containsExactly(
+                statement("UPDATE bucket_directory"), statement("type_code,token,issued_before"));
+    }
+
+    /**
+     * Tests that the newest revocation of each sealed bucket is recorded in the directory.
+     */
+    @Test
+    public void testBackfillBucketDirectory() {
+        int now = UnixTimestamp.now();
+        Row newest = tokenRow(now - BUCKET_LENGTH);
+        when(newest.getInt("revoked_at")).thenReturn(now - BUCKET_LENGTH);
+        ResultSet withNewest = resultSet(newest);
+        CassandraRevocationStore store = store(8, 1000);
+        when(session.execute(statement("SELECT revoked_at FROM"))).thenReturn(withNewest);
+
+        int recorded = store.backfillBucketDirectory();
+
+        // the previous bucket is only sealed a minute after the current one started
+        assertThat(recorded).isBetween(1, 2);
+        assertThat(binding("UPDATE bucket_directory")[1]).isEqualTo(now - BUCKET_LENGTH);
+    }
+
+    /**
+     * Tests that sealed buckets are only queried once, and then served from the cache.
+     */
+    @Test
+    public void testSealedBucketsAreServedFromCache() {
+        int now = UnixTimestamp.now();
+        ResultSetFuture oldestBucket = completed(tokenRow(now - BUCKET_LENGTH * 2 + 10));
+        ResultSetFuture previousBucket = completed(tokenRow(now - BUCKET_LENGTH + 10));
+        ResultSetFuture currentBucket = completed(tokenRow(now));
+        when(session.executeAsync(any(Statement.class))).thenReturn(oldestBucket, previousBucket, currentBucket);
+
+        CassandraRevocationStore store = store(8, 1000);
+        // one second within maxTimeDelta, so that the clock may tick in between
+        Collection<RevocationData> first = store.getRevocations(now - BUCKET_LENGTH * 2 + 1);
+        Collection<RevocationData> second = store.getRevocations(now - BUCKET_LENGTH * 2 + 1);
+
+        assertThat(second).isEqualTo(first);
+        assertThat(second).extracting("revokedAt").containsExactly(
+                now - BUCKET_LENGTH * 2 + 10, now - BUCKET_LENGTH + 10, now);
+
+        // the previous bucket is only sealed a minute after the current one started
+        long hits = metricRegistry.counter(SealedBucketCache.METRIC_PREFIX + ".hits").getCount();
+        assertThat(hits).isBetween(1L, 2L);
+        verify(session, times(6 - (int) hits)).executeAsync(any(Statement.class));
+    }
+
+    /**
+     * Tests that iterating over revocations pages through buckets in ascending order, skipping the ones up to the
+     * cursor.
+     */
+    @Test
+    public void testForEachRevocationPagesInAscendingOrder() {
+        int now = UnixTimestamp.now();
+        CassandraRevocationStore store = store(8, 1000);
+
+        // the cursor's second may be in the previous bucket
+        ResultSetFuture rows = completed(tokenRow(now - 10), tokenRow(now - 5), tokenRow(now));
+        ResultSetFuture empty = completed();
+        when(session.executeAsync(statement("ORDER BY"))).thenReturn(rows, empty);
+
+        List<RevocationData> revocations = new ArrayList<>();
+        store.forEachRevocation(Cursor.after(now - 10), revocations::add);
+
+        assertThat(revocations).extracting("revokedAt").containsExactly(now - 5, now);
+        assertThat(binding("ORDER BY")[2]).isEqualTo(now - 11);
+        verify(statement("ORDER BY"), atLeastOnce()).setFetchSize(FETCH_SIZE);
+    }
+
+    /**
+     * Tests that iterating over revocations fills the cache with the sealed buckets it reads, and serves them from it
+     * afterwards.
+     */
+    @Test
+    public void testForEachRevocationCachesSealedBuckets() {
+        int now = UnixTimestamp.now();
+        ResultSetFuture oldestBucket = completed(tokenRow(now - BUCKET_LENGTH * 2 + 10));
+        ResultSetFuture previousBucket = completed(tokenRow(now - BUCKET_LENGTH + 10));
+        ResultSetFuture currentBucket = completed(tokenRow(now));
+        when(session.executeAsync(any(Statement.class))).thenReturn(oldestBucket, previousBucket, currentBucket);
+
+        CassandraRevocationStore store = store(8, 1000);
+        List<RevocationData> first = new ArrayList<>();
+        store.forEachRevocation(Cursor.after(now - BUCKET_LENGTH * 2 + 2), first::add);
+        List<RevocationData> second = new ArrayList<>();
+        store.forEachRevocation(Cursor.after(now - BUCKET_LENGTH * 2 + 2), second::add);
+
+        assertThat(second).isEqualTo(first);
+        assertThat(second).extracting("revokedAt").containsExactly(
+                now - BUCKET_LENGTH * 2 + 10, now - BUCKET_LENGTH + 10, now);
+
+        // the previous bucket is only sealed a minute after the current one started
+        long hits = metricRegistry.counter(SealedBucketCache.METRIC_PREFIX + ".hits").getCount();
+        assertThat(hits).isBetween(1L, 2L);
+        verify(session, times(6 - (int) hits)).executeAsync(any(Statement.class));
+    }
+
+    /**
+     * Tests that iterating over revocations is bounded by the read deadline as well.
+     */
+    @Test(expected = StorageTimeoutException.class)
+    public void testForEachRevocationTimeoutWhenBucketIsSlow() {
+        int now = UnixTimestamp.now();
+        ResultSetFuture previousBucket = completed();
+        when(session.executeAsync(any(Statement.class))).thenReturn(previousBucket, new TestResultSetFuture());
+
+        store(8, 50).forEachRevocation(Cursor.after(now - BUCKET_LENGTH), revocation -> { });
+    }
+
+    /**
+     * Tests that the hash of the revoked token is stored together with the revocation.
+     */
+    @Test
+    public void testHashIsStoredWithRevocation() throws NoSuchAlgorithmException {
+        store(8, 1000).storeRevocation(ImmutableRevocationRequest.builder()
+                .type(RevocationType.TOKEN)
+                .data(ImmutableRevokedTokenData.builder().token("abc").build())
+                .build());
+
+        Object[] values = binding("INSERT");
+        assertThat(values[values.length - 2]).isEqualTo(messageHasher.hashAndEncode(RevocationType.TOKEN, "abc"));
+        assertThat(values[values.length - 1]).isEqualTo(messageHasher.fingerprints().get(RevocationType.TOKEN));
+    }
+
+    /**
+     * Tests that revocations are written to the typed columns, and to the text and JSON columns unless disabled.
+     */
+    @Test
+    public void testTypedColumnsAreStored() {
+        RevocationRequest request = ImmutableRevocationRequest.builder()
+                .type(RevocationType.CLAIM)
+                .data(ImmutableRevokedClaimsData.builder().putClaims("uid", "x").issuedBefore(100).build())
+                .build();
+
+        store(8, 1000).storeRevocation(request);
+        assertThat(Arrays.copyOfRange(binding("INSERT"), 2, 7)).containsExactly(2,
+                Collections.singletonMap("uid", "x"), 100, "CLAIM",
+                "{\"claims\":{\"uid\":\"x\"},\"issued_before\":100}");
+
+        bindings.clear();
+        writeLegacyColumns = false;
+        store(8, 1000).storeRevocation(request);
+        assertThat(Arrays.copyOfRange(binding("INSERT"), 2, 5)).containsExactly(2,
+                Collections.singletonMap("uid", "x"), 100);
+        assertThat(binding("INSERT")).hasSize(9);
+    }
+
+    /**
+     * Tests that revocations without a current hash are updated, keeping their remaining time to live.
+     */
+    @Test
+    public void testBackfillHashes() throws NoSuchAlgorithmException {
+        int now = UnixTimestamp.now();
+        Row row = tokenRow(now);
+        when(row.getInt(CassandraRevocationStore.SELECT_BUCKET_TTL_INDEX)).thenReturn(3600);
+        CassandraRevocationStore store = store(8, 1000);
+
+        ResultSet empty = resultSet();
+        ResultSet withRow = resultSet(row);
+        when(session.execute(statement("ttl("))).thenReturn(withRow, empty);
+        ResultSetFuture update = completed();
+        when(session.executeAsync(any(Statement.class))).thenReturn(update);
+
+        assertThat(store.backfillHashes()).isEqualTo(1);
+
+        Object[] values = binding("UPDATE");
+        assertThat((Integer) values[0]).isBetween(3598, 3599);
+        assertThat(values[1]).isEqualTo(messageHasher.hashAndEncode(RevocationType.TOKEN, "abc"));
+        assertThat(values[2]).isEqualTo(messageHasher.fingerprints().get(RevocationType.TOKEN));
+        assertThat(values[5]).isEqualTo(now);
+    }
+
+    /**
+     * Tests that failed hash updates are not counted.
+     */
+    @Test
+    public void testBackfillHashesFailedUpdate() {
+        int now = UnixTimestamp.now();
+        Row row = tokenRow(now);
+        when(row.getInt(CassandraRevocationStore.SELECT_BUCKET_TTL_INDEX)).thenReturn(3600);
+        Row other = tokenRow(now - 1);
+        when(other.getInt(CassandraRevocationStore.SELECT_BUCKET_TTL_INDEX)).thenReturn(3600);
+        CassandraRevocationStore store = store(8, 1000);
+
+        ResultSet empty = resultSet();
+        ResultSet withRow = resultSet(row, other);
+        when(session.execute(statement("ttl("))).thenReturn(withRow, empty);
+        TestResultSetFuture failed = new TestResultSetFuture();
+        failed.setException(new WriteTimeoutException(ConsistencyLevel.ONE, WriteType.SIMPLE, 0, 1));
+        ResultSetFuture update = completed();
+        when(session.executeAsync(any(Statement.class))).thenReturn(failed, update);
+
+        assertThat(store.backfillHashes()).isEqualTo(1);
+        verify(session, times(2)).executeAsync(any(Statement.class));
+    }
+
+    /**
+     * Tests that the latest refresh is kept in memory until a new one is stored.
+     */
+    @Test
+    public void testRefreshIsCached() {
+        CassandraRevocationStore store = store(8, 1000);
+        ResultSet first = resultSet(refreshRow(100));
+        ResultSet second = resultSet(refreshRow(200));
+        when(session.execute(statement("SELECT refresh_from"))).thenReturn(first, second);
+
+        assertThat(store.getRefresh().refreshFrom()).isEqualTo(100);
+        assertThat(store.getRefresh().refreshFrom()).isEqualTo(100);
+
+        store.storeRefresh(200);
+        assertThat(store.getRefresh().refreshFrom()).isEqualTo(200);
+        verify(session, times(2)).execute(statement("SELECT refresh_from"));
+    }
+
+    /**
+     * Tests that the previous year is read when the current one has no refresh, and the window reaches into it.
+     */
+    @Test
+    public void testRefreshFromPreviousYear() {
+        CassandraRevocationStore store = store(400 * 24 * 60 * 60, 8, 1000);
+        ResultSet empty = resultSet();
+        ResultSet previousYear = resultSet(refreshRow(100));
+        when(session.execute(statement("SELECT refresh_from"))).thenReturn(empty, previousYear);
+
+        assertThat(store.getRefresh().refreshFrom()).isEqualTo(100);
+        assertThat(binding("SELECT refresh_from")[0]).isEqualTo(LocalDate.now(ZoneId.of("UTC")).getYear() - 1);
+    }
+
+    /**
+     * Tests that a cursor at the time limit is accepted when reading and when iterating over revocations.
+     */
+    @Test
+    public void testCursorAtTimeLimit() throws InterruptedException {
+        // early in a second, so that the clock does not tick before the store checks the limit
+        while (System.currentTimeMillis() % 1000 > 500) {
+            Thread.sleep(10);
+        }
+        int now = UnixTimestamp.now();
+        ResultSetFuture bucket = completed();
+        when(session.executeAsync(any(Statement.class))).thenReturn(bucket);
+        CassandraRevocationStore store = store(8, 1000);
+        Cursor cursor = Cursor.after(now - BUCKET_LENGTH * 2);
+
+        assertThat(store.getRevocations(cursor)).isEmpty();
+        List<RevocationData> iterated = new ArrayList<>();
+        store.forEachRevocation(cursor, iterated::add);
+        assertThat(iterated).isEmpty();
+    }
+
+    /**
+     * Tests that the version changes with the revocations tailed, and is only known while the store is tailed.
+     */
+    @Test
+    public void testVersionFollowsTailer() {
+        int now = UnixTimestamp.now();
+        CassandraRevocationStore store = store(8, 1000);
+        assertThat(store.getVersion(now - 10)).isEmpty();
+
+        store.onTail(now);
+        Optional<String> version = store.getVersion(now - 10);
+        assertThat(version).isPresent();
+        assertThat(store.getVersion(now - 10)).isEqualTo(version);
+
+        store.onRevocations(Collections.singletonList(revocationData(now)));
+        assertThat(store.getVersion(now - 10)).isPresent().isNotEqualTo(version);
+
+        store.onTail(now - CassandraRevocationStore.MAX_TAIL_AGE - 1);
+        assertThat(store.getVersion(now - 10)).isEmpty();
+    }
+
+    /**
+     * Tests that no version is known for revocations that may have expired in between.
+     */
+    @Test
+    public void testNoVersionWhenRevocationsMayExpire() {
+        int now = UnixTimestamp.now();
+        CassandraRevocationStore store = store(8, 1000);
+        store.onTail(now);
+
+        assertThat(store.getVersion(now - timeToLive + 1)).isPresent();
+        assertThat(store.getVersion(now - timeToLive - 1)).isEmpty();
+    }
+
+    /**
+     * Tests that an exception is thrown when a bucket query does not complete before the deadline.
+     */
+    @Test(expected = StorageTimeoutException.class)
+    public void testTimeoutWhenBucketIsSlow() {
+        int now = UnixTimestamp.now();
+        ResultSetFuture previousBucket = completed();
+        when(session.executeAsync(any(Statement.class))).thenReturn(previousBucket, new TestResultSetFuture());
+
+        store(8, 50).getRevocations(now - BUCKET_LENGTH);
+    }
+
+    /**
+     * Tests that no more bucket queries than allowed are in flight at the same time.
+     */
+    @Test
+    public void testInFlightLimit() {
+        int now = UnixTimestamp.now();
+        when(session.executeAsync(any(Statement.class))).thenReturn(new TestResultSetFuture());
+
+        try {
+            store(1, 50).getRevocations(now - BUCKET_LENGTH);
+        } catch (StorageTimeoutException expected) {
+            verify(session, times(1)).executeAsync(any(Statement.class));
+            return;
+        }
+        throw new AssertionError("Expected a StorageTimeoutException");
+    }
+
     @Test
     public void testSameInterval() throws ParseException {
         String dateString = "2016-02-16 14:00:00.000+00";
@@ -95,4 +670,102 @@ public class CassandraRevocationStoreTest {
                     .isEqualTo((int) e.getValue());
         }
     }
+
+    private CassandraRevocationStore store(final int maxBucketQueriesInFlight, final int readDeadline) {
+        return store(BUCKET_LENGTH * 2, maxBucketQueriesInFlight, readDeadline);
+    }
+
+    private CassandraRevocationStore store(final int maxTimeDelta, final int maxBucketQueriesInFlight,
+                                           final int readDeadline) {
+        return new CassandraRevocationStore(session, ConsistencyLevel.ONE, ConsistencyLevel.ONE, maxTimeDelta,
+                maxBucketQueriesInFlight, readDeadline, FETCH_SIZE, bucketCache,
+                new BucketDirectory(session, ConsistencyLevel.ONE, ConsistencyLevel.ONE, maxTimeDelta,
+                        bucketDirectoryCacheDuration, metricRegistry),
+                new BucketPlanner(timeToLive, metricRegistry), 60000, writeLegacyColumns,
+                mock(CurrentUser.class), new RevocationJsonCodec(objectMapper), messageHasher);
+    }
+
+    private BoundStatement statement(final String queryPart) {
+        return statements.entrySet().stream().filter(e -> e.getKey().contains(queryPart))
+                .map(Map.Entry::getValue).findFirst().get();
+    }
+
+    private Object[] binding(final String queryPart) {
+        return bindings.entrySet().stream().filter(e -> e.getKey().contains(queryPart))
+                .map(Map.Entry::getValue).findFirst().get();
+    }
+
+    private static Row tokenRow(final int revokedAt) {
+        Row row = mock(Row.class);
+        when(row.getInt("type_code")).thenReturn(1);
+        when(row.getString("token")).thenReturn("abc");
+        when(row.getInt("issued_before")).thenReturn(revokedAt);
+        when(row.getInt("revoked_at")).thenReturn(revokedAt);
+        when(row.getUUID("bucket_uuid")).thenReturn(UUIDs.timeBased());
+        return row;
+    }
+
+    private static Row legacyRow(final String type, final String data, final int revokedAt) {
+        Row row = mock(Row.class);
+        when(row.isNull("type_code")).thenReturn(true);
+        when(row.getString("revocation_type")).thenReturn(type);
+        when(row.getString("revocation_data")).thenReturn(data);
+        when(row.getInt("revoked_at")).thenReturn(revokedAt);
+        when(row.getUUID("bucket_uuid")).thenReturn(UUIDs.timeBased());
+        return row;
+    }
+
+    private static Row directoryRow(final CassandraRevocationStore.Bucket bucket, final int maxRevokedAt) {
+        Row row = mock(Row.class);
+        when(row.getString("bucket_date")).thenReturn(bucket.date);
+        when(row.getInt("bucket_interval")).thenReturn(bucket.interval);
+        when(row.getInt("max_revoked_at")).thenReturn(maxRevokedAt);
+        return row;
+    }
+
+    private static Row refreshRow(final int refreshFrom) {
+        Row row = mock(Row.class);
+        when(row.getInt("refresh_from")).thenReturn(refreshFrom);
+        when(row.getInt("refresh_ts")).thenReturn(UnixTimestamp.now());
+        return row;
+    }
+
+    private static ResultSet resultSet(final Row... rows) {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.iterator()).thenAnswer(invocation -> Arrays.asList(rows).iterator());
+        when(rs.isExhausted()).thenReturn(rows.length == 0);
+        when(rs.isFullyFetched()).thenReturn(true);
+        when(rs.getAvailableWithoutFetching()).thenReturn(rows.length);
+        when(rs.one()).thenReturn(rows.length == 0 ? null : rows[0]);
+        return rs;
+    }
+
+    private static ResultSetFuture completed(final Row... rows) {
+        TestResultSetFuture future = new TestResultSetFuture();
+        future.set(resultSet(rows));
+        return future;
+    }
+
+    private static class TestResultSetFuture extends AbstractFuture<ResultSet> implements ResultSetFuture {
+
+        @Override
+        public boolean set(final ResultSet value) {
+            return super.set(value);
+        }
+
+        @Override
+        public boolean setException(final Throwable throwable) {
+            return super.setException(throwable);
+        }
+
+        @Override
+        public ResultSet getUninterruptibly() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ResultSet getUninterruptibly(final long timeout, final TimeUnit unit) {
+            throw new UnsupportedOperationException();
+        }
+    }
 }
@@ -0,0 +1,184 @@
+package org.zalando.planb.revocation.persistence;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.zalando.planb.revocation.domain.ImmutableRefresh;
+import org.zalando.planb.revocation.domain.Refresh;
+import org.zalando.planb.revocation.domain.RevocationData;
+import org.zalando.planb.revocation.util.InstantTimestamp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.zalando.planb.revocation.util.domain.DomainUtils.revocationData;
+
+/**
+ * Unit tests for {@link RevocationTailer}.
+ *
+ * @author <a href="mailto:team-greendale@zalando.de">Team Greendale</a>
+ */
+public class RevocationTailerTest {
+
+    private static final RevocationData HALF_A_MINUTE_AGO = revocationData(InstantTimestamp.NOW.seconds() - 30);
+
+    private static final RevocationData NOW = revocationData(InstantTimestamp.NOW.seconds());
+
+    private RevocationStore store;
+
+    private RevocationTailer tailer;
+
+    private List<RevocationData> notified;
+
+    private List<Refresh> refreshes;
+
+    @Before
+    public void setUp() {
+        store = mock(RevocationStore.class);
+        tailer = new RevocationTailer(store, 60, new MetricRegistry());
+
+        notified = new ArrayList<>();
+        refreshes = new ArrayList<>();
+        tailer.addListener(new RevocationTailer.Listener() {
+
+            @Override
+            public void onRevocations(final List<RevocationData> revocations) {
+                notified.addAll(revocations);
+            }
+
+            @Override
+            public void onRefresh(final Refresh refresh) {
+                refreshes.add(refresh);
+            }
+        });
+    }
+
+    /**
+     * Tests that revocations stored before the first tail are not notified, and new ones are notified only once.
+     */
+    @Test
+    public void testNotifiesNewRevocationsOnce() {
+        when(store.getRevocations(anyInt())).thenReturn(Collections.singletonList(HALF_A_MINUTE_AGO));
+        tailer.initialize();
+        assertThat(notified).isEmpty();
+
+        doReturn(Arrays.asList(HALF_A_MINUTE_AGO, NOW)).when(store).getRevocations(anyInt());
+        tailer.tail();
+        tailer.tail();
+
+        assertThat(notified).containsExactly(NOW);
+        assertThat(tailer.getHighWaterMark()).isEqualTo(NOW.revokedAt());
+    }
+
+    /**
+     * Tests that listeners are notified when the latest refresh notification changes.
+     */
+    @Test
+    public void testNotifiesNewRefresh() {
+        when(store.getRevocations(anyInt())).thenReturn(Collections.emptyList());
+        tailer.initialize();
+
+        Refresh refresh = ImmutableRefresh.builder().refreshFrom(InstantTimestamp.ONE_HOUR_AGO.seconds()).build();
+        when(store.getRefresh()).thenReturn(refresh);
+        tailer.tail();
+        tailer.tail();
+
+        assertThat(refreshes).containsExactly(refresh);
+    }
+
+    /**
+     * Tests that listeners are told about each successful query, but not about failed ones.
+     */
+    @Test
+    public void testNotifiesTail() {
+        List<Integer> tails = new ArrayList<>();
+        tailer.addListener(new RevocationTailer.Listener() {
+
+            @Override
+            public void onTail(final int tailedAt) {
+                tails.add(tailedAt);
+            }
+        });
+        when(store.getRevocations(anyInt())).thenReturn(Collections.emptyList());
+        tailer.initialize();
+        assertThat(tails).hasSize(1);
+
+        when(store.getRevocations(anyInt())).thenThrow(new IllegalStateException("unavailable"));
+        tailer.initialize();
+        assertThat(tails).hasSize(1);
+    }
+
+    /**
+     * Tests that a requested tail queries the store on a background thread.
+     */
+    @Test
+    public void testRequestedTail() throws InterruptedException {
+        when(store.getRevocations(anyInt())).thenReturn(Collections.emptyList());
+        tailer.initialize();
+
+        CountDownLatch tailed = new CountDownLatch(1);
+        tailer.addListener(new RevocationTailer.Listener() {
+
+            @Override
+            public void onRevocations(final List<RevocationData> revocations) {
+                tailed.countDown();
+            }
+        });
+        doReturn(Collections.singletonList(NOW)).when(store).getRevocations(anyInt());
+        tailer.requestTail();
+
+        assertThat(tailed.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(notified).containsExactly(NOW);
+    }
+
+    /**
+     * Tests that requested tails are dropped once the tailer is shut down.
+     */
+    @Test
+    public void testRequestedTailAfterShutdown() {
+        when(store.getRevocations(anyInt())).thenReturn(Collections.emptyList());
+        tailer.initialize();
+        tailer.shutdown();
+
+        tailer.requestTail();
+        tailer.requestTail();
+
+        verify(store).getRevocations(anyInt());
+    }
+
+    /**
+     * Tests that removed listeners are not notified anymore.
+     */
+    @Test
+    public void testRemovedListenerIsNotNotified() {
+        when(store.getRevocations(anyInt())).thenReturn(Collections.emptyList());
+        tailer.initialize();
+
+        List<RevocationData> removed = new ArrayList<>();
+        RevocationTailer.Listener listener = new RevocationTailer.Listener() {
+
+            @Override
+            public void onRevocations(final List<RevocationData> revocations) {
+                removed.addAll(revocations);
+            }
+        };
+        tailer.addListener(listener);
+        tailer.removeListener(listener);
+
+        doReturn(Collections.singletonList(NOW)).when(store).getRevocations(anyInt());
+        tailer.tail();
+
+        assertThat(removed).isEmpty();
+        assertThat(notified).containsExactly(NOW);
+    }
+}
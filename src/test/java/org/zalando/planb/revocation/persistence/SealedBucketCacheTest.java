@@ -0,0 +1,97 @@
+package org.zalando.planb.revocation.persistence;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.zalando.planb.revocation.domain.ImmutableRevocationData;
+import org.zalando.planb.revocation.domain.RevocationData;
+import org.zalando.planb.revocation.domain.RevocationType;
+import org.zalando.planb.revocation.persistence.CassandraRevocationStore.Bucket;
+import org.zalando.planb.revocation.util.domain.DomainUtils;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for {@link SealedBucketCache}.
+ *
+ * @author <a href="mailto:team-greendale@zalando.de">Team Greendale</a>
+ */
+public class SealedBucketCacheTest {
+
+    private static final int BUCKET_START = 1456790400; // 2016-03-01T00:00:00Z
+
+    private static final int BUCKET_END = BUCKET_START + 8 * 60 * 60;
+
+    private static final int TIME_TO_LIVE = 7200;
+
+    private static final Bucket BUCKET = new Bucket("2016-03-01", 0, BUCKET_START);
+
+    private static final List<RevocationData> REVOCATIONS = Collections.singletonList(
+            ImmutableRevocationData.builder()
+                    .revocationRequest(DomainUtils.revocationRequest(RevocationType.TOKEN))
+                    .revokedAt(BUCKET_START + 10)
+                    .build());
+
+    private MetricRegistry metricRegistry;
+
+    private SealedBucketCache cache;
+
+    @Before
+    public void setUp() {
+        metricRegistry = new MetricRegistry();
+        cache = new SealedBucketCache(10, TIME_TO_LIVE, metricRegistry);
+    }
+
+    /**
+     * Tests that buckets are only sealed after the grace period following their end.
+     */
+    @Test
+    public void testIsSealed() {
+        assertThat(cache.isSealed(BUCKET, BUCKET_END - 1)).isFalse();
+        assertThat(cache.isSealed(BUCKET, BUCKET_END + SealedBucketCache.SEAL_GRACE - 1)).isFalse();
+        assertThat(cache.isSealed(BUCKET, BUCKET_END + SealedBucketCache.SEAL_GRACE)).isTrue();
+    }
+
+    /**
+     * Tests that hits and misses are counted.
+     */
+    @Test
+    public void testHitsAndMisses() {
+        assertThat(cache.get(BUCKET, BUCKET_END + 100)).isNull();
+
+        cache.put(BUCKET, REVOCATIONS);
+        assertThat(cache.get(new Bucket("2016-03-01", 0, BUCKET_START), BUCKET_END + 100)).isEqualTo(REVOCATIONS);
+        assertThat(cache.get(new Bucket("2016-03-01", 1, BUCKET_END), BUCKET_END + 100)).isNull();
+
+        assertThat(metricRegistry.counter(SealedBucketCache.METRIC_PREFIX + ".hits").getCount()).isEqualTo(1);
+        assertThat(metricRegistry.counter(SealedBucketCache.METRIC_PREFIX + ".misses").getCount()).isEqualTo(2);
+    }
+
+    /**
+     * Tests that buckets are evicted once all their rows expired.
+     */
+    @Test
+    public void testEvictionAfterTimeToLive() {
+        cache.put(BUCKET, REVOCATIONS);
+
+        assertThat(cache.get(BUCKET, BUCKET_END + TIME_TO_LIVE - 1)).isEqualTo(REVOCATIONS);
+        assertThat(cache.get(BUCKET, BUCKET_END + TIME_TO_LIVE)).isNull();
+        assertThat(metricRegistry.counter(SealedBucketCache.METRIC_PREFIX + ".evictions").getCount()).isEqualTo(1);
+    }
+
+    /**
+     * Tests that buckets are kept, and no revocations are considered expired, without a time to live.
+     */
+    @Test
+    public void testWithoutTimeToLive() {
+        SealedBucketCache unlimited = new SealedBucketCache(10, 0, metricRegistry);
+        unlimited.put(BUCKET, REVOCATIONS);
+
+        assertThat(unlimited.get(BUCKET, BUCKET_END + TIME_TO_LIVE * 100)).isEqualTo(REVOCATIONS);
+        assertThat(unlimited.expiredUpTo(BUCKET_END)).isZero();
+        assertThat(cache.expiredUpTo(BUCKET_END)).isEqualTo(BUCKET_END - TIME_TO_LIVE);
+    }
+}
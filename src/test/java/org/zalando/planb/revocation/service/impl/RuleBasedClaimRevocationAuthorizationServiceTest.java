@@ -0,0 +1,166 @@
+package org.zalando.planb.revocation.service.impl;
+
+import com.codahale.metrics.MetricRegistry;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.PlainJWT;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.zalando.planb.revocation.api.exception.RevocationUnauthorizedException;
+import org.zalando.planb.revocation.config.properties.CassandraProperties;
+import org.zalando.planb.revocation.config.properties.RevocationProperties;
+import org.zalando.planb.revocation.domain.AuthorizationRule;
+import org.zalando.planb.revocation.domain.ImmutableAuthorizationRule;
+import org.zalando.planb.revocation.domain.ImmutableRevokedClaimsData;
+import org.zalando.planb.revocation.domain.RevokedClaimsData;
+import org.zalando.planb.revocation.persistence.InMemoryAuthorizationRuleStore;
+
+import java.util.Date;
+
+import static com.google.common.collect.ImmutableMap.of;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link RuleBasedClaimRevocationAuthorizationService}.
+ *
+ * @author <a href="mailto:team-greendale@zalando.de">Team Greendale</a>
+ */
+public class RuleBasedClaimRevocationAuthorizationServiceTest {
+
+    private static final AuthorizationRule SERVICES = ImmutableAuthorizationRule.builder()
+            .requiredUserClaims(of("sub", "test0"))
+            .allowedRevocationClaims(of("realm", "/services"))
+            .build();
+
+    private static final AuthorizationRule EMPLOYEES = ImmutableAuthorizationRule.builder()
+            .requiredUserClaims(of("sub", "test0"))
+            .allowedRevocationClaims(of("realm", "/employees"))
+            .build();
+
+    private static final RevokedClaimsData SERVICE_CLAIMS = ImmutableRevokedClaimsData.builder()
+            .putClaims("realm", "/services")
+            .putClaims("uid", "jdoe")
+            .build();
+
+    private static final RevokedClaimsData EMPLOYEE_CLAIMS = ImmutableRevokedClaimsData.builder()
+            .putClaims("realm", "/employees")
+            .putClaims("uid", "jdoe")
+            .build();
+
+    private MetricRegistry metricRegistry;
+
+    private InMemoryAuthorizationRuleStore store;
+
+    private RuleBasedClaimRevocationAuthorizationService service;
+
+    @Before
+    public void setUp() {
+        metricRegistry = new MetricRegistry();
+        store = spy(new InMemoryAuthorizationRuleStore());
+        store.store(SERVICES);
+        service = new RuleBasedClaimRevocationAuthorizationService(store, new RevocationProperties(),
+                new CassandraProperties(), metricRegistry);
+    }
+
+    @After
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    /**
+     * Tests that repeated revocations by the same caller are authorized without matching the rules again.
+     */
+    @Test
+    public void testDecisionsAreCached() {
+        authenticate(new Date(System.currentTimeMillis() + 3600_000));
+
+        service.checkClaimBasedRevocation(SERVICE_CLAIMS);
+        service.checkClaimBasedRevocation(ImmutableRevokedClaimsData.builder()
+                .putClaims("uid", "jdoe")
+                .putClaims("realm", "/services")
+                .build());
+
+        verify(store, times(1)).retrieveByMatchingClaims(any(AuthorizationRule.class));
+        assertThat(metricRegistry.counter(RuleBasedClaimRevocationAuthorizationService.METRIC_PREFIX + ".hits")
+                .getCount()).isEqualTo(1);
+    }
+
+    /**
+     * Tests that unauthorized revocations are cached as well, and that all decisions are dropped when rules change.
+     */
+    @Test
+    public void testDecisionsAreDroppedWhenRulesChange() {
+        authenticate(new Date(System.currentTimeMillis() + 3600_000));
+
+        assertThatThrownBy(() -> service.checkClaimBasedRevocation(EMPLOYEE_CLAIMS))
+                .isInstanceOf(RevocationUnauthorizedException.class);
+        assertThatThrownBy(() -> service.checkClaimBasedRevocation(EMPLOYEE_CLAIMS))
+                .isInstanceOf(RevocationUnauthorizedException.class);
+        verify(store, times(1)).retrieveByMatchingClaims(any(AuthorizationRule.class));
+
+        store.store(ImmutableAuthorizationRule.builder()
+                .requiredUserClaims(of("sub", "test0"))
+                .allowedRevocationClaims(of("realm", "/employees"))
+                .build());
+
+        service.checkClaimBasedRevocation(EMPLOYEE_CLAIMS);
+        verify(store, times(2)).retrieveByMatchingClaims(any(AuthorizationRule.class));
+    }
+
+    /**
+     * Tests that decisions made while rules change are made again, since they may be based on the old rules.
+     */
+    @Test
+    public void testDecisionsMadeWhileRulesChangeAreNotReused() {
+        authenticate(new Date(System.currentTimeMillis() + 3600_000));
+        doAnswer(invocation -> {
+            Object rules = invocation.callRealMethod();
+            store.store(EMPLOYEES);
+            return rules;
+        }).doCallRealMethod().when(store).retrieveByMatchingClaims(any(AuthorizationRule.class));
+
+        assertThatThrownBy(() -> service.checkClaimBasedRevocation(EMPLOYEE_CLAIMS))
+                .isInstanceOf(RevocationUnauthorizedException.class);
+        service.checkClaimBasedRevocation(EMPLOYEE_CLAIMS);
+
+        verify(store, times(2)).retrieveByMatchingClaims(any(AuthorizationRule.class));
+    }
+
+    /**
+     * Tests that decisions for expired tokens are not cached.
+     */
+    @Test
+    public void testDecisionsExpireWithToken() {
+        authenticate(new Date(System.currentTimeMillis() - 1000));
+
+        service.checkClaimBasedRevocation(SERVICE_CLAIMS);
+        service.checkClaimBasedRevocation(SERVICE_CLAIMS);
+
+        verify(store, times(2)).retrieveByMatchingClaims(any(AuthorizationRule.class));
+    }
+
+    private static void authenticate(final Date expirationTime) {
+        String accessToken = new PlainJWT(new JWTClaimsSet.Builder()
+                .subject("test0")
+                .claim("realm", "/services")
+                .expirationTime(expirationTime)
+                .build()).serialize();
+
+        Authentication user = mock(Authentication.class);
+        when(user.getDetails()).thenReturn(of("access_token", accessToken));
+        OAuth2Authentication authentication = mock(OAuth2Authentication.class);
+        when(authentication.getUserAuthentication()).thenReturn(user);
+        SecurityContextHolder.getContext().setAuthentication(authentication);
+    }
+}
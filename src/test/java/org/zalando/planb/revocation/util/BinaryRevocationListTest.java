@@ -0,0 +1,115 @@
+package org.zalando.planb.revocation.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.guava.GuavaModule;
+import org.junit.Test;
+import org.zalando.planb.revocation.domain.ImmutableRevocationInfo;
+import org.zalando.planb.revocation.domain.ImmutableRevocationList;
+import org.zalando.planb.revocation.domain.ImmutableRevokedTokenInfo;
+import org.zalando.planb.revocation.domain.NotificationType;
+import org.zalando.planb.revocation.domain.RevocationList;
+import org.zalando.planb.revocation.domain.RevocationType;
+import org.zalando.planb.revocation.util.domain.DomainUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.zip.GZIPOutputStream;
+
+import static com.fasterxml.jackson.databind.PropertyNamingStrategy.CAMEL_CASE_TO_LOWER_CASE_WITH_UNDERSCORES;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for {@link BinaryRevocationListWriter} and {@link BinaryRevocationListReader}.
+ *
+ * @author <a href="mailto:team-greendale@zalando.de">Team Greendale</a>
+ */
+public class BinaryRevocationListTest {
+
+    /**
+     * Tests that all revocation types and meta information are read back as written.
+     */
+    @Test
+    public void testRoundTrip() throws IOException {
+        RevocationList revocationList = ImmutableRevocationList.builder()
+                .addRevocations(DomainUtils.revocationInfo(RevocationType.TOKEN))
+                .addRevocations(DomainUtils.revocationInfo(RevocationType.CLAIM))
+                .addRevocations(DomainUtils.revocationInfo(RevocationType.GLOBAL))
+                .addRevocations(DomainUtils.revocationInfo(RevocationType.TOKEN))
+                .putMeta(NotificationType.CURSOR, "AQAAAAE")
+                .putMeta(NotificationType.MAX_TIME_DELTA, 2678400)
+                .putMeta(NotificationType.REFRESH_FROM, InstantTimestamp.FIVE_MINUTES_AGO.seconds())
+                .build();
+
+        assertThat(BinaryRevocationListReader.decode(BinaryRevocationListWriter.encode(revocationList)))
+                .isEqualTo(revocationList);
+    }
+
+    /**
+     * Tests that hashes which are not padded URL Base64 are kept as they are.
+     */
+    @Test
+    public void testHashesWhichAreNotBase64() throws IOException {
+        RevocationList revocationList = ImmutableRevocationList.builder()
+                .addRevocations(tokenRevocation(InstantTimestamp.NOW.seconds(), "not base64!"))
+                .addRevocations(tokenRevocation(InstantTimestamp.NOW.seconds(),
+                        "cgWc1EpFBvg31Qxr0lpviEkhAwp64Z-9MhaIIv94RiM"))
+                .build();
+
+        assertThat(BinaryRevocationListReader.decode(BinaryRevocationListWriter.encode(revocationList)))
+                .isEqualTo(revocationList);
+    }
+
+    /**
+     * Tests that data in another format is rejected.
+     */
+    @Test
+    public void testExceptionWhenNotBinaryRevocationList() {
+        assertThatThrownBy(() -> BinaryRevocationListReader.decode("{\"revocations\":[]}".getBytes(UTF_8)))
+                .isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> BinaryRevocationListReader.decode(new byte[]{'P', 'B', 'R', 'L', 1, 1}))
+                .isInstanceOf(IOException.class);
+    }
+
+    /**
+     * Tests that a typical list of token revocations is smaller than its gzipped JSON representation.
+     */
+    @Test
+    public void testSmallerThanGzippedJson() throws IOException, NoSuchAlgorithmException {
+        ImmutableRevocationList.Builder builder = ImmutableRevocationList.builder();
+        int revokedAt = InstantTimestamp.ONE_HOUR_AGO.seconds();
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        for (int i = 0; i < 1000; i++) {
+            revokedAt += i % 7;
+            String hash = Base64.getUrlEncoder().encodeToString(digest.digest(("token" + i).getBytes(UTF_8)));
+            builder.addRevocations(tokenRevocation(revokedAt, hash));
+        }
+        RevocationList revocationList = builder.build();
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.setPropertyNamingStrategy(CAMEL_CASE_TO_LOWER_CASE_WITH_UNDERSCORES);
+        objectMapper.registerModule(new GuavaModule());
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(json)) {
+            objectMapper.writeValue(gzip, revocationList);
+        }
+
+        assertThat(BinaryRevocationListWriter.encode(revocationList).length).isLessThan(json.size());
+    }
+
+    private static ImmutableRevocationInfo tokenRevocation(final int revokedAt, final String hash) {
+        return ImmutableRevocationInfo.builder()
+                .type(RevocationType.TOKEN)
+                .revokedAt(revokedAt)
+                .data(ImmutableRevokedTokenInfo.builder()
+                        .tokenHash(hash)
+                        .hashAlgorithm("SHA-256")
+                        .issuedBefore(revokedAt - 1)
+                        .build())
+                .build();
+    }
+}
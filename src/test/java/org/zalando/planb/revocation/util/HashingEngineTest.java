@@ -0,0 +1,113 @@
+package org.zalando.planb.revocation.util;
+
+import org.junit.Test;
+import org.zalando.planb.revocation.domain.ImmutableRevokedClaimsData;
+import org.zalando.planb.revocation.domain.ImmutableRevokedGlobal;
+import org.zalando.planb.revocation.domain.ImmutableRevokedTokenData;
+import org.zalando.planb.revocation.domain.RevocationType;
+import org.zalando.planb.revocation.domain.RevokedData;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Random;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for {@link HashingEngine}, comparing its output with a straightforward implementation.
+ *
+ * @author <a href="mailto:team-greendale@zalando.de">Team Greendale</a>
+ */
+public class HashingEngineTest {
+
+    private static final String SALT = "seasaltisthebest";
+
+    private final MessageHasher messageHasher = ImmutableMessageHasher.builder()
+            .putHashingAlgorithms(RevocationType.TOKEN, "SHA-256")
+            .putHashingAlgorithms(RevocationType.CLAIM, "SHA-512")
+            .salt(SALT)
+            .separator('|')
+            .build();
+
+    /**
+     * Tests single and concatenated messages, including multi-byte characters and unpaired surrogates.
+     */
+    @Test
+    public void testSameOutputAsStraightforwardHashing() throws NoSuchAlgorithmException {
+        String[][] messages = {
+                {"A very secret Message"},
+                {""},
+                {"", ""},
+                {"jdoe", "employees", "42"},
+                {"café", "€100", "😀"},
+                {"lone \ud83d surrogate", "\ude00"},
+        };
+
+        for (String[] message : messages) {
+            assertThat(messageHasher.hashAndEncode(RevocationType.TOKEN, message))
+                    .isEqualTo(expected("SHA-256", message));
+            assertThat(messageHasher.hashAndEncode(RevocationType.CLAIM, Arrays.asList(message)))
+                    .isEqualTo(expected("SHA-512", message));
+        }
+    }
+
+    /**
+     * Tests that buffers are reused correctly for messages of varying length.
+     */
+    @Test
+    public void testRandomMessages() throws NoSuchAlgorithmException {
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            char[] chars = new char[random.nextInt(2000)];
+            for (int c = 0; c < chars.length; c++) {
+                chars[c] = (char) random.nextInt(Character.MAX_VALUE + 1);
+            }
+            String message = new String(chars);
+
+            assertThat(messageHasher.hashAndEncode(RevocationType.TOKEN, message))
+                    .isEqualTo(expected("SHA-256", message));
+        }
+    }
+
+    /**
+     * Tests that messages are only encoded when no algorithm is configured.
+     */
+    @Test
+    public void testWithoutAlgorithm() throws NoSuchAlgorithmException {
+        MessageHasher nullHasher = ImmutableMessageHasher.builder().salt(SALT).separator('|').build();
+
+        assertThat(nullHasher.hashAndEncode(RevocationType.TOKEN, "jdoe", "€"))
+                .isEqualTo(Base64.getUrlEncoder().encodeToString("jdoe|€".getBytes(UTF_8)));
+    }
+
+    /**
+     * Tests that the batch API hashes token and claim values, and skips revocations without values.
+     */
+    @Test
+    public void testBatch() throws NoSuchAlgorithmException {
+        RevokedData token = ImmutableRevokedTokenData.builder().token("abc").build();
+        RevokedData claims = ImmutableRevokedClaimsData.builder()
+                .putClaims("sub", "jdoe")
+                .putClaims("realm", "/employees")
+                .build();
+        RevokedData global = ImmutableRevokedGlobal.builder().build();
+
+        assertThat(messageHasher.hashAndEncode(Arrays.asList(token, null, claims, global))).containsExactly(
+                expected("SHA-256", "abc"), null, expected("SHA-512", "jdoe", "/employees"), null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoMessages() throws NoSuchAlgorithmException {
+        messageHasher.hashAndEncode(RevocationType.TOKEN);
+    }
+
+    private static String expected(final String algorithm, final String... messages)
+            throws NoSuchAlgorithmException {
+        String message = String.join("|", messages);
+        byte[] hashed = MessageDigest.getInstance(algorithm).digest((SALT + message).getBytes(UTF_8));
+        return Base64.getUrlEncoder().encodeToString(hashed);
+    }
+}
@@ -15,6 +15,8 @@ import java.security.NoSuchAlgorithmException;
 import java.util.Base64;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 
 /**
  * Unit tests for message hashing.
@@ -84,6 +86,24 @@ public class MessageHashTest extends AbstractSpringTest {
                 nullHasher.hashAndEncode(RevocationType.TOKEN, MESSAGE));
     }
 
+    /**
+     * Asserts that the fingerprint only changes with the hashing configuration, and does not contain the salt.
+     */
+    @Test
+    public void testFingerprints() {
+        MessageHasher sameConfiguration = ImmutableMessageHasher.builder()
+                .hashingAlgorithms(hashingProperties.getAlgorithms())
+                .salt(hashingProperties.getSalt())
+                .separator(hashingProperties.getSeparator())
+                .build();
+        MessageHasher otherSalt = ImmutableMessageHasher.copyOf(sameConfiguration).withSalt("pepper");
+
+        assertEquals(messageHasher.fingerprints(), sameConfiguration.fingerprints());
+        assertNotEquals(messageHasher.fingerprints().get(RevocationType.TOKEN),
+                otherSalt.fingerprints().get(RevocationType.TOKEN));
+        assertFalse(messageHasher.fingerprints().get(RevocationType.TOKEN).contains(hashingProperties.getSalt()));
+    }
+
     /**
      * Tests default value properties for the MessageHasher.
      */
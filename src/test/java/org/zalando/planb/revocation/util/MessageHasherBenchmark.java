@@ -0,0 +1,132 @@
+package org.zalando.planb.revocation.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.zalando.planb.revocation.domain.ImmutableRevokedTokenData;
+import org.zalando.planb.revocation.domain.RevocationType;
+import org.zalando.planb.revocation.domain.RevokedData;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the throughput and allocation rate of {@link MessageHasher} with the former implementation, which got a
+ * new {@link MessageDigest} and concatenated strings for every hash.
+ * <p>
+ * <p>Not run by the build. Run {@link MessageHasherBenchmark#main(String[])} from the test classpath; the
+ * {@code gc.alloc.rate.norm} column shows the bytes allocated per operation.</p>
+ *
+ * @author <a href="mailto:team-greendale@zalando.de">Team Greendale</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageHasherBenchmark {
+
+    private static final String SALT = "seasaltisthebest";
+
+    private MessageHasher messageHasher;
+
+    private String token;
+
+    private String[] claims;
+
+    private List<RevokedData> revocations;
+
+    @Setup
+    public void setUp() {
+        messageHasher = ImmutableMessageHasher.builder()
+                .putHashingAlgorithms(RevocationType.TOKEN, "SHA-256")
+                .putHashingAlgorithms(RevocationType.CLAIM, "SHA-256")
+                .salt(SALT)
+                .separator('|')
+                .build();
+
+        token = "eyJhbGciOiJFUzI1NiJ9." + UUID.randomUUID() + UUID.randomUUID() + UUID.randomUUID();
+        claims = new String[]{"jdoe", "/employees", "planb"};
+
+        revocations = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            revocations.add(ImmutableRevokedTokenData.builder().token(token + i).build());
+        }
+    }
+
+    @Benchmark
+    public String formerToken() throws NoSuchAlgorithmException {
+        return formerHashAndEncode(token);
+    }
+
+    @Benchmark
+    public String token() throws NoSuchAlgorithmException {
+        return messageHasher.hashAndEncode(RevocationType.TOKEN, token);
+    }
+
+    @Benchmark
+    public String formerClaims() throws NoSuchAlgorithmException {
+        return formerHashAndEncode(claims);
+    }
+
+    @Benchmark
+    public String claims() throws NoSuchAlgorithmException {
+        return messageHasher.hashAndEncode(RevocationType.CLAIM, claims);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<String> formerBatch() throws NoSuchAlgorithmException {
+        List<String> hashes = new ArrayList<>(revocations.size());
+        for (RevokedData revocation : revocations) {
+            hashes.add(formerHashAndEncode(((ImmutableRevokedTokenData) revocation).token()));
+        }
+        return hashes;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<String> batch() throws NoSuchAlgorithmException {
+        return messageHasher.hashAndEncode(revocations);
+    }
+
+    /*
+     * MessageHasher#hashAndEncode before hashing was delegated to HashingEngine.
+     */
+    private static String formerHashAndEncode(final String... messages) throws NoSuchAlgorithmException {
+        StringBuilder messageConcatenated = new StringBuilder();
+        for (String message : messages) {
+            messageConcatenated.append(message);
+            messageConcatenated.append('|');
+        }
+
+        String message = messageConcatenated.substring(0, messageConcatenated.length() - 1);
+        byte[] hashed = MessageDigest.getInstance("SHA-256").digest((SALT + message).getBytes());
+
+        return Base64.getUrlEncoder().encodeToString(hashed);
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MessageHasherBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
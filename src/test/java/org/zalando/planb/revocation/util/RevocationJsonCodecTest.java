@@ -0,0 +1,80 @@
+package org.zalando.planb.revocation.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.guava.GuavaModule;
+import org.junit.Before;
+import org.junit.Test;
+import org.zalando.planb.revocation.domain.ImmutableRevocationInfo;
+import org.zalando.planb.revocation.domain.ImmutableRevocationList;
+import org.zalando.planb.revocation.domain.ImmutableRevokedClaimsData;
+import org.zalando.planb.revocation.domain.ImmutableRevokedGlobal;
+import org.zalando.planb.revocation.domain.ImmutableRevokedTokenData;
+import org.zalando.planb.revocation.domain.ImmutableRevokedTokenInfo;
+import org.zalando.planb.revocation.domain.NotificationType;
+import org.zalando.planb.revocation.domain.RevocationList;
+import org.zalando.planb.revocation.domain.RevocationType;
+import org.zalando.planb.revocation.domain.RevokedData;
+
+import static com.fasterxml.jackson.databind.PropertyNamingStrategy.CAMEL_CASE_TO_LOWER_CASE_WITH_UNDERSCORES;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for {@link RevocationJsonCodec}.
+ *
+ * @author <a href="mailto:team-greendale@zalando.de">Team Greendale</a>
+ */
+public class RevocationJsonCodecTest {
+
+    private ObjectMapper objectMapper;
+
+    private RevocationJsonCodec codec;
+
+    @Before
+    public void setUp() {
+        objectMapper = new ObjectMapper();
+        objectMapper.setPropertyNamingStrategy(CAMEL_CASE_TO_LOWER_CASE_WITH_UNDERSCORES);
+        objectMapper.registerModule(new GuavaModule());
+        codec = new RevocationJsonCodec(objectMapper);
+    }
+
+    /**
+     * Tests that the data of revocations is written as with the object mapper, and read back according to its type.
+     */
+    @Test
+    public void testRevokedDataRoundTrip() throws Exception {
+        RevokedData token = ImmutableRevokedTokenData.builder().token("abc").issuedBefore(1000).build();
+        RevokedData claims = ImmutableRevokedClaimsData.builder().putClaims("uid", "jdoe").issuedBefore(1000).build();
+        RevokedData global = ImmutableRevokedGlobal.builder().issuedBefore(1000).build();
+
+        for (RevokedData data : new RevokedData[]{token, claims, global}) {
+            assertThat(codec.writeValueAsString(data)).isEqualTo(objectMapper.writeValueAsString(data));
+        }
+        assertThat(codec.readData(RevocationType.TOKEN, codec.writeValueAsString(token))).isEqualTo(token);
+        assertThat(codec.readData(RevocationType.CLAIM, codec.writeValueAsString(claims))).isEqualTo(claims);
+        assertThat(codec.readData(RevocationType.GLOBAL, codec.writeValueAsString(global))).isEqualTo(global);
+    }
+
+    /**
+     * Tests that revocation lists are written as with the object mapper, and read back.
+     */
+    @Test
+    public void testRevocationListRoundTrip() throws Exception {
+        RevocationList list = ImmutableRevocationList.builder()
+                .putMeta(NotificationType.REFRESH_FROM, 1000)
+                .addRevocations(ImmutableRevocationInfo.builder()
+                        .type(RevocationType.TOKEN)
+                        .revokedAt(1000)
+                        .data(ImmutableRevokedTokenInfo.builder()
+                                .tokenHash("hash")
+                                .hashAlgorithm("SHA-256")
+                                .issuedBefore(999)
+                                .build())
+                        .build())
+                .build();
+
+        String json = codec.writeValueAsString(list);
+
+        assertThat(json).isEqualTo(objectMapper.writeValueAsString(list));
+        assertThat(codec.revocationListReader().<RevocationList>readValue(json)).isEqualTo(list);
+    }
+}
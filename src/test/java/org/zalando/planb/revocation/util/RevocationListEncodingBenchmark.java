@@ -0,0 +1,159 @@
+package org.zalando.planb.revocation.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.guava.GuavaModule;
+import com.google.common.collect.ImmutableMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.zalando.planb.revocation.domain.ImmutableRevocationInfo;
+import org.zalando.planb.revocation.domain.ImmutableRevocationList;
+import org.zalando.planb.revocation.domain.ImmutableRevokedClaimsInfo;
+import org.zalando.planb.revocation.domain.ImmutableRevokedTokenInfo;
+import org.zalando.planb.revocation.domain.NotificationType;
+import org.zalando.planb.revocation.domain.RevocationList;
+import org.zalando.planb.revocation.domain.RevocationType;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static com.fasterxml.jackson.databind.PropertyNamingStrategy.CAMEL_CASE_TO_LOWER_CASE_WITH_UNDERSCORES;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Compares the encoding and decoding time of the binary revocation list format with gzipped JSON, the representation
+ * served before.
+ * <p>
+ * <p>Not run by the build. Run {@link RevocationListEncodingBenchmark#main(String[])} from the test classpath; the
+ * sizes of both representations are printed before the benchmarks start.</p>
+ *
+ * @author <a href="mailto:team-greendale@zalando.de">Team Greendale</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RevocationListEncodingBenchmark {
+
+    @Param({"100", "10000"})
+    private int size;
+
+    private ObjectMapper objectMapper;
+
+    private RevocationList revocationList;
+
+    private byte[] gzippedJson;
+
+    private byte[] binary;
+
+    @Setup
+    public void setUp() throws IOException, NoSuchAlgorithmException {
+        objectMapper = new ObjectMapper();
+        objectMapper.setPropertyNamingStrategy(CAMEL_CASE_TO_LOWER_CASE_WITH_UNDERSCORES);
+        objectMapper.registerModule(new GuavaModule());
+
+        revocationList = revocationList(size);
+        gzippedJson = jsonGzip();
+        binary = binary();
+    }
+
+    @Benchmark
+    public byte[] jsonGzip() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            objectMapper.writeValue(gzip, revocationList);
+        }
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] binary() {
+        return BinaryRevocationListWriter.encode(revocationList);
+    }
+
+    @Benchmark
+    public RevocationList readJsonGzip() throws IOException {
+        return objectMapper.readValue(new GZIPInputStream(new ByteArrayInputStream(gzippedJson)), RevocationList.class);
+    }
+
+    @Benchmark
+    public RevocationList readBinary() throws IOException {
+        return BinaryRevocationListReader.decode(binary);
+    }
+
+    /*
+     * Mostly token revocations, a few seconds apart, with some claim revocations.
+     */
+    static RevocationList revocationList(final int size) throws NoSuchAlgorithmException {
+        final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        final ImmutableRevocationList.Builder builder = ImmutableRevocationList.builder()
+                .meta(ImmutableMap.of(NotificationType.MAX_TIME_DELTA, 2678400, NotificationType.CURSOR, "AQAAAAE"));
+
+        int revokedAt = 1460000000;
+        for (int i = 0; i < size; i++) {
+            revokedAt += i % 5;
+            final String hash = Base64.getUrlEncoder().encodeToString(digest.digest(("v" + i).getBytes(UTF_8)));
+            if (i % 10 == 0) {
+                builder.addRevocations(ImmutableRevocationInfo.builder()
+                        .type(RevocationType.CLAIM)
+                        .revokedAt(revokedAt)
+                        .data(ImmutableRevokedClaimsInfo.builder()
+                                .addNames("uid", "realm")
+                                .valueHash(hash)
+                                .hashAlgorithm("SHA-256")
+                                .separator('|')
+                                .issuedBefore(revokedAt)
+                                .build())
+                        .build());
+            } else {
+                builder.addRevocations(ImmutableRevocationInfo.builder()
+                        .type(RevocationType.TOKEN)
+                        .revokedAt(revokedAt)
+                        .data(ImmutableRevokedTokenInfo.builder()
+                                .tokenHash(hash)
+                                .hashAlgorithm("SHA-256")
+                                .issuedBefore(revokedAt - 1)
+                                .build())
+                        .build());
+            }
+        }
+        return builder.build();
+    }
+
+    public static void main(final String[] args) throws RunnerException, IOException, NoSuchAlgorithmException {
+        for (int size : new int[]{100, 10000}) {
+            RevocationListEncodingBenchmark benchmark = new RevocationListEncodingBenchmark();
+            benchmark.size = size;
+            benchmark.setUp();
+            System.out.printf("%d revocations: JSON %d bytes, JSON+gzip %d bytes, binary %d bytes%n", size,
+                    benchmark.objectMapper.writeValueAsBytes(benchmark.revocationList).length,
+                    benchmark.gzippedJson.length, benchmark.binary.length);
+        }
+
+        new Runner(new OptionsBuilder()
+                .include(RevocationListEncodingBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
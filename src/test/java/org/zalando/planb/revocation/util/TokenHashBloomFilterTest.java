@@ -0,0 +1,80 @@
+package org.zalando.planb.revocation.util;
+
+import org.junit.Test;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for {@link TokenHashBloomFilter}.
+ *
+ * @author <a href="mailto:team-greendale@zalando.de">Team Greendale</a>
+ */
+public class TokenHashBloomFilterTest {
+
+    /**
+     * Tests that all hashes put are found, and that the false positive rate is close to the one the filter is sized
+     * for.
+     */
+    @Test
+    public void testNoFalseNegativesAndFalsePositiveRate() throws NoSuchAlgorithmException {
+        TokenHashBloomFilter filter = TokenHashBloomFilter.create(1000, 0.01);
+        for (int i = 0; i < 1000; i++) {
+            filter.put(hash("revoked" + i));
+        }
+
+        for (int i = 0; i < 1000; i++) {
+            assertThat(filter.mightContain(hash("revoked" + i))).isTrue();
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 10000; i++) {
+            if (filter.mightContain(hash("valid" + i))) {
+                falsePositives++;
+            }
+        }
+        assertThat(falsePositives).isLessThan(200);
+        assertThat(filter.getNumHashFunctions()).isEqualTo(7);
+    }
+
+    /**
+     * Tests that a filter restored from its bits and parameters finds the same hashes.
+     */
+    @Test
+    public void testRestoredFromBits() throws NoSuchAlgorithmException {
+        TokenHashBloomFilter filter = TokenHashBloomFilter.create(100, 0.01);
+        assertThat(filter.put(hash("revoked"))).isTrue();
+        assertThat(filter.put(hash("revoked"))).isFalse();
+        assertThat(filter.getInsertions()).isEqualTo(1);
+
+        TokenHashBloomFilter restored = TokenHashBloomFilter.of(filter.toByteArray(), filter.getNumBits(),
+                filter.getNumHashFunctions());
+
+        assertThat(restored.mightContain(hash("revoked"))).isTrue();
+        assertThat(restored.mightContain(hash("valid"))).isFalse();
+    }
+
+    /**
+     * Tests that hashes which can not be used as filter keys, and bits not matching the parameters, are rejected.
+     */
+    @Test
+    public void testInvalidHashesAndParameters() {
+        TokenHashBloomFilter filter = TokenHashBloomFilter.create(100, 0.01);
+
+        assertThatThrownBy(() -> filter.put("not base64!")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> filter.put("c2hvcnQ=")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> TokenHashBloomFilter.of(new byte[2], 100, 3))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> TokenHashBloomFilter.create(0, 0.01)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static String hash(final String token) throws NoSuchAlgorithmException {
+        return Base64.getUrlEncoder()
+                .encodeToString(MessageDigest.getInstance("SHA-256").digest(token.getBytes(UTF_8)));
+    }
+}
@@ -1,5 +1,7 @@
 package org.zalando.planb.revocation.util.domain;
 
+import com.datastax.driver.core.utils.UUIDs;
+import org.zalando.planb.revocation.domain.ImmutableRevocationData;
 import org.zalando.planb.revocation.domain.ImmutableRevocationInfo;
 import org.zalando.planb.revocation.domain.ImmutableRevocationRequest;
 import org.zalando.planb.revocation.domain.ImmutableRevokedClaimsData;
@@ -7,6 +9,7 @@ import org.zalando.planb.revocation.domain.ImmutableRevokedClaimsInfo;
 import org.zalando.planb.revocation.domain.ImmutableRevokedGlobal;
 import org.zalando.planb.revocation.domain.ImmutableRevokedTokenData;
 import org.zalando.planb.revocation.domain.ImmutableRevokedTokenInfo;
+import org.zalando.planb.revocation.domain.RevocationData;
 import org.zalando.planb.revocation.domain.RevocationInfo;
 import org.zalando.planb.revocation.domain.RevocationRequest;
 import org.zalando.planb.revocation.domain.RevocationType;
@@ -15,6 +18,7 @@ import org.zalando.planb.revocation.domain.RevokedInfo;
 import org.zalando.planb.revocation.util.InstantTimestamp;
 
 import java.util.Arrays;
+import java.util.UUID;
 
 /**
  * Utility classes for generating domain objects in tests.
@@ -233,4 +237,16 @@ public class DomainUtils {
     public static String revocationInfoJson(RevocationType type) {
         return SERIALIZED_REVOCATION_INFO[type.ordinal()];
     }
+
+    public static RevocationData revocationData(int revokedAt) {
+        return revocationData(revokedAt, UUIDs.timeBased());
+    }
+
+    public static RevocationData revocationData(int revokedAt, UUID bucketUuid) {
+        return ImmutableRevocationData.builder()
+                .revocationRequest(revocationRequest(RevocationType.TOKEN))
+                .revokedAt(revokedAt)
+                .bucketUuid(bucketUuid)
+                .build();
+    }
 }